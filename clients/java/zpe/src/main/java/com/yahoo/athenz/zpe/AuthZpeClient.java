@@ -24,6 +24,9 @@ import com.yahoo.athenz.auth.token.RoleToken;
 import com.yahoo.athenz.auth.token.jwts.JwtsSigningKeyResolver;
 import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.auth.util.CryptoException;
+import com.yahoo.athenz.zpe.cache.ZpeTokenCache;
+import com.yahoo.athenz.zpe.cache.ZpeTokenCacheMetrics;
+import com.yahoo.athenz.zpe.engine.ZpePolicyEvaluator;
 import com.yahoo.athenz.zpe.match.ZpeMatch;
 import com.yahoo.athenz.zpe.pkey.PublicKeyStore;
 import com.yahoo.athenz.zpe.pkey.PublicKeyStoreFactory;
@@ -36,9 +39,12 @@ import javax.naming.ldap.LdapName;
 import javax.naming.ldap.Rdn;
 import javax.net.ssl.SSLContext;
 import javax.security.auth.x500.X500Principal;
+import java.math.BigInteger;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static com.yahoo.athenz.zpe.ZpeConsts.ZPE_PROP_MILLIS_BETWEEN_ZTS_CALLS;
 
@@ -73,9 +79,114 @@ public class AuthZpeClient {
     private static PublicKeyStore publicKeyStore = null;
 
     private static final Set<String> X509_ISSUERS_NAMES = new HashSet<>();
-    private static final List<List<Rdn>> X509_ISSUERS_RDNS = new ArrayList<>();
+    private static final List<Set<Rdn>> X509_ISSUERS_RDNS = new ArrayList<>();
 
     private static int maxTokenCacheSize = 10240;
+    private static ZpeTokenCacheMetrics tokenCacheMetrics = null;
+    private static int maxDecisionCacheSize = 0;
+
+    // result of an access check along with the generation of the
+    // domain policy data it was based on
+
+    static class AccessDecision {
+        final AccessCheckStatus status;
+        final String matchRoleName;
+        final long generation;
+
+        AccessDecision(AccessCheckStatus status, final String matchRoleName, long generation) {
+            this.status = status;
+            this.matchRoleName = matchRoleName;
+            this.generation = generation;
+        }
+    }
+
+    private static final ZpeTokenCache<AccessDecision> DECISION_CACHE =
+            new ZpeTokenCache<>("decision", decision -> Long.MAX_VALUE);
+
+    // identity extracted from a role x.509 certificate along with the
+    // result of the certificate checks (status is null if the certificate
+    // is valid). the certificate is kept to verify that the cached entry
+    // is for the same certificate since the cache key is based on the
+    // serial number and the issuer hash
+
+    static class X509Identity {
+        final X509Certificate certificate;
+        final AccessCheckStatus status;
+        final String domainName;
+        final List<String> roles;
+        final long expiryTime;
+
+        X509Identity(X509Certificate certificate, AccessCheckStatus status, final String domainName,
+                final String roleName) {
+            this.certificate = certificate;
+            this.status = status;
+            this.domainName = domainName;
+            this.roles = roleName == null ? null : Collections.singletonList(roleName);
+            final Date notAfter = certificate.getNotAfter();
+            this.expiryTime = notAfter == null ? Long.MAX_VALUE : notAfter.getTime() / 1000;
+        }
+    }
+
+    private static final ZpeTokenCache<X509Identity> X509_IDENTITY_CACHE =
+            new ZpeTokenCache<>("x509Identity", identity -> identity.expiryTime);
+
+    // policy data for a domain that is fetched once and then used for
+    // all the access checks in a batch request. the domain data is
+    // retrieved from the client as a single object so the checks are
+    // not carried out against a mix of old and new policies if the
+    // domain is updated while the snapshot is created
+
+    static class PolicySnapshot {
+        final int domainCount;
+        final boolean compiledPolicyEngine;
+        final boolean caseInsensitiveMatch;
+        final long generation;
+        final ZpePolicyEvaluator domainPolicy;
+        final Map<String, List<Struct>> roleDenyAssertions;
+        final Map<String, List<Struct>> wildcardDenyAssertions;
+        final Map<String, List<Struct>> roleAllowAssertions;
+        final Map<String, List<Struct>> wildcardAllowAssertions;
+
+        PolicySnapshot(ZpeClient client, final String domain) {
+            domainCount = client.getDomainCount();
+            compiledPolicyEngine = client.isCompiledPolicyEngine();
+            caseInsensitiveMatch = client.isCaseInsensitiveMatch();
+            ZpeUpdPolLoader.DomainAssertions domainAssertions = client.getDomainAssertions(domain);
+            if (domainAssertions == null) {
+                generation = 0;
+                domainPolicy = null;
+                roleDenyAssertions = null;
+                wildcardDenyAssertions = null;
+                roleAllowAssertions = null;
+                wildcardAllowAssertions = null;
+            } else {
+                generation = domainAssertions.generation;
+                domainPolicy = domainAssertions.domainPolicy;
+                roleDenyAssertions = domainAssertions.standardRoleDenyMap;
+                wildcardDenyAssertions = domainAssertions.wildcardRoleDenyMap;
+                roleAllowAssertions = domainAssertions.standardRoleAllowMap;
+                wildcardAllowAssertions = domainAssertions.wildcardRoleAllowMap;
+            }
+        }
+    }
+
+    // result of the token validation - either the validated token
+    // or the reason why the token was rejected
+
+    static class TokenValidation<T> {
+        final T token;
+        final AccessCheckStatus status;
+
+        TokenValidation(T token, AccessCheckStatus status) {
+            this.token = token;
+            this.status = status;
+        }
+    }
+
+    // number of access checks in a batch request processed by a single
+    // task when the caller provides an executor
+
+    static int batchChunkSize = 256;
 
     public enum AccessCheckStatus {
         ALLOW {
@@ -173,6 +284,14 @@ public class AuthZpeClient {
 
         setTokenCacheMaxValue(Integer.parseInt(System.getProperty(ZpeConsts.ZPE_PROP_MAX_TOKEN_CACHE, "10240")));
 
+        // set the max access check decision cache value
+
+        setDecisionCacheMaxValue(Integer.parseInt(System.getProperty(ZpeConsts.ZPE_PROP_MAX_DECISION_CACHE, "0")));
+
+        // set the token cache metrics hook if one is configured
+
+        setTokenCacheMetricsClass(System.getProperty(ZpeConsts.ZPE_PROP_TOKEN_CACHE_METRICS_CLASS));
+
         // load the x509 issuers
         
         setX509CAIssuers(System.getProperty(ZpeConsts.ZPE_PROP_X509_CA_ISSUERS));
@@ -247,9 +366,9 @@ public class AuthZpeClient {
      * expired. However, incorrectly configured client might generate
      * a new token for every request and eventually cause the server
      * to run out of memory. Once the limit is reached, the library
-     * will no longer cache any tokens until the expiry thread cleans
-     * up the expired tokens and the size of the cache is smaller than
-     * the configured number. The value of 0 indicates no limit. The
+     * removes any expired tokens and then only caches a new token if
+     * it's used more frequently than the least frequently used token
+     * being evicted from the cache. The value of 0 indicates no limit. The
      * default value of cached tokens is 10K. The value can also be
      * configured by using the athenz.zpe.max_token_cache_entries
      * system property.
@@ -263,6 +382,70 @@ public class AuthZpeClient {
         }
     }
 
+    /**
+     * Set the limit of access check results that are cached. Clients
+     * typically carry out the same access check for the same token
+     * many times, so the results are cached based on the token domain,
+     * roles, action and resource values. The cached results are ignored
+     * once the policy data for the domain is updated. The value of 0,
+     * which is the default, disables the cache. The value can also be
+     * configured by using the athenz.zpe.max_decision_cache_entries
+     * system property.
+     * @param maxCacheSize maximum number of access check results cached
+     */
+    public static void setDecisionCacheMaxValue(int maxCacheSize) {
+        // skip any invalid values. value 0 disables the cache
+        if (maxCacheSize > -1) {
+            maxDecisionCacheSize = maxCacheSize;
+            if (maxCacheSize == 0) {
+                DECISION_CACHE.clear();
+            }
+        }
+    }
+
+    static ZpeTokenCache<AccessDecision> getDecisionCache() {
+        return DECISION_CACHE;
+    }
+
+    /**
+     * Set the metrics hook for the role and access token caches and the
+     * access check decision cache. The hook
+     * is notified of every cache hit, miss and eviction. The value can
+     * also be configured by using the athenz.zpe.token_cache_metrics_class
+     * system property.
+     * @param metrics token cache metrics implementation, null to disable
+     */
+    public static void setTokenCacheMetrics(ZpeTokenCacheMetrics metrics) {
+        tokenCacheMetrics = metrics;
+        DECISION_CACHE.setMetrics(metrics);
+        X509_IDENTITY_CACHE.setMetrics(metrics);
+        if (zpeClt == null) {
+            return;
+        }
+        if (zpeClt.getRoleTokenCacheMap() instanceof ZpeTokenCache) {
+            ((ZpeTokenCache<RoleToken>) zpeClt.getRoleTokenCacheMap()).setMetrics(metrics);
+        }
+        if (zpeClt.getAccessTokenCacheMap() instanceof ZpeTokenCache) {
+            ((ZpeTokenCache<AccessToken>) zpeClt.getAccessTokenCacheMap()).setMetrics(metrics);
+        }
+    }
+
+    public static void setTokenCacheMetricsClass(final String className) {
+
+        if (className == null || className.isEmpty()) {
+            return;
+        }
+
+        ZpeTokenCacheMetrics metrics;
+        try {
+            metrics = (ZpeTokenCacheMetrics) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (Exception ex) {
+            LOG.error("Invalid ZpeTokenCacheMetrics class: {}, error: {}", className, ex.getMessage());
+            throw new RuntimeException(ex);
+        }
+        setTokenCacheMetrics(metrics);
+    }
+
     /**
      * Set the list of Athenz CA issuers with their full DNs that
      * ZPE should honor.
@@ -281,11 +464,20 @@ public class AuthZpeClient {
             }
             X509_ISSUERS_NAMES.add(issuer.replaceAll("\\s+", ""));
             try {
-                X509_ISSUERS_RDNS.add(new LdapName(issuer).getRdns());
+                X509_ISSUERS_RDNS.add(new HashSet<>(new LdapName(issuer).getRdns()));
             } catch (InvalidNameException ex) {
                 LOG.error("Invalid issuer: {}, error: {}", issuer, ex.getMessage());
             }
         }
+
+        // the cached certificate identities include the result of
+        // the issuer check so they must be validated again
+
+        X509_IDENTITY_CACHE.clear();
+    }
+
+    static ZpeTokenCache<X509Identity> getX509IdentityCache() {
+        return X509_IDENTITY_CACHE;
     }
     
     /**
@@ -350,6 +542,9 @@ public class AuthZpeClient {
             throw new RuntimeException(ex);
         }
         zpeClt.init(null);
+        if (tokenCacheMetrics != null) {
+            setTokenCacheMetrics(tokenCacheMetrics);
+        }
     }
     
     public static PublicKey getZtsPublicKey(String keyId) {
@@ -416,41 +611,79 @@ public class AuthZpeClient {
             LOG.debug("allowAccess: action={} resource={}", action, resource);
         }
 
+        // role certificates are re-used by clients for a long time
+        // so we'll only validate and parse the certificate once
+
+        X509Identity identity = getX509Identity(cert);
+        if (identity.status != null) {
+            return identity.status;
+        }
+
+        return allowActionZPE(action, identity.domainName, resource, identity.roles, matchRoleName);
+    }
+
+    static X509Identity getX509Identity(X509Certificate cert) {
+
+        final String cacheKey = getX509IdentityKey(cert);
+        if (cacheKey != null) {
+            X509Identity identity = X509_IDENTITY_CACHE.get(cacheKey);
+            if (identity != null && identity.certificate.equals(cert)) {
+                return identity;
+            }
+        }
+
+        X509Identity identity = parseX509Identity(cert);
+        if (cacheKey != null) {
+            addTokenToCache(X509_IDENTITY_CACHE, cacheKey, identity);
+        }
+        return identity;
+    }
+
+    static String getX509IdentityKey(X509Certificate cert) {
+
+        final BigInteger serialNumber = cert.getSerialNumber();
+        final X500Principal issuer = cert.getIssuerX500Principal();
+        if (serialNumber == null || issuer == null) {
+            return null;
+        }
+        return serialNumber.toString(16) + ':' + Integer.toHexString(issuer.hashCode());
+    }
+
+    static X509Identity parseX509Identity(X509Certificate cert) {
+
         // validate the certificate against CAs if the feature
         // is configured. if the caller does not specify any
         // issuers we're not going to make any checks
 
         if (!certIssuerMatch(cert)) {
-            return AccessCheckStatus.DENY_CERT_MISMATCH_ISSUER;
+            return new X509Identity(cert, AccessCheckStatus.DENY_CERT_MISMATCH_ISSUER, null, null);
         }
 
         String subject = Crypto.extractX509CertCommonName(cert);
         if (subject == null || subject.isEmpty()) {
             LOG.error("allowAccess: missing subject in x.509 certificate");
-            return AccessCheckStatus.DENY_CERT_MISSING_SUBJECT;
+            return new X509Identity(cert, AccessCheckStatus.DENY_CERT_MISSING_SUBJECT, null, null);
         }
 
         int idx = subject.indexOf(AuthorityConsts.ROLE_SEP);
         if (idx == -1) {
             LOG.error("allowAccess: invalid role format in x.509 subject: {}", subject);
-            return AccessCheckStatus.DENY_CERT_MISSING_ROLE_NAME;
+            return new X509Identity(cert, AccessCheckStatus.DENY_CERT_MISSING_ROLE_NAME, null, null);
         }
 
         String domainName = subject.substring(0, idx);
         if (domainName.isEmpty()) {
             LOG.error("allowAccess: missing domain in x.509 subject: {}", subject);
-            return AccessCheckStatus.DENY_CERT_MISSING_DOMAIN;
+            return new X509Identity(cert, AccessCheckStatus.DENY_CERT_MISSING_DOMAIN, null, null);
         }
 
         String roleName = subject.substring(idx + AuthorityConsts.ROLE_SEP.length());
         if (roleName.isEmpty()) {
             LOG.error("allowAccess: missing role in x.509 subject: {}", subject);
-            return AccessCheckStatus.DENY_CERT_MISSING_ROLE_NAME;
+            return new X509Identity(cert, AccessCheckStatus.DENY_CERT_MISSING_ROLE_NAME, null, null);
         }
 
-        List<String> roles = new ArrayList<>();
-        roles.add(roleName);
-        return allowActionZPE(action, domainName, resource, roles, matchRoleName);
+        return new X509Identity(cert, null, domainName, roleName);
     }
     
     /**
@@ -577,6 +810,15 @@ public class AuthZpeClient {
     static AccessCheckStatus allowRoleTokenAccess(String roleToken, String resource, String action,
             StringBuilder matchRoleName) {
 
+        TokenValidation<RoleToken> validation = getValidatedRoleToken(roleToken);
+        if (validation.token == null) {
+            return validation.status;
+        }
+        return allowAccess(validation.token, resource, action, matchRoleName);
+    }
+
+    static TokenValidation<RoleToken> getValidatedRoleToken(String roleToken) {
+
         Map<String, RoleToken> tokenCache = zpeClt.getRoleTokenCacheMap();
         RoleToken rToken = tokenCache.get(roleToken);
 
@@ -593,23 +835,33 @@ public class AuthZpeClient {
                 // status code to the caller
 
                 if (isTokenExpired(rToken)) {
-                    return AccessCheckStatus.DENY_ROLETOKEN_EXPIRED;
+                    return new TokenValidation<>(null, AccessCheckStatus.DENY_ROLETOKEN_EXPIRED);
                 }
 
                 LOG.error("allowAccess: Authorization denied. Authentication failed for token={}",
                         rToken.getUnsignedToken());
-                return AccessCheckStatus.DENY_ROLETOKEN_INVALID;
+                return new TokenValidation<>(null, AccessCheckStatus.DENY_ROLETOKEN_INVALID);
             }
 
             addTokenToCache(tokenCache, roleToken, rToken);
         }
 
-        return allowAccess(rToken, resource, action, matchRoleName);
+        return new TokenValidation<>(rToken, null);
     }
 
     static AccessCheckStatus allowAccessTokenAccess(String accessToken, X509Certificate cert, String certHash,
             String resource, String action, StringBuilder matchRoleName) {
 
+        TokenValidation<AccessToken> validation = getValidatedAccessToken(accessToken, cert, certHash);
+        if (validation.token == null) {
+            return validation.status;
+        }
+        return allowAccess(validation.token, resource, action, matchRoleName);
+    }
+
+    static TokenValidation<AccessToken> getValidatedAccessToken(String accessToken, X509Certificate cert,
+            String certHash) {
+
         // if our client sent the full header including Bearer part
         // we're going to strip that out
 
@@ -626,7 +878,7 @@ public class AuthZpeClient {
 
         if (acsToken != null && cert != null && !acsToken.confirmMTLSBoundToken(cert, certHash)) {
             LOG.error("allowAccess: mTLS Client certificate confirmation failed");
-            return AccessCheckStatus.DENY_CERT_HASH_MISMATCH;
+            return new TokenValidation<>(null, AccessCheckStatus.DENY_CERT_HASH_MISMATCH);
         }
 
         if (acsToken == null) {
@@ -641,20 +893,20 @@ public class AuthZpeClient {
 
                 LOG.error("allowAccess: Authorization denied. Authentication failed for token={}",
                         ex.getMessage());
-                return (ex.getCode() == CryptoException.CERT_HASH_MISMATCH) ?
-                        AccessCheckStatus.DENY_CERT_HASH_MISMATCH : AccessCheckStatus.DENY_ROLETOKEN_INVALID;
+                return new TokenValidation<>(null, (ex.getCode() == CryptoException.CERT_HASH_MISMATCH) ?
+                        AccessCheckStatus.DENY_CERT_HASH_MISMATCH : AccessCheckStatus.DENY_ROLETOKEN_INVALID);
 
             } catch (Exception ex) {
 
                 LOG.error("allowAccess: Authorization denied. Authentication failed for token={}",
                         ex.getMessage());
-                return AccessCheckStatus.DENY_ROLETOKEN_INVALID;
+                return new TokenValidation<>(null, AccessCheckStatus.DENY_ROLETOKEN_INVALID);
             }
 
             addTokenToCache(tokenCache, accessToken, acsToken);
         }
 
-        return allowAccess(acsToken, resource, action, matchRoleName);
+        return new TokenValidation<>(acsToken, null);
     }
 
     /**
@@ -780,6 +1032,116 @@ public class AuthZpeClient {
         return retStatus;
     }
 
+    /**
+     * Determine if access is allowed for each of the given (resource, action)
+     * pairs by a user represented by the given token. The token is validated
+     * and the domain policy data is retrieved only once for all the pairs.
+     * @param token either role or access token. For role tokens:
+     *        value for the HTTP header: Athenz-Role-Auth
+     *        ex: "v=Z1;d=angler;r=admin;a=aAkjbbDMhnLX;t=1431974053;e=1431974153;k=0"
+     *        For access tokens: value for HTTP header: Authorization: Bearer access-token
+     * @param accessRequests list of domain qualified resource and action pairs
+     * @return list of AccessCheckStatus values in the same order as the access requests.
+     *        if the token is not valid, all the entries include the same DENY_* value
+     */
+    public static List<AccessCheckStatus> allowAccess(String token, List<ZpeAccessRequest> accessRequests) {
+        return allowAccess(token, null, null, accessRequests, null);
+    }
+
+    /**
+     * Determine if access is allowed for each of the given (resource, action)
+     * pairs by a user represented by the given token. The token is validated
+     * and the domain policy data is retrieved only once for all the pairs.
+     * @param token either role or access token. For role tokens:
+     *        value for the HTTP header: Athenz-Role-Auth
+     *        ex: "v=Z1;d=angler;r=admin;a=aAkjbbDMhnLX;t=1431974053;e=1431974153;k=0"
+     *        For access tokens: value for HTTP header: Authorization: Bearer access-token
+     * @param cert X509 Client Certificate used to establish the mTLS connection
+     *        submitting this request
+     * @param certHash If the connection is coming through a proxy, this includes
+     *        the certificate hash of the client certificate that was calculated
+     *        by the proxy and forwarded in a http header
+     * @param accessRequests list of domain qualified resource and action pairs
+     * @param executor optional executor to process large batches in parallel.
+     *        if null, all the checks are processed in the caller's thread
+     * @return list of AccessCheckStatus values in the same order as the access requests.
+     *        if the token is not valid, all the entries include the same DENY_* value
+     */
+    public static List<AccessCheckStatus> allowAccess(String token, X509Certificate cert, String certHash,
+            List<ZpeAccessRequest> accessRequests, Executor executor) {
+
+        if (accessRequests.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // if the token is not valid, all the entries include the
+        // reason why the token was rejected
+
+        final AccessCheckStatus status;
+        if (token.startsWith("v=Z1;")) {
+            TokenValidation<RoleToken> validation = getValidatedRoleToken(token);
+            if (validation.token != null) {
+                return allowAccess(validation.token, accessRequests, executor);
+            }
+            status = validation.status;
+        } else {
+            TokenValidation<AccessToken> validation = getValidatedAccessToken(token, cert, certHash);
+            if (validation.token != null) {
+                return allowAccess(validation.token, accessRequests, executor);
+            }
+            status = validation.status;
+        }
+        return Collections.nCopies(accessRequests.size(), status);
+    }
+
+    /**
+     * Determine if access is allowed for each of the given (resource, action)
+     * pairs by a user represented by the RoleToken.
+     * @param rToken represents the role token sent by the client that wants access to the resources
+     * @param accessRequests list of domain qualified resource and action pairs
+     * @param executor optional executor to process large batches in parallel.
+     *        if null, all the checks are processed in the caller's thread
+     * @return list of AccessCheckStatus values in the same order as the access requests
+     */
+    public static List<AccessCheckStatus> allowAccess(RoleToken rToken, List<ZpeAccessRequest> accessRequests,
+            Executor executor) {
+
+        if (rToken == null) {
+            LOG.error("allowAccess: Authorization denied. Token is null");
+            return Collections.nCopies(accessRequests.size(), AccessCheckStatus.DENY_ROLETOKEN_INVALID);
+        }
+
+        if (isTokenExpired(rToken)) {
+            return Collections.nCopies(accessRequests.size(), AccessCheckStatus.DENY_ROLETOKEN_EXPIRED);
+        }
+
+        return allowActionZPE(rToken.getDomain(), rToken.getRoles(), accessRequests, executor);
+    }
+
+    /**
+     * Determine if access is allowed for each of the given (resource, action)
+     * pairs by a user represented by the AccessToken.
+     * @param accessToken represents the access token sent by the client that wants access to the resources
+     * @param accessRequests list of domain qualified resource and action pairs
+     * @param executor optional executor to process large batches in parallel.
+     *        if null, all the checks are processed in the caller's thread
+     * @return list of AccessCheckStatus values in the same order as the access requests
+     */
+    public static List<AccessCheckStatus> allowAccess(AccessToken accessToken, List<ZpeAccessRequest> accessRequests,
+            Executor executor) {
+
+        if (accessToken == null) {
+            LOG.error("allowAccess: Authorization denied. Token is null");
+            return Collections.nCopies(accessRequests.size(), AccessCheckStatus.DENY_ROLETOKEN_INVALID);
+        }
+
+        if (isTokenExpired(accessToken)) {
+            return Collections.nCopies(accessRequests.size(), AccessCheckStatus.DENY_ROLETOKEN_EXPIRED);
+        }
+
+        return allowActionZPE(accessToken.getAudience(), accessToken.getScope(), accessRequests, executor);
+    }
+
     static boolean isTokenExpired(RoleToken roleToken) {
 
         long now  = System.currentTimeMillis() / 1000;
@@ -942,35 +1304,43 @@ public class AuthZpeClient {
      **/
     public static AccessCheckStatus allowActionZPE(String action, String tokenDomain, String resource,
             List<String> roles, StringBuilder matchRoleName) {
+        return allowActionZPE(action, tokenDomain, resource, roles, matchRoleName, null);
+    }
 
-        final String msgPrefix = "allowActionZPE: domain(" + tokenDomain + ") action(" + action +
-                ") resource(" + resource + ")";
+    /*
+     * if the policy snapshot is not provided then the policy data is
+     * retrieved from the zpe client for the given domain
+     */
+    static AccessCheckStatus allowActionZPE(String action, String tokenDomain, String resource,
+            List<String> roles, StringBuilder matchRoleName, PolicySnapshot snapshot) {
+
+        // the log message prefix is only generated when we're about to
+        // log a message so the successful checks don't create any objects
 
         if (roles == null || roles.isEmpty()) {
-            LOG.error("{} ERROR: No roles so access denied", msgPrefix);
+            LOG.error("{} ERROR: No roles so access denied", getMsgPrefix(action, tokenDomain, resource));
             return AccessCheckStatus.DENY_ROLETOKEN_INVALID;
         }
 
         if (LOG.isDebugEnabled()) {
-            LOG.debug("{} roles({}) starting...", msgPrefix, String.join(",", roles));
+            LOG.debug("{} roles({}) starting...", getMsgPrefix(action, tokenDomain, resource),
+                    String.join(",", roles));
         }
 
         if (tokenDomain == null || tokenDomain.isEmpty()) {
-            LOG.error("{} ERROR: No domain so access denied", msgPrefix);
+            LOG.error("{} ERROR: No domain so access denied", getMsgPrefix(action, tokenDomain, resource));
             return AccessCheckStatus.DENY_ROLETOKEN_INVALID;
         }
 
         if (action == null || action.isEmpty()) {
-            LOG.error("{} ERROR: No action so access denied", msgPrefix);
+            LOG.error("{} ERROR: No action so access denied", getMsgPrefix(action, tokenDomain, resource));
             return AccessCheckStatus.DENY_INVALID_PARAMETERS;
         }
-        action = action.toLowerCase();
 
         if (resource == null || resource.isEmpty()) {
-            LOG.error("{} ERROR: No resource so access denied", msgPrefix);
+            LOG.error("{} ERROR: No resource so access denied", getMsgPrefix(action, tokenDomain, resource));
             return AccessCheckStatus.DENY_INVALID_PARAMETERS;
         }
-        resource = resource.toLowerCase();
 
         // Note: if domain in token doesn't match domain in resource then there
         // will be no match of any resource in the assertions - so deny immediately
@@ -981,20 +1351,252 @@ public class AuthZpeClient {
         // for multiple domains, if the resource might contain :, it's the responsibility
         // of the caller to include the "domain-name:" prefix as part of the resource
 
-        resource = stripDomainPrefix(resource, tokenDomain, zpeClt.getDomainCount() == 1 ? resource : null);
-        if (resource == null) {
+        final int domainCount = snapshot != null ? snapshot.domainCount : zpeClt.getDomainCount();
+        final int resourceOffset = getResourceOffset(resource, tokenDomain, domainCount == 1);
+        if (resourceOffset == -1) {
             LOG.error("{} ERROR: Domain mismatch in token({}) and resource so access denied",
-                    msgPrefix, tokenDomain);
+                    getMsgPrefix(action, tokenDomain, resource), tokenDomain);
             return AccessCheckStatus.DENY_DOMAIN_MISMATCH;
         }
 
+        // if the client's assertion match objects are case-insensitive then
+        // unless we need the normalized values for the compiled domain
+        // policies, we process the action and resource values as is
+        // without creating lower case copies or substrings
+
+        final boolean compiledPolicyEngine = snapshot != null ? snapshot.compiledPolicyEngine
+                : zpeClt.isCompiledPolicyEngine();
+        final boolean caseInsensitiveMatch = snapshot != null ? snapshot.caseInsensitiveMatch
+                : zpeClt.isCaseInsensitiveMatch();
+        final boolean normalizeValues = compiledPolicyEngine || !caseInsensitiveMatch;
+
+        // if the decision cache is enabled and the client supports
+        // domain generations then check if we have already processed
+        // the same request against the current domain policy data
+
+        final long generation = maxDecisionCacheSize == 0 ? -1 : (snapshot != null ? snapshot.generation
+                : zpeClt.getDomainGeneration(tokenDomain));
+        if (generation < 0) {
+            return allowActionByValues(action, tokenDomain, resource, resourceOffset, roles,
+                    matchRoleName, snapshot, normalizeValues);
+        }
+
+        // the key is generated directly in lower case from the given values
+        // so the only allocations for a cached decision are the key itself
+
+        final String decisionKey = getDecisionKey(action, tokenDomain, resource, resourceOffset, roles);
+        AccessDecision decision = DECISION_CACHE.get(decisionKey);
+        if (decision != null && decision.generation == generation) {
+            if (decision.matchRoleName != null) {
+                matchRoleName.setLength(0);
+                matchRoleName.append(decision.matchRoleName);
+            }
+            return decision.status;
+        }
+
+        AccessCheckStatus status = allowActionByValues(action, tokenDomain, resource, resourceOffset, roles,
+                matchRoleName, snapshot, normalizeValues);
+
+        // we only cache the results of the assertion checks. the domain
+        // not found and empty cases are logged as errors so they're
+        // always processed in full
+
+        switch (status) {
+            case ALLOW:
+            case DENY:
+                DECISION_CACHE.put(decisionKey, new AccessDecision(status, matchRoleName.toString(),
+                        generation), maxDecisionCacheSize);
+                break;
+            case DENY_NO_MATCH:
+                DECISION_CACHE.put(decisionKey, new AccessDecision(status, null, generation),
+                        maxDecisionCacheSize);
+                break;
+            default:
+                break;
+        }
+        return status;
+    }
+
+    /**
+     * Determine if access is allowed for each of the given (resource, action)
+     * pairs by a user represented by the given roles. The domain policy data
+     * is retrieved only once and used for all the pairs.
+     * @param tokenDomain represents the domain the role token was issued for
+     * @param roles list of roles extracted from the role token
+     * @param accessRequests list of domain qualified resource and action pairs
+     * @param executor optional executor to process large batches in parallel.
+     *        if null, all the checks are processed in the caller's thread
+     * @return list of AccessCheckStatus values in the same order as the access requests
+     */
+    public static List<AccessCheckStatus> allowActionZPE(String tokenDomain, List<String> roles,
+            List<ZpeAccessRequest> accessRequests, Executor executor) {
+
+        final int count = accessRequests.size();
+        if (roles == null || roles.isEmpty() || tokenDomain == null || tokenDomain.isEmpty()) {
+            LOG.error("allowActionZPE: domain({}) ERROR: No domain or roles so access denied", tokenDomain);
+            return Collections.nCopies(count, AccessCheckStatus.DENY_ROLETOKEN_INVALID);
+        }
+
+        final List<ZpeAccessRequest> requests = (accessRequests instanceof RandomAccess) ?
+                accessRequests : new ArrayList<>(accessRequests);
+        final PolicySnapshot snapshot = new PolicySnapshot(zpeClt, tokenDomain);
+        final AccessCheckStatus[] results = new AccessCheckStatus[count];
+
+        if (executor == null || count <= batchChunkSize) {
+            allowActionsZPE(tokenDomain, roles, requests, 0, count, snapshot, results);
+            return Arrays.asList(results);
+        }
+
+        // we'll process the first chunk in our own thread while the
+        // rest are processed by the executor
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int start = batchChunkSize; start < count; start += batchChunkSize) {
+            final int from = start;
+            final int to = Math.min(count, start + batchChunkSize);
+            futures.add(CompletableFuture.runAsync(() ->
+                    allowActionsZPE(tokenDomain, roles, requests, from, to, snapshot, results), executor));
+        }
+        allowActionsZPE(tokenDomain, roles, requests, 0, batchChunkSize, snapshot, results);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        return Arrays.asList(results);
+    }
+
+    static void allowActionsZPE(String tokenDomain, List<String> roles, List<ZpeAccessRequest> accessRequests,
+            int from, int to, PolicySnapshot snapshot, AccessCheckStatus[] results) {
+
+        StringBuilder matchRoleName = new StringBuilder(256);
+        for (int i = from; i < to; i++) {
+            ZpeAccessRequest accessRequest = accessRequests.get(i);
+            if (accessRequest == null) {
+                results[i] = AccessCheckStatus.DENY_INVALID_PARAMETERS;
+                continue;
+            }
+            matchRoleName.setLength(0);
+            results[i] = allowActionZPE(accessRequest.getAction(), tokenDomain, accessRequest.getResource(),
+                    roles, matchRoleName, snapshot);
+        }
+    }
+
+    static AccessCheckStatus allowActionByValues(String action, String tokenDomain, String resource,
+            int resourceOffset, List<String> roles, StringBuilder matchRoleName, PolicySnapshot snapshot,
+            boolean normalizeValues) {
+
+        if (!normalizeValues) {
+            return allowActionByAssertions(action, tokenDomain, resource, resourceOffset, roles,
+                    matchRoleName, snapshot);
+        }
+
+        // toLowerCase returns the same string if the value is already
+        // in lower case so we only create copies when necessary
+
+        return allowActionByPolicies(action.toLowerCase(), tokenDomain,
+                getNormalizedResource(resource, resourceOffset), roles, matchRoleName, snapshot);
+    }
+
+    static String getNormalizedResource(final String resource, int resourceOffset) {
+
+        final int length = resource.length();
+        for (int i = resourceOffset; i < length; i++) {
+            final char c = resource.charAt(i);
+            if (Character.toLowerCase(c) != c) {
+                return resource.substring(resourceOffset).toLowerCase();
+            }
+        }
+        return resource.substring(resourceOffset);
+    }
+
+    static String getDecisionKey(final String action, final String tokenDomain, final String resource,
+            int resourceOffset, List<String> roles) {
+
+        // domain, role, action and resource values cannot include
+        // the null character so we use that as our separator. the
+        // action and resource values are appended in lower case
+
+        int length = tokenDomain.length() + action.length() + resource.length() - resourceOffset + 2;
+        for (String role : roles) {
+            length += role.length() + 1;
+        }
+
+        StringBuilder key = new StringBuilder(length);
+        key.append(tokenDomain).append('\0');
+        appendLowerCase(key, action, 0);
+        key.append('\0');
+        appendLowerCase(key, resource, resourceOffset);
+        for (String role : roles) {
+            key.append('\0').append(role);
+        }
+        return key.toString();
+    }
+
+    static void appendLowerCase(StringBuilder key, final String value, int offset) {
+        final int length = value.length();
+        for (int i = offset; i < length; i++) {
+            key.append(Character.toLowerCase(value.charAt(i)));
+        }
+    }
+
+    static String getMsgPrefix(final String action, final String tokenDomain, final String resource) {
+        return "allowActionZPE: domain(" + tokenDomain + ") action(" + action + ") resource(" + resource + ")";
+    }
+
+    /*
+     * Return the offset of the resource value after the domain prefix
+     * if the prefix matches the domain (the resource value is compared
+     * in lower case) or 0 if the resource has no prefix. If the prefix
+     * does not match the domain, then -1 is returned unless we have a
+     * single domain in which case the full resource value (offset 0)
+     * is used as is
+     */
+    static int getResourceOffset(final String resource, final String domain, boolean singleDomain) {
+
+        final int index = resource.indexOf(':');
+        if (index == -1) {
+            return 0;
+        }
+
+        if (index == domain.length()) {
+            int i = 0;
+            while (i < index && Character.toLowerCase(resource.charAt(i)) == domain.charAt(i)) {
+                i++;
+            }
+            if (i == index) {
+                return index + 1;
+            }
+        }
+
+        return singleDomain ? 0 : -1;
+    }
+
+    /*
+     * action and resource values must be in lower case and the resource
+     * value must not include the domain prefix
+     */
+    static AccessCheckStatus allowActionByPolicies(String action, String tokenDomain, String resource,
+            List<String> roles, StringBuilder matchRoleName, PolicySnapshot snapshot) {
+
+        // if our client has compiled the domain policies then we'll
+        // resolve both deny and allow assertions in a single pass
+
+        if (snapshot != null ? snapshot.compiledPolicyEngine : zpeClt.isCompiledPolicyEngine()) {
+            return allowActionByDomainPolicy(action, tokenDomain, resource, roles, matchRoleName, snapshot);
+        }
+
+        return allowActionByAssertions(action, tokenDomain, resource, 0, roles, matchRoleName, snapshot);
+    }
+
+    static AccessCheckStatus allowActionByAssertions(String action, String tokenDomain, String resource,
+            int resourceOffset, List<String> roles, StringBuilder matchRoleName, PolicySnapshot snapshot) {
+
         // first hunt by role for deny assertions since deny takes precedence
         // over allow assertions
 
         AccessCheckStatus status = AccessCheckStatus.DENY_DOMAIN_NOT_FOUND;
-        Map<String, List<Struct>> roleMap = zpeClt.getRoleDenyAssertions(tokenDomain);
+        Map<String, List<Struct>> roleMap = snapshot != null ? snapshot.roleDenyAssertions
+                : zpeClt.getRoleDenyAssertions(tokenDomain);
         if (roleMap != null && !roleMap.isEmpty()) {
-            if (actionByRole(action, tokenDomain, resource, roles, roleMap, matchRoleName)) {
+            if (actionByRole(action, tokenDomain, resource, resourceOffset, roles, roleMap, matchRoleName)) {
                 return AccessCheckStatus.DENY;
             } else {
                 status = AccessCheckStatus.DENY_NO_MATCH;
@@ -1006,9 +1608,9 @@ public class AuthZpeClient {
         // if the check was not explicitly denied by a standard role, then
         // let's process our wildcard roles for deny assertions
         
-        roleMap = zpeClt.getWildcardDenyAssertions(tokenDomain);
+        roleMap = snapshot != null ? snapshot.wildcardDenyAssertions : zpeClt.getWildcardDenyAssertions(tokenDomain);
         if (roleMap != null && !roleMap.isEmpty()) {
-            if (actionByWildCardRole(action, tokenDomain, resource, roles, roleMap, matchRoleName)) {
+            if (actionByWildCardRole(action, tokenDomain, resource, resourceOffset, roles, roleMap, matchRoleName)) {
                 return AccessCheckStatus.DENY;
             } else {
                 status = AccessCheckStatus.DENY_NO_MATCH;
@@ -1020,9 +1622,9 @@ public class AuthZpeClient {
         // so far it did not match any deny assertions so now let's
         // process our allow assertions
         
-        roleMap = zpeClt.getRoleAllowAssertions(tokenDomain);
+        roleMap = snapshot != null ? snapshot.roleAllowAssertions : zpeClt.getRoleAllowAssertions(tokenDomain);
         if (roleMap != null && !roleMap.isEmpty()) {
-            if (actionByRole(action, tokenDomain, resource, roles, roleMap, matchRoleName)) {
+            if (actionByRole(action, tokenDomain, resource, resourceOffset, roles, roleMap, matchRoleName)) {
                 return AccessCheckStatus.ALLOW;
             } else {
                 status = AccessCheckStatus.DENY_NO_MATCH;
@@ -1034,9 +1636,9 @@ public class AuthZpeClient {
         // at this point we either got an allow or didn't match anything so we're
         // going to try the wildcard roles
         
-        roleMap = zpeClt.getWildcardAllowAssertions(tokenDomain);
+        roleMap = snapshot != null ? snapshot.wildcardAllowAssertions : zpeClt.getWildcardAllowAssertions(tokenDomain);
         if (roleMap != null && !roleMap.isEmpty()) {
-            if (actionByWildCardRole(action, tokenDomain, resource, roles, roleMap, matchRoleName)) {
+            if (actionByWildCardRole(action, tokenDomain, resource, resourceOffset, roles, roleMap, matchRoleName)) {
                 return AccessCheckStatus.ALLOW;
             } else {
                 status = AccessCheckStatus.DENY_NO_MATCH;
@@ -1046,16 +1648,36 @@ public class AuthZpeClient {
         }
         
         if (status == AccessCheckStatus.DENY_DOMAIN_NOT_FOUND) {
-            LOG.error("{}: No role map found for domain={} so access denied", msgPrefix, tokenDomain);
+            LOG.error("{}: No role map found for domain={} so access denied",
+                    getMsgPrefix(action, tokenDomain, resource), tokenDomain);
         } else if (status == AccessCheckStatus.DENY_DOMAIN_EMPTY) {
-            LOG.error("{}: No policy assertions for domain={} so access denied", msgPrefix, tokenDomain);
+            LOG.error("{}: No policy assertions for domain={} so access denied",
+                    getMsgPrefix(action, tokenDomain, resource), tokenDomain);
         }
         
         return status;
     }
 
+    static AccessCheckStatus allowActionByDomainPolicy(String action, String tokenDomain, String resource,
+            List<String> roles, StringBuilder matchRoleName, PolicySnapshot snapshot) {
+
+        ZpePolicyEvaluator domainPolicy = snapshot != null ? snapshot.domainPolicy : zpeClt.getDomainPolicy(tokenDomain);
+        if (domainPolicy == null) {
+            LOG.error("{}: No role map found for domain={} so access denied",
+                    getMsgPrefix(action, tokenDomain, resource), tokenDomain);
+            return AccessCheckStatus.DENY_DOMAIN_NOT_FOUND;
+        }
+
+        AccessCheckStatus status = domainPolicy.allowAction(action, resource, roles, matchRoleName);
+        if (status == AccessCheckStatus.DENY_DOMAIN_EMPTY) {
+            LOG.error("{}: No policy assertions for domain={} so access denied",
+                    getMsgPrefix(action, tokenDomain, resource), tokenDomain);
+        }
+        return status;
+    }
+
     static boolean matchAssertions(List<Struct> asserts, String role, String action,
-            String resource, StringBuilder matchRoleName, String msgPrefix) {
+            String resource, int resourceOffset, StringBuilder matchRoleName, String msgPrefix) {
         
         ZpeMatch matchStruct;
         String passertAction = null;
@@ -1092,7 +1714,7 @@ public class AuthZpeClient {
             
             // ex: "weather:service.storage.tenant.sports.*"
             matchStruct = (ZpeMatch) strAssert.get(ZpeConsts.ZPE_RESOURCE_MATCH_STRUCT);
-            if (!matchStruct.matches(resource)) {
+            if (!matchStruct.matches(resource, resourceOffset)) {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("{}: policy({}) regexpr-match: FAILed: assert-resource({}) doesn't match resource({})",
                             msgPrefix, polName, passertResource, resource);
@@ -1113,6 +1735,11 @@ public class AuthZpeClient {
     
     static boolean actionByRole(String action, String domain, String resource,
             List<String> roles, Map<String, List<Struct>> roleMap, StringBuilder matchRoleName) {
+        return actionByRole(action, domain, resource, 0, roles, roleMap, matchRoleName);
+    }
+
+    static boolean actionByRole(String action, String domain, String resource, int resourceOffset,
+            List<String> roles, Map<String, List<Struct>> roleMap, StringBuilder matchRoleName) {
 
         // msgPrefix is only used in our debug statements so we're only
         // going to generate the value if debug is enabled
@@ -1143,7 +1770,7 @@ public class AuthZpeClient {
             // the assert resource value has the domain prefix
             // ex: "angler:angler.stuff"
             
-            if (matchAssertions(asserts, role, action, resource, matchRoleName, msgPrefix)) {
+            if (matchAssertions(asserts, role, action, resource, resourceOffset, matchRoleName, msgPrefix)) {
                 return true;
             }
         }
@@ -1153,6 +1780,11 @@ public class AuthZpeClient {
 
     static boolean actionByWildCardRole(String action, String domain, String resource,
             List<String> roles, Map<String, List<Struct>> roleMap, StringBuilder matchRoleName) {
+        return actionByWildCardRole(action, domain, resource, 0, roles, roleMap, matchRoleName);
+    }
+
+    static boolean actionByWildCardRole(String action, String domain, String resource, int resourceOffset,
+            List<String> roles, Map<String, List<Struct>> roleMap, StringBuilder matchRoleName) {
 
         String msgPrefix = null;
         if (LOG.isDebugEnabled()) {
@@ -1166,7 +1798,7 @@ public class AuthZpeClient {
 
         // we will visit each of the wildcard roles
         //
-        Set<String> keys = roleMap.keySet();
+        Set<Map.Entry<String, List<Struct>>> entries = roleMap.entrySet();
 
         for (String role: roles) {
             
@@ -1174,8 +1806,9 @@ public class AuthZpeClient {
                 LOG.debug("{}: Process role ({})", msgPrefix, role);
             }
 
-            for (String roleName : keys) {
-                List<Struct> asserts = roleMap.get(roleName);
+            for (Map.Entry<String, List<Struct>> entry : entries) {
+                final String roleName = entry.getKey();
+                List<Struct> asserts = entry.getValue();
                 if (asserts == null || asserts.isEmpty()) {
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("{}: No policy assertions in domain={} for role={} so access denied",
@@ -1203,7 +1836,7 @@ public class AuthZpeClient {
                 // the assert resource value has the domain prefix
                 // ex: "angler:angler.stuff"
                 
-                if (matchAssertions(asserts, roleName, action, resource, matchRoleName, msgPrefix)) {
+                if (matchAssertions(asserts, roleName, action, resource, resourceOffset, matchRoleName, msgPrefix)) {
                     return true;
                 }
             }
@@ -1252,7 +1885,7 @@ public class AuthZpeClient {
             X500Principal issuerCheck = new X500Principal(issuer);
             List<Rdn> issuerRdns = new LdapName(issuerCheck.getName()).getRdns();
 
-            for (List<Rdn> rdns : X509_ISSUERS_RDNS) {
+            for (Set<Rdn> rdns : X509_ISSUERS_RDNS) {
                 if (rdns.size() != issuerRdns.size()) {
                     continue;
                 }
@@ -1268,7 +1901,9 @@ public class AuthZpeClient {
     }
 
     static <T> void addTokenToCache(Map<String, T> tokenCache, final String tokenKey, T tokenValue) {
-        if (maxTokenCacheSize == 0 || tokenCache.size() < maxTokenCacheSize) {
+        if (tokenCache instanceof ZpeTokenCache) {
+            ((ZpeTokenCache<T>) tokenCache).put(tokenKey, tokenValue, maxTokenCacheSize);
+        } else if (maxTokenCacheSize == 0 || tokenCache.size() < maxTokenCacheSize) {
             tokenCache.put(tokenKey, tokenValue);
         }
     }
@@ -0,0 +1,43 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe;
+
+/**
+ * Resource and action pair for the batch access checks in AuthZpeClient.
+ */
+public class ZpeAccessRequest {
+
+    private final String resource;
+    private final String action;
+
+    /**
+     * @param resource is a domain qualified resource the calling service
+     *        will check access for. ex: "angler:pondsKernCounty"
+     * @param action is the type of access attempted by a client. ex: "read"
+     */
+    public ZpeAccessRequest(final String resource, final String action) {
+        this.resource = resource;
+        this.action = action;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public String getAction() {
+        return action;
+    }
+}
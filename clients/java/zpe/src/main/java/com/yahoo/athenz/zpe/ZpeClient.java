@@ -20,6 +20,7 @@ import java.util.Map;
 
 import com.yahoo.athenz.auth.token.AccessToken;
 import com.yahoo.athenz.auth.token.RoleToken;
+import com.yahoo.athenz.zpe.engine.ZpePolicyEvaluator;
 import com.yahoo.rdl.Struct;
 
 
@@ -54,5 +55,42 @@ public interface ZpeClient {
 
     // return the number of domains available in assertion maps
     int getDomainCount();
+
+    // return true if the authorization checks should be carried out
+    // using the compiled domain policies instead of the assertion maps
+    default boolean isCompiledPolicyEngine() {
+        return false;
+    }
+
+    // return true if the action and resource match objects in the
+    // assertion maps ignore the case of the values so the access
+    // checks can skip creating lower case copies of the values
+    default boolean isCaseInsensitiveMatch() {
+        return false;
+    }
+
+    // return the compiled policy for the specified domain
+    default ZpePolicyEvaluator getDomainPolicy(String domain) {
+        return null;
+    }
+
+    // return the generation number of the policy data for the specified
+    // domain. the value must change every time the domain assertions are
+    // updated. negative value indicates that the access check results for
+    // the domain must not be cached
+    default long getDomainGeneration(String domain) {
+        return -1;
+    }
+
+    // return all the policy data for the specified domain as a single
+    // immutable object so the access checks in a batch request use
+    // the same version of the domain policies. clients that update
+    // the domain policies must override this method to return the
+    // object that holds all the domain data
+    default ZpeUpdPolLoader.DomainAssertions getDomainAssertions(String domain) {
+        return new ZpeUpdPolLoader.DomainAssertions(getRoleAllowAssertions(domain),
+                getWildcardAllowAssertions(domain), getRoleDenyAssertions(domain),
+                getWildcardDenyAssertions(domain), getDomainPolicy(domain), getDomainGeneration(domain));
+    }
 }
 
@@ -65,12 +65,20 @@ public final class ZpeConsts {
     public static final String ZPE_PROP_MILLIS_BETWEEN_RELOAD_CONFIG = "athenz.zpe.millis_between_reload_config";
     public static final String ZPE_PROP_TOKEN_OFFSET                 = "athenz.zpe.token_allowed_offset";
     public static final String ZPE_PROP_MAX_TOKEN_CACHE              = "athenz.zpe.max_token_cache_entries";
+    public static final String ZPE_PROP_TOKEN_CACHE_METRICS_CLASS    = "athenz.zpe.token_cache_metrics_class";
+    public static final String ZPE_PROP_MAX_DECISION_CACHE           = "athenz.zpe.max_decision_cache_entries";
     public static final String ZPE_PROP_METRIC_WRITE_INTERVAL        = "athenz.zpe.metric_write_interval";
     public static final String ZPE_PROP_METRIC_FILE_PATH             = "athenz.zpe.metric_file_path";
     public static final String ZPE_PROP_MON_TIMEOUT                  = "athenz.zpe.monitor_timeout_secs";
     public static final String ZPE_PROP_MON_CLEANUP_TOKENS           = "athenz.zpe.cleanup_tokens_secs";
     public static final String ZPE_PROP_POLICY_DIR                   = "athenz.zpe.policy_dir";
+    public static final String ZPE_PROP_POLICY_DIR_WATCH             = "athenz.zpe.policy_dir_watch";
+    public static final String ZPE_PROP_POLICY_LOADER_THREADS        = "athenz.zpe.policy_loader_threads";
+    public static final String ZPE_PROP_POLICY_LOADER_METRICS_CLASS  = "athenz.zpe.policy_loader_metrics_class";
+    public static final String ZPE_PROP_POLICY_IMAGE_FILE            = "athenz.zpe.policy_image_file";
+    public static final String ZPE_PROP_POLICY_IMAGE_PUBLIC_KEY      = "athenz.zpe.policy_image_public_key";
     public static final String ZPE_PROP_SKIP_POLICY_DIR_CHECK        = "athenz.zpe.skip_policy_dir_check";
     public static final String ZPE_PROP_CHECK_POLICY_ZMS_SIGNATURE   = "athenz.zpe.check_policy_zms_signature";
     public static final String ZPE_PROP_X509_CA_ISSUERS              = "athenz.zpe.x509.ca.issuers";
+    public static final String ZPE_PROP_COMPILED_POLICY_ENGINE       = "athenz.zpe.compiled_policy_engine";
 }
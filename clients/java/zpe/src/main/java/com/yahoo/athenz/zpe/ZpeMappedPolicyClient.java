@@ -0,0 +1,275 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe;
+
+import java.io.File;
+import java.security.PublicKey;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.yahoo.athenz.auth.token.AccessToken;
+import com.yahoo.athenz.auth.token.RoleToken;
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.zpe.engine.ZpePolicyEvaluator;
+import com.yahoo.rdl.Struct;
+
+/**
+ * ZpeClient implementation that carries out the authorization checks
+ * based on a memory mapped policy image generated by the
+ * ZpePolicyImageCompiler instead of loading the policy files into
+ * the heap of every process. The access checks are evaluated directly
+ * against the compiled assertions in the image through the compiled
+ * policy interface so the assertion maps are not available from this
+ * client. If the athenz.zpe.policy_image_public_key property is set,
+ * only images signed with the matching private key are accepted.
+ * When the image is replaced, the domains whose assertions have not
+ * changed keep their generation numbers. The image file is checked
+ * for updates with the athenz.zpe.monitor_timeout_secs interval.
+ */
+public class ZpeMappedPolicyClient implements ZpeClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ZpeMappedPolicyClient.class);
+
+    private static final AtomicLong IMAGE_GENERATION = new AtomicLong();
+
+    // the mapped image with the domain policies is kept in a single
+    // object so when the image is replaced the readers never see
+    // a domain policy from the previous image
+
+    static class ImageState {
+        final ZpePolicyImage image;
+        final long lastModified;
+        final long fileSize;
+        final long generation;
+        final ConcurrentHashMap<String, ZpeUpdPolLoader.DomainAssertions> domains = new ConcurrentHashMap<>();
+
+        ImageState(ZpePolicyImage image, long lastModified, long fileSize) {
+            this.image = image;
+            this.lastModified = lastModified;
+            this.fileSize = fileSize;
+            this.generation = IMAGE_GENERATION.incrementAndGet();
+        }
+    }
+
+    private final File imageFile;
+    private final PublicKey publicKey;
+    private volatile ImageState imageState;
+    private ScheduledExecutorService scheduledExecutorSvc;
+
+    public ZpeMappedPolicyClient() {
+        this(System.getProperty(ZpeConsts.ZPE_PROP_POLICY_IMAGE_FILE, getDefaultImageFile()),
+                System.getProperty(ZpeConsts.ZPE_PROP_POLICY_IMAGE_PUBLIC_KEY));
+    }
+
+    ZpeMappedPolicyClient(final String imageFileName, final String publicKeyFileName) {
+
+        // if the public key is configured but cannot be loaded, we
+        // fail right away instead of accepting unsigned images
+
+        imageFile = new File(imageFileName);
+        publicKey = publicKeyFileName == null ? null : Crypto.loadPublicKey(new File(publicKeyFileName));
+    }
+
+    static String getDefaultImageFile() {
+        String rootDir = System.getenv("ROOT");
+        if (null == rootDir) {
+            rootDir = File.separator + "home" + File.separator + "athenz";
+        }
+        return rootDir + File.separator + "var" + File.separator + "zpe_image" + File.separator + "zpe_policy.img";
+    }
+
+    // @param domain can be null
+    @Override
+    public synchronized void init(String domain) {
+
+        loadImage();
+
+        if (scheduledExecutorSvc == null) {
+            scheduledExecutorSvc = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ZpeMappedPolicyClient-monitor-" + System.identityHashCode(r));
+                t.setDaemon(true);
+                return t;
+            });
+            scheduledExecutorSvc.scheduleAtFixedRate(this::monitorImage, ZpeUpdPolLoader.sleepTimeMillis,
+                    ZpeUpdPolLoader.sleepTimeMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduledExecutorSvc != null) {
+            scheduledExecutorSvc.shutdownNow();
+            scheduledExecutorSvc = null;
+        }
+    }
+
+    void monitorImage() {
+
+        // perform cleanup of RoleTokens and AccessTokens
+        // expired ones will be removed
+
+        ZpeUpdPolLoader.cleanupRoleTokenCache();
+        ZpeUpdPolLoader.cleanupAccessTokenCache();
+
+        try {
+            loadImage();
+        } catch (Exception ex) {
+            LOG.error("monitorImage: unable to reload policy image {}", imageFile, ex);
+        }
+    }
+
+    /**
+     * Map the policy image if the file has been updated since it was
+     * last mapped. If the image is not valid, we'll continue to use the
+     * currently mapped image.
+     * @return true if a new image was mapped
+     */
+    boolean loadImage() {
+
+        final long lastModified = imageFile.lastModified();
+        final long fileSize = imageFile.length();
+        if (lastModified == 0) {
+            LOG.error("loadImage: policy image {} does not exist", imageFile);
+            return false;
+        }
+
+        ImageState currentState = imageState;
+        if (currentState != null && currentState.lastModified == lastModified && currentState.fileSize == fileSize) {
+            return false;
+        }
+
+        ImageState newState;
+        try {
+            newState = new ImageState(ZpePolicyImage.load(imageFile, publicKey), lastModified, fileSize);
+        } catch (Exception ex) {
+            LOG.error("loadImage: unable to map policy image {}", imageFile, ex);
+            return false;
+        }
+
+        if (currentState != null) {
+            carryOverDomains(currentState, newState);
+        }
+        imageState = newState;
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("loadImage: mapped policy image {} with {} domains", imageFile,
+                    imageState.image.getDomainCount());
+        }
+        return true;
+    }
+
+    /**
+     * Carry over the generation numbers of the domains from the current
+     * image whose policy blocks are identical in the new image. The data
+     * is compared within the mapped buffers so the decision cache entries
+     * of the unchanged domains remain valid.
+     * @param currentState state of the currently mapped image
+     * @param newState state of the new image
+     */
+    void carryOverDomains(ImageState currentState, ImageState newState) {
+
+        for (Map.Entry<String, ZpeUpdPolLoader.DomainAssertions> entry : currentState.domains.entrySet()) {
+            final String domain = entry.getKey();
+            if (newState.image.isSameDomainData(currentState.image, domain)) {
+                newState.domains.put(domain, newState.image.getDomainAssertions(domain,
+                        entry.getValue().generation));
+            }
+        }
+    }
+
+    @Override
+    public ZpeUpdPolLoader.DomainAssertions getDomainAssertions(final String domain) {
+
+        ImageState state = imageState;
+        if (state == null || domain == null) {
+            return null;
+        }
+
+        // unknown domains are not cached since the domain names are
+        // provided by the callers
+
+        ZpeUpdPolLoader.DomainAssertions domainAssertions = state.domains.get(domain);
+        if (domainAssertions == null) {
+            domainAssertions = state.domains.computeIfAbsent(domain,
+                    d -> state.image.getDomainAssertions(d, state.generation));
+        }
+        return domainAssertions;
+    }
+
+    @Override
+    public Map<String, RoleToken> getRoleTokenCacheMap() {
+        return ZpeUpdPolLoader.getRoleTokenCacheMap();
+    }
+
+    @Override
+    public Map<String, AccessToken> getAccessTokenCacheMap() {
+        return ZpeUpdPolLoader.getAccessTokenCacheMap();
+    }
+
+    // the assertion maps are not built for the domains in the image
+    // since the access checks are evaluated with the compiled policies
+
+    @Override
+    public Map<String, List<Struct>> getRoleAllowAssertions(String domain) {
+        return null;
+    }
+
+    @Override
+    public Map<String, List<Struct>> getWildcardAllowAssertions(String domain) {
+        return null;
+    }
+
+    @Override
+    public Map<String, List<Struct>> getRoleDenyAssertions(String domain) {
+        return null;
+    }
+
+    @Override
+    public Map<String, List<Struct>> getWildcardDenyAssertions(String domain) {
+        return null;
+    }
+
+    @Override
+    public int getDomainCount() {
+        ImageState state = imageState;
+        return state == null ? 0 : state.image.getDomainCount();
+    }
+
+    @Override
+    public boolean isCompiledPolicyEngine() {
+        return true;
+    }
+
+    @Override
+    public ZpePolicyEvaluator getDomainPolicy(String domain) {
+        ZpeUpdPolLoader.DomainAssertions domainAssertions = getDomainAssertions(domain);
+        return domainAssertions == null ? null : domainAssertions.domainPolicy;
+    }
+
+    @Override
+    public long getDomainGeneration(String domain) {
+        ZpeUpdPolLoader.DomainAssertions domainAssertions = getDomainAssertions(domain);
+        return domainAssertions == null ? 0 : domainAssertions.generation;
+    }
+}
@@ -0,0 +1,645 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.util.List;
+
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.auth.util.CryptoException;
+import com.yahoo.athenz.zpe.AuthZpeClient.AccessCheckStatus;
+import com.yahoo.athenz.zpe.engine.ZpePolicyEvaluator;
+
+/**
+ * Read-only view of a compiled policy image generated by the
+ * ZpePolicyImageCompiler. The image is memory mapped so the pages are
+ * shared through the OS page cache by all the processes on the host
+ * that are using the same image file. The image includes the normalized
+ * assertions (role, action, resource and effect) of each domain and the
+ * access checks are evaluated directly against the mapped data so the
+ * domain policies are not decoded into the heap of the process.
+ *
+ * The signatures of the policy files are validated by the compiler.
+ * The image itself is protected by a SHA-256 digest and, if the image
+ * was generated with a private key, by the signature of the digest.
+ * Both are validated when the image is loaded.
+ *
+ * The image layout (all values big-endian):
+ *
+ *   header:  int magic, int version, int domainCount, int indexOffset,
+ *            long createTime, int bodySize
+ *   index:   domainCount entries of (int nameOffset, int dataOffset)
+ *            sorted by the domain name
+ *   entries: domain names and (int length, bytes) domain policy blocks
+ *   trailer: digest of the first bodySize bytes of the image followed
+ *            by (int length, bytes) signature of the digest. the length
+ *            is 0 if the image is not signed
+ *
+ * Strings are stored as (int length, utf-16 chars) so the names and
+ * patterns are compared with the checked values within the mapped
+ * buffer. Each domain policy block is self-contained with the offsets
+ * relative to the start of the block so the blocks can be compared
+ * between images:
+ *
+ *   header:     int assertionCount, int standardRoleCount, int wildcardRoleCount
+ *   roles:      (int nameOffset, int denyOffset, int allowOffset) entries
+ *               for the standard roles followed by the wildcard roles,
+ *               each sorted by name. the offsets of the assertion lists
+ *               are 0 if the role has no assertions with that effect
+ *   assertions: (int count, count entries of (int actionOffset, int resourceOffset))
+ *   strings:    role names, action and resource values
+ *
+ * All the offsets are validated when the image is loaded so a truncated
+ * or corrupted image is rejected and the access checks never access
+ * data outside the mapped buffer.
+ */
+public class ZpePolicyImage {
+
+    static final int IMAGE_MAGIC = 0x5A504549; // ZPEI
+    static final int IMAGE_VERSION = 3;
+    static final int HEADER_SIZE = 28;
+    static final int INDEX_ENTRY_SIZE = 8;
+    static final int DIGEST_SIZE = 32;
+    static final int DOMAIN_HEADER_SIZE = 12;
+    static final int ROLE_ENTRY_SIZE = 12;
+    static final int ASSERTION_ENTRY_SIZE = 8;
+    static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final ByteBuffer buffer;
+    private final int domainCount;
+    private final int indexOffset;
+    private final int bodySize;
+    private final long createTime;
+
+    ZpePolicyImage(ByteBuffer buffer, PublicKey publicKey) throws IOException {
+
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != IMAGE_MAGIC) {
+            throw new IOException("invalid policy image header");
+        }
+        final int version = buffer.getInt(4);
+        if (version != IMAGE_VERSION) {
+            throw new IOException("unsupported policy image version: " + version);
+        }
+        domainCount = buffer.getInt(8);
+        indexOffset = buffer.getInt(12);
+        createTime = buffer.getLong(16);
+        bodySize = buffer.getInt(24);
+        if (bodySize < HEADER_SIZE || (long) bodySize + DIGEST_SIZE + 4 > buffer.capacity()) {
+            throw new IOException("invalid policy image size");
+        }
+        if (domainCount < 0 || indexOffset < HEADER_SIZE
+                || (long) indexOffset + (long) domainCount * INDEX_ENTRY_SIZE > bodySize) {
+            throw new IOException("invalid policy image index");
+        }
+        validateDigest(publicKey);
+        validateIndex();
+    }
+
+    // verify the digest of the image and if we have a public key
+    // then the image must be signed with the matching private key
+
+    void validateDigest(PublicKey publicKey) throws IOException {
+
+        final byte[] digest = getDigest(buffer, bodySize);
+        final byte[] imageDigest = getBytes(bodySize, DIGEST_SIZE);
+        if (!MessageDigest.isEqual(digest, imageDigest)) {
+            throw new IOException("invalid policy image digest");
+        }
+
+        final int signatureOffset = bodySize + DIGEST_SIZE;
+        final int signatureLength = buffer.getInt(signatureOffset);
+        if (signatureLength < 0 || (long) signatureOffset + 4 + signatureLength != buffer.capacity()) {
+            throw new IOException("invalid policy image signature length: " + signatureLength);
+        }
+        if (publicKey == null) {
+            return;
+        }
+        if (signatureLength == 0) {
+            throw new IOException("policy image is not signed");
+        }
+
+        boolean verified;
+        try {
+            verified = Crypto.verify(digest, publicKey, getBytes(signatureOffset + 4, signatureLength),
+                    Crypto.SHA256);
+        } catch (CryptoException ex) {
+            verified = false;
+        }
+        if (!verified) {
+            throw new IOException("invalid policy image signature");
+        }
+    }
+
+    static byte[] getDigest(ByteBuffer buffer, int length) throws IOException {
+
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException("unable to generate policy image digest", ex);
+        }
+
+        // the digest is calculated over the mapped buffer without
+        // copying the image data into the heap
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(0);
+        view.limit(length);
+        messageDigest.update(view);
+        return messageDigest.digest();
+    }
+
+    // verify that all the index entries point to valid entries
+    // within the image and the domain names are sorted so the
+    // lookups never access data outside the mapped buffer
+
+    void validateIndex() throws IOException {
+
+        final int dataStart = indexOffset + domainCount * INDEX_ENTRY_SIZE;
+        int prevNameOffset = -1;
+        for (int i = 0; i < domainCount; i++) {
+            final int entryOffset = indexOffset + i * INDEX_ENTRY_SIZE;
+            final int nameOffset = buffer.getInt(entryOffset);
+            validateString(nameOffset, dataStart, bodySize);
+            validateDomain(buffer.getInt(entryOffset + 4), dataStart);
+            if (prevNameOffset != -1 && compareStrings(prevNameOffset, nameOffset) >= 0) {
+                throw new IOException("invalid policy image index order: " + getString(nameOffset));
+            }
+            prevNameOffset = nameOffset;
+        }
+    }
+
+    void validateDomain(int dataOffset, int dataStart) throws IOException {
+
+        if (dataOffset < dataStart || (long) dataOffset + 4 > bodySize) {
+            throw new IOException("invalid policy image domain offset: " + dataOffset);
+        }
+        final int blockLength = buffer.getInt(dataOffset);
+        if (blockLength < DOMAIN_HEADER_SIZE || (long) dataOffset + 4 + blockLength > bodySize) {
+            throw new IOException("invalid policy image domain length: " + blockLength + " at offset: "
+                    + dataOffset);
+        }
+
+        final int blockOffset = dataOffset + 4;
+        final int blockEnd = blockOffset + blockLength;
+        final int assertionCount = buffer.getInt(blockOffset);
+        final int standardRoleCount = buffer.getInt(blockOffset + 4);
+        final int wildcardRoleCount = buffer.getInt(blockOffset + 8);
+        if (standardRoleCount < 0 || wildcardRoleCount < 0 || (long) DOMAIN_HEADER_SIZE
+                + ((long) standardRoleCount + wildcardRoleCount) * ROLE_ENTRY_SIZE > blockLength) {
+            throw new IOException("invalid policy image role count at offset: " + dataOffset);
+        }
+
+        long count = 0;
+        for (int i = 0; i < standardRoleCount + wildcardRoleCount; i++) {
+            final int roleEntry = blockOffset + DOMAIN_HEADER_SIZE + i * ROLE_ENTRY_SIZE;
+            final int nameOffset = getBlockOffset(blockOffset, roleEntry, blockEnd);
+            validateString(nameOffset, blockOffset, blockEnd);
+            if (i != 0 && i != standardRoleCount && compareStrings(nameOffset,
+                    getBlockOffset(blockOffset, roleEntry - ROLE_ENTRY_SIZE, blockEnd)) <= 0) {
+                throw new IOException("invalid policy image role order: " + getString(nameOffset));
+            }
+            count += validateAssertions(blockOffset, roleEntry + 4, blockEnd);
+            count += validateAssertions(blockOffset, roleEntry + 8, blockEnd);
+        }
+        if (count != assertionCount) {
+            throw new IOException("invalid policy image assertion count: " + assertionCount + " at offset: "
+                    + dataOffset);
+        }
+    }
+
+    int validateAssertions(int blockOffset, int listPosition, int blockEnd) throws IOException {
+
+        if (buffer.getInt(listPosition) == 0) {
+            return 0;
+        }
+        final int listOffset = getBlockOffset(blockOffset, listPosition, blockEnd);
+        if ((long) listOffset + 4 > blockEnd) {
+            throw new IOException("invalid policy image assertion offset: " + listOffset);
+        }
+        final int count = buffer.getInt(listOffset);
+        if (count < 0 || (long) listOffset + 4 + (long) count * ASSERTION_ENTRY_SIZE > blockEnd) {
+            throw new IOException("invalid policy image assertion count: " + count + " at offset: " + listOffset);
+        }
+        for (int i = 0; i < count; i++) {
+            final int entry = listOffset + 4 + i * ASSERTION_ENTRY_SIZE;
+            validateString(getBlockOffset(blockOffset, entry, blockEnd), blockOffset, blockEnd);
+            validateString(getBlockOffset(blockOffset, entry + 4, blockEnd), blockOffset, blockEnd);
+        }
+        return count;
+    }
+
+    // returns the absolute offset of the block relative offset
+    // stored at the given position
+
+    int getBlockOffset(int blockOffset, int position, int blockEnd) throws IOException {
+        final int offset = buffer.getInt(position);
+        if (offset < DOMAIN_HEADER_SIZE || offset >= blockEnd - blockOffset) {
+            throw new IOException("invalid policy image block offset: " + offset + " at offset: " + position);
+        }
+        return blockOffset + offset;
+    }
+
+    void validateString(int offset, int start, int end) throws IOException {
+        if (offset < start || (long) offset + 4 > end) {
+            throw new IOException("invalid policy image string offset: " + offset);
+        }
+        final int length = buffer.getInt(offset);
+        if (length < 0 || (long) offset + 4 + 2L * length > end) {
+            throw new IOException("invalid policy image string length: " + length + " at offset: " + offset);
+        }
+    }
+
+    /**
+     * Map the given policy image file into memory. The file channel is
+     * closed right away since the mapping remains valid until the buffer
+     * is garbage collected.
+     * @param imageFile policy image file
+     * @param publicKey if not null, the image must be signed with the
+     *      private key matching the given public key
+     * @return policy image
+     * @throws IOException if the file cannot be mapped or is not a valid image
+     */
+    public static ZpePolicyImage load(File imageFile, PublicKey publicKey) throws IOException {
+        try (FileChannel channel = FileChannel.open(imageFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ZpePolicyImage(mappedBuffer, publicKey);
+        }
+    }
+
+    public int getDomainCount() {
+        return domainCount;
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    public boolean hasDomain(final String domainName) {
+        return findDomain(domainName) != -1;
+    }
+
+    /**
+     * Return the compiled policy of the given domain that is evaluated
+     * directly against the mapped image data
+     * @param domainName name of the domain
+     * @return domain policy or null if the domain is not in the image
+     */
+    public ZpePolicyEvaluator getDomainPolicy(final String domainName) {
+        final int dataOffset = findDomain(domainName);
+        return dataOffset == -1 ? null : new DomainPolicy(this, domainName, dataOffset + 4);
+    }
+
+    /**
+     * Return the domain assertions object for the given domain with only
+     * the compiled domain policy set since the assertion maps are not
+     * built for the domains in the image
+     * @param domainName name of the domain
+     * @param generation generation number assigned to the domain assertions
+     * @return domain assertions or null if the domain is not in the image
+     */
+    ZpeUpdPolLoader.DomainAssertions getDomainAssertions(final String domainName, long generation) {
+        ZpePolicyEvaluator domainPolicy = getDomainPolicy(domainName);
+        return domainPolicy == null ? null : new ZpeUpdPolLoader.DomainAssertions(null, null, null, null,
+                domainPolicy, generation);
+    }
+
+    /**
+     * Check if the policy block of the given domain is identical in
+     * both images. The data is compared within the mapped buffers so
+     * the clients can keep the generation numbers of the domains whose
+     * assertions have not changed when a new image is mapped.
+     * @param image the other policy image
+     * @param domainName name of the domain
+     * @return true if the domain is included in both images with the same data
+     */
+    boolean isSameDomainData(ZpePolicyImage image, final String domainName) {
+
+        final int dataOffset = findDomain(domainName);
+        final int otherDataOffset = image.findDomain(domainName);
+        if (dataOffset == -1 || otherDataOffset == -1) {
+            return false;
+        }
+        return getEntry(dataOffset).equals(image.getEntry(otherDataOffset));
+    }
+
+    // binary search of the domain index. returns the offset of the
+    // domain data or -1 if the domain is not found
+
+    int findDomain(final String domainName) {
+
+        int low = 0;
+        int high = domainCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int entryOffset = indexOffset + mid * INDEX_ENTRY_SIZE;
+            final int cmp = compareString(buffer.getInt(entryOffset), domainName);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(entryOffset + 4);
+            }
+        }
+        return -1;
+    }
+
+    // the offsets are validated when the image is loaded
+
+    byte[] getBytes(int offset, int length) {
+
+        // we're using a duplicate of the buffer so concurrent
+        // readers do not share the buffer position
+
+        byte[] data = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(data);
+        return data;
+    }
+
+    String getString(int offset) {
+        final int length = buffer.getInt(offset);
+        char[] value = new char[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = buffer.getChar(offset + 4 + 2 * i);
+        }
+        return new String(value);
+    }
+
+    // returns a read-only view of the entry data at the given offset
+    // without copying the data out of the mapped buffer
+
+    ByteBuffer getEntry(int offset) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + 4);
+        view.limit(offset + 4 + buffer.getInt(offset));
+        return view.slice();
+    }
+
+    // compare the string at the given offset with the given value
+    // in the same order as String.compareTo without copying the string
+
+    int compareString(int offset, final String value) {
+
+        final int length = buffer.getInt(offset);
+        final int minLength = Math.min(length, value.length());
+        for (int i = 0; i < minLength; i++) {
+            final char c = buffer.getChar(offset + 4 + 2 * i);
+            final char valueChar = value.charAt(i);
+            if (c != valueChar) {
+                return c - valueChar;
+            }
+        }
+        return length - value.length();
+    }
+
+    int compareStrings(int offset1, int offset2) {
+
+        final int length1 = buffer.getInt(offset1);
+        final int length2 = buffer.getInt(offset2);
+        final int minLength = Math.min(length1, length2);
+        for (int i = 0; i < minLength; i++) {
+            final char c1 = buffer.getChar(offset1 + 4 + 2 * i);
+            final char c2 = buffer.getChar(offset2 + 4 + 2 * i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return length1 - length2;
+    }
+
+    // match the given value against the glob pattern at the given offset
+    // where * matches any number of characters and ? matches a single
+    // character. we keep track of the last * that we have seen and
+    // backtrack to it on mismatch. patterns without wildcards are
+    // compared as is
+
+    boolean matches(int patternOffset, final String value) {
+
+        final int patternLength = buffer.getInt(patternOffset);
+        final int patternStart = patternOffset + 4;
+        final int valueLength = value.length();
+
+        int p = 0;
+        int v = 0;
+        int starIndex = -1;
+        int starMatch = 0;
+
+        while (v < valueLength) {
+            if (p < patternLength) {
+                final char patternChar = buffer.getChar(patternStart + 2 * p);
+                if (patternChar == '*') {
+                    starIndex = p++;
+                    starMatch = v;
+                    continue;
+                }
+                if (patternChar == '?' || patternChar == value.charAt(v)) {
+                    p++;
+                    v++;
+                    continue;
+                }
+            }
+            if (starIndex == -1) {
+                return false;
+            }
+            p = starIndex + 1;
+            v = ++starMatch;
+        }
+
+        while (p < patternLength && buffer.getChar(patternStart + 2 * p) == '*') {
+            p++;
+        }
+        return p == patternLength;
+    }
+
+    /**
+     * Compiled policy of a single domain that is evaluated directly
+     * against the domain policy block in the mapped image. The deny
+     * and allow assertions are resolved in a single pass over the roles
+     * in the same order as the ZpeDomainPolicy: standard role deny,
+     * wildcard role deny, standard role allow and finally wildcard
+     * role allow assertions.
+     */
+    static class DomainPolicy implements ZpePolicyEvaluator {
+
+        private final ZpePolicyImage image;
+        private final ByteBuffer buffer;
+        private final String domainName;
+        private final int blockOffset;
+        private final int assertionCount;
+        private final int standardRoleCount;
+        private final int wildcardRoleCount;
+
+        DomainPolicy(ZpePolicyImage image, final String domainName, int blockOffset) {
+            this.image = image;
+            this.buffer = image.buffer;
+            this.domainName = domainName;
+            this.blockOffset = blockOffset;
+            assertionCount = buffer.getInt(blockOffset);
+            standardRoleCount = buffer.getInt(blockOffset + 4);
+            wildcardRoleCount = buffer.getInt(blockOffset + 8);
+        }
+
+        @Override
+        public String getDomainName() {
+            return domainName;
+        }
+
+        @Override
+        public int getAssertionCount() {
+            return assertionCount;
+        }
+
+        @Override
+        public AccessCheckStatus allowAction(final String action, final String resource, List<String> roles,
+                StringBuilder matchRoleName) {
+
+            if (assertionCount == 0) {
+                return AccessCheckStatus.DENY_DOMAIN_EMPTY;
+            }
+
+            // standard role deny assertions take precedence over everything
+            // else so we return right away. for all others we just remember
+            // the first match and only look for the ones with higher precedence
+
+            String standardAllowRole = null;
+            int wildcardDenyRole = -1;
+            int wildcardAllowRole = -1;
+            final int wildcardRoleStart = getRoleEntry(standardRoleCount);
+
+            for (String role : roles) {
+
+                final int roleEntry = findStandardRole(role);
+                if (roleEntry != -1) {
+                    if (assertionsMatch(roleEntry + 4, action, resource)) {
+                        setMatchRoleName(matchRoleName, role);
+                        return AccessCheckStatus.DENY;
+                    }
+                    if (standardAllowRole == null && wildcardDenyRole == -1
+                            && assertionsMatch(roleEntry + 8, action, resource)) {
+                        standardAllowRole = role;
+                    }
+                }
+
+                if (wildcardDenyRole != -1) {
+                    continue;
+                }
+
+                // the wildcard roles are sorted by name which is
+                // the order the assertion maps are processed in
+
+                for (int i = 0; i < wildcardRoleCount; i++) {
+                    final int wildcardEntry = wildcardRoleStart + i * ROLE_ENTRY_SIZE;
+                    if (!image.matches(blockOffset + buffer.getInt(wildcardEntry), role)) {
+                        continue;
+                    }
+                    if (assertionsMatch(wildcardEntry + 4, action, resource)) {
+                        wildcardDenyRole = wildcardEntry;
+                        break;
+                    }
+                    if (standardAllowRole == null && wildcardAllowRole == -1
+                            && assertionsMatch(wildcardEntry + 8, action, resource)) {
+                        wildcardAllowRole = wildcardEntry;
+                    }
+                }
+            }
+
+            if (wildcardDenyRole != -1) {
+                setMatchRoleName(matchRoleName, getRoleName(wildcardDenyRole));
+                return AccessCheckStatus.DENY;
+            }
+
+            if (standardAllowRole != null) {
+                setMatchRoleName(matchRoleName, standardAllowRole);
+                return AccessCheckStatus.ALLOW;
+            }
+
+            if (wildcardAllowRole != -1) {
+                setMatchRoleName(matchRoleName, getRoleName(wildcardAllowRole));
+                return AccessCheckStatus.ALLOW;
+            }
+
+            return AccessCheckStatus.DENY_NO_MATCH;
+        }
+
+        int getRoleEntry(int index) {
+            return blockOffset + DOMAIN_HEADER_SIZE + index * ROLE_ENTRY_SIZE;
+        }
+
+        String getRoleName(int roleEntry) {
+            return image.getString(blockOffset + buffer.getInt(roleEntry));
+        }
+
+        // binary search of the standard roles. returns the offset
+        // of the role entry or -1 if the role is not found
+
+        int findStandardRole(final String role) {
+
+            int low = 0;
+            int high = standardRoleCount - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int roleEntry = getRoleEntry(mid);
+                final int cmp = image.compareString(blockOffset + buffer.getInt(roleEntry), role);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return roleEntry;
+                }
+            }
+            return -1;
+        }
+
+        // the block offset of the assertion list is stored at the given
+        // position of the role entry and is 0 if the role does not have
+        // any assertions with that effect
+
+        boolean assertionsMatch(int listPosition, final String action, final String resource) {
+
+            final int listOffset = buffer.getInt(listPosition);
+            if (listOffset == 0) {
+                return false;
+            }
+            final int count = buffer.getInt(blockOffset + listOffset);
+            int entry = blockOffset + listOffset + 4;
+            for (int i = 0; i < count; i++, entry += ASSERTION_ENTRY_SIZE) {
+                if (image.matches(blockOffset + buffer.getInt(entry), action)
+                        && image.matches(blockOffset + buffer.getInt(entry + 4), resource)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void setMatchRoleName(StringBuilder matchRoleName, final String roleName) {
+            matchRoleName.setLength(0);
+            matchRoleName.append(roleName);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.auth.util.CryptoException;
+import com.yahoo.athenz.zts.PolicyData;
+
+/**
+ * Compiles the signed policy files from a ZPE policy directory into a
+ * single binary policy image that is used by the ZpeMappedPolicyClient.
+ * The signature of each policy file is validated before its assertions
+ * are normalized and compiled into the image. The image is protected
+ * by its digest and optionally signed with the given private key. The
+ * image is written to a temporary file and then atomically moved into
+ * place so running clients never map a partially written image.
+ *
+ * Usage: ZpePolicyImageCompiler &lt;policy-directory&gt; &lt;image-file&gt; [&lt;private-key-file&gt;]
+ */
+public class ZpePolicyImageCompiler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ZpePolicyImageCompiler.class);
+
+    /**
+     * Validate and compile all the policy files in the given directory
+     * into the given policy image file
+     * @param policyDir directory with the signed policy files
+     * @param imageFile policy image file to generate
+     * @param privateKey optional private key to sign the image with
+     * @return number of domains included in the image
+     * @throws IOException if the policy directory cannot be read or the image cannot be written
+     */
+    public static int compile(File policyDir, File imageFile, PrivateKey privateKey) throws IOException {
+
+        File[] polFiles = policyDir.listFiles((dir, name) -> name.endsWith(".pol"));
+        if (polFiles == null) {
+            throw new IOException("unable to read policy directory: " + policyDir);
+        }
+
+        Map<String, PolicyData> policies = new TreeMap<>();
+        for (File polFile : polFiles) {
+            PolicyData policyData = ZpeUpdPolLoader.getPolicyData(Files.readAllBytes(polFile.toPath()));
+            if (policyData == null) {
+                LOG.error("compile: skipping invalid policy file={}", polFile.getName());
+                continue;
+            }
+            policies.put(policyData.getDomain(), policyData);
+        }
+
+        writeImage(policies, imageFile, privateKey);
+        return policies.size();
+    }
+
+    /**
+     * Compile the given validated policy data into the policy image file.
+     * @param policies map of domain names to their validated policy data
+     * @param imageFile policy image file to generate
+     * @param privateKey optional private key to sign the image with
+     * @throws IOException if the image cannot be written
+     */
+    public static void writeImage(Map<String, PolicyData> policies, File imageFile, PrivateKey privateKey)
+            throws IOException {
+
+        // sort the domains by name since the readers carry out
+        // a binary search of the domain index
+
+        Map<String, byte[]> domains = new TreeMap<>();
+        for (PolicyData policyData : policies.values()) {
+            DomainBlockBuilder domainBlockBuilder = new DomainBlockBuilder();
+            ZpeUpdPolLoader.processAssertions(policyData, domainBlockBuilder);
+            domains.put(policyData.getDomain(), domainBlockBuilder.build());
+        }
+
+        // assign the offsets of the domain names and policy blocks
+        // which are stored right after the index
+
+        final int indexOffset = ZpePolicyImage.HEADER_SIZE;
+        long offset = indexOffset + (long) domains.size() * ZpePolicyImage.INDEX_ENTRY_SIZE;
+        int[] nameOffsets = new int[domains.size()];
+        int[] dataOffsets = new int[domains.size()];
+        int idx = 0;
+        for (Map.Entry<String, byte[]> entry : domains.entrySet()) {
+            nameOffsets[idx] = (int) offset;
+            offset += getStringSize(entry.getKey());
+            dataOffsets[idx++] = (int) offset;
+            offset += 4 + entry.getValue().length;
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("policy image size exceeds the 2GB limit");
+            }
+        }
+
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(ZpePolicyImage.DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException("unable to generate policy image digest", ex);
+        }
+
+        Path imagePath = imageFile.toPath().toAbsolutePath();
+        Path tempPath = Files.createTempFile(imagePath.getParent(), imagePath.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream fileStream = Files.newOutputStream(tempPath);
+                    DigestOutputStream digestStream = new DigestOutputStream(new BufferedOutputStream(fileStream),
+                            messageDigest);
+                    DataOutputStream out = new DataOutputStream(digestStream)) {
+
+                out.writeInt(ZpePolicyImage.IMAGE_MAGIC);
+                out.writeInt(ZpePolicyImage.IMAGE_VERSION);
+                out.writeInt(domains.size());
+                out.writeInt(indexOffset);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt((int) offset);
+
+                for (int i = 0; i < domains.size(); i++) {
+                    out.writeInt(nameOffsets[i]);
+                    out.writeInt(dataOffsets[i]);
+                }
+
+                for (Map.Entry<String, byte[]> entry : domains.entrySet()) {
+                    writeString(out, entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    out.write(entry.getValue());
+                }
+
+                // the trailer with the digest and signature is not
+                // included in the digest itself
+
+                out.flush();
+                digestStream.on(false);
+                final byte[] digest = messageDigest.digest();
+                final byte[] signature = signDigest(digest, privateKey);
+                out.write(digest);
+                out.writeInt(signature.length);
+                out.write(signature);
+            }
+            Files.move(tempPath, imagePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    static byte[] signDigest(final byte[] digest, PrivateKey privateKey) throws IOException {
+
+        if (privateKey == null) {
+            return new byte[0];
+        }
+        try {
+            return Crypto.sign(digest, privateKey, Crypto.SHA256);
+        } catch (CryptoException ex) {
+            throw new IOException("unable to sign policy image", ex);
+        }
+    }
+
+    static int getStringSize(final String value) {
+        return 4 + 2 * value.length();
+    }
+
+    static void writeString(DataOutputStream out, final String value) throws IOException {
+        out.writeInt(value.length());
+        out.writeChars(value);
+    }
+
+    /**
+     * Collects the normalized assertions of a domain grouped by their
+     * role and effect and generates the domain policy block as described
+     * in ZpePolicyImage. The strings are deduplicated within the block.
+     */
+    static class DomainBlockBuilder implements ZpeUpdPolLoader.AssertionProcessor {
+
+        static class RoleAssertions {
+            final List<String[]> deny = new ArrayList<>();
+            final List<String[]> allow = new ArrayList<>();
+        }
+
+        private final Map<String, RoleAssertions> standardRoles = new TreeMap<>();
+        private final Map<String, RoleAssertions> wildcardRoles = new TreeMap<>();
+        private int assertionCount = 0;
+
+        @Override
+        public void addAssertion(final String policyName, final String action, final String resource,
+                final String roleName, boolean denyEffect) {
+
+            Map<String, RoleAssertions> roleMap = (roleName.indexOf('*') == -1 && roleName.indexOf('?') == -1) ?
+                    standardRoles : wildcardRoles;
+            RoleAssertions roleAssertions = roleMap.computeIfAbsent(roleName, k -> new RoleAssertions());
+            (denyEffect ? roleAssertions.deny : roleAssertions.allow).add(new String[] { action, resource });
+            assertionCount += 1;
+        }
+
+        byte[] build() {
+
+            Map<String, RoleAssertions> roles = new LinkedHashMap<>(standardRoles);
+            roles.putAll(wildcardRoles);
+
+            // the assertion lists are stored after the role entries
+            // followed by all the strings
+
+            int offset = ZpePolicyImage.DOMAIN_HEADER_SIZE + roles.size() * ZpePolicyImage.ROLE_ENTRY_SIZE;
+            for (RoleAssertions roleAssertions : roles.values()) {
+                offset += getListSize(roleAssertions.deny) + getListSize(roleAssertions.allow);
+            }
+
+            Map<String, Integer> stringOffsets = new LinkedHashMap<>();
+            for (Map.Entry<String, RoleAssertions> entry : roles.entrySet()) {
+                offset = addString(stringOffsets, entry.getKey(), offset);
+                for (String[] assertion : entry.getValue().deny) {
+                    offset = addString(stringOffsets, assertion[0], offset);
+                    offset = addString(stringOffsets, assertion[1], offset);
+                }
+                for (String[] assertion : entry.getValue().allow) {
+                    offset = addString(stringOffsets, assertion[0], offset);
+                    offset = addString(stringOffsets, assertion[1], offset);
+                }
+            }
+
+            ByteBuffer block = ByteBuffer.allocate(offset);
+            block.putInt(assertionCount).putInt(standardRoles.size()).putInt(wildcardRoles.size());
+
+            int listOffset = ZpePolicyImage.DOMAIN_HEADER_SIZE + roles.size() * ZpePolicyImage.ROLE_ENTRY_SIZE;
+            for (Map.Entry<String, RoleAssertions> entry : roles.entrySet()) {
+                block.putInt(stringOffsets.get(entry.getKey()));
+                listOffset = putListOffset(block, entry.getValue().deny, listOffset);
+                listOffset = putListOffset(block, entry.getValue().allow, listOffset);
+            }
+
+            for (RoleAssertions roleAssertions : roles.values()) {
+                putList(block, roleAssertions.deny, stringOffsets);
+                putList(block, roleAssertions.allow, stringOffsets);
+            }
+
+            for (String value : stringOffsets.keySet()) {
+                block.putInt(value.length());
+                for (int i = 0; i < value.length(); i++) {
+                    block.putChar(value.charAt(i));
+                }
+            }
+            return block.array();
+        }
+
+        static int getListSize(List<String[]> assertions) {
+            return assertions.isEmpty() ? 0 : 4 + assertions.size() * ZpePolicyImage.ASSERTION_ENTRY_SIZE;
+        }
+
+        static int addString(Map<String, Integer> stringOffsets, final String value, int offset) {
+            if (stringOffsets.putIfAbsent(value, offset) != null) {
+                return offset;
+            }
+            return offset + getStringSize(value);
+        }
+
+        static int putListOffset(ByteBuffer block, List<String[]> assertions, int listOffset) {
+            block.putInt(assertions.isEmpty() ? 0 : listOffset);
+            return listOffset + getListSize(assertions);
+        }
+
+        static void putList(ByteBuffer block, List<String[]> assertions, Map<String, Integer> stringOffsets) {
+            if (assertions.isEmpty()) {
+                return;
+            }
+            block.putInt(assertions.size());
+            for (String[] assertion : assertions) {
+                block.putInt(stringOffsets.get(assertion[0]));
+                block.putInt(stringOffsets.get(assertion[1]));
+            }
+        }
+    }
+
+    /**
+     * Compile the policy image based on the command line arguments
+     * @param args command line arguments - policy directory, image file
+     *      and optional private key file to sign the image with
+     * @param out stream for the status messages
+     * @param err stream for the error messages
+     * @return process exit code
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+
+        if (args.length != 2 && args.length != 3) {
+            err.println("usage: ZpePolicyImageCompiler <policy-directory> <image-file> [<private-key-file>]");
+            return 1;
+        }
+
+        try {
+            PrivateKey privateKey = args.length == 3 ? Crypto.loadPrivateKey(new File(args[2])) : null;
+            final int domainCount = compile(new File(args[0]), new File(args[1]), privateKey);
+            out.println("compiled " + domainCount + " domains into policy image " + args[1]);
+        } catch (IOException | CryptoException ex) {
+            err.println("unable to compile policy image: " + ex.getMessage());
+            return 1;
+        }
+        return 0;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe;
+
+/**
+ * Hook for reporting policy file reload events. The methods are
+ * called from the policy loader threads, so the implementations
+ * must be thread-safe.
+ */
+public interface ZpePolicyLoaderMetrics {
+
+    /**
+     * Called after a policy file has been parsed, verified and its
+     * assertions have been loaded
+     * @param fileName name of the policy file
+     * @param success true if the file was loaded successfully
+     * @param latencyMillis time in milliseconds to load the file
+     */
+    default void recordFileLoad(String fileName, boolean success, long latencyMillis) {
+    }
+
+    /**
+     * Called after all the updated files from a single directory
+     * scan or watch event have been loaded
+     * @param fileCount number of files that were loaded
+     * @param latencyMillis time in milliseconds to load all the files
+     */
+    default void recordReload(int fileCount, long latencyMillis) {
+    }
+}
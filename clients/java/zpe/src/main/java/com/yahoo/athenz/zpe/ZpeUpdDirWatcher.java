@@ -0,0 +1,142 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the policy directory for file changes and reloads only
+ * the policy files that were created, modified or deleted.
+ */
+class ZpeUpdDirWatcher implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ZpeUpdDirWatcher.class);
+
+    // policy files might be updated with multiple writes so we wait
+    // until there are no more events for the given time before we
+    // reload the files
+
+    static long settleTimeMillis = 500;
+
+    private final ZpeUpdPolLoader updLoader;
+    private final Path dirPath;
+    private final WatchService watchService;
+    private volatile boolean shutdownThread = false;
+
+    ZpeUpdDirWatcher(final ZpeUpdPolLoader zpeUpdLoader) throws IOException {
+        updLoader = zpeUpdLoader;
+        dirPath = Paths.get(updLoader.getDirName());
+        watchService = dirPath.getFileSystem().newWatchService();
+        dirPath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    public void cancel() {
+        shutdownThread = true;
+        try {
+            watchService.close();
+        } catch (IOException ex) {
+            LOG.error("cancel: unable to close watch service for {}", dirPath, ex);
+        }
+    }
+
+    @Override
+    public void run() {
+
+        while (!shutdownThread) {
+            try {
+                WatchKey watchKey = watchService.take();
+                Set<String> fileNames = new HashSet<>();
+                boolean overflow = processEvents(watchKey, fileNames);
+                while ((watchKey = watchService.poll(settleTimeMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= processEvents(watchKey, fileNames);
+                }
+                reloadFiles(overflow, fileNames);
+            } catch (ClosedWatchServiceException ex) {
+                return;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                LOG.error("run: unable to process policy directory {} changes", dirPath, ex);
+            }
+        }
+    }
+
+    boolean processEvents(WatchKey watchKey, Set<String> fileNames) {
+
+        boolean overflow = false;
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            final String fileName = event.context().toString();
+            if (fileName.endsWith(".pol")) {
+                fileNames.add(fileName);
+            }
+        }
+
+        // if the key is no longer valid then the directory is no longer
+        // accessible, and we'll rely on the periodic directory scans
+
+        if (!watchKey.reset()) {
+            LOG.error("processEvents: policy directory {} is no longer accessible", dirPath);
+            cancel();
+        }
+        return overflow;
+    }
+
+    void reloadFiles(boolean overflow, Set<String> fileNames) {
+
+        // if we have lost any events then we need to scan the full directory
+
+        if (overflow) {
+            updLoader.loadDb();
+            return;
+        }
+
+        if (fileNames.isEmpty()) {
+            return;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("reloadFiles: reload updated files: {}", fileNames);
+        }
+
+        final File dir = dirPath.toFile();
+        File[] files = new File[fileNames.size()];
+        int idx = 0;
+        for (String fileName : fileNames) {
+            files[idx++] = new File(dir, fileName);
+        }
+        updLoader.loadDb(files);
+    }
+}
@@ -24,6 +24,8 @@ import java.security.PublicKey;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 import com.yahoo.athenz.auth.token.AccessToken;
@@ -36,6 +38,9 @@ import com.yahoo.rdl.Struct;
 import com.yahoo.athenz.auth.token.RoleToken;
 import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.common.utils.SignUtils;
+import com.yahoo.athenz.zpe.cache.ZpeTokenCache;
+import com.yahoo.athenz.zpe.engine.ZpeDomainPolicy;
+import com.yahoo.athenz.zpe.engine.ZpePolicyEvaluator;
 import com.yahoo.athenz.zpe.match.ZpeMatch;
 import com.yahoo.athenz.zpe.match.impl.ZpeMatchAll;
 import com.yahoo.athenz.zpe.match.impl.ZpeMatchEqual;
@@ -48,6 +53,10 @@ public class ZpeUpdPolLoader implements Closeable {
 
     static boolean skipPolicyDirCheck;
     static boolean checkPolicyZMSSignature;
+    static boolean compiledPolicyEngine;
+    static boolean policyDirWatch;
+    static int loaderThreads;
+    static ZpePolicyLoaderMetrics policyLoaderMetrics = null;
     static long sleepTimeMillis = -1;
     static long cleanupTokenInterval = 600000; // 600 secs = 10 minutes
     static long lastRoleTokenCleanup = System.currentTimeMillis();
@@ -57,6 +66,22 @@ public class ZpeUpdPolLoader implements Closeable {
 
         skipPolicyDirCheck = Boolean.parseBoolean(System.getProperty(ZpeConsts.ZPE_PROP_SKIP_POLICY_DIR_CHECK, "false"));
         checkPolicyZMSSignature = Boolean.parseBoolean(System.getProperty(ZpeConsts.ZPE_PROP_CHECK_POLICY_ZMS_SIGNATURE, "false"));
+        compiledPolicyEngine = Boolean.parseBoolean(System.getProperty(ZpeConsts.ZPE_PROP_COMPILED_POLICY_ENGINE, "false"));
+        policyDirWatch = Boolean.parseBoolean(System.getProperty(ZpeConsts.ZPE_PROP_POLICY_DIR_WATCH, "false"));
+
+        // default to the number of processors with a max of 4 threads
+        String threads = System.getProperty(ZpeConsts.ZPE_PROP_POLICY_LOADER_THREADS);
+        loaderThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+        if (threads != null) {
+            try {
+                loaderThreads = Integer.parseInt(threads);
+            } catch (NumberFormatException exc) {
+                LOG.warn("start: WARNING: Failed using system property({}) with value={}, exc: {}",
+                        ZpeConsts.ZPE_PROP_POLICY_LOADER_THREADS, threads, exc);
+            }
+        }
+
+        setPolicyLoaderMetricsClass(System.getProperty(ZpeConsts.ZPE_PROP_POLICY_LOADER_METRICS_CLASS));
 
         // default to 5 minutes / 300 secs
         String timeoutSecs = System.getProperty(ZpeConsts.ZPE_PROP_MON_TIMEOUT, "300");
@@ -89,25 +114,122 @@ public class ZpeUpdPolLoader implements Closeable {
         return t;
     });
 
+    // policy files are parsed and verified by a bounded pool of worker
+    // threads. the threads are only created when multiple files need to
+    // be loaded at the same time and are released when idle
+
+    private final ThreadPoolExecutor loaderExecutorSvc = loaderThreads > 1 ? createLoaderExecutor(loaderThreads) : null;
+
     private ZpeUpdMonitor updMonWorker;
+    private ZpeUpdDirWatcher dirWatcher;
+    private final Object loadLock = new Object();
+
+    // all the assertion maps for a domain are kept in a single object
+    // so when a policy file is reloaded, the maps are replaced together
+    // and readers never see a mix of old and new policy data
+
+    public static class DomainAssertions {
+
+        // map keyed by role name with list of assertions
+        final Map<String, List<Struct>> standardRoleAllowMap;
+        final Map<String, List<Struct>> wildcardRoleAllowMap;
+        final Map<String, List<Struct>> standardRoleDenyMap;
+        final Map<String, List<Struct>> wildcardRoleDenyMap;
+
+        // compiled policy for the domain - only set if the compiled
+        // policy engine is enabled
+        final ZpePolicyEvaluator domainPolicy;
+
+        // generation number of the policy data for the domain
+        final long generation;
+
+        DomainAssertions(Map<String, List<Struct>> standardRoleAllowMap, Map<String, List<Struct>> wildcardRoleAllowMap,
+                Map<String, List<Struct>> standardRoleDenyMap, Map<String, List<Struct>> wildcardRoleDenyMap,
+                ZpePolicyEvaluator domainPolicy, long generation) {
+            this.standardRoleAllowMap = standardRoleAllowMap;
+            this.wildcardRoleAllowMap = wildcardRoleAllowMap;
+            this.standardRoleDenyMap = standardRoleDenyMap;
+            this.wildcardRoleDenyMap = wildcardRoleDenyMap;
+            this.domainPolicy = domainPolicy;
+            this.generation = generation;
+        }
+    }
+
+    // receives the normalized assertions of a domain
+
+    interface AssertionProcessor {
+        void addAssertion(String policyName, String action, String resource, String roleName,
+                boolean denyEffect);
+    }
+
+    // builds the assertion maps (and the compiled policy if requested)
+    // for a domain. the action and resource values must already be in
+    // lower case and the resource and role names must not include the
+    // domain prefix
+
+    static class DomainAssertionsBuilder implements AssertionProcessor {
+
+        private final Map<String, List<Struct>> standardRoleAllowMap = new TreeMap<>();
+        private final Map<String, List<Struct>> wildcardRoleAllowMap = new TreeMap<>();
+        private final Map<String, List<Struct>> standardRoleDenyMap = new TreeMap<>();
+        private final Map<String, List<Struct>> wildcardRoleDenyMap = new TreeMap<>();
+        private final ZpeDomainPolicy.Builder domainPolicyBuilder;
+
+        DomainAssertionsBuilder(final String domainName, boolean compiledPolicy) {
+            domainPolicyBuilder = compiledPolicy ? new ZpeDomainPolicy.Builder(domainName) : null;
+        }
+
+        // If there is a wildcard in the action or resource, compile the
+        // regexpr and place it into the assertion Struct.
+        // This is a performance enhancement for AuthZpeClient when it
+        // performs the authorization checks.
+
+        @Override
+        public void addAssertion(final String policyName, final String action, final String resource,
+                final String roleName, boolean denyEffect) {
+
+            Struct strAssert = new Struct();
+            strAssert.put(ZpeConsts.ZPE_FIELD_POLICY_NAME, policyName);
+            strAssert.put(ZpeConsts.ZPE_ACTION_MATCH_STRUCT, matchObject(action, true));
+            strAssert.put(ZpeConsts.ZPE_FIELD_RESOURCE, resource);
+            strAssert.put(ZpeConsts.ZPE_RESOURCE_MATCH_STRUCT, matchObject(resource, true));
+            strAssert.put(ZpeConsts.ZPE_FIELD_ROLE, roleName);
 
-    // key is the domain name, value is a map keyed by role name with list of assertions
-    ConcurrentHashMap<String, Map<String, List<Struct>>> domStandardRoleAllowMap = new ConcurrentHashMap<>();
+            // based on the effect and role name determine what
+            // map we're going to use
 
-    // wild card role map, keys and values same as domRoleMap above
-    ConcurrentHashMap<String, Map<String, List<Struct>>> domWildcardRoleAllowMap = new ConcurrentHashMap<>();
+            ZpeMatch roleMatch = matchObject(roleName, false);
+            strAssert.put(ZpeConsts.ZPE_ROLE_MATCH_STRUCT, roleMatch);
 
-    // key is the domain name, value is a map keyed by role name with list of assertions
-    ConcurrentHashMap<String, Map<String, List<Struct>>> domStandardRoleDenyMap = new ConcurrentHashMap<>();
+            if (domainPolicyBuilder != null) {
+                domainPolicyBuilder.addAssertion(roleName, action, resource, denyEffect, policyName);
+            }
+
+            Map<String, List<Struct>> roleMap;
+            if (denyEffect) {
+                roleMap = (roleMatch instanceof ZpeMatchEqual) ? standardRoleDenyMap : wildcardRoleDenyMap;
+            } else {
+                roleMap = (roleMatch instanceof ZpeMatchEqual) ? standardRoleAllowMap : wildcardRoleAllowMap;
+            }
+            roleMap.computeIfAbsent(roleName, k -> new ArrayList<>()).add(strAssert);
+        }
+
+        DomainAssertions build(long generation) {
+            return new DomainAssertions(standardRoleAllowMap, wildcardRoleAllowMap,
+                    standardRoleDenyMap, wildcardRoleDenyMap,
+                    domainPolicyBuilder != null ? domainPolicyBuilder.build() : null, generation);
+        }
+    }
 
-    // wild card role map, keys and values same as domRoleMap above
-    ConcurrentHashMap<String, Map<String, List<Struct>>> domWildcardRoleDenyMap = new ConcurrentHashMap<>();
+    // key is the domain name, value is the assertions for the domain
+    ConcurrentHashMap<String, DomainAssertions> domAssertionsMap = new ConcurrentHashMap<>();
+    private final AtomicLong policyGeneration = new AtomicLong();
 
     // cache of active Role Tokens
-    static ConcurrentHashMap<String, RoleToken> roleTokenCacheMap = new ConcurrentHashMap<>();
+    static ZpeTokenCache<RoleToken> roleTokenCacheMap = new ZpeTokenCache<>("roleToken", RoleToken::getExpiryTime);
 
     // cache of active Access Tokens
-    static ConcurrentHashMap<String, AccessToken> accessTokenCacheMap = new ConcurrentHashMap<>();
+    static ZpeTokenCache<AccessToken> accessTokenCacheMap = new ZpeTokenCache<>("accessToken", AccessToken::getExpiryTime);
 
     // array of file status objects
     static class ZpeFileStatus {
@@ -148,27 +270,53 @@ public class ZpeUpdPolLoader implements Closeable {
     // return map of wildcard role with assertion list with allow effect
     //
     public Map<String, List<Struct>> getWildcardRoleAllowMap(String domainName) {
-        return domWildcardRoleAllowMap.get(domainName);
+        DomainAssertions domainAssertions = domAssertionsMap.get(domainName);
+        return domainAssertions == null ? null : domainAssertions.wildcardRoleAllowMap;
     }
 
     // return map of role-name with assertion list with allow effect
     //
     public Map<String, List<Struct>> getStandardRoleAllowMap(String domainName) {
-        return domStandardRoleAllowMap.get(domainName);
+        DomainAssertions domainAssertions = domAssertionsMap.get(domainName);
+        return domainAssertions == null ? null : domainAssertions.standardRoleAllowMap;
     }
 
     // return map of wildcard role with assertion list with deny effect
     //
     public Map<String, List<Struct>> getWildcardRoleDenyMap(String domainName) {
-        return domWildcardRoleDenyMap.get(domainName);
+        DomainAssertions domainAssertions = domAssertionsMap.get(domainName);
+        return domainAssertions == null ? null : domainAssertions.wildcardRoleDenyMap;
     }
 
     // return map of role-name with assertion list with deny effect
     //
     public Map<String, List<Struct>> getStandardRoleDenyMap(String domainName) {
-        return domStandardRoleDenyMap.get(domainName);
+        DomainAssertions domainAssertions = domAssertionsMap.get(domainName);
+        return domainAssertions == null ? null : domainAssertions.standardRoleDenyMap;
     }
     
+    // return the compiled policy for the domain
+    //
+    public ZpePolicyEvaluator getDomainPolicy(String domainName) {
+        DomainAssertions domainAssertions = domAssertionsMap.get(domainName);
+        return domainAssertions == null ? null : domainAssertions.domainPolicy;
+    }
+
+    // return the generation number of the domain policy data. 0 is
+    // returned if the domain has not been loaded
+    //
+    public long getDomainGeneration(String domainName) {
+        DomainAssertions domainAssertions = domAssertionsMap.get(domainName);
+        return domainAssertions == null ? 0 : domainAssertions.generation;
+    }
+
+    // return all the policy data for the domain or null if the
+    // domain has not been loaded
+    //
+    public DomainAssertions getDomainAssertions(String domainName) {
+        return domAssertionsMap.get(domainName);
+    }
+
     static public Map<String, RoleToken> getRoleTokenCacheMap() {
         return roleTokenCacheMap;
     }
@@ -178,13 +326,43 @@ public class ZpeUpdPolLoader implements Closeable {
     }
 
     /**
-     * All of our maps must contain the same number of objects since we
-     * process and update them at the same time, so we'll just return
-     * the number of entries in our allow role map
+     * Return the number of domains that we have processed
      * @return number of domains processed
      */
     public int getDomainCount() {
-        return domWildcardRoleAllowMap.size();
+        return domAssertionsMap.size();
+    }
+
+    public static void setPolicyLoaderMetrics(ZpePolicyLoaderMetrics metrics) {
+        policyLoaderMetrics = metrics;
+    }
+
+    public static void setPolicyLoaderMetricsClass(final String className) {
+
+        if (className == null || className.isEmpty()) {
+            return;
+        }
+
+        ZpePolicyLoaderMetrics metrics;
+        try {
+            metrics = (ZpePolicyLoaderMetrics) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (Exception ex) {
+            LOG.error("Invalid ZpePolicyLoaderMetrics class: {}, error: {}", className, ex.getMessage());
+            throw new RuntimeException(ex);
+        }
+        setPolicyLoaderMetrics(metrics);
+    }
+
+    static ThreadPoolExecutor createLoaderExecutor(int threads) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "ZpeUpdPolLoader-worker-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     public void start() throws Exception {
@@ -196,6 +374,22 @@ public class ZpeUpdPolLoader implements Closeable {
             updMonWorker = new ZpeUpdMonitor(this);
         }
         scheduledExecutorSvc.scheduleAtFixedRate(updMonWorker, 0, sleepTimeMillis, TimeUnit.MILLISECONDS);
+
+        // if enabled, we'll also watch the policy directory so any changed
+        // files are reloaded right away instead of waiting for the next
+        // scan. the periodic scan is still used to catch any missed events
+
+        if (policyDirWatch && !skipPolicyDirCheck && dirWatcher == null) {
+            try {
+                dirWatcher = new ZpeUpdDirWatcher(this);
+                Thread watcherThread = new Thread(dirWatcher, "ZpeUpdPolLoader-watcher-" + System.identityHashCode(this));
+                watcherThread.setDaemon(true);
+                watcherThread.start();
+            } catch (Exception ex) {
+                LOG.error("start: unable to watch policy directory {}, using periodic scans only", polDirName, ex);
+                dirWatcher = null;
+            }
+        }
     }
 
     @Override
@@ -203,7 +397,13 @@ public class ZpeUpdPolLoader implements Closeable {
         if (updMonWorker != null) {
             updMonWorker.cancel();
         }
+        if (dirWatcher != null) {
+            dirWatcher.cancel();
+        }
         scheduledExecutorSvc.shutdownNow();
+        if (loaderExecutorSvc != null) {
+            loaderExecutorSvc.shutdownNow();
+        }
     }
 
     static public void cleanupRoleTokenCache() {
@@ -214,7 +414,7 @@ public class ZpeUpdPolLoader implements Closeable {
         }
 
         long nowSecs = now / 1000;
-        roleTokenCacheMap.entrySet().removeIf(entry -> entry.getValue().getExpiryTime() < nowSecs);
+        roleTokenCacheMap.removeExpired(nowSecs);
         lastRoleTokenCleanup = now; // reset time of last cleanup
     }
 
@@ -226,7 +426,7 @@ public class ZpeUpdPolLoader implements Closeable {
         }
 
         long nowSecs = now / 1000;
-        accessTokenCacheMap.entrySet().removeIf(entry -> entry.getValue().getExpiryTime() < nowSecs);
+        accessTokenCacheMap.removeExpired(nowSecs);
         lastAccessTokenCleanup = now; // reset time of last cleanup
     }
 
@@ -246,7 +446,9 @@ public class ZpeUpdPolLoader implements Closeable {
     /**
      *  Process the given policy file list and determine if any of the
      *  policy domain files have been updated. New ones will be loaded
-     *  into the policy domain map.
+     *  into the policy domain map. The method is called both by the
+     *  periodic directory scan and the directory watcher so only one
+     *  caller is allowed to process the files at a time.
      **/
     void loadDb(File []polFileNames) {
 
@@ -254,10 +456,38 @@ public class ZpeUpdPolLoader implements Closeable {
             LOG.error("loadDb: no policy files to load");
             return;
         }
-        
+
+        synchronized (loadLock) {
+
+            final long startTime = System.currentTimeMillis();
+            final List<File> updatedFiles = getUpdatedFiles(polFileNames);
+            if (updatedFiles.isEmpty()) {
+                return;
+            }
+
+            loadFiles(updatedFiles);
+
+            final long latency = System.currentTimeMillis() - startTime;
+            if (policyLoaderMetrics != null) {
+                policyLoaderMetrics.recordReload(updatedFiles.size(), latency);
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("loadDb: loaded {} policy files in {} ms", updatedFiles.size(), latency);
+            }
+        }
+    }
+
+    /**
+     * Return the list of files that must be (re)loaded. Any deleted
+     * files are processed right away by replacing their domains with
+     * empty policy data.
+     */
+    List<File> getUpdatedFiles(File []polFileNames) {
+
         if (LOG.isDebugEnabled()) {
             LOG.debug("loadDb: START thrd={} directory={}", Thread.currentThread().getId(), polDirName);
         }
+        List<File> updatedFiles = new ArrayList<>();
         for (File polFile: polFileNames) {
             
             String fileName = polFile.getName();
@@ -281,10 +511,8 @@ public class ZpeUpdPolLoader implements Closeable {
 
                     // replace domain with empty data
                     //
-                    domStandardRoleAllowMap.put(fstat.domain, new TreeMap<>());
-                    domWildcardRoleAllowMap.put(fstat.domain, new TreeMap<>());
-                    domStandardRoleDenyMap.put(fstat.domain, new TreeMap<>());
-                    domWildcardRoleDenyMap.put(fstat.domain, new TreeMap<>());
+                    domAssertionsMap.put(fstat.domain, new DomainAssertionsBuilder(fstat.domain, compiledPolicyEngine)
+                            .build(policyGeneration.incrementAndGet()));
                     continue;
                 }
                 
@@ -306,15 +534,71 @@ public class ZpeUpdPolLoader implements Closeable {
                     }
             
                 }
+
+                // keep track of the modification time that we're loading
+                // so the file is not reloaded again until it's updated
+
+                fstat.modifyTimeMillis = lastModMilliSeconds;
             } else {
+
+                // the directory watcher reports deleted files that we
+                // might not have processed before so we'll skip those
+
+                if (!polFile.exists()) {
+                    continue;
+                }
                 fstat = new ZpeFileStatus(lastModMilliSeconds);
                 fsmap.put(fileName, fstat);
             }
-            loadFile(polFile);
+            updatedFiles.add(polFile);
+        }
+        return updatedFiles;
+    }
+
+    /**
+     * Load the given policy files. If we have multiple files to load,
+     * they're parsed and verified in parallel by our worker threads.
+     * Each domain is updated as soon as its file is processed.
+     */
+    void loadFiles(List<File> polFiles) {
+
+        if (loaderExecutorSvc == null || loaderExecutorSvc.isShutdown() || polFiles.size() == 1) {
+            for (File polFile : polFiles) {
+                loadFile(polFile);
+            }
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (File polFile : polFiles) {
+            futures.add(loaderExecutorSvc.submit(() -> loadFile(polFile)));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                LOG.error("loadFiles: interrupted while waiting for policy files to load");
+                return;
+            } catch (Exception ex) {
+                LOG.error("loadFiles: unable to load policy file", ex);
+            }
         }
     }
 
     ZpeMatch getMatchObject(String value) {
+        return getMatchObject(value, false);
+    }
+
+    // with ignoreCase option the value must be in lower case and the
+    // match object will convert the checked values to lower case
+
+    ZpeMatch getMatchObject(String value, boolean ignoreCase) {
+        return matchObject(value, ignoreCase);
+    }
+
+    static ZpeMatch matchObject(String value, boolean ignoreCase) {
         
         ZpeMatch match;
         if ("*".equals(value)) {
@@ -324,18 +608,42 @@ public class ZpeUpdPolLoader implements Closeable {
             int singleCharMatch = value.indexOf('?');
 
             if (anyCharMatch == -1 && singleCharMatch == -1) {
-                match = new ZpeMatchEqual(value);
+                match = new ZpeMatchEqual(value, ignoreCase);
             } else if (anyCharMatch == value.length() - 1 && singleCharMatch == -1) {
-                match = new ZpeMatchStartsWith(value.substring(0, value.length() - 1));
+                match = new ZpeMatchStartsWith(value.substring(0, value.length() - 1), ignoreCase);
             } else {
-                match = new ZpeMatchRegex(value);
+                match = new ZpeMatchRegex(value, ignoreCase);
             }
         }
         
         return match;
     }
 
-    private PolicyData getJWSPolicyData(JWSPolicyData jwsPolicyData) {
+    /**
+     * Parses the given policy file contents and validates its signature.
+     * Both the domain signed policy and jws policy data formats are supported.
+     * @param policyFileData contents of the policy file
+     * @return policy data or null if the data is invalid
+     */
+    static PolicyData getPolicyData(byte[] policyFileData) {
+
+        // we're going to assume the old domain signed policy format first
+        // and if that fails we'll try jws policy data format
+
+        PolicyData policyData = null;
+        DomainSignedPolicyData domainSignedPolicyData = JSON.fromBytes(policyFileData, DomainSignedPolicyData.class);
+        if (domainSignedPolicyData != null && domainSignedPolicyData.getSignedPolicyData() != null) {
+            policyData = getSignedPolicyData(domainSignedPolicyData);
+        } else {
+            JWSPolicyData jwsPolicyData = JSON.fromBytes(policyFileData, JWSPolicyData.class);
+            if (jwsPolicyData != null) {
+                policyData = getJWSPolicyData(jwsPolicyData);
+            }
+        }
+        return policyData;
+    }
+
+    private static PolicyData getJWSPolicyData(JWSPolicyData jwsPolicyData) {
 
         Function<String, PublicKey> keyGetter = AuthZpeClient::getZtsPublicKey;
 
@@ -366,7 +674,7 @@ public class ZpeUpdPolLoader implements Closeable {
         return signedPolicyData.getPolicyData();
     }
 
-    boolean isESAlgorithm(final String algorithm) {
+    static boolean isESAlgorithm(final String algorithm) {
         if (algorithm != null) {
             switch (algorithm) {
                 case "ES256":
@@ -378,7 +686,7 @@ public class ZpeUpdPolLoader implements Closeable {
         return false;
     }
 
-    String getDERSignature(final String protectedHeader, final String signature) {
+    static String getDERSignature(final String protectedHeader, final String signature) {
 
         Map<String, String> header = Crypto.parseJWSProtectedHeader(protectedHeader);
         if (header == null) {
@@ -400,7 +708,7 @@ public class ZpeUpdPolLoader implements Closeable {
         }
     }
 
-    private PolicyData getSignedPolicyData(DomainSignedPolicyData domainSignedPolicyData) {
+    private static PolicyData getSignedPolicyData(DomainSignedPolicyData domainSignedPolicyData) {
 
         // we already verified that the object has policy data present
 
@@ -453,6 +761,16 @@ public class ZpeUpdPolLoader implements Closeable {
         return policyData;
     }
 
+    static boolean isDenyEffect(AssertionEffect effect) {
+        return effect != null && effect.toString().compareTo("DENY") == 0;
+    }
+
+    static String getAssertionRoleName(final String assertionRole, final String domainName) {
+        String roleName = AuthZpeClient.stripDomainPrefix(assertionRole, domainName, assertionRole);
+        // strip the prefix "role." too
+        return roleName.replaceFirst("^role.", "");
+    }
+
     private void markInvalidFile(File polFile) {
         // mark this as an invalid file
         LOG.error("unable to decode domain file={}", polFile.getName());
@@ -463,11 +781,21 @@ public class ZpeUpdPolLoader implements Closeable {
             fstat.validPolFile = false;
         }
     }
+    private void loadFile(File polFile) {
+
+        final long startTime = System.currentTimeMillis();
+        final boolean result = loadPolicyFile(polFile);
+        if (policyLoaderMetrics != null) {
+            policyLoaderMetrics.recordFileLoad(polFile.getName(), result, System.currentTimeMillis() - startTime);
+        }
+    }
+
     /**
      * Loads and parses the given file. It will create the domain assertion
-     * list per role and put it into the domain policy maps(domRoleMap, domWildcardRoleMap).
+     * list per role and put it into the domain assertions map.
+     * @return true if the file was loaded successfully
      **/
-    private void loadFile(File polFile) {
+    private boolean loadPolicyFile(File polFile) {
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("loadFile: file({})", polFile.getName());
@@ -481,26 +809,13 @@ public class ZpeUpdPolLoader implements Closeable {
         } catch (Exception ex) {
             LOG.error("unable to read policy file={}", polFile.getName(), ex);
             markInvalidFile(polFile);
-            return;
-        }
-
-        // we're going to assume the old domain signed policy format first
-        // and if that fails we'll try jws policy data format
-
-        PolicyData policyData = null;
-        DomainSignedPolicyData domainSignedPolicyData = JSON.fromBytes(policyFileData, DomainSignedPolicyData.class);
-        if (domainSignedPolicyData != null && domainSignedPolicyData.getSignedPolicyData() != null) {
-            policyData = getSignedPolicyData(domainSignedPolicyData);
-        } else {
-            JWSPolicyData jwsPolicyData = JSON.fromBytes(policyFileData, JWSPolicyData.class);
-            if (jwsPolicyData != null) {
-                policyData = getJWSPolicyData(jwsPolicyData);
-            }
+            return false;
         }
 
+        PolicyData policyData = getPolicyData(policyFileData);
          if (policyData == null) {
              markInvalidFile(polFile);
-             return;
+             return false;
          }
          
         // HAVE: valid policy file
@@ -510,16 +825,49 @@ public class ZpeUpdPolLoader implements Closeable {
             LOG.debug("loadFile: policy file({}) for domain({}) is valid", polFile.getName(), domainName);
         }
         
-        // Process the policies into assertions, process the assertions: action, resource, role
-        // If there is a wildcard in the action or resource, compile the
-        // regexpr and place it into the assertion Struct.
-        // This is a performance enhancement for AuthZpeClient when it 
-        // performs the authorization checks.
-        Map<String, List<Struct>> roleStandardAllowMap = new TreeMap<>();
-        Map<String, List<Struct>> roleWildcardAllowMap = new TreeMap<>();
-        Map<String, List<Struct>> roleStandardDenyMap  = new TreeMap<>();
-        Map<String, List<Struct>> roleWildcardDenyMap  = new TreeMap<>();
+        DomainAssertions domainAssertions = getDomainAssertions(policyData, compiledPolicyEngine,
+                policyGeneration.incrementAndGet());
+
+        Map<String, ZpeFileStatus> fsmap = getFileStatusMap();
+        ZpeFileStatus fstat = fsmap.get(polFile.getName());
+        if (fstat != null) {
+            fstat.validPolFile = true;
+            fstat.domain = domainName;
+        }
+        
+        domAssertionsMap.put(domainName, domainAssertions);
+        return true;
+    }
+
+    /**
+     * Build the assertion maps for the given validated policy data
+     * @param policyData validated policy data of the domain
+     * @param compiledPolicy true if the compiled domain policy must be built as well
+     * @param generation generation number assigned to the domain assertions
+     * @return domain assertions
+     */
+    static DomainAssertions getDomainAssertions(PolicyData policyData, boolean compiledPolicy, long generation) {
+
+        DomainAssertionsBuilder domainAssertionsBuilder = new DomainAssertionsBuilder(policyData.getDomain(),
+                compiledPolicy);
+        processAssertions(policyData, domainAssertionsBuilder);
+        return domainAssertionsBuilder.build(generation);
+    }
+
+    /**
+     * Pass all the assertions of the given validated policy data to the
+     * processor with the action and resource values in lower case and
+     * the resource and role names without the domain prefix
+     * @param policyData validated policy data of the domain
+     * @param processor assertion processor
+     */
+    static void processAssertions(PolicyData policyData, AssertionProcessor processor) {
+
+        final String domainName = policyData.getDomain();
         List<Policy> policies = policyData.getPolicies();
+        if (policies == null) {
+            return;
+        }
         for (Policy policy : policies) {
             String pname = policy.getName();
             if (LOG.isDebugEnabled()) {
@@ -530,65 +878,18 @@ public class ZpeUpdPolLoader implements Closeable {
                 continue;
             }
             for (Assertion assertion : assertions) {
-                com.yahoo.rdl.Struct strAssert = new Struct();
-                strAssert.put(ZpeConsts.ZPE_FIELD_POLICY_NAME, pname);
 
                 // It is possible for action and resource to retain case. Need to lower them both.
-                final String passertAction = assertion.getAction().toLowerCase();
+                // the match objects are case-insensitive so the checked values are not
+                // required to be converted to lower case by the caller
 
-                ZpeMatch matchStruct = getMatchObject(passertAction);
-                strAssert.put(ZpeConsts.ZPE_ACTION_MATCH_STRUCT, matchStruct);
-                
+                final String passertAction = assertion.getAction().toLowerCase();
                 final String passertResource = assertion.getResource().toLowerCase();
                 final String rsrc = AuthZpeClient.stripDomainPrefix(passertResource, domainName, passertResource);
-                strAssert.put(ZpeConsts.ZPE_FIELD_RESOURCE, rsrc);
-                matchStruct = getMatchObject(rsrc);
-                strAssert.put(ZpeConsts.ZPE_RESOURCE_MATCH_STRUCT, matchStruct);
-
-                final String passertRole = assertion.getRole();
-                String pRoleName = AuthZpeClient.stripDomainPrefix(passertRole, domainName, passertRole);
-                // strip the prefix "role." too
-                pRoleName = pRoleName.replaceFirst("^role.", "");
-                strAssert.put(ZpeConsts.ZPE_FIELD_ROLE, pRoleName);
-                
-                // based on the effect and role name determine what
-                // map we're going to use
-                
-                Map<String, List<Struct>> roleMap;
-                AssertionEffect passertEffect = assertion.getEffect();
-                matchStruct = getMatchObject(pRoleName);
-                strAssert.put(ZpeConsts.ZPE_ROLE_MATCH_STRUCT, matchStruct);
-                
-                if (passertEffect != null && passertEffect.toString().compareTo("DENY") == 0) {
-                    if (matchStruct instanceof ZpeMatchEqual) {
-                        roleMap = roleStandardDenyMap;
-                    } else {
-                        roleMap = roleWildcardDenyMap;
-                    }
-                } else {
-                    if (matchStruct instanceof ZpeMatchEqual) {
-                        roleMap = roleStandardAllowMap;
-                    } else {
-                        roleMap = roleWildcardAllowMap;
-                    }
-                }
+                final String pRoleName = getAssertionRoleName(assertion.getRole(), domainName);
 
-                List<Struct> assertList = roleMap.computeIfAbsent(pRoleName, k -> new ArrayList<>());
-                assertList.add(strAssert);
+                processor.addAssertion(pname, passertAction, rsrc, pRoleName, isDenyEffect(assertion.getEffect()));
             }
         }
- 
-        Map<String, ZpeFileStatus> fsmap = getFileStatusMap();
-        ZpeFileStatus fstat = fsmap.get(polFile.getName());
-        if (fstat != null) {
-            fstat.validPolFile = true;
-            fstat.domain = domainName;
-        }
-        
-        domStandardRoleAllowMap.put(domainName, roleStandardAllowMap);
-        domWildcardRoleAllowMap.put(domainName, roleWildcardAllowMap);
-        domStandardRoleDenyMap.put(domainName, roleStandardDenyMap);
-        domWildcardRoleDenyMap.put(domainName, roleWildcardDenyMap);
     }
 }
-
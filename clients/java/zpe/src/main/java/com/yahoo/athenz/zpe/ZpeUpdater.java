@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.yahoo.athenz.auth.token.RoleToken;
+import com.yahoo.athenz.zpe.engine.ZpePolicyEvaluator;
 import com.yahoo.rdl.Struct;
 
 public class ZpeUpdater implements ZpeClient {
@@ -113,4 +114,29 @@ public class ZpeUpdater implements ZpeClient {
     public int getDomainCount() {
         return POLICYLOADER.getDomainCount();
     }
+
+    @Override
+    public boolean isCompiledPolicyEngine() {
+        return ZpeUpdPolLoader.compiledPolicyEngine;
+    }
+
+    @Override
+    public boolean isCaseInsensitiveMatch() {
+        return true;
+    }
+
+    @Override
+    public ZpePolicyEvaluator getDomainPolicy(String domain) {
+        return POLICYLOADER.getDomainPolicy(domain);
+    }
+
+    @Override
+    public long getDomainGeneration(String domain) {
+        return POLICYLOADER.getDomainGeneration(domain);
+    }
+
+    @Override
+    public ZpeUpdPolLoader.DomainAssertions getDomainAssertions(String domain) {
+        return POLICYLOADER.getDomainAssertions(domain);
+    }
 }
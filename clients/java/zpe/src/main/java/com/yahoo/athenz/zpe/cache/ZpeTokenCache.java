@@ -0,0 +1,334 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.cache;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Size bounded cache of validated role and access tokens. Each entry
+ * lives until its token expires. The cache is also used for parsed
+ * x.509 role certificate identities which live until the certificate
+ * expires and access check decisions which never expire and are
+ * validated by the caller. Once the cache reaches its limit,
+ * expired tokens are removed first. A new token is then only admitted
+ * if it has been requested more often than the least frequently used
+ * token in a small sample of the cached entries (TinyLFU admission),
+ * which is the one evicted. The request frequencies are tracked in a
+ * count-min sketch that is periodically aged, so a burst of unique
+ * tokens can't push out the tokens that are re-used by clients.
+ * The limit is approximate since concurrent puts are not serialized.
+ * @param <T> token type
+ */
+public class ZpeTokenCache<T> extends AbstractMap<String, T> {
+
+    static final int EVICTION_SAMPLE_SIZE = 8;
+    static final long EXPIRED_SWEEP_INTERVAL_MILLIS = 1000;
+
+    private static final ZpeTokenCacheMetrics NOOP_METRICS = new ZpeTokenCacheMetrics() { };
+
+    private final String name;
+    private final ToLongFunction<T> expiryFunction;
+    private final ConcurrentHashMap<String, T> cache = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private volatile FrequencySketch sketch = new FrequencySketch(0);
+    private volatile ZpeTokenCacheMetrics metrics = NOOP_METRICS;
+    private volatile long lastExpiredSweep = 0;
+    private Iterator<Map.Entry<String, T>> sampleIterator;
+
+    /**
+     * Create a new token cache
+     * @param name name of the cache reported to the metrics hook
+     * @param expiryFunction function returning the token expiry time in seconds
+     */
+    public ZpeTokenCache(final String name, ToLongFunction<T> expiryFunction) {
+        this.name = name;
+        this.expiryFunction = expiryFunction;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setMetrics(ZpeTokenCacheMetrics metrics) {
+        this.metrics = metrics == null ? NOOP_METRICS : metrics;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public T get(Object key) {
+
+        sketch.increment(key);
+
+        T value = cache.get(key);
+        if (value != null && isExpired(value, System.currentTimeMillis() / 1000)) {
+            if (cache.remove(key, value)) {
+                recordEviction(true);
+            }
+            value = null;
+        }
+
+        if (value == null) {
+            missCount.increment();
+            metrics.recordMiss(name);
+        } else {
+            hitCount.increment();
+            metrics.recordHit(name);
+        }
+        return value;
+    }
+
+    @Override
+    public T put(final String key, T value) {
+        return cache.put(key, value);
+    }
+
+    /**
+     * Add the token to the cache while keeping the number of entries
+     * within the given limit. If the cache is full, the token is only
+     * added if it's used more frequently than the eviction candidate.
+     * @param key token string
+     * @param value validated token object
+     * @param maxSize maximum number of entries. 0 indicates no limit
+     * @return true if the token was added to the cache
+     */
+    public boolean put(final String key, T value, int maxSize) {
+
+        if (maxSize <= 0 || cache.containsKey(key)) {
+            cache.put(key, value);
+            return true;
+        }
+
+        FrequencySketch currentSketch = sketch;
+        if (!currentSketch.hasCapacity(maxSize)) {
+            currentSketch = new FrequencySketch(maxSize);
+            sketch = currentSketch;
+        }
+
+        if (cache.size() >= maxSize) {
+
+            long now = System.currentTimeMillis();
+            if (now - lastExpiredSweep >= EXPIRED_SWEEP_INTERVAL_MILLIS) {
+                lastExpiredSweep = now;
+                removeExpired(now / 1000);
+            }
+
+            final int candidateFrequency = currentSketch.frequency(key);
+            while (cache.size() >= maxSize) {
+                Map.Entry<String, T> victim = selectVictim(currentSketch);
+                if (victim == null) {
+                    break;
+                }
+                if (candidateFrequency <= currentSketch.frequency(victim.getKey())) {
+                    return false;
+                }
+                if (cache.remove(victim.getKey(), victim.getValue())) {
+                    recordEviction(false);
+                }
+            }
+        }
+
+        cache.put(key, value);
+        return true;
+    }
+
+    @Override
+    public T remove(Object key) {
+        return cache.remove(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return cache.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public Set<Map.Entry<String, T>> entrySet() {
+        return cache.entrySet();
+    }
+
+    /**
+     * Remove all tokens that have expired
+     * @param nowSecs current time in seconds
+     */
+    public void removeExpired(long nowSecs) {
+        cache.forEach((key, value) -> {
+            if (isExpired(value, nowSecs) && cache.remove(key, value)) {
+                recordEviction(true);
+            }
+        });
+    }
+
+    boolean isExpired(T value, long nowSecs) {
+        return expiryFunction.applyAsLong(value) < nowSecs;
+    }
+
+    void recordEviction(boolean expired) {
+        evictionCount.increment();
+        metrics.recordEviction(name, expired);
+    }
+
+    synchronized Map.Entry<String, T> selectVictim(FrequencySketch currentSketch) {
+
+        // pick the least frequently used token out of a small sample
+        // and if there is a tie the one that expires the soonest. each
+        // sample continues where the previous one stopped so we don't
+        // keep sampling (and evicting) the same area of the table
+
+        Map.Entry<String, T> victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        long victimExpiry = Long.MAX_VALUE;
+
+        boolean restarted = false;
+        for (int i = 0; i < EVICTION_SAMPLE_SIZE; i++) {
+            if (sampleIterator == null || !sampleIterator.hasNext()) {
+                if (restarted) {
+                    break;
+                }
+                sampleIterator = cache.entrySet().iterator();
+                restarted = true;
+                if (!sampleIterator.hasNext()) {
+                    break;
+                }
+            }
+            Map.Entry<String, T> entry = sampleIterator.next();
+            final int frequency = currentSketch.frequency(entry.getKey());
+            final long expiry = expiryFunction.applyAsLong(entry.getValue());
+            if (frequency < victimFrequency || (frequency == victimFrequency && expiry < victimExpiry)) {
+                victim = entry;
+                victimFrequency = frequency;
+                victimExpiry = expiry;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Count-min sketch with 4 bit counters packed into longs. Each key
+     * is mapped to one counter in each of the four rows and its frequency
+     * is the minimum of those counters. Once the number of increments
+     * reaches ten times the table size all counters are halved so the
+     * old popularity fades. The counters are updated without locking -
+     * an occasional lost increment only affects the estimate.
+     */
+    static class FrequencySketch {
+
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final int[] SEEDS = { 0x97cb3127, 0xb0ee7ce5, 0x9e3779b9, 0x85ebca6b };
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maxSize) {
+            int length = Math.max(16, Integer.highestOneBit(Math.max(1, maxSize) - 1) << 1);
+            table = new long[length];
+            tableMask = length - 1;
+            sampleSize = maxSize == 0 ? 0 : 10 * length;
+        }
+
+        boolean hasCapacity(int maxSize) {
+            return sampleSize != 0 && table.length >= maxSize;
+        }
+
+        int frequency(Object key) {
+            if (sampleSize == 0) {
+                return 0;
+            }
+            final int hash = spread(key.hashCode());
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> offsetOf(hash, i)) & 0xfL));
+            }
+            return frequency;
+        }
+
+        void increment(Object key) {
+            if (sampleSize == 0) {
+                return;
+            }
+            final int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                final int index = indexOf(hash, i);
+                final int offset = offsetOf(hash, i);
+                if (((table[index] >>> offset) & 0xfL) != 0xfL) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        synchronized void reset() {
+            if (additions < sampleSize) {
+                return;
+            }
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions = additions >>> 1;
+        }
+
+        int indexOf(int hash, int row) {
+            int h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 16;
+            return h & tableMask;
+        }
+
+        int offsetOf(int hash, int row) {
+            // each long holds 16 counters - every row uses its own
+            // 4 counters out of those based on the hash value
+            return ((row << 2) + ((hash >>> (row << 3)) & 3)) << 2;
+        }
+
+        static int spread(int hash) {
+            hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+            return (hash >>> 16) ^ hash;
+        }
+    }
+}
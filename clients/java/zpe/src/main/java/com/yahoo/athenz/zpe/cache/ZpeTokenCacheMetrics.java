@@ -0,0 +1,47 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.cache;
+
+/**
+ * Hook for reporting token, x.509 identity and access decision cache
+ * events. The methods are called from the authorization check path, so
+ * the implementations must be thread-safe and must not block.
+ */
+public interface ZpeTokenCacheMetrics {
+
+    /**
+     * Called when a token is found in the cache
+     * @param cacheName name of the cache - roleToken, accessToken, x509Identity or decision
+     */
+    default void recordHit(String cacheName) {
+    }
+
+    /**
+     * Called when a token is not found in the cache
+     * @param cacheName name of the cache - roleToken, accessToken, x509Identity or decision
+     */
+    default void recordMiss(String cacheName) {
+    }
+
+    /**
+     * Called when a token is removed from the cache either because
+     * it has expired or to make room for a more frequently used token
+     * @param cacheName name of the cache - roleToken, accessToken, x509Identity or decision
+     * @param expired true if the token was removed because it expired
+     */
+    default void recordEviction(String cacheName, boolean expired) {
+    }
+}
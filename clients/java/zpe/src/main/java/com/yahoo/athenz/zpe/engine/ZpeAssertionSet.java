@@ -0,0 +1,94 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.engine;
+
+import com.yahoo.athenz.zpe.match.ZpeMatch;
+import com.yahoo.athenz.zpe.match.impl.ZpeMatchAll;
+import com.yahoo.athenz.zpe.match.impl.ZpeMatchRegex;
+import com.yahoo.athenz.zpe.match.impl.ZpeMatchStartsWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assertions with the same effect for a single role. The assertions
+ * are grouped by their action - actions without wildcards are looked
+ * up directly while wildcard actions are checked one by one. The
+ * resources for each action are kept in a pattern trie.
+ */
+class ZpeAssertionSet {
+
+    static class WildcardAction {
+        final ZpeMatch match;
+        final ZpeMatchTrie<String> resources = new ZpeMatchTrie<>();
+
+        WildcardAction(ZpeMatch match) {
+            this.match = match;
+        }
+    }
+
+    private final Map<String, ZpeMatchTrie<String>> actions = new HashMap<>();
+    private final Map<String, WildcardAction> wildcardActionMap = new HashMap<>();
+    private final List<WildcardAction> wildcardActions = new ArrayList<>();
+
+    void addAssertion(final String action, final String resource, final String policyName) {
+
+        ZpeMatchTrie<String> resources;
+        if (action.indexOf('*') == -1 && action.indexOf('?') == -1) {
+            resources = actions.computeIfAbsent(action, k -> new ZpeMatchTrie<>());
+        } else {
+            WildcardAction wildcardAction = wildcardActionMap.get(action);
+            if (wildcardAction == null) {
+                wildcardAction = new WildcardAction(getMatchObject(action));
+                wildcardActionMap.put(action, wildcardAction);
+                wildcardActions.add(wildcardAction);
+            }
+            resources = wildcardAction.resources;
+        }
+        resources.add(resource, policyName);
+    }
+
+    boolean matches(final String action, final String resource) {
+
+        ZpeMatchTrie<String> resources = actions.get(action);
+        if (resources != null && resources.matches(resource)) {
+            return true;
+        }
+
+        for (WildcardAction wildcardAction : wildcardActions) {
+            if (wildcardAction.match.matches(action) && wildcardAction.resources.matches(resource)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    static ZpeMatch getMatchObject(final String value) {
+
+        if ("*".equals(value)) {
+            return new ZpeMatchAll();
+        }
+
+        if (value.indexOf('*') == value.length() - 1 && value.indexOf('?') == -1) {
+            return new ZpeMatchStartsWith(value.substring(0, value.length() - 1));
+        }
+
+        return new ZpeMatchRegex(value);
+    }
+}
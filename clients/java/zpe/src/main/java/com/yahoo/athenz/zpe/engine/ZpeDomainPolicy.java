@@ -0,0 +1,216 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.engine;
+
+import com.yahoo.athenz.zpe.AuthZpeClient.AccessCheckStatus;
+
+import java.util.*;
+
+/**
+ * Compiled policy assertions for a single domain. The assertions are
+ * grouped by role and then by action with the resources indexed in
+ * a pattern trie. Roles without wildcards are looked up directly while
+ * the wildcard roles are kept in their own pattern trie so all the
+ * wildcard roles matching a given role are obtained in a single walk.
+ * Deny and allow assertions are resolved in a single pass over the
+ * roles while returning the same result (including the matched role
+ * name) as the assertion map based evaluation in AuthZpeClient:
+ * standard role deny, wildcard role deny, standard role allow and
+ * finally wildcard role allow assertions.
+ * The object is immutable once it's built.
+ */
+public class ZpeDomainPolicy implements ZpePolicyEvaluator {
+
+    static class RolePolicy {
+        final String name;
+        int ordinal;
+        ZpeAssertionSet deny;
+        ZpeAssertionSet allow;
+
+        RolePolicy(final String name) {
+            this.name = name;
+        }
+
+        boolean denyMatches(final String action, final String resource) {
+            return deny != null && deny.matches(action, resource);
+        }
+
+        boolean allowMatches(final String action, final String resource) {
+            return allow != null && allow.matches(action, resource);
+        }
+    }
+
+    private static final Comparator<RolePolicy> ORDINAL_COMPARATOR = Comparator.comparingInt(r -> r.ordinal);
+
+    private final String domainName;
+    private final Map<String, RolePolicy> standardRoles;
+    private final ZpeMatchTrie<RolePolicy> wildcardRoles;
+    private final int assertionCount;
+
+    private ZpeDomainPolicy(Builder builder) {
+
+        domainName = builder.domainName;
+        standardRoles = builder.standardRoles;
+        assertionCount = builder.assertionCount;
+
+        // the wildcard roles are assigned their ordinal values based
+        // on their sorted names since that's the order the assertion
+        // maps are processed in
+
+        wildcardRoles = new ZpeMatchTrie<>();
+        int ordinal = 0;
+        for (RolePolicy rolePolicy : builder.wildcardRoles.values()) {
+            rolePolicy.ordinal = ordinal++;
+            wildcardRoles.add(rolePolicy.name, rolePolicy);
+        }
+    }
+
+    @Override
+    public String getDomainName() {
+        return domainName;
+    }
+
+    @Override
+    public int getAssertionCount() {
+        return assertionCount;
+    }
+
+    @Override
+    public AccessCheckStatus allowAction(final String action, final String resource, List<String> roles,
+            StringBuilder matchRoleName) {
+
+        if (assertionCount == 0) {
+            return AccessCheckStatus.DENY_DOMAIN_EMPTY;
+        }
+
+        // standard role deny assertions take precedence over everything
+        // else so we return right away. for all others we just remember
+        // the first match and only look for the ones with higher precedence
+
+        String standardAllowRole = null;
+        RolePolicy wildcardDenyRole = null;
+        RolePolicy wildcardAllowRole = null;
+        List<RolePolicy> matchedRoles = wildcardRoles.isEmpty() ? null : new ArrayList<>();
+
+        for (String role : roles) {
+
+            RolePolicy rolePolicy = standardRoles.get(role);
+            if (rolePolicy != null) {
+                if (rolePolicy.denyMatches(action, resource)) {
+                    setMatchRoleName(matchRoleName, role);
+                    return AccessCheckStatus.DENY;
+                }
+                if (standardAllowRole == null && wildcardDenyRole == null
+                        && rolePolicy.allowMatches(action, resource)) {
+                    standardAllowRole = role;
+                }
+            }
+
+            if (matchedRoles == null || wildcardDenyRole != null) {
+                continue;
+            }
+
+            matchedRoles.clear();
+            wildcardRoles.collect(role, matchedRoles);
+            if (matchedRoles.size() > 1) {
+                matchedRoles.sort(ORDINAL_COMPARATOR);
+            }
+
+            for (RolePolicy wildcardPolicy : matchedRoles) {
+                if (wildcardPolicy.denyMatches(action, resource)) {
+                    wildcardDenyRole = wildcardPolicy;
+                    break;
+                }
+                if (standardAllowRole == null && wildcardAllowRole == null
+                        && wildcardPolicy.allowMatches(action, resource)) {
+                    wildcardAllowRole = wildcardPolicy;
+                }
+            }
+        }
+
+        if (wildcardDenyRole != null) {
+            setMatchRoleName(matchRoleName, wildcardDenyRole.name);
+            return AccessCheckStatus.DENY;
+        }
+
+        if (standardAllowRole != null) {
+            setMatchRoleName(matchRoleName, standardAllowRole);
+            return AccessCheckStatus.ALLOW;
+        }
+
+        if (wildcardAllowRole != null) {
+            setMatchRoleName(matchRoleName, wildcardAllowRole.name);
+            return AccessCheckStatus.ALLOW;
+        }
+
+        return AccessCheckStatus.DENY_NO_MATCH;
+    }
+
+    void setMatchRoleName(StringBuilder matchRoleName, final String roleName) {
+        matchRoleName.setLength(0);
+        matchRoleName.append(roleName);
+    }
+
+    public static class Builder {
+
+        private final String domainName;
+        private final Map<String, RolePolicy> standardRoles = new HashMap<>();
+        private final Map<String, RolePolicy> wildcardRoles = new TreeMap<>();
+        private int assertionCount = 0;
+
+        public Builder(final String domainName) {
+            this.domainName = domainName;
+        }
+
+        /**
+         * Add the given assertion to the domain policy
+         * @param roleName role name without the domain and role. prefix
+         * @param action lower case action value
+         * @param resource lower case resource value without the domain prefix
+         * @param deny true if the assertion has deny effect
+         * @param policyName name of the policy the assertion belongs to
+         * @return builder object
+         */
+        public Builder addAssertion(final String roleName, final String action, final String resource,
+                boolean deny, final String policyName) {
+
+            Map<String, RolePolicy> roleMap = (roleName.indexOf('*') == -1 && roleName.indexOf('?') == -1) ?
+                    standardRoles : wildcardRoles;
+            RolePolicy rolePolicy = roleMap.computeIfAbsent(roleName, RolePolicy::new);
+
+            ZpeAssertionSet assertionSet;
+            if (deny) {
+                if (rolePolicy.deny == null) {
+                    rolePolicy.deny = new ZpeAssertionSet();
+                }
+                assertionSet = rolePolicy.deny;
+            } else {
+                if (rolePolicy.allow == null) {
+                    rolePolicy.allow = new ZpeAssertionSet();
+                }
+                assertionSet = rolePolicy.allow;
+            }
+
+            assertionSet.addAssertion(action, resource, policyName);
+            assertionCount += 1;
+            return this;
+        }
+
+        public ZpeDomainPolicy build() {
+            return new ZpeDomainPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.engine;
+
+import com.yahoo.athenz.zpe.match.ZpeMatch;
+import com.yahoo.athenz.zpe.match.impl.ZpeMatchRegex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of glob patterns (as used in policy assertions) with their
+ * associated values. Patterns without any wildcard characters and
+ * patterns with a single trailing * are stored in a character trie
+ * so a value is matched against all of them in a single walk. Any
+ * other patterns are compiled into regular expressions and are
+ * checked one by one after the trie walk.
+ * @param <T> type of the values associated with the patterns
+ */
+public class ZpeMatchTrie<T> {
+
+    static class Node<T> {
+        Map<Character, Node<T>> children;
+        List<T> exactValues;
+        List<T> prefixValues;
+
+        Node<T> getChild(char c) {
+            return children == null ? null : children.get(c);
+        }
+
+        Node<T> addChild(char c) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(c, k -> new Node<>());
+        }
+    }
+
+    static class RegexEntry<T> {
+        final ZpeMatch match;
+        final T value;
+
+        RegexEntry(ZpeMatch match, T value) {
+            this.match = match;
+            this.value = value;
+        }
+    }
+
+    private final Node<T> root = new Node<>();
+    private final List<RegexEntry<T>> regexEntries = new ArrayList<>();
+    private int size = 0;
+
+    /**
+     * Add the given glob pattern to the index
+     * @param pattern glob pattern where * matches any number of
+     *        characters and ? matches a single character
+     * @param value value to be returned when the pattern matches
+     */
+    public void add(final String pattern, T value) {
+
+        size += 1;
+
+        final int anyCharMatch = pattern.indexOf('*');
+        final int singleCharMatch = pattern.indexOf('?');
+
+        if (anyCharMatch == -1 && singleCharMatch == -1) {
+            Node<T> node = getNode(pattern, pattern.length());
+            if (node.exactValues == null) {
+                node.exactValues = new ArrayList<>();
+            }
+            node.exactValues.add(value);
+        } else if (anyCharMatch == pattern.length() - 1 && singleCharMatch == -1) {
+            Node<T> node = getNode(pattern, pattern.length() - 1);
+            if (node.prefixValues == null) {
+                node.prefixValues = new ArrayList<>();
+            }
+            node.prefixValues.add(value);
+        } else {
+            regexEntries.add(new RegexEntry<>(new ZpeMatchRegex(pattern), value));
+        }
+    }
+
+    private Node<T> getNode(final String pattern, int length) {
+        Node<T> node = root;
+        for (int i = 0; i < length; i++) {
+            node = node.addChild(pattern.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Check if any of the patterns in the index match the given value
+     * @param value value to check
+     * @return true if at least one pattern matches the value
+     */
+    public boolean matches(final String value) {
+
+        Node<T> node = root;
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (node.prefixValues != null) {
+                return true;
+            }
+            node = node.getChild(value.charAt(i));
+            if (node == null) {
+                break;
+            }
+        }
+
+        if (node != null && (node.prefixValues != null || node.exactValues != null)) {
+            return true;
+        }
+
+        for (RegexEntry<T> entry : regexEntries) {
+            if (entry.match.matches(value)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Add the values of all the patterns that match the given value
+     * to the given list
+     * @param value value to check
+     * @param matches list to add the matching values to
+     */
+    public void collect(final String value, List<T> matches) {
+
+        Node<T> node = root;
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (node.prefixValues != null) {
+                matches.addAll(node.prefixValues);
+            }
+            node = node.getChild(value.charAt(i));
+            if (node == null) {
+                break;
+            }
+        }
+
+        if (node != null) {
+            if (node.prefixValues != null) {
+                matches.addAll(node.prefixValues);
+            }
+            if (node.exactValues != null) {
+                matches.addAll(node.exactValues);
+            }
+        }
+
+        for (RegexEntry<T> entry : regexEntries) {
+            if (entry.match.matches(value)) {
+                matches.add(entry.value);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.engine;
+
+import com.yahoo.athenz.zpe.AuthZpeClient.AccessCheckStatus;
+
+import java.util.List;
+
+/**
+ * Compiled policy assertions for a single domain that are used by
+ * AuthZpeClient to resolve both deny and allow assertions in a single
+ * call. The result, including the matched role name, must be the same
+ * as the assertion map based evaluation in AuthZpeClient.
+ */
+public interface ZpePolicyEvaluator {
+
+    /**
+     * @return name of the domain
+     */
+    String getDomainName();
+
+    /**
+     * @return number of assertions in the domain
+     */
+    int getAssertionCount();
+
+    default boolean isEmpty() {
+        return getAssertionCount() == 0;
+    }
+
+    /**
+     * Determine if the action is allowed against the resource for the
+     * given roles.
+     * @param action lower case action value
+     * @param resource lower case resource value without the domain prefix
+     * @param roles list of roles from the token
+     * @param matchRoleName - [out] will include the role name that the result was based on
+     * @return one of ALLOW, DENY, DENY_NO_MATCH or DENY_DOMAIN_EMPTY
+     */
+    AccessCheckStatus allowAction(String action, String resource, List<String> roles,
+            StringBuilder matchRoleName);
+}
@@ -21,4 +21,13 @@ public interface ZpeMatch {
      * @return boolean value if the given string matches for ZPE check
      */
     boolean matches(String value);
+
+    /*
+     * @return boolean value if the given string starting at the given
+     * offset matches for ZPE check. Implementations should override this
+     * method to avoid creating a substring of the value.
+     */
+    default boolean matches(String value, int offset) {
+        return matches(offset == 0 ? value : value.substring(offset));
+    }
 }
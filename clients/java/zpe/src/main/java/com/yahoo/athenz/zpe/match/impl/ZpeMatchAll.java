@@ -25,4 +25,9 @@ public class ZpeMatchAll implements ZpeMatch {
     public boolean matches(String value) {
         return true;
     }
+
+    @Override
+    public boolean matches(String value, int offset) {
+        return true;
+    }
 }
@@ -19,12 +19,26 @@ import com.yahoo.athenz.zpe.match.ZpeMatch;
 
 public class ZpeMatchEqual implements ZpeMatch {
 
-    private String matchValue;
+    private final String matchValue;
+    private final boolean ignoreCase;
+
     public ZpeMatchEqual(String value) {
+        this(value, false);
+    }
+
+    // with ignoreCase option the value must be in lower case
+
+    public ZpeMatchEqual(String value, boolean ignoreCase) {
         matchValue = value;
+        this.ignoreCase = ignoreCase;
     }
 
     public boolean matches(String value) {
-        return matchValue.equals(value);
+        return matches(value, 0);
+    }
+
+    public boolean matches(String value, int offset) {
+        return value.length() - offset == matchValue.length()
+                && ZpeMatchUtil.regionMatches(value, offset, matchValue, ignoreCase);
     }
 }
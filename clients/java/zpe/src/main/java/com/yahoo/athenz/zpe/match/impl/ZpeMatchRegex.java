@@ -20,14 +20,95 @@ import java.util.regex.Pattern;
 import com.yahoo.athenz.auth.util.StringUtils;
 import com.yahoo.athenz.zpe.match.ZpeMatch;
 
+/**
+ * Matches values against a glob pattern where * matches any number of
+ * characters and ? matches a single character. The pattern is processed
+ * directly without a regular expression matcher so no objects are created
+ * for each check. Same as the regular expression created from the glob,
+ * the wildcard characters do not match any line terminators. In the rare
+ * case the glob itself contains a line terminator, the compiled regular
+ * expression is used instead.
+ */
 public class ZpeMatchRegex implements ZpeMatch {
 
-    private Pattern pattern;
+    private final String glob;
+    private final boolean ignoreCase;
+    private final Pattern pattern;
+
     public ZpeMatchRegex(String value) {
-        pattern = Pattern.compile(StringUtils.patternFromGlob(value));
+        this(value, false);
+    }
+
+    // with ignoreCase option the value must be in lower case
+
+    public ZpeMatchRegex(String value, boolean ignoreCase) {
+        glob = value;
+        this.ignoreCase = ignoreCase;
+        pattern = containsLineTerminator(value, 0) ? Pattern.compile(StringUtils.patternFromGlob(value)) : null;
     }
 
     public boolean matches(String value) {
-        return pattern.matcher(value).matches();
+        return matches(value, 0);
+    }
+
+    public boolean matches(String value, int offset) {
+
+        if (pattern != null) {
+            String region = offset == 0 ? value : value.substring(offset);
+            return pattern.matcher(ignoreCase ? region.toLowerCase() : region).matches();
+        }
+
+        // standard glob matching where we keep track of the last
+        // * that we have seen and backtrack to it on mismatch
+
+        final int globLength = glob.length();
+        final int valueLength = value.length();
+
+        int g = 0;
+        int v = offset;
+        int starIndex = -1;
+        int starMatch = offset;
+
+        while (v < valueLength) {
+            final char valueChar = value.charAt(v);
+            if (g < globLength) {
+                final char globChar = glob.charAt(g);
+                if (globChar == '*') {
+                    starIndex = g++;
+                    starMatch = v;
+                    continue;
+                }
+                if (globChar == '?' ? !isLineTerminator(valueChar)
+                        : ZpeMatchUtil.charMatches(globChar, valueChar, ignoreCase)) {
+                    g++;
+                    v++;
+                    continue;
+                }
+            }
+            if (starIndex == -1 || isLineTerminator(value.charAt(starMatch))) {
+                return false;
+            }
+            g = starIndex + 1;
+            v = ++starMatch;
+        }
+
+        while (g < globLength && glob.charAt(g) == '*') {
+            g++;
+        }
+        return g == globLength;
+    }
+
+    static boolean containsLineTerminator(final String value, int offset) {
+        final int length = value.length();
+        for (int i = offset; i < length; i++) {
+            if (isLineTerminator(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
     }
 }
@@ -19,12 +19,25 @@ import com.yahoo.athenz.zpe.match.ZpeMatch;
 
 public class ZpeMatchStartsWith implements ZpeMatch {
 
-    private String prefix;
+    private final String prefix;
+    private final boolean ignoreCase;
+
     public ZpeMatchStartsWith(String value) {
+        this(value, false);
+    }
+
+    // with ignoreCase option the value must be in lower case
+
+    public ZpeMatchStartsWith(String value, boolean ignoreCase) {
         prefix = value;
+        this.ignoreCase = ignoreCase;
     }
 
     public boolean matches(String value) {
-        return value.startsWith(prefix);
+        return matches(value, 0);
+    }
+
+    public boolean matches(String value, int offset) {
+        return ZpeMatchUtil.regionMatches(value, offset, prefix, ignoreCase);
     }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.match.impl;
+
+final class ZpeMatchUtil {
+
+    private ZpeMatchUtil() {
+    }
+
+    /**
+     * Compare the given region of the value with the pattern value. If ignoreCase
+     * is true then the pattern is expected to be in lower case and the characters
+     * from the value are converted to lower case before comparison.
+     */
+    static boolean regionMatches(final String value, int offset, final String pattern, boolean ignoreCase) {
+
+        final int length = pattern.length();
+        if (value.length() - offset < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!charMatches(pattern.charAt(i), value.charAt(offset + i), ignoreCase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean charMatches(char patternChar, char valueChar, boolean ignoreCase) {
+        return patternChar == valueChar || (ignoreCase && patternChar == Character.toLowerCase(valueChar));
+    }
+}
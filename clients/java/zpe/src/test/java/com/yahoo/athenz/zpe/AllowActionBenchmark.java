@@ -0,0 +1,200 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe;
+
+import com.yahoo.athenz.auth.token.AccessToken;
+import com.yahoo.athenz.auth.token.RoleToken;
+import com.yahoo.rdl.Struct;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the AuthZpeClient.allowActionZPE access checks
+ * with the assertion maps for lower and mixed case action/resource
+ * values. The main method runs the benchmark with the gc profiler and
+ * reports the normalized allocation rate (bytes per check) which must
+ * be zero in steady state. The benchmark is not part of the unit test
+ * suite - run the main method with the module test classpath to execute it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dlogback.configurationFile=src/test/resources/logback_perf.xml",
+        "-Dathenz.athenz_conf=src/test/resources/athenz.conf",
+        "-Dathenz.jwk_athenz_conf=src/test/resources/jwk/athenz_jwks.json" })
+public class AllowActionBenchmark {
+
+    static final String DOMAIN_NAME = "sports";
+
+    /**
+     * ZPE client with assertion maps generated in memory instead
+     * of being loaded from signed policy files
+     */
+    public static class BenchmarkZpeClient implements ZpeClient {
+
+        private final Map<String, List<Struct>> standardAllowMap = new TreeMap<>();
+        private final Map<String, List<Struct>> wildcardAllowMap = new TreeMap<>();
+        private final Map<String, List<Struct>> standardDenyMap = new TreeMap<>();
+        private final Map<String, List<Struct>> wildcardDenyMap = new TreeMap<>();
+
+        @Override
+        public void init(String domain) {
+
+            ZpeUpdPolLoader loader = new ZpeUpdPolLoader(null);
+            for (int i = 0; i < 20; i++) {
+                addAssertion(loader, standardAllowMap, "reader" + i, "read", "documents" + i + ".*");
+                addAssertion(loader, standardAllowMap, "writer" + i, "write", "documents" + i + ".*");
+                addAssertion(loader, standardDenyMap, "reader" + i, "delete", "documents" + i + ".*");
+                addAssertion(loader, standardAllowMap, "auditor" + i, "audit", "documents" + i + ".report?");
+            }
+            addAssertion(loader, wildcardAllowMap, "admin*", "*", "*");
+            addAssertion(loader, wildcardDenyMap, "guest*", "*", "documents*.secret");
+        }
+
+        void addAssertion(ZpeUpdPolLoader loader, Map<String, List<Struct>> roleMap, final String role,
+                final String action, final String resource) {
+
+            Struct assertion = new Struct();
+            assertion.put(ZpeConsts.ZPE_FIELD_POLICY_NAME, "policy");
+            assertion.put(ZpeConsts.ZPE_FIELD_ROLE, role);
+            assertion.put(ZpeConsts.ZPE_FIELD_ACTION, action);
+            assertion.put(ZpeConsts.ZPE_FIELD_RESOURCE, resource);
+            assertion.put(ZpeConsts.ZPE_ACTION_MATCH_STRUCT, loader.getMatchObject(action, true));
+            assertion.put(ZpeConsts.ZPE_RESOURCE_MATCH_STRUCT, loader.getMatchObject(resource, true));
+            assertion.put(ZpeConsts.ZPE_ROLE_MATCH_STRUCT, loader.getMatchObject(role));
+            roleMap.computeIfAbsent(role, k -> new ArrayList<>()).add(assertion);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isCaseInsensitiveMatch() {
+            return true;
+        }
+
+        @Override
+        public Map<String, RoleToken> getRoleTokenCacheMap() {
+            return new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public Map<String, AccessToken> getAccessTokenCacheMap() {
+            return new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public Map<String, List<Struct>> getRoleAllowAssertions(String domain) {
+            return DOMAIN_NAME.equals(domain) ? standardAllowMap : null;
+        }
+
+        @Override
+        public Map<String, List<Struct>> getWildcardAllowAssertions(String domain) {
+            return DOMAIN_NAME.equals(domain) ? wildcardAllowMap : null;
+        }
+
+        @Override
+        public Map<String, List<Struct>> getRoleDenyAssertions(String domain) {
+            return DOMAIN_NAME.equals(domain) ? standardDenyMap : null;
+        }
+
+        @Override
+        public Map<String, List<Struct>> getWildcardDenyAssertions(String domain) {
+            return DOMAIN_NAME.equals(domain) ? wildcardDenyMap : null;
+        }
+
+        @Override
+        public int getDomainCount() {
+            return 2;
+        }
+    }
+
+    List<String> roles;
+    List<String> adminRoles;
+    StringBuilder matchRoleName;
+
+    @Setup
+    public void setup() {
+
+        System.setProperty(ZpeConsts.ZPE_PROP_CLIENT_IMPL, BenchmarkZpeClient.class.getName());
+        AuthZpeClient.setZPEClientClass(BenchmarkZpeClient.class.getName());
+
+        roles = Arrays.asList("guest", "auditor7", "writer11", "reader12");
+        adminRoles = Arrays.asList("auditor3", "reader5", "admin");
+        matchRoleName = new StringBuilder(64);
+    }
+
+    @Benchmark
+    public AuthZpeClient.AccessCheckStatus standardAllowLowerCase() {
+        matchRoleName.setLength(0);
+        return AuthZpeClient.allowActionZPE("read", DOMAIN_NAME, "sports:documents12.report",
+                roles, matchRoleName);
+    }
+
+    @Benchmark
+    public AuthZpeClient.AccessCheckStatus standardAllowMixedCase() {
+        matchRoleName.setLength(0);
+        return AuthZpeClient.allowActionZPE("Read", DOMAIN_NAME, "Sports:Documents12.Report",
+                roles, matchRoleName);
+    }
+
+    @Benchmark
+    public AuthZpeClient.AccessCheckStatus wildcardAllow() {
+        matchRoleName.setLength(0);
+        return AuthZpeClient.allowActionZPE("Update", DOMAIN_NAME, "sports:Documents3.Summary",
+                adminRoles, matchRoleName);
+    }
+
+    @Benchmark
+    public AuthZpeClient.AccessCheckStatus noMatch() {
+        matchRoleName.setLength(0);
+        return AuthZpeClient.allowActionZPE("audit", DOMAIN_NAME, "sports:documents7.summary",
+                roles, matchRoleName);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+                .include(AllowActionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        for (RunResult runResult : results) {
+            final String benchmark = runResult.getParams().getBenchmark();
+            for (Map.Entry<String, Result> entry : runResult.getSecondaryResults().entrySet()) {
+                if (entry.getKey().endsWith("gc.alloc.rate.norm")) {
+                    System.out.printf("%s: %.3f bytes allocated per access check%n", benchmark,
+                            entry.getValue().getScore());
+                }
+            }
+        }
+    }
+}
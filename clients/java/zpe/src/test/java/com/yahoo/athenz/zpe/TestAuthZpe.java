@@ -23,6 +23,7 @@ import com.yahoo.athenz.zpe.AuthZpeClient.AccessCheckStatus;
 import com.yahoo.athenz.zts.DomainSignedPolicyData;
 import com.yahoo.athenz.zts.SignedPolicyData;
 import com.yahoo.rdl.JSON;
+import com.yahoo.rdl.Struct;
 import org.mockito.Mockito;
 import org.mockserver.integration.ClientAndServer;
 import org.testng.Assert;
@@ -911,6 +912,188 @@ public class TestAuthZpe {
         Assert.assertEquals(roleName.toString(), "matchall");
     }
 
+    private List<ZpeAccessRequest> getBatchAccessRequests() {
+        return Arrays.asList(
+                new ZpeAccessRequest("angler:stuff", "read"),
+                new ZpeAccessRequest("ANGler:STUff", "WRite"),
+                new ZpeAccessRequest("angler:stuff", "writeread"),
+                new ZpeAccessRequest("angler:stuff", "throw"),
+                new ZpeAccessRequest("anglerTest:stuff", "read"),
+                new ZpeAccessRequest("angler:stuff", "all"),
+                new ZpeAccessRequest("angler:NewYork", "fish"),
+                new ZpeAccessRequest("", "read"),
+                new ZpeAccessRequest("angler:stuff", null),
+                null);
+    }
+
+    private void verifyBatchResults(final String token, List<ZpeAccessRequest> accessRequests,
+            List<AccessCheckStatus> results) {
+
+        // the batch results must match the individual access checks
+
+        assertEquals(results.size(), accessRequests.size());
+        for (int i = 0; i < accessRequests.size(); i++) {
+            ZpeAccessRequest accessRequest = accessRequests.get(i);
+            AccessCheckStatus status = accessRequest == null ? AccessCheckStatus.DENY_INVALID_PARAMETERS :
+                    AuthZpeClient.allowAccess(token, accessRequest.getResource(), accessRequest.getAction());
+            assertEquals(results.get(i), status, "request index: " + i);
+        }
+    }
+
+    @Test
+    public void testAllowAccessBatch() {
+
+        List<ZpeAccessRequest> accessRequests = getBatchAccessRequests();
+
+        List<AccessCheckStatus> results = AuthZpeClient.allowAccess(rToken0AnglerPublic.getSignedToken(), accessRequests);
+        verifyBatchResults(rToken0AnglerPublic.getSignedToken(), accessRequests, results);
+        assertEquals(results.get(0), AccessCheckStatus.ALLOW);
+        assertEquals(results.get(1), AccessCheckStatus.ALLOW);
+        assertEquals(results.get(2), AccessCheckStatus.DENY_NO_MATCH);
+        assertEquals(results.get(3), AccessCheckStatus.DENY);
+        assertEquals(results.get(4), AccessCheckStatus.DENY_DOMAIN_MISMATCH);
+        assertEquals(results.get(7), AccessCheckStatus.DENY_INVALID_PARAMETERS);
+        assertEquals(results.get(8), AccessCheckStatus.DENY_INVALID_PARAMETERS);
+        assertEquals(results.get(9), AccessCheckStatus.DENY_INVALID_PARAMETERS);
+
+        // same results with the role token object and linked list
+
+        assertEquals(AuthZpeClient.allowAccess(rToken0AnglerPublic, new LinkedList<>(accessRequests), null), results);
+
+        results = AuthZpeClient.allowAccess(rToken0AnglerAdmin.getSignedToken(), accessRequests);
+        verifyBatchResults(rToken0AnglerAdmin.getSignedToken(), accessRequests, results);
+
+        results = AuthZpeClient.allowAccess(accessToken0AnglerRegex, accessRequests);
+        verifyBatchResults(accessToken0AnglerRegex, accessRequests, results);
+        assertEquals(results.get(5), AccessCheckStatus.ALLOW);
+
+        assertTrue(AuthZpeClient.allowAccess(accessToken0AnglerRegex, Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testAllowAccessBatchExecutor() {
+
+        List<ZpeAccessRequest> accessRequests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            accessRequests.addAll(getBatchAccessRequests());
+        }
+
+        final int savedChunkSize = AuthZpeClient.batchChunkSize;
+        AuthZpeClient.batchChunkSize = 4;
+        java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(3);
+        try {
+            List<AccessCheckStatus> results = AuthZpeClient.allowAccess(rToken0AnglerPublic.getSignedToken(),
+                    null, null, accessRequests, executor);
+            verifyBatchResults(rToken0AnglerPublic.getSignedToken(), accessRequests, results);
+
+            results = AuthZpeClient.allowAccess(accessToken0AnglerRegex, null, null, accessRequests, executor);
+            verifyBatchResults(accessToken0AnglerRegex, accessRequests, results);
+        } finally {
+            AuthZpeClient.batchChunkSize = savedChunkSize;
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAllowAccessBatchInvalidToken() {
+
+        List<ZpeAccessRequest> accessRequests = getBatchAccessRequests();
+        List<AccessCheckStatus> expected = Collections.nCopies(accessRequests.size(),
+                AccessCheckStatus.DENY_ROLETOKEN_INVALID);
+
+        final String roleToken = rToken0AnglerPublic.getSignedToken().replace(";s=", ";s=ab");
+        assertEquals(AuthZpeClient.allowAccess(roleToken, accessRequests), expected);
+        assertEquals(AuthZpeClient.allowAccess("invalid-access-token", accessRequests), expected);
+        assertEquals(AuthZpeClient.allowAccess((RoleToken) null, accessRequests, null), expected);
+        assertEquals(AuthZpeClient.allowAccess((AccessToken) null, accessRequests, null), expected);
+        assertEquals(AuthZpeClient.allowActionZPE("angler", Collections.emptyList(), accessRequests, null), expected);
+        assertEquals(AuthZpeClient.allowActionZPE(null, Collections.singletonList("public"), accessRequests, null),
+                expected);
+
+        expected = Collections.nCopies(accessRequests.size(), AccessCheckStatus.DENY_ROLETOKEN_EXPIRED);
+
+        RoleToken roleTokenMock = mock(RoleToken.class);
+        Mockito.when(roleTokenMock.getExpiryTime()).thenReturn(1L);
+        assertEquals(AuthZpeClient.allowAccess(roleTokenMock, accessRequests, null), expected);
+
+        AccessToken accessTokenMock = mock(AccessToken.class);
+        Mockito.when(accessTokenMock.getExpiryTime()).thenReturn(1L);
+        assertEquals(AuthZpeClient.allowAccess(accessTokenMock, accessRequests, null), expected);
+    }
+
+    @Test
+    public void testAllowAccessBatchCertHashMismatch() throws IOException {
+
+        Path path = Paths.get("src/test/resources/mtls_token_mismatch.cert");
+        X509Certificate cert = Crypto.loadX509Certificate(new String(Files.readAllBytes(path)));
+
+        List<ZpeAccessRequest> accessRequests = getBatchAccessRequests();
+        assertEquals(AuthZpeClient.allowAccess(accessToken0AnglerRegex, cert, null, accessRequests, null),
+                Collections.nCopies(accessRequests.size(), AccessCheckStatus.DENY_CERT_HASH_MISMATCH));
+    }
+
+    @Test
+    public void testPolicySnapshot() {
+
+        Map<String, List<Struct>> roleMap = new HashMap<>();
+        ZpeUpdPolLoader.DomainAssertions domainAssertions = new ZpeUpdPolLoader.DomainAssertions(roleMap,
+                roleMap, roleMap, roleMap, null, 10);
+
+        ZpeClient client = mock(ZpeClient.class);
+        Mockito.when(client.getDomainCount()).thenReturn(2);
+        Mockito.when(client.getDomainAssertions("coretech")).thenReturn(domainAssertions);
+
+        // all the domain data is taken from the single domain object
+
+        AuthZpeClient.PolicySnapshot snapshot = new AuthZpeClient.PolicySnapshot(client, "coretech");
+        assertEquals(snapshot.domainCount, 2);
+        assertEquals(snapshot.generation, 10);
+        assertSame(snapshot.roleAllowAssertions, roleMap);
+        assertSame(snapshot.wildcardDenyAssertions, roleMap);
+        assertNull(snapshot.domainPolicy);
+        Mockito.verify(client, Mockito.never()).getRoleAllowAssertions("coretech");
+        Mockito.verify(client, Mockito.never()).getDomainGeneration("coretech");
+
+        snapshot = new AuthZpeClient.PolicySnapshot(client, "unknown");
+        assertEquals(snapshot.generation, 0);
+        assertNull(snapshot.roleAllowAssertions);
+        assertNull(snapshot.wildcardAllowAssertions);
+    }
+
+    @Test
+    public void testAllowActionCaseSensitiveClient() {
+
+        Struct assertion = new Struct();
+        assertion.put(ZpeConsts.ZPE_ACTION_MATCH_STRUCT, ZpeUpdPolLoader.matchObject("read", false));
+        assertion.put(ZpeConsts.ZPE_RESOURCE_MATCH_STRUCT, ZpeUpdPolLoader.matchObject("table", false));
+        Map<String, List<Struct>> roleMap = new HashMap<>();
+        roleMap.put("readers", Collections.singletonList(assertion));
+
+        ZpeClient client = mock(ZpeClient.class);
+        Mockito.when(client.getDomainCount()).thenReturn(2);
+        Mockito.when(client.getDomainAssertions("coretech")).thenReturn(new ZpeUpdPolLoader.DomainAssertions(
+                roleMap, new HashMap<>(), new HashMap<>(), new HashMap<>(), null, 1));
+        final List<String> roles = Collections.singletonList("readers");
+
+        // the client does not declare case-insensitive match objects
+        // so the values are converted to lower case before the checks
+
+        AuthZpeClient.PolicySnapshot snapshot = new AuthZpeClient.PolicySnapshot(client, "coretech");
+        assertFalse(snapshot.caseInsensitiveMatch);
+        assertEquals(AuthZpeClient.allowActionZPE("READ", "coretech", "coretech:TABLE", roles,
+                new StringBuilder(), snapshot), AccessCheckStatus.ALLOW);
+
+        // with case-insensitive match objects the values are used as is
+
+        Mockito.when(client.isCaseInsensitiveMatch()).thenReturn(true);
+        snapshot = new AuthZpeClient.PolicySnapshot(client, "coretech");
+        assertTrue(snapshot.caseInsensitiveMatch);
+        assertEquals(AuthZpeClient.allowActionZPE("READ", "coretech", "coretech:TABLE", roles,
+                new StringBuilder(), snapshot), AccessCheckStatus.DENY_NO_MATCH);
+        assertEquals(AuthZpeClient.allowActionZPE("read", "coretech", "coretech:table", roles,
+                new StringBuilder(), snapshot), AccessCheckStatus.ALLOW);
+    }
+
     @Test
     public void testAllowAccessMatchAllAccessTokenNoRoleName() throws IOException {
 
@@ -1292,6 +1475,75 @@ public class TestAuthZpe {
         Assert.assertEquals(status, expectedStatus);
     }
 
+    private X509Certificate mockRoleCertificate(final String subject, long serialNumber, Date notAfter) {
+        X509Certificate cert = mock(X509Certificate.class);
+        Mockito.when(cert.getIssuerX500Principal()).thenReturn(
+                new X500Principal("C=US, ST=CA, O=Athenz, OU=Testing Domain, CN=angler:role.public"));
+        Mockito.when(cert.getSubjectX500Principal()).thenReturn(new X500Principal(subject));
+        Mockito.when(cert.getSerialNumber()).thenReturn(java.math.BigInteger.valueOf(serialNumber));
+        Mockito.when(cert.getNotAfter()).thenReturn(notAfter);
+        return cert;
+    }
+
+    @Test
+    public void testX509IdentityCache() {
+
+        final String issuers = "C=US, ST=CA, O=Athenz, OU=Testing Domain, CN=angler:role.public";
+        AuthZpeClient.setX509CAIssuers(issuers);
+        Map<String, AuthZpeClient.X509Identity> identityCache = AuthZpeClient.getX509IdentityCache();
+        assertTrue(identityCache.isEmpty());
+
+        final Date notAfter = new Date(System.currentTimeMillis() + 3600 * 1000);
+        X509Certificate cert = mockRoleCertificate("C=US, O=Athenz, CN=angler:role.public", 1001, notAfter);
+
+        assertEquals(AuthZpeClient.allowAccess(cert, "angler:stuff", "read"), AccessCheckStatus.ALLOW);
+        final String cacheKey = AuthZpeClient.getX509IdentityKey(cert);
+        AuthZpeClient.X509Identity identity = identityCache.get(cacheKey);
+        assertNotNull(identity);
+        assertNull(identity.status);
+        assertEquals(identity.domainName, "angler");
+        assertEquals(identity.roles, Collections.singletonList("public"));
+        assertEquals(identity.expiryTime, notAfter.getTime() / 1000);
+
+        // the second check must be based on the cached identity without
+        // extracting the subject from the certificate again
+
+        assertEquals(AuthZpeClient.allowAccess(cert, "angler:stuff", "read"), AccessCheckStatus.ALLOW);
+        assertEquals(AuthZpeClient.allowAccess(cert, "angler:stuff", "throw"), AccessCheckStatus.DENY);
+        Mockito.verify(cert, Mockito.times(1)).getSubjectX500Principal();
+
+        // a different certificate with the same serial number and issuer
+        // must not use the cached identity
+
+        X509Certificate cert2 = mockRoleCertificate("C=US, O=Athenz, CN=angler:role.private", 1001, notAfter);
+        assertEquals(AuthZpeClient.getX509IdentityKey(cert2), cacheKey);
+        assertEquals(AuthZpeClient.allowAccess(cert2, "angler:stuff", "read"), AccessCheckStatus.DENY_NO_MATCH);
+        assertEquals(identityCache.get(cacheKey).roles, Collections.singletonList("private"));
+
+        // invalid certificates are cached with their status
+
+        X509Certificate cert3 = mockRoleCertificate("C=US, O=Athenz, CN=angler", 1003, notAfter);
+        assertEquals(AuthZpeClient.allowAccess(cert3, "angler:stuff", "read"),
+                AccessCheckStatus.DENY_CERT_MISSING_ROLE_NAME);
+        assertEquals(AuthZpeClient.allowAccess(cert3, "angler:stuff", "read"),
+                AccessCheckStatus.DENY_CERT_MISSING_ROLE_NAME);
+        Mockito.verify(cert3, Mockito.times(1)).getSubjectX500Principal();
+        assertEquals(identityCache.size(), 2);
+
+        // expired certificates are not returned from the cache
+
+        X509Certificate cert4 = mockRoleCertificate("C=US, O=Athenz, CN=angler:role.public", 1004,
+                new Date(System.currentTimeMillis() - 3600 * 1000));
+        assertEquals(AuthZpeClient.allowAccess(cert4, "angler:stuff", "read"), AccessCheckStatus.ALLOW);
+        assertEquals(AuthZpeClient.allowAccess(cert4, "angler:stuff", "read"), AccessCheckStatus.ALLOW);
+        Mockito.verify(cert4, Mockito.times(2)).getSubjectX500Principal();
+
+        // updating the issuers clears the cache
+
+        AuthZpeClient.setX509CAIssuers(issuers);
+        assertTrue(identityCache.isEmpty());
+    }
+
     @Test
     public void testIssuerMatch() {
 
@@ -1355,6 +1607,135 @@ public class TestAuthZpe {
                 matchRoleName), AccessCheckStatus.DENY_ROLETOKEN_INVALID);
     }
 
+    @Test
+    public void testAllowActionZPEDecisionCache() {
+
+        AuthZpeClient.setDecisionCacheMaxValue(100);
+        Map<String, AuthZpeClient.AccessDecision> decisionCache = AuthZpeClient.getDecisionCache();
+        decisionCache.clear();
+
+        try {
+            List<String> roles = Collections.singletonList("pachinko");
+            StringBuilder matchRoleName = new StringBuilder();
+            assertEquals(AuthZpeClient.allowActionZPE("ACCESS", "angler", "angler:tables.blah", roles,
+                    matchRoleName), AccessCheckStatus.ALLOW);
+            assertEquals(matchRoleName.toString(), "pachinko");
+            assertEquals(decisionCache.size(), 1);
+
+            // the same request with different case values is processed
+            // from the cache
+
+            final String decisionKey = AuthZpeClient.getDecisionKey("access", "angler", "tables.blah", 0, roles);
+            AuthZpeClient.AccessDecision decision = decisionCache.get(decisionKey);
+            assertNotNull(decision);
+            assertEquals(decision.status, AccessCheckStatus.ALLOW);
+            assertEquals(decision.matchRoleName, "pachinko");
+            assertTrue(decision.generation > 0);
+
+            matchRoleName.setLength(0);
+            assertEquals(AuthZpeClient.allowActionZPE("access", "angler", "angler:TABLES.blah", roles,
+                    matchRoleName), AccessCheckStatus.ALLOW);
+            assertEquals(matchRoleName.toString(), "pachinko");
+            assertEquals(decisionCache.size(), 1);
+
+            // no match results are cached as well
+
+            assertEquals(AuthZpeClient.allowActionZPE("unknown", "angler", "angler:tables.blah", roles,
+                    new StringBuilder()), AccessCheckStatus.DENY_NO_MATCH);
+            assertEquals(decisionCache.size(), 2);
+
+            // domain not found results are not cached
+
+            assertEquals(AuthZpeClient.allowActionZPE("access", "unknown-domain", "unknown-domain:tables.blah",
+                    roles, new StringBuilder()), AccessCheckStatus.DENY_DOMAIN_NOT_FOUND);
+            assertEquals(decisionCache.size(), 2);
+
+            // a decision for the current generation is returned as is
+
+            decisionCache.put(decisionKey, new AuthZpeClient.AccessDecision(AccessCheckStatus.DENY,
+                    "denyrole", decision.generation));
+            matchRoleName.setLength(0);
+            assertEquals(AuthZpeClient.allowActionZPE("access", "angler", "angler:tables.blah", roles,
+                    matchRoleName), AccessCheckStatus.DENY);
+            assertEquals(matchRoleName.toString(), "denyrole");
+
+            // while a decision from an older generation is ignored
+            // and replaced with the new result
+
+            decisionCache.put(decisionKey, new AuthZpeClient.AccessDecision(AccessCheckStatus.DENY,
+                    "denyrole", decision.generation - 1));
+            matchRoleName.setLength(0);
+            assertEquals(AuthZpeClient.allowActionZPE("access", "angler", "angler:tables.blah", roles,
+                    matchRoleName), AccessCheckStatus.ALLOW);
+            assertEquals(matchRoleName.toString(), "pachinko");
+            assertEquals(decisionCache.get(decisionKey).generation, decision.generation);
+
+            // disabling the cache clears all entries
+
+            AuthZpeClient.setDecisionCacheMaxValue(-1);
+            assertEquals(decisionCache.size(), 2);
+            AuthZpeClient.setDecisionCacheMaxValue(0);
+            assertTrue(decisionCache.isEmpty());
+
+            assertEquals(AuthZpeClient.allowActionZPE("access", "angler", "angler:tables.blah", roles,
+                    matchRoleName), AccessCheckStatus.ALLOW);
+            assertTrue(decisionCache.isEmpty());
+        } finally {
+            AuthZpeClient.setDecisionCacheMaxValue(0);
+        }
+    }
+
+    @Test
+    public void testGetDecisionKey() {
+
+        assertEquals(AuthZpeClient.getDecisionKey("read", "angler", "stuff", 0, Arrays.asList("admin", "public")),
+                "angler\0read\0stuff\0admin\0public");
+
+        // role order is part of the key since the match role name
+        // is based on the first matching role
+
+        assertNotEquals(AuthZpeClient.getDecisionKey("read", "angler", "stuff", 0, Arrays.asList("admin", "public")),
+                AuthZpeClient.getDecisionKey("read", "angler", "stuff", 0, Arrays.asList("public", "admin")));
+        assertNotEquals(AuthZpeClient.getDecisionKey("read", "angler", "stuff:data", 0, Collections.singletonList("admin")),
+                AuthZpeClient.getDecisionKey("read:stuff", "angler", "data", 0, Collections.singletonList("admin")));
+
+        // action and resource values are included in lower case while
+        // the domain prefix is skipped based on the given offset
+
+        assertEquals(AuthZpeClient.getDecisionKey("READ", "angler", "angler:Stuff", 7, Arrays.asList("admin", "public")),
+                "angler\0read\0stuff\0admin\0public");
+        assertEquals(AuthZpeClient.getDecisionKey("read", "angler", "angler:", 7, Collections.singletonList("admin")),
+                "angler\0read\0\0admin");
+    }
+
+    @Test
+    public void testGetNormalizedResource() {
+
+        final String resource = "tables.blah";
+        assertSame(AuthZpeClient.getNormalizedResource(resource, 0), resource);
+        assertEquals(AuthZpeClient.getNormalizedResource("angler:tables.blah", 7), "tables.blah");
+        assertEquals(AuthZpeClient.getNormalizedResource("angler:Tables.BLAH", 7), "tables.blah");
+        assertEquals(AuthZpeClient.getNormalizedResource("Tables.blah", 0), "tables.blah");
+        assertEquals(AuthZpeClient.getNormalizedResource("angler:", 7), "");
+    }
+
+    @Test
+    public void testGetResourceOffset() {
+
+        assertEquals(AuthZpeClient.getResourceOffset("angler:stuff", "angler", false), 7);
+        assertEquals(AuthZpeClient.getResourceOffset("Angler:Stuff", "angler", false), 7);
+        assertEquals(AuthZpeClient.getResourceOffset("stuff", "angler", false), 0);
+        assertEquals(AuthZpeClient.getResourceOffset("angler:", "angler", false), 7);
+
+        // domain mismatch is only rejected when processing multiple domains
+
+        assertEquals(AuthZpeClient.getResourceOffset("sports:stuff", "angler", false), -1);
+        assertEquals(AuthZpeClient.getResourceOffset("anglers:stuff", "angler", false), -1);
+        assertEquals(AuthZpeClient.getResourceOffset("anglar:stuff", "angler", false), -1);
+        assertEquals(AuthZpeClient.getResourceOffset("sports:stuff", "angler", true), 0);
+        assertEquals(AuthZpeClient.getResourceOffset("angler:stuff", "angler", true), 7);
+    }
+
     @Test
     public void testAllowAccessInvalidRoleToken() {
 
@@ -1490,8 +1871,11 @@ public class TestAuthZpe {
         Assert.assertEquals(status, AccessCheckStatus.ALLOW);
 
         Assert.assertEquals(roleMap.size(), 1);
+        final String firstToken = signedToken;
 
         // with our new token cache size limit of 1 the size should not change
+        // the new token is requested more frequently than the first one
+        // so the first token is evicted from the cache
 
         AuthZpeClient.setTokenCacheMaxValue(1);
 
@@ -1499,8 +1883,11 @@ public class TestAuthZpe {
         signedToken = createAccessToken("angler", roles, "0");
         status = AuthZpeClient.allowAccess(signedToken, cert, null, resource, action);
         Assert.assertEquals(status, AccessCheckStatus.ALLOW);
+        status = AuthZpeClient.allowAccess(signedToken, cert, null, resource, action);
+        Assert.assertEquals(status, AccessCheckStatus.ALLOW);
 
         Assert.assertEquals(roleMap.size(), 1);
+        Assert.assertNotNull(roleMap.get(signedToken));
 
         // set a negative value will be ignored, so we'll still
         // have a single entry in the cache
@@ -1513,11 +1900,11 @@ public class TestAuthZpe {
         Assert.assertEquals(roleMap.size(), 1);
 
 
-        // now let's increase the size and try again
+        // now let's increase the size and try again with the first token
 
         AuthZpeClient.setTokenCacheMaxValue(10);
 
-        status = AuthZpeClient.allowAccess(signedToken, cert, null, resource, action);
+        status = AuthZpeClient.allowAccess(firstToken, cert, null, resource, action);
         Assert.assertEquals(status, AccessCheckStatus.ALLOW);
 
         Assert.assertEquals(roleMap.size(), 2);
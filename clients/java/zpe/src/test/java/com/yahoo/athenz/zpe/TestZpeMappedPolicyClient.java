@@ -0,0 +1,609 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.auth.util.CryptoException;
+import com.yahoo.athenz.common.utils.SignUtils;
+import com.yahoo.athenz.zpe.AuthZpeClient.AccessCheckStatus;
+import com.yahoo.athenz.zpe.engine.ZpePolicyEvaluator;
+import com.yahoo.athenz.zts.Assertion;
+import com.yahoo.athenz.zts.AssertionEffect;
+import com.yahoo.athenz.zts.DomainSignedPolicyData;
+import com.yahoo.athenz.zts.Policy;
+import com.yahoo.athenz.zts.PolicyData;
+import com.yahoo.athenz.zts.SignedPolicyData;
+import com.yahoo.rdl.JSON;
+import com.yahoo.rdl.Timestamp;
+
+public class TestZpeMappedPolicyClient {
+
+    private static final String ZTS_PUBLIC_KEY = "./src/test/resources/zts_public_k0.pem";
+
+    private PrivateKey ztsPrivateKey;
+
+    @BeforeClass
+    public void setup() throws IOException {
+        Path path = Paths.get("./src/test/resources/unit_test_zts_private_k0.pem");
+        ztsPrivateKey = Crypto.loadPrivateKey(new String(Files.readAllBytes(path)));
+    }
+
+    private PolicyData createPolicyData(final String domainName, final String action) {
+
+        List<Assertion> assertions = new ArrayList<>();
+        assertions.add(new Assertion().setRole(domainName + ":role.readers").setAction(action.toUpperCase())
+                .setResource(domainName + ":Table.*").setEffect(AssertionEffect.ALLOW));
+        assertions.add(new Assertion().setRole(domainName + ":role.dev*").setAction(action)
+                .setResource(domainName + ":secret").setEffect(AssertionEffect.ALLOW));
+        assertions.add(new Assertion().setRole(domainName + ":role.readers").setAction(action)
+                .setResource(domainName + ":secret").setEffect(AssertionEffect.DENY));
+        assertions.add(new Assertion().setRole(domainName + ":role.dev*").setAction("*")
+                .setResource(domainName + ":prod.*").setEffect(AssertionEffect.DENY));
+
+        List<Policy> policies = new ArrayList<>();
+        policies.add(new Policy().setName(domainName + ":policy.readers").setAssertions(assertions));
+        return new PolicyData().setDomain(domainName).setPolicies(policies);
+    }
+
+    private byte[] signPolicyData(PolicyData policyData) {
+        SignedPolicyData signedPolicyData = new SignedPolicyData().setPolicyData(policyData)
+                .setExpires(Timestamp.fromMillis(System.currentTimeMillis() + 3600000));
+        final String signature = Crypto.sign(SignUtils.asCanonicalString(signedPolicyData), ztsPrivateKey);
+        return JSON.bytes(new DomainSignedPolicyData().setSignedPolicyData(signedPolicyData)
+                .setSignature(signature).setKeyId("0"));
+    }
+
+    private Map<String, PolicyData> getPolicies(List<PolicyData> policyDataList) {
+        Map<String, PolicyData> policies = new TreeMap<>();
+        for (PolicyData policyData : policyDataList) {
+            policies.put(policyData.getDomain(), policyData);
+        }
+        return policies;
+    }
+
+    private File createImage(List<PolicyData> policyDataList) throws IOException {
+        File imageFile = File.createTempFile("zpe-policy", ".img");
+        imageFile.deleteOnExit();
+        ZpePolicyImageCompiler.writeImage(getPolicies(policyDataList), imageFile, null);
+        return imageFile;
+    }
+
+    private void assertAccess(ZpePolicyEvaluator domainPolicy, final String action, final String resource,
+            List<String> roles, AccessCheckStatus expectedStatus, final String expectedRoleName) {
+        StringBuilder matchRoleName = new StringBuilder();
+        assertEquals(domainPolicy.allowAction(action, resource, roles, matchRoleName), expectedStatus);
+        assertEquals(matchRoleName.toString(), expectedRoleName);
+    }
+
+    // recalculate the digest of a modified image so the image
+    // passes the digest check and is validated further
+
+    private void updateDigest(ByteBuffer buffer) throws IOException {
+        final int bodySize = buffer.getInt(24);
+        final byte[] digest = ZpePolicyImage.getDigest(buffer, bodySize);
+        for (int i = 0; i < digest.length; i++) {
+            buffer.put(bodySize + i, digest[i]);
+        }
+    }
+
+    @Test
+    public void testPolicyImageAssertions() throws IOException {
+
+        List<PolicyData> policyDataList = new ArrayList<>();
+        policyDataList.add(createPolicyData("weather", "read"));
+        policyDataList.add(createPolicyData("coretech", "update"));
+        policyDataList.add(createPolicyData("sports", "read"));
+        File imageFile = createImage(policyDataList);
+
+        ZpePolicyImage image = ZpePolicyImage.load(imageFile, null);
+        assertEquals(image.getDomainCount(), 3);
+        assertTrue(image.getCreateTime() > 0);
+        assertTrue(image.hasDomain("coretech"));
+        assertTrue(image.hasDomain("sports"));
+        assertTrue(image.hasDomain("weather"));
+        assertFalse(image.hasDomain("unknown"));
+        assertNull(image.getDomainPolicy("unknown"));
+        assertNull(image.getDomainAssertions("unknown", 1));
+
+        ZpeUpdPolLoader.DomainAssertions domainAssertions = image.getDomainAssertions("coretech", 5);
+        assertNotNull(domainAssertions);
+        assertEquals(domainAssertions.generation, 5);
+        assertNull(domainAssertions.standardRoleAllowMap);
+        assertEquals(domainAssertions.domainPolicy.getDomainName(), "coretech");
+        assertEquals(domainAssertions.domainPolicy.getAssertionCount(), 4);
+        assertFalse(domainAssertions.domainPolicy.isEmpty());
+
+        // the values are normalized the same way as the loader
+
+        ZpePolicyEvaluator domainPolicy = image.getDomainPolicy("weather");
+        assertAccess(domainPolicy, "read", "table.data", Collections.singletonList("readers"),
+                AccessCheckStatus.ALLOW, "readers");
+        assertAccess(domainPolicy, "read", "secret", Collections.singletonList("readers"),
+                AccessCheckStatus.DENY, "readers");
+        assertAccess(domainPolicy, "read", "secret", Collections.singletonList("dev1"),
+                AccessCheckStatus.ALLOW, "dev*");
+        assertAccess(domainPolicy, "write", "prod.db", Collections.singletonList("dev1"),
+                AccessCheckStatus.DENY, "dev*");
+        assertAccess(domainPolicy, "read", "secret", Arrays.asList("dev1", "readers"),
+                AccessCheckStatus.DENY, "readers");
+        assertAccess(domainPolicy, "read", "table.data", Arrays.asList("dev1", "readers"),
+                AccessCheckStatus.ALLOW, "readers");
+        assertAccess(domainPolicy, "read", "other", Collections.singletonList("readers"),
+                AccessCheckStatus.DENY_NO_MATCH, "");
+        assertAccess(domainPolicy, "read", "table.data", Collections.singletonList("unknown"),
+                AccessCheckStatus.DENY_NO_MATCH, "");
+    }
+
+    @Test
+    public void testPolicyImageCompiledPolicyResults() throws IOException {
+
+        List<Assertion> assertions = new ArrayList<>();
+        assertions.add(new Assertion().setRole("coretech:role.readers").setAction("read")
+                .setResource("coretech:table.*").setEffect(AssertionEffect.ALLOW));
+        assertions.add(new Assertion().setRole("coretech:role.readers").setAction("read")
+                .setResource("coretech:table.secret").setEffect(AssertionEffect.DENY));
+        assertions.add(new Assertion().setRole("coretech:role.writers").setAction("*")
+                .setResource("coretech:table.?").setEffect(AssertionEffect.ALLOW));
+        assertions.add(new Assertion().setRole("coretech:role.dev*").setAction("w*e")
+                .setResource("*data*").setEffect(AssertionEffect.ALLOW));
+        assertions.add(new Assertion().setRole("coretech:role.dev?").setAction("write")
+                .setResource("coretech:table.a*").setEffect(AssertionEffect.DENY));
+        assertions.add(new Assertion().setRole("coretech:role.*").setAction("delete")
+                .setResource("*").setEffect(AssertionEffect.DENY));
+        assertions.add(new Assertion().setRole("coretech:role.*ers").setAction("read")
+                .setResource("coretech:public").setEffect(AssertionEffect.ALLOW));
+        List<Policy> policies = new ArrayList<>();
+        policies.add(new Policy().setName("coretech:policy.test").setAssertions(assertions));
+        PolicyData policyData = new PolicyData().setDomain("coretech").setPolicies(policies);
+
+        ZpePolicyImage image = ZpePolicyImage.load(createImage(Collections.singletonList(policyData)), null);
+        ZpePolicyEvaluator mappedPolicy = image.getDomainPolicy("coretech");
+        ZpePolicyEvaluator domainPolicy = ZpeUpdPolLoader.getDomainAssertions(policyData, true, 1).domainPolicy;
+        assertEquals(mappedPolicy.getAssertionCount(), domainPolicy.getAssertionCount());
+
+        // the mapped policy must return the same results as the
+        // compiled domain policy built by the policy file loader
+
+        List<String> actions = Arrays.asList("read", "write", "wipe", "delete", "update");
+        List<String> resources = Arrays.asList("table.a", "table.b", "table.abc", "table.secret", "public",
+                "mydata", "data", "other", "");
+        List<List<String>> roleLists = Arrays.asList(Collections.singletonList("readers"),
+                Collections.singletonList("writers"), Collections.singletonList("dev1"),
+                Collections.singletonList("developers"), Arrays.asList("dev1", "readers"),
+                Arrays.asList("readers", "writers"), Arrays.asList("writers", "dev12"),
+                Collections.singletonList("unknown"));
+
+        for (String action : actions) {
+            for (String resource : resources) {
+                for (List<String> roles : roleLists) {
+                    StringBuilder matchRoleName = new StringBuilder();
+                    AccessCheckStatus status = domainPolicy.allowAction(action, resource, roles, matchRoleName);
+                    assertAccess(mappedPolicy, action, resource, roles, status, matchRoleName.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPolicyImageDomainData() throws IOException {
+
+        Map<String, PolicyData> policies = new TreeMap<>();
+        policies.put("coretech", createPolicyData("coretech", "read"));
+        policies.put("sports", createPolicyData("sports", "read"));
+        policies.put("\u00e9t\u00e9", createPolicyData("\u00e9t\u00e9", "read"));
+        policies.put("zeta", createPolicyData("zeta", "read"));
+
+        File imageFile1 = File.createTempFile("zpe-policy", ".img");
+        imageFile1.deleteOnExit();
+        ZpePolicyImageCompiler.writeImage(policies, imageFile1, null);
+        ZpePolicyImage image1 = ZpePolicyImage.load(imageFile1, null);
+
+        // the names are compared as utf-16 chars within the image
+
+        assertTrue(image1.hasDomain("\u00e9t\u00e9"));
+        assertTrue(image1.hasDomain("zeta"));
+        assertFalse(image1.hasDomain("zet"));
+        assertFalse(image1.hasDomain("zetas"));
+        assertNotNull(image1.getDomainPolicy("\u00e9t\u00e9"));
+
+        policies.put("sports", createPolicyData("sports", "update"));
+        policies.remove("zeta");
+
+        File imageFile2 = File.createTempFile("zpe-policy", ".img");
+        imageFile2.deleteOnExit();
+        ZpePolicyImageCompiler.writeImage(policies, imageFile2, null);
+        ZpePolicyImage image2 = ZpePolicyImage.load(imageFile2, null);
+
+        assertTrue(image2.isSameDomainData(image1, "coretech"));
+        assertTrue(image2.isSameDomainData(image1, "\u00e9t\u00e9"));
+        assertFalse(image2.isSameDomainData(image1, "sports"));
+        assertFalse(image2.isSameDomainData(image1, "zeta"));
+        assertFalse(image2.isSameDomainData(image1, "unknown"));
+    }
+
+    @Test
+    public void testPolicyImageEmpty() throws IOException {
+
+        List<PolicyData> policyDataList = new ArrayList<>();
+        policyDataList.add(new PolicyData().setDomain("empty").setPolicies(Collections.emptyList()));
+        policyDataList.add(new PolicyData().setDomain("nopolicies"));
+        File imageFile = createImage(policyDataList);
+
+        ZpePolicyImage image = ZpePolicyImage.load(imageFile, null);
+        assertEquals(image.getDomainCount(), 2);
+        ZpePolicyEvaluator domainPolicy = image.getDomainPolicy("empty");
+        assertTrue(domainPolicy.isEmpty());
+        assertAccess(domainPolicy, "read", "table", Collections.singletonList("readers"),
+                AccessCheckStatus.DENY_DOMAIN_EMPTY, "");
+        assertTrue(image.getDomainPolicy("nopolicies").isEmpty());
+    }
+
+    @Test
+    public void testPolicyImageSignature() throws IOException {
+
+        PublicKey publicKey = Crypto.loadPublicKey(new File(ZTS_PUBLIC_KEY));
+        PublicKey otherPublicKey = Crypto.loadPublicKey(new File("./src/test/resources/zts_public_k1.pem"));
+        Map<String, PolicyData> policies = getPolicies(Collections.singletonList(
+                createPolicyData("coretech", "read")));
+
+        File signedImageFile = File.createTempFile("zpe-policy", ".img");
+        signedImageFile.deleteOnExit();
+        ZpePolicyImageCompiler.writeImage(policies, signedImageFile, ztsPrivateKey);
+
+        assertTrue(ZpePolicyImage.load(signedImageFile, publicKey).hasDomain("coretech"));
+        assertTrue(ZpePolicyImage.load(signedImageFile, null).hasDomain("coretech"));
+        expectThrows(IOException.class, () -> ZpePolicyImage.load(signedImageFile, otherPublicKey));
+
+        // unsigned images are rejected if we have a public key
+
+        File unsignedImageFile = createImage(Collections.singletonList(createPolicyData("coretech", "read")));
+        expectThrows(IOException.class, () -> ZpePolicyImage.load(unsignedImageFile, publicKey));
+
+        // an image with modified assertions is rejected even if
+        // the digest is updated since the signature does not match
+
+        final byte[] imageData = Files.readAllBytes(signedImageFile.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(imageData);
+        final int bodySize = buffer.getInt(24);
+        buffer.putChar(bodySize - 2, 'x');
+        expectThrows(IOException.class, () -> new ZpePolicyImage(ByteBuffer.wrap(imageData), null));
+        updateDigest(buffer);
+        assertNotNull(new ZpePolicyImage(ByteBuffer.wrap(imageData), null));
+        expectThrows(IOException.class, () -> new ZpePolicyImage(ByteBuffer.wrap(imageData), publicKey));
+    }
+
+    @Test
+    public void testPolicyImageInvalid() throws IOException {
+
+        File imageFile = File.createTempFile("zpe-policy", ".img");
+        imageFile.deleteOnExit();
+        Files.write(imageFile.toPath(), "invalid-policy-image-data".getBytes());
+        expectThrows(IOException.class, () -> ZpePolicyImage.load(imageFile, null));
+
+        ByteBuffer buffer = ByteBuffer.allocate(ZpePolicyImage.HEADER_SIZE);
+        buffer.putInt(ZpePolicyImage.IMAGE_MAGIC).putInt(99);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(buffer, null));
+
+        ByteBuffer sizeBuffer = ByteBuffer.allocate(ZpePolicyImage.HEADER_SIZE);
+        sizeBuffer.putInt(ZpePolicyImage.IMAGE_MAGIC).putInt(ZpePolicyImage.IMAGE_VERSION)
+                .putInt(0).putInt(ZpePolicyImage.HEADER_SIZE).putLong(0).putInt(ZpePolicyImage.HEADER_SIZE);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(sizeBuffer, null));
+
+        ByteBuffer indexBuffer = ByteBuffer.allocate(ZpePolicyImage.HEADER_SIZE + ZpePolicyImage.DIGEST_SIZE + 4);
+        indexBuffer.putInt(ZpePolicyImage.IMAGE_MAGIC).putInt(ZpePolicyImage.IMAGE_VERSION)
+                .putInt(10).putInt(ZpePolicyImage.HEADER_SIZE).putLong(0).putInt(ZpePolicyImage.HEADER_SIZE);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(indexBuffer, null));
+    }
+
+    @Test
+    public void testPolicyImageCorrupted() throws IOException {
+
+        List<PolicyData> policyDataList = new ArrayList<>();
+        policyDataList.add(createPolicyData("coretech", "read"));
+        policyDataList.add(createPolicyData("sports", "read"));
+        final byte[] imageData = Files.readAllBytes(createImage(policyDataList).toPath());
+        assertEquals(new ZpePolicyImage(ByteBuffer.wrap(imageData), null).getDomainCount(), 2);
+
+        final int indexOffset = ZpePolicyImage.HEADER_SIZE;
+        final int nameOffset = ByteBuffer.wrap(imageData).getInt(indexOffset);
+        final int dataOffset = ByteBuffer.wrap(imageData).getInt(indexOffset + 4);
+        final int blockOffset = dataOffset + 4;
+
+        // truncated image and modified data without a valid digest
+
+        ByteBuffer truncated = ByteBuffer.wrap(imageData, 0, imageData.length - 10).slice();
+        expectThrows(IOException.class, () -> new ZpePolicyImage(truncated, null));
+
+        ByteBuffer modified = ByteBuffer.wrap(imageData.clone());
+        modified.putInt(blockOffset, 3);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(modified, null));
+
+        // the rest of the modified images have a valid digest so the
+        // offsets and lengths must be validated by the reader
+
+        // name offset outside of the image and pointing into the index
+
+        ByteBuffer invalidOffset = ByteBuffer.wrap(imageData.clone());
+        invalidOffset.putInt(indexOffset, imageData.length + 100);
+        updateDigest(invalidOffset);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(invalidOffset, null));
+        invalidOffset.putInt(indexOffset, 0);
+        updateDigest(invalidOffset);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(invalidOffset, null));
+
+        // data offset outside of the image
+
+        ByteBuffer invalidDataOffset = ByteBuffer.wrap(imageData.clone());
+        invalidDataOffset.putInt(indexOffset + 4, -1);
+        updateDigest(invalidDataOffset);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(invalidDataOffset, null));
+
+        // negative and too large string and block lengths
+
+        ByteBuffer invalidLength = ByteBuffer.wrap(imageData.clone());
+        invalidLength.putInt(nameOffset, -5);
+        updateDigest(invalidLength);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(invalidLength, null));
+        invalidLength.putInt(nameOffset, Integer.MAX_VALUE);
+        updateDigest(invalidLength);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(invalidLength, null));
+
+        ByteBuffer invalidBlockLength = ByteBuffer.wrap(imageData.clone());
+        invalidBlockLength.putInt(dataOffset, 4);
+        updateDigest(invalidBlockLength);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(invalidBlockLength, null));
+
+        // invalid assertion and role counts
+
+        ByteBuffer invalidAssertionCount = ByteBuffer.wrap(imageData.clone());
+        invalidAssertionCount.putInt(blockOffset, 3);
+        updateDigest(invalidAssertionCount);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(invalidAssertionCount, null));
+
+        ByteBuffer invalidRoleCount = ByteBuffer.wrap(imageData.clone());
+        invalidRoleCount.putInt(blockOffset + 4, 1000);
+        updateDigest(invalidRoleCount);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(invalidRoleCount, null));
+
+        // role name and assertion list offsets outside of the block
+
+        final int roleEntry = blockOffset + ZpePolicyImage.DOMAIN_HEADER_SIZE;
+        ByteBuffer invalidRoleName = ByteBuffer.wrap(imageData.clone());
+        invalidRoleName.putInt(roleEntry, 4);
+        updateDigest(invalidRoleName);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(invalidRoleName, null));
+
+        ByteBuffer invalidList = ByteBuffer.wrap(imageData.clone());
+        invalidList.putInt(roleEntry + 8, imageData.length);
+        updateDigest(invalidList);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(invalidList, null));
+
+        // index entries that are not sorted
+
+        ByteBuffer unsorted = ByteBuffer.wrap(imageData.clone());
+        final long firstEntry = unsorted.getLong(indexOffset);
+        unsorted.putLong(indexOffset, unsorted.getLong(indexOffset + ZpePolicyImage.INDEX_ENTRY_SIZE));
+        unsorted.putLong(indexOffset + ZpePolicyImage.INDEX_ENTRY_SIZE, firstEntry);
+        updateDigest(unsorted);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(unsorted, null));
+
+        // invalid signature length
+
+        ByteBuffer invalidSignature = ByteBuffer.wrap(imageData.clone());
+        invalidSignature.putInt(imageData.length - 4, 10);
+        expectThrows(IOException.class, () -> new ZpePolicyImage(invalidSignature, null));
+    }
+
+    @Test
+    public void testMappedPolicyClient() throws IOException {
+
+        List<PolicyData> policyDataList = new ArrayList<>();
+        policyDataList.add(createPolicyData("coretech", "read"));
+        File imageFile = createImage(policyDataList);
+
+        ZpeMappedPolicyClient client = new ZpeMappedPolicyClient(imageFile.getAbsolutePath(), null);
+        assertEquals(client.getDomainCount(), 0);
+        assertNull(client.getDomainPolicy("coretech"));
+
+        client.init(null);
+        assertEquals(client.getDomainCount(), 1);
+        assertNotNull(client.getRoleTokenCacheMap());
+        assertNotNull(client.getAccessTokenCacheMap());
+        assertTrue(client.isCompiledPolicyEngine());
+
+        // the assertion maps are not available from the mapped client
+
+        assertNull(client.getRoleAllowAssertions("coretech"));
+        assertNull(client.getWildcardAllowAssertions("coretech"));
+        assertNull(client.getRoleDenyAssertions("coretech"));
+        assertNull(client.getWildcardDenyAssertions("coretech"));
+
+        ZpePolicyEvaluator domainPolicy = client.getDomainPolicy("coretech");
+        assertAccess(domainPolicy, "read", "table.data", Collections.singletonList("readers"),
+                AccessCheckStatus.ALLOW, "readers");
+        assertNull(client.getDomainPolicy("sports"));
+        assertNull(client.getDomainPolicy(null));
+        assertNull(client.getDomainAssertions(null));
+        assertEquals(client.getDomainGeneration("sports"), 0);
+
+        // domain policies are cached until the image is replaced
+
+        assertSame(client.getDomainPolicy("coretech"), domainPolicy);
+        final long generation = client.getDomainGeneration("coretech");
+        assertTrue(generation > 0);
+        assertFalse(client.loadImage());
+
+        // domains with unchanged assertions keep their generation
+        // numbers in the new image
+
+        policyDataList.add(createPolicyData("sports", "read"));
+        ZpePolicyImageCompiler.writeImage(getPolicies(policyDataList), imageFile, null);
+        assertTrue(imageFile.setLastModified(System.currentTimeMillis() + 5000));
+
+        assertTrue(client.loadImage());
+        assertEquals(client.getDomainCount(), 2);
+        assertNotSame(client.getDomainPolicy("coretech"), domainPolicy);
+        assertEquals(client.getDomainGeneration("coretech"), generation);
+        assertNotNull(client.getDomainPolicy("sports"));
+
+        // updated domains get a new generation
+
+        policyDataList.set(0, createPolicyData("coretech", "update"));
+        ZpePolicyImageCompiler.writeImage(getPolicies(policyDataList), imageFile, null);
+        assertTrue(imageFile.setLastModified(System.currentTimeMillis() + 10000));
+
+        assertTrue(client.loadImage());
+        assertEquals(client.getDomainCount(), 2);
+        assertTrue(client.getDomainGeneration("coretech") > generation);
+        assertAccess(client.getDomainPolicy("coretech"), "read", "table.data",
+                Collections.singletonList("readers"), AccessCheckStatus.DENY_NO_MATCH, "");
+
+        // an invalid image is ignored and the current one is kept
+
+        Files.write(imageFile.toPath(), "invalid-policy-image-data".getBytes());
+        assertTrue(imageFile.setLastModified(System.currentTimeMillis() + 15000));
+        assertFalse(client.loadImage());
+        assertEquals(client.getDomainCount(), 2);
+
+        client.close();
+    }
+
+    @Test
+    public void testMappedPolicyClientSignedImage() throws IOException {
+
+        List<PolicyData> policyDataList = new ArrayList<>();
+        policyDataList.add(createPolicyData("coretech", "read"));
+        File imageFile = createImage(policyDataList);
+
+        // unsigned images are not mapped when the public key is configured
+
+        ZpeMappedPolicyClient client = new ZpeMappedPolicyClient(imageFile.getAbsolutePath(), ZTS_PUBLIC_KEY);
+        client.init(null);
+        assertEquals(client.getDomainCount(), 0);
+        assertNull(client.getDomainPolicy("coretech"));
+
+        ZpePolicyImageCompiler.writeImage(getPolicies(policyDataList), imageFile, ztsPrivateKey);
+        assertTrue(imageFile.setLastModified(System.currentTimeMillis() + 5000));
+        assertTrue(client.loadImage());
+        assertEquals(client.getDomainCount(), 1);
+        assertNotNull(client.getDomainPolicy("coretech"));
+        client.close();
+
+        expectThrows(CryptoException.class, () -> new ZpeMappedPolicyClient(imageFile.getAbsolutePath(),
+                "/invalid/zpe/image/public.pem"));
+    }
+
+    @Test
+    public void testMappedPolicyClientMissingImage() {
+
+        ZpeMappedPolicyClient client = new ZpeMappedPolicyClient("/invalid/zpe/image/file.img", null);
+        client.init(null);
+        assertEquals(client.getDomainCount(), 0);
+        assertNull(client.getDomainPolicy("coretech"));
+        client.monitorImage();
+        client.close();
+    }
+
+    @Test
+    public void testCompilePolicyDirectory() throws IOException {
+
+        File imageFile = File.createTempFile("zpe-policy", ".img");
+        imageFile.deleteOnExit();
+        expectThrows(IOException.class, () -> ZpePolicyImageCompiler.compile(new File("/invalid/zpe/dir"),
+                imageFile, null));
+
+        // policy files with an invalid signature are not included in the image
+
+        byte[] signedData = signPolicyData(createPolicyData("weather", "read"));
+        DomainSignedPolicyData tamperedData = JSON.fromBytes(signedData, DomainSignedPolicyData.class);
+        tamperedData.getSignedPolicyData().getPolicyData().getPolicies().get(0).getAssertions()
+                .add(new Assertion().setRole("weather:role.readers").setAction("*").setResource("weather:*")
+                        .setEffect(AssertionEffect.ALLOW));
+
+        Path policyDir = Files.createTempDirectory("zpe-policy");
+        Files.write(policyDir.resolve("coretech.pol"), signPolicyData(createPolicyData("coretech", "read")));
+        Files.write(policyDir.resolve("sports.pol"), "invalid-policy-data".getBytes());
+        Files.write(policyDir.resolve("weather.pol"), JSON.bytes(tamperedData));
+        Files.write(policyDir.resolve("news.txt"), signPolicyData(createPolicyData("news", "read")));
+
+        assertEquals(ZpePolicyImageCompiler.compile(policyDir.toFile(), imageFile, ztsPrivateKey), 1);
+        ZpePolicyImage image = ZpePolicyImage.load(imageFile, Crypto.loadPublicKey(new File(ZTS_PUBLIC_KEY)));
+        assertTrue(image.hasDomain("coretech"));
+        assertFalse(image.hasDomain("sports"));
+        assertFalse(image.hasDomain("weather"));
+        assertFalse(image.hasDomain("news"));
+        assertEquals(image.getDomainPolicy("coretech").getAssertionCount(), 4);
+    }
+
+    @Test
+    public void testCompilerRun() throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream outStream = new PrintStream(out);
+        PrintStream errStream = new PrintStream(err);
+
+        assertEquals(ZpePolicyImageCompiler.run(new String[] { "policy-dir" }, outStream, errStream), 1);
+        assertTrue(err.toString().contains("usage:"));
+
+        File imageFile = File.createTempFile("zpe-policy", ".img");
+        imageFile.deleteOnExit();
+        assertEquals(ZpePolicyImageCompiler.run(new String[] { "/invalid/zpe/dir", imageFile.getPath() },
+                outStream, errStream), 1);
+        assertTrue(err.toString().contains("unable to compile policy image"));
+
+        Path policyDir = Files.createTempDirectory("zpe-policy");
+        Files.write(policyDir.resolve("coretech.pol"), signPolicyData(createPolicyData("coretech", "read")));
+        assertEquals(ZpePolicyImageCompiler.run(new String[] { policyDir.toString(), imageFile.getPath() },
+                outStream, errStream), 0);
+        assertTrue(out.toString().contains("compiled 1 domains"));
+        assertNull(System.getProperty(ZpeConsts.ZPE_PROP_POLICY_IMAGE_FILE));
+
+        // signed image with the given private key
+
+        assertEquals(ZpePolicyImageCompiler.run(new String[] { policyDir.toString(), imageFile.getPath(),
+                "./src/test/resources/unit_test_zts_private_k0.pem" }, outStream, errStream), 0);
+        assertTrue(ZpePolicyImage.load(imageFile, Crypto.loadPublicKey(new File(ZTS_PUBLIC_KEY)))
+                .hasDomain("coretech"));
+
+        err.reset();
+        assertEquals(ZpePolicyImageCompiler.run(new String[] { policyDir.toString(), imageFile.getPath(),
+                "/invalid/zpe/private.pem" }, outStream, errStream), 1);
+        assertTrue(err.toString().contains("unable to compile policy image"));
+    }
+}
@@ -23,6 +23,12 @@ import com.yahoo.athenz.zpe.match.impl.ZpeMatchEqual;
 import com.yahoo.athenz.zpe.match.impl.ZpeMatchRegex;
 import com.yahoo.athenz.zpe.match.impl.ZpeMatchStartsWith;
 
+import com.yahoo.athenz.auth.util.StringUtils;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.assertFalse;
 
@@ -97,4 +103,111 @@ public class TestZpeMatch {
             assertFalse(matchObject.matches("coretecA")); // missing h + extra A
         }
     }
+
+    @Test
+    public void testMatchIgnoreCase() {
+
+        try (ZpeUpdPolLoader loader = new ZpeUpdPolLoader(null)) {
+
+            ZpeMatch matchObject = loader.getMatchObject("coretech", true);
+            assertTrue(matchObject.matches("coretech"));
+            assertTrue(matchObject.matches("CoreTech"));
+            assertFalse(matchObject.matches("CoreTec"));
+
+            matchObject = loader.getMatchObject("coretech*", true);
+            assertTrue(matchObject.matches("CORETECH"));
+            assertTrue(matchObject.matches("CoreTechTest"));
+            assertFalse(matchObject.matches("CoreTe"));
+
+            matchObject = loader.getMatchObject("coretech?test*", true);
+            assertTrue(matchObject.matches("CoreTechATest"));
+            assertTrue(matchObject.matches("coretechbTESTgreat"));
+            assertFalse(matchObject.matches("CoreTechTestGreat"));
+
+            // without the ignore case option the values are case-sensitive
+
+            matchObject = loader.getMatchObject("coretech");
+            assertFalse(matchObject.matches("CoreTech"));
+            matchObject = loader.getMatchObject("coretech*");
+            assertFalse(matchObject.matches("CoreTechTest"));
+            matchObject = loader.getMatchObject("coretech?test*");
+            assertFalse(matchObject.matches("CoreTechATest"));
+        }
+    }
+
+    @Test
+    public void testMatchOffset() {
+
+        try (ZpeUpdPolLoader loader = new ZpeUpdPolLoader(null)) {
+
+            ZpeMatch matchObject = loader.getMatchObject("*", true);
+            assertTrue(matchObject.matches("sports:", 7));
+
+            matchObject = loader.getMatchObject("coretech", true);
+            assertTrue(matchObject.matches("sports:coretech", 7));
+            assertTrue(matchObject.matches("Sports:CoreTech", 7));
+            assertFalse(matchObject.matches("sports:coretech", 6));
+            assertFalse(matchObject.matches("sports:coretechs", 7));
+
+            matchObject = loader.getMatchObject("coretech*", true);
+            assertTrue(matchObject.matches("sports:coretech", 7));
+            assertTrue(matchObject.matches("sports:CoreTechTest", 7));
+            assertFalse(matchObject.matches("sports:coretec", 7));
+
+            matchObject = loader.getMatchObject("coretech?test*", true);
+            assertTrue(matchObject.matches("sports:coretechAtest", 7));
+            assertTrue(matchObject.matches("sports:CoreTechBTestGreat", 7));
+            assertFalse(matchObject.matches("sports:coretechtest", 7));
+            assertFalse(matchObject.matches("coretechAtest", 1));
+        }
+    }
+
+    @Test
+    public void testMatchRegexLineTerminators() {
+
+        ZpeMatch matchObject = new ZpeMatchRegex("coretech*test");
+        assertTrue(matchObject.matches("coretech-test"));
+        assertFalse(matchObject.matches("coretech\ntest"));
+        assertFalse(matchObject.matches("coretech-\r-test"));
+        assertFalse(matchObject.matches("coretech\u2028test"));
+
+        matchObject = new ZpeMatchRegex("coretech?test");
+        assertFalse(matchObject.matches("coretech\ntest"));
+        assertFalse(matchObject.matches("coretech\u0085test"));
+
+        // glob including a line terminator is processed as a regex
+
+        matchObject = new ZpeMatchRegex("core\ntech*", true);
+        assertTrue(matchObject.matches("core\ntech"));
+        assertTrue(matchObject.matches("Core\nTechTest"));
+        assertTrue(matchObject.matches("sports:Core\nTechTest", 7));
+        assertFalse(matchObject.matches("core\ntech\n"));
+        assertFalse(matchObject.matches("coretech"));
+    }
+
+    @Test
+    public void testMatchRegexGlobPattern() {
+
+        // verify our glob matching returns the same result as the
+        // regular expression generated from the glob pattern
+
+        final String[] globs = { "a*b", "*a?", "?*", "a**b?", "*b*a*", "a.b*", "*[a]*", "a\\?b", "*", "" };
+        final char[] chars = { 'a', 'b', '.', '[', ']', '\\', '\n', 'A' };
+        Random random = new Random(3171);
+
+        for (String glob : globs) {
+            ZpeMatch matchObject = new ZpeMatchRegex(glob);
+            Pattern pattern = Pattern.compile(StringUtils.patternFromGlob(glob));
+            for (int i = 0; i < 500; i++) {
+                StringBuilder value = new StringBuilder();
+                final int length = random.nextInt(7);
+                for (int j = 0; j < length; j++) {
+                    value.append(chars[random.nextInt(chars.length)]);
+                }
+                final String str = value.toString();
+                assertEquals(matchObject.matches(str), pattern.matcher(str).matches(), glob + " / " + str);
+                assertEquals(matchObject.matches("x:" + str, 2), pattern.matcher(str).matches(), glob + " / " + str);
+            }
+        }
+    }
 }
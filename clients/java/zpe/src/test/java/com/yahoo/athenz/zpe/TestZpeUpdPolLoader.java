@@ -27,6 +27,7 @@ import org.mockito.Mockito;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.yahoo.athenz.zpe.engine.ZpePolicyEvaluator;
 import com.yahoo.athenz.zpe.match.ZpeMatch;
 import com.yahoo.athenz.zpe.match.impl.ZpeMatchAll;
 import com.yahoo.athenz.zpe.match.impl.ZpeMatchEqual;
@@ -349,6 +350,109 @@ public class TestZpeUpdPolLoader {
                 + " timestamp2=" + lastModMilliSeconds2);
     }
 
+    @Test
+    public void testLoadDbCompiledPolicyEngine() throws Exception {
+
+        setupPolicyFiles("./src/test/resources/unit_test_zts_private_k0.pem",
+                "./src/test/resources/unit_test_zms_private_k0.pem", "0", "RS256", false);
+
+        boolean savedValue = ZpeUpdPolLoader.compiledPolicyEngine;
+        ZpeUpdPolLoader.compiledPolicyEngine = true;
+
+        java.nio.file.Path polFile = java.nio.file.Paths.get(TEST_POL_DIR, TEST_POL_FILE);
+        java.nio.file.Files.createDirectories(polFile.getParent());
+        java.nio.file.Files.copy(java.nio.file.Paths.get(TEST_SIGNED_POL_GOOD_FILE), polFile,
+                java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+
+        ZpeUpdPolLoader loader = new ZpeUpdPolLoader(TEST_POL_DIR);
+        java.io.File [] files = { polFile.toFile() };
+        loader.loadDb(files);
+
+        ZpePolicyEvaluator domainPolicy = loader.getDomainPolicy("angler");
+        assertNotNull(domainPolicy);
+        assertEquals(domainPolicy.getDomainName(), "angler");
+        assertEquals(domainPolicy.getAssertionCount(), 24);
+        assertNull(loader.getDomainPolicy("sports"));
+
+        // the compiled policy must return the same results as the
+        // assertion maps for all combinations of our roles
+
+        final String[] roles = { "admin", "public", "pachinko", "director", "foreman", "manager",
+                "managerkern", "managerkernpond", "managerventura", "matchall", "matchstarts",
+                "matchcompare", "matchregex", "full_regex", "unknown" };
+        final String[] actions = { "read", "write", "throw", "throw2", "fish", "access", "access2",
+                "direct", "oversee", "manage", "all", "startswith", "compare", "regex", "full_regex",
+                "unknown" };
+        final String[] resources = { "stuff", "stuff2", "spawningpondkern", "stockedpondventura",
+                "tables.blah", "tables.blah2", "pondskern", "pondsventura", "riverskern", "riversventura",
+                "startswith", "startswithmore", "compare", "compare2", "nhlkings", "nhlakings",
+                "coretech", "corecommit", "gorea", "sored", "coreg", "" };
+
+        for (int i = 0; i < roles.length; i++) {
+            for (int j = i; j < roles.length; j++) {
+                List<String> roleList = (i == j) ? Collections.singletonList(roles[i]) :
+                        Arrays.asList(roles[i], roles[j]);
+                for (String action : actions) {
+                    for (String resource : resources) {
+                        StringBuilder expectedRoleName = new StringBuilder();
+                        AuthZpeClient.AccessCheckStatus expectedStatus = allowActionByAssertionMaps(loader,
+                                "angler", action, resource, roleList, expectedRoleName);
+                        StringBuilder roleName = new StringBuilder();
+                        AuthZpeClient.AccessCheckStatus status = domainPolicy.allowAction(action, resource,
+                                roleList, roleName);
+                        final String message = roleList + " " + action + " " + resource;
+                        assertEquals(status, expectedStatus, message);
+                        assertEquals(roleName.toString(), expectedRoleName.toString(), message);
+                    }
+                }
+            }
+        }
+
+        // deleted file is replaced with empty policy
+
+        File polMockFile = Mockito.mock(File.class);
+        Mockito.when(polMockFile.getName()).thenReturn(TEST_POL_FILE);
+        Mockito.when(polMockFile.lastModified()).thenReturn(System.currentTimeMillis());
+        Mockito.when(polMockFile.exists()).thenReturn(false);
+
+        final long generation = loader.getDomainGeneration("angler");
+        assertTrue(generation > 0);
+        assertEquals(loader.getDomainGeneration("sports"), 0);
+
+        java.io.File [] mockFiles = { polMockFile };
+        loader.loadDb(mockFiles);
+        assertTrue(loader.getDomainGeneration("angler") > generation);
+        domainPolicy = loader.getDomainPolicy("angler");
+        assertTrue(domainPolicy.isEmpty());
+        assertEquals(domainPolicy.allowAction("read", "stuff", Collections.singletonList("public"),
+                new StringBuilder()), AuthZpeClient.AccessCheckStatus.DENY_DOMAIN_EMPTY);
+
+        loader.close();
+        ZpeUpdPolLoader.compiledPolicyEngine = savedValue;
+    }
+
+    private AuthZpeClient.AccessCheckStatus allowActionByAssertionMaps(ZpeUpdPolLoader loader, final String domain,
+            final String action, final String resource, List<String> roles, StringBuilder matchRoleName) {
+
+        if (AuthZpeClient.actionByRole(action, domain, resource, roles,
+                loader.getStandardRoleDenyMap(domain), matchRoleName)) {
+            return AuthZpeClient.AccessCheckStatus.DENY;
+        }
+        if (AuthZpeClient.actionByWildCardRole(action, domain, resource, roles,
+                loader.getWildcardRoleDenyMap(domain), matchRoleName)) {
+            return AuthZpeClient.AccessCheckStatus.DENY;
+        }
+        if (AuthZpeClient.actionByRole(action, domain, resource, roles,
+                loader.getStandardRoleAllowMap(domain), matchRoleName)) {
+            return AuthZpeClient.AccessCheckStatus.ALLOW;
+        }
+        if (AuthZpeClient.actionByWildCardRole(action, domain, resource, roles,
+                loader.getWildcardRoleAllowMap(domain), matchRoleName)) {
+            return AuthZpeClient.AccessCheckStatus.ALLOW;
+        }
+        return AuthZpeClient.AccessCheckStatus.DENY_NO_MATCH;
+    }
+
     @Test
     public void testLoadDBJWSInvalidRSAKeyVersion() throws IOException {
         testLoadDBJWSInvalidKeyVersion("./src/test/resources/unit_test_zts_private_k0.pem", "1001", "RS256", false);
@@ -469,6 +573,169 @@ public class TestZpeUpdPolLoader {
         assertFalse(fstat.validPolFile);
     }
 
+    static class TestPolicyLoaderMetrics implements ZpePolicyLoaderMetrics {
+
+        final List<String> loadedFiles = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> reloads = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void recordFileLoad(String fileName, boolean success, long latencyMillis) {
+            assertTrue(latencyMillis >= 0);
+            loadedFiles.add(fileName + ":" + success);
+        }
+
+        @Override
+        public void recordReload(int fileCount, long latencyMillis) {
+            assertTrue(latencyMillis >= 0);
+            reloads.add(fileCount);
+        }
+    }
+
+    @Test
+    public void testLoadDbParallel() throws Exception {
+
+        setupPolicyFiles("./src/test/resources/unit_test_zts_private_k0.pem",
+                "./src/test/resources/unit_test_zms_private_k0.pem", "0", "RS256", false);
+
+        final int savedThreads = ZpeUpdPolLoader.loaderThreads;
+        ZpeUpdPolLoader.loaderThreads = 4;
+        TestPolicyLoaderMetrics metrics = new TestPolicyLoaderMetrics();
+        ZpeUpdPolLoader.setPolicyLoaderMetrics(metrics);
+
+        Path polDir = Files.createTempDirectory("zpe-parallel");
+        File[] files = new File[6];
+        for (int i = 0; i < files.length; i++) {
+            Path polFile = polDir.resolve("angler" + i + ".pol");
+            Files.copy(Paths.get(TEST_SIGNED_POL_GOOD_FILE), polFile);
+            files[i] = polFile.toFile();
+        }
+        Path badFile = polDir.resolve("bad.pol");
+        Files.write(badFile, "invalid-policy-file".getBytes(StandardCharsets.UTF_8));
+
+        try (ZpeUpdPolLoader loader = new ZpeUpdPolLoader(polDir.toString())) {
+
+            // all the files are loaded when the loader is created
+
+            assertEquals(loader.getDomainCount(), 1);
+            assertEquals(metrics.reloads, Collections.singletonList(7));
+            assertEquals(metrics.loadedFiles.size(), 7);
+            assertTrue(metrics.loadedFiles.contains("bad.pol:false"));
+            for (File file : files) {
+                assertTrue(metrics.loadedFiles.contains(file.getName() + ":true"));
+                assertTrue(loader.getFileStatusMap().get(file.getName()).validPolFile);
+            }
+            assertFalse(loader.getFileStatusMap().get("bad.pol").validPolFile);
+            assertNotNull(loader.getStandardRoleAllowMap("angler"));
+            final long generation = loader.getDomainGeneration("angler");
+            assertTrue(generation > 0);
+
+            // unmodified valid files are not loaded again while the invalid
+            // file is retried
+
+            metrics.loadedFiles.clear();
+            metrics.reloads.clear();
+            loader.loadDb();
+            assertEquals(metrics.loadedFiles, Collections.singletonList("bad.pol:false"));
+
+            // only the modified file is loaded again
+
+            metrics.loadedFiles.clear();
+            metrics.reloads.clear();
+            Files.delete(badFile);
+            assertTrue(files[2].setLastModified(System.currentTimeMillis() + 5000));
+            loader.loadDb();
+            assertEquals(metrics.loadedFiles, Collections.singletonList("angler2.pol:true"));
+            assertEquals(metrics.reloads, Collections.singletonList(1));
+            assertTrue(loader.getDomainGeneration("angler") > generation);
+        } finally {
+            ZpeUpdPolLoader.loaderThreads = savedThreads;
+            ZpeUpdPolLoader.setPolicyLoaderMetrics(null);
+            FileUtils.deleteDirectory(polDir.toFile());
+        }
+    }
+
+    @Test
+    public void testDirWatcher() throws Exception {
+
+        setupPolicyFiles("./src/test/resources/unit_test_zts_private_k0.pem",
+                "./src/test/resources/unit_test_zms_private_k0.pem", "0", "RS256", false);
+
+        final boolean savedDirWatch = ZpeUpdPolLoader.policyDirWatch;
+        final long savedSettleTime = ZpeUpdDirWatcher.settleTimeMillis;
+        ZpeUpdPolLoader.policyDirWatch = true;
+        ZpeUpdDirWatcher.settleTimeMillis = 100;
+
+        Path polDir = Files.createTempDirectory("zpe-watcher");
+        ZpeUpdPolLoader loader = new ZpeUpdPolLoader(polDir.toString());
+        try {
+            loader.start();
+            assertEquals(loader.getDomainCount(), 0);
+
+            // new policy file is loaded without waiting for the next scan
+
+            Path polFile = polDir.resolve(TEST_POL_FILE);
+            Path tmpFile = polDir.resolve("angler.tmp");
+            Files.copy(Paths.get(TEST_SIGNED_POL_GOOD_FILE), tmpFile);
+            Files.move(tmpFile, polFile);
+
+            for (int i = 0; i < 100 && loader.getDomainCount() == 0; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(loader.getDomainCount(), 1);
+            assertFalse(loader.getStandardRoleAllowMap("angler").isEmpty());
+
+            // deleted policy file removes all the assertions for the domain
+
+            Files.delete(polFile);
+            for (int i = 0; i < 100 && !loader.getStandardRoleAllowMap("angler").isEmpty(); i++) {
+                Thread.sleep(100);
+            }
+            assertTrue(loader.getStandardRoleAllowMap("angler").isEmpty());
+            assertTrue(loader.getWildcardRoleAllowMap("angler").isEmpty());
+            assertNull(loader.getFileStatusMap().get(TEST_POL_FILE));
+        } finally {
+            loader.close();
+            ZpeUpdPolLoader.policyDirWatch = savedDirWatch;
+            ZpeUpdDirWatcher.settleTimeMillis = savedSettleTime;
+            FileUtils.deleteDirectory(polDir.toFile());
+        }
+    }
+
+    @Test
+    public void testDirWatcherReloadFiles() throws Exception {
+
+        setupPolicyFiles("./src/test/resources/unit_test_zts_private_k0.pem",
+                "./src/test/resources/unit_test_zms_private_k0.pem", "0", "RS256", false);
+
+        Path polDir = Files.createTempDirectory("zpe-watcher");
+        try (ZpeUpdPolLoader loader = new ZpeUpdPolLoader(polDir.toString())) {
+
+            ZpeUpdDirWatcher watcher = new ZpeUpdDirWatcher(loader);
+
+            // no files to reload
+
+            watcher.reloadFiles(false, Collections.emptySet());
+            assertEquals(loader.getDomainCount(), 0);
+
+            // deleted file that we have never processed is skipped
+
+            watcher.reloadFiles(false, Collections.singleton("unknown.pol"));
+            assertEquals(loader.getDomainCount(), 0);
+            assertTrue(loader.getFileStatusMap().isEmpty());
+
+            // with overflow we scan the full directory
+
+            Files.copy(Paths.get(TEST_SIGNED_POL_GOOD_FILE), polDir.resolve(TEST_POL_FILE));
+            watcher.reloadFiles(true, Collections.emptySet());
+            assertEquals(loader.getDomainCount(), 1);
+
+            watcher.cancel();
+            watcher.run();
+        } finally {
+            FileUtils.deleteDirectory(polDir.toFile());
+        }
+    }
+
     @Test
     public void testIsESAlgorithm() {
 
@@ -0,0 +1,273 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class TestZpeTokenCache {
+
+    static class TestMetrics implements ZpeTokenCacheMetrics {
+        final AtomicInteger hits = new AtomicInteger();
+        final AtomicInteger misses = new AtomicInteger();
+        final AtomicInteger evictions = new AtomicInteger();
+        final AtomicInteger expiredEvictions = new AtomicInteger();
+
+        @Override
+        public void recordHit(String cacheName) {
+            assertEquals(cacheName, "test");
+            hits.incrementAndGet();
+        }
+
+        @Override
+        public void recordMiss(String cacheName) {
+            misses.incrementAndGet();
+        }
+
+        @Override
+        public void recordEviction(String cacheName, boolean expired) {
+            evictions.incrementAndGet();
+            if (expired) {
+                expiredEvictions.incrementAndGet();
+            }
+        }
+    }
+
+    // our test tokens are just their expiry times in seconds
+
+    private ZpeTokenCache<Long> createCache() {
+        return new ZpeTokenCache<>("test", value -> value);
+    }
+
+    private long validExpiry() {
+        return System.currentTimeMillis() / 1000 + 3600;
+    }
+
+    @Test
+    public void testGetPut() {
+
+        ZpeTokenCache<Long> cache = createCache();
+        assertEquals(cache.getName(), "test");
+
+        TestMetrics metrics = new TestMetrics();
+        cache.setMetrics(metrics);
+
+        final long expiry = validExpiry();
+        assertNull(cache.get("token1"));
+        assertTrue(cache.put("token1", expiry, 10));
+        assertEquals(cache.get("token1"), Long.valueOf(expiry));
+        assertTrue(cache.containsKey("token1"));
+        assertEquals(cache.size(), 1);
+
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(metrics.hits.get(), 1);
+        assertEquals(metrics.misses.get(), 1);
+
+        assertEquals(cache.remove("token1"), Long.valueOf(expiry));
+        assertNull(cache.get("token1"));
+        assertEquals(cache.getMissCount(), 2);
+
+        // resetting the metrics is ignored
+
+        cache.setMetrics(null);
+        assertNull(cache.get("token1"));
+        assertEquals(metrics.misses.get(), 2);
+        assertEquals(cache.getMissCount(), 3);
+    }
+
+    @Test
+    public void testUnlimited() {
+
+        ZpeTokenCache<Long> cache = createCache();
+        final long expiry = validExpiry();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(cache.put("token" + i, expiry, 0));
+        }
+        assertEquals(cache.size(), 100);
+        assertEquals(cache.getEvictionCount(), 0);
+
+        cache.clear();
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testExpiredTokens() {
+
+        ZpeTokenCache<Long> cache = createCache();
+        TestMetrics metrics = new TestMetrics();
+        cache.setMetrics(metrics);
+
+        final long now = System.currentTimeMillis() / 1000;
+        cache.put("expired1", now - 10);
+        cache.put("expired2", now - 10);
+        cache.put("valid", now + 3600);
+
+        // expired tokens are not returned from the cache
+
+        assertNull(cache.get("expired1"));
+        assertEquals(cache.size(), 2);
+        assertEquals(metrics.expiredEvictions.get(), 1);
+
+        cache.removeExpired(now);
+        assertEquals(cache.size(), 1);
+        assertNotNull(cache.get("valid"));
+        assertEquals(cache.getEvictionCount(), 2);
+        assertEquals(metrics.expiredEvictions.get(), 2);
+    }
+
+    @Test
+    public void testFullCacheRemovesExpiredTokens() {
+
+        ZpeTokenCache<Long> cache = createCache();
+
+        final long now = System.currentTimeMillis() / 1000;
+        assertTrue(cache.put("expired1", now - 10, 2));
+        assertTrue(cache.put("expired2", now - 10, 2));
+
+        // the cache is full, but both tokens are expired so
+        // our new token is added without any frequency checks
+
+        assertTrue(cache.put("token1", now + 3600, 2));
+        assertEquals(cache.size(), 1);
+        assertNotNull(cache.get("token1"));
+        assertEquals(cache.getEvictionCount(), 2);
+    }
+
+    @Test
+    public void testFrequencyAdmission() {
+
+        ZpeTokenCache<Long> cache = createCache();
+        TestMetrics metrics = new TestMetrics();
+        cache.setMetrics(metrics);
+
+        final long expiry = validExpiry();
+
+        // our popular tokens are requested multiple times
+
+        for (int i = 0; i < 4; i++) {
+            final String token = "popular" + i;
+            assertNull(cache.get(token));
+            assertTrue(cache.put(token, expiry, 4));
+            for (int j = 0; j < 5; j++) {
+                assertNotNull(cache.get(token));
+            }
+        }
+        assertEquals(cache.size(), 4);
+
+        // a burst of unique tokens must not replace the popular ones
+
+        for (int i = 0; i < 100; i++) {
+            final String token = "unique" + i;
+            assertNull(cache.get(token));
+            assertFalse(cache.put(token, expiry, 4));
+        }
+
+        assertEquals(cache.size(), 4);
+        assertEquals(cache.getEvictionCount(), 0);
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(cache.get("popular" + i));
+        }
+
+        // a token that becomes more popular than the cached ones
+        // is admitted and the least frequently used one is evicted
+
+        for (int j = 0; j < 10; j++) {
+            assertNull(cache.get("trending"));
+        }
+        assertTrue(cache.put("trending", expiry, 4));
+        assertEquals(cache.size(), 4);
+        assertNotNull(cache.get("trending"));
+        assertEquals(cache.getEvictionCount(), 1);
+        assertEquals(metrics.evictions.get(), 1);
+        assertEquals(metrics.expiredEvictions.get(), 0);
+
+        // replacing an existing token is always allowed
+
+        assertTrue(cache.put("trending", expiry + 1, 4));
+        assertEquals(cache.get("trending"), Long.valueOf(expiry + 1));
+        assertEquals(cache.size(), 4);
+    }
+
+    @Test
+    public void testSelectVictimRotates() {
+
+        ZpeTokenCache<Long> cache = createCache();
+        ZpeTokenCache.FrequencySketch sketch = new ZpeTokenCache.FrequencySketch(0);
+        assertNull(cache.selectVictim(sketch));
+
+        // with all frequencies the same the victim is the first token
+        // that expires in the sample, so the sampled entries can be
+        // tracked based on the expiry values
+
+        final long expiry = validExpiry();
+        final int count = ZpeTokenCache.EVICTION_SAMPLE_SIZE * 3;
+        for (int i = 0; i < count; i++) {
+            cache.put("token" + i, expiry + i);
+        }
+
+        Set<String> victims = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            victims.add(cache.selectVictim(sketch).getKey());
+        }
+        assertEquals(victims.size(), 3);
+
+        // the samples wrap around once all the entries are sampled
+
+        assertTrue(victims.contains(cache.selectVictim(sketch).getKey()));
+
+        // cache with fewer entries than the sample size
+
+        cache.clear();
+        cache.put("token1", expiry + 1);
+        cache.put("token2", expiry);
+        assertEquals(cache.selectVictim(sketch).getKey(), "token2");
+        assertEquals(cache.selectVictim(sketch).getKey(), "token2");
+    }
+
+    @Test
+    public void testFrequencySketch() {
+
+        ZpeTokenCache.FrequencySketch sketch = new ZpeTokenCache.FrequencySketch(0);
+        assertFalse(sketch.hasCapacity(1));
+        sketch.increment("token");
+        assertEquals(sketch.frequency("token"), 0);
+
+        sketch = new ZpeTokenCache.FrequencySketch(16);
+        assertTrue(sketch.hasCapacity(16));
+        assertFalse(sketch.hasCapacity(1024));
+
+        // counters are capped at 15
+
+        for (int i = 0; i < 20; i++) {
+            sketch.increment("token");
+        }
+        assertEquals(sketch.frequency("token"), 15);
+        assertEquals(sketch.frequency("unknown"), 0);
+
+        // once we reach the sample size all counters are halved
+
+        for (int i = 0; i < 160; i++) {
+            sketch.increment("other" + i);
+        }
+        assertTrue(sketch.frequency("token") < 15);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.engine;
+
+import com.yahoo.athenz.zpe.AuthZpeClient.AccessCheckStatus;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.testng.Assert.*;
+
+public class TestZpeDomainPolicy {
+
+    private ZpeDomainPolicy createDomainPolicy() {
+        return new ZpeDomainPolicy.Builder("angler")
+                .addAssertion("public", "read", "stuff", false, "public")
+                .addAssertion("public", "throw", "stuff", true, "public")
+                .addAssertion("public", "fish", "stockedpond*", false, "public")
+                .addAssertion("public", "fish", "spawningpond*", true, "public")
+                .addAssertion("admin", "*", "*", false, "admin")
+                .addAssertion("manager*", "manage", "ponds*", false, "wildcard")
+                .addAssertion("managerkern*", "manage", "pondsventura*", true, "wildcard")
+                .addAssertion("writer", "mod*", "files.*", false, "writer")
+                .addAssertion("writer", "mod?fy", "docs.*", false, "writer")
+                .build();
+    }
+
+    @Test
+    public void testAllowAction() {
+
+        ZpeDomainPolicy domainPolicy = createDomainPolicy();
+        assertEquals(domainPolicy.getDomainName(), "angler");
+        assertEquals(domainPolicy.getAssertionCount(), 9);
+        assertFalse(domainPolicy.isEmpty());
+
+        StringBuilder roleName = new StringBuilder();
+        assertEquals(domainPolicy.allowAction("read", "stuff", Collections.singletonList("public"), roleName),
+                AccessCheckStatus.ALLOW);
+        assertEquals(roleName.toString(), "public");
+
+        roleName.setLength(0);
+        assertEquals(domainPolicy.allowAction("write", "stuff", Collections.singletonList("public"), roleName),
+                AccessCheckStatus.DENY_NO_MATCH);
+        assertEquals(roleName.toString(), "");
+
+        assertEquals(domainPolicy.allowAction("fish", "stockedpondkern", Collections.singletonList("public"),
+                roleName), AccessCheckStatus.ALLOW);
+        assertEquals(domainPolicy.allowAction("fish", "spawningpondkern", Collections.singletonList("public"),
+                roleName), AccessCheckStatus.DENY);
+
+        // wildcard actions
+
+        assertEquals(domainPolicy.allowAction("modify", "files.data", Collections.singletonList("writer"),
+                roleName), AccessCheckStatus.ALLOW);
+        assertEquals(domainPolicy.allowAction("modify", "docs.data", Collections.singletonList("writer"),
+                roleName), AccessCheckStatus.ALLOW);
+        assertEquals(domainPolicy.allowAction("moodify", "docs.data", Collections.singletonList("writer"),
+                roleName), AccessCheckStatus.DENY_NO_MATCH);
+    }
+
+    @Test
+    public void testAllowActionPrecedence() {
+
+        ZpeDomainPolicy domainPolicy = createDomainPolicy();
+        StringBuilder roleName = new StringBuilder();
+
+        // standard role deny takes precedence over everything else
+
+        assertEquals(domainPolicy.allowAction("throw", "stuff", Arrays.asList("admin", "public"), roleName),
+                AccessCheckStatus.DENY);
+        assertEquals(roleName.toString(), "public");
+
+        // wildcard role deny takes precedence over standard allow
+
+        assertEquals(domainPolicy.allowAction("manage", "pondsventura", Arrays.asList("admin", "managerkern"),
+                roleName), AccessCheckStatus.DENY);
+        assertEquals(roleName.toString(), "managerkern*");
+
+        // standard allow takes precedence over wildcard allow
+
+        assertEquals(domainPolicy.allowAction("manage", "pondskern", Arrays.asList("managerkern", "admin"),
+                roleName), AccessCheckStatus.ALLOW);
+        assertEquals(roleName.toString(), "admin");
+
+        assertEquals(domainPolicy.allowAction("manage", "pondskern", Collections.singletonList("managerkern"),
+                roleName), AccessCheckStatus.ALLOW);
+        assertEquals(roleName.toString(), "manager*");
+    }
+
+    @Test
+    public void testAllowActionEmptyDomain() {
+
+        ZpeDomainPolicy domainPolicy = new ZpeDomainPolicy.Builder("angler").build();
+        assertTrue(domainPolicy.isEmpty());
+
+        StringBuilder roleName = new StringBuilder();
+        assertEquals(domainPolicy.allowAction("read", "stuff", Collections.singletonList("public"), roleName),
+                AccessCheckStatus.DENY_DOMAIN_EMPTY);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.engine;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class TestZpeMatchTrie {
+
+    @Test
+    public void testMatches() {
+
+        ZpeMatchTrie<String> trie = new ZpeMatchTrie<>();
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.matches("stuff"));
+
+        trie.add("stuff", "equal");
+        trie.add("ponds*", "prefix");
+        trie.add("nhl*kings", "regex");
+        trie.add("?ore(tech|commit)", "regex-chars");
+        assertFalse(trie.isEmpty());
+        assertEquals(trie.size(), 4);
+
+        assertTrue(trie.matches("stuff"));
+        assertFalse(trie.matches("stuf"));
+        assertFalse(trie.matches("stuff2"));
+
+        assertTrue(trie.matches("ponds"));
+        assertTrue(trie.matches("pondskern"));
+        assertFalse(trie.matches("pond"));
+
+        assertTrue(trie.matches("nhlkings"));
+        assertTrue(trie.matches("nhlakings"));
+        assertFalse(trie.matches("nhlkingsa"));
+
+        assertTrue(trie.matches("core(tech|commit)"));
+        assertFalse(trie.matches("coretech"));
+
+        assertFalse(trie.matches(""));
+    }
+
+    @Test
+    public void testMatchAll() {
+
+        ZpeMatchTrie<String> trie = new ZpeMatchTrie<>();
+        trie.add("*", "all");
+
+        assertTrue(trie.matches(""));
+        assertTrue(trie.matches("stuff"));
+
+        List<String> matches = new ArrayList<>();
+        trie.collect("stuff", matches);
+        assertEquals(matches, Arrays.asList("all"));
+    }
+
+    @Test
+    public void testCollect() {
+
+        ZpeMatchTrie<String> trie = new ZpeMatchTrie<>();
+        trie.add("manager*", "manager*");
+        trie.add("managerkern*", "managerkern*");
+        trie.add("managerkern", "managerkern");
+        trie.add("manager?ern", "manager?ern");
+        trie.add("director", "director");
+
+        List<String> matches = new ArrayList<>();
+        trie.collect("managerkern", matches);
+        assertEquals(matches.size(), 4);
+        assertTrue(matches.containsAll(Arrays.asList("manager*", "managerkern*", "managerkern", "manager?ern")));
+
+        matches.clear();
+        trie.collect("managerventura", matches);
+        assertEquals(matches, Arrays.asList("manager*"));
+
+        matches.clear();
+        trie.collect("manage", matches);
+        assertTrue(matches.isEmpty());
+    }
+}
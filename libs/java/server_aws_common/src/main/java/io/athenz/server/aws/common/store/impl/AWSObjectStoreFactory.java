@@ -61,6 +61,7 @@ public class AWSObjectStoreFactory implements ObjectStoreFactory {
     public static final String DB_PROP_USE_SSL            = "useSSL";
     public static final String DB_PROP_VERIFY_SERVER_CERT = "verifyServerCertificate";
     public static final String DB_PROP_TLS_PROTOCOLS      = "enabledTLSProtocols";
+    public static final String DB_PROP_ALLOW_MULTI_QUERIES = "allowMultiQueries";
 
     private static final String JDBC_TLS_VERSIONS = "TLSv1.2,TLSv1.3";
 
@@ -91,7 +92,7 @@ public class AWSObjectStoreFactory implements ObjectStoreFactory {
             LOG.debug("Connecting to primary {} with auth token {}", jdbcPrimaryStore, rdsPrimaryToken);
         }
 
-        setConnectionProperties(MYSQL_PRIMARY_CONNECTION_PROPERTIES, rdsPrimaryToken);
+        setConnectionProperties(MYSQL_PRIMARY_CONNECTION_PROPERTIES, rdsPrimaryToken, false);
         PoolableDataSource dataPrimarySource = DataSourceFactory.create(jdbcPrimaryStore, MYSQL_PRIMARY_CONNECTION_PROPERTIES);
 
         SchemaMigrationRunner.migrateIfConfigured(dataPrimarySource,
@@ -110,7 +111,7 @@ public class AWSObjectStoreFactory implements ObjectStoreFactory {
                 LOG.debug("Connecting to replica {} with auth token {}", jdbcReplicaStore, rdsReplicaToken);
             }
 
-            setConnectionProperties(MYSQL_REPLICA_CONNECTION_PROPERTIES, rdsReplicaToken);
+            setConnectionProperties(MYSQL_REPLICA_CONNECTION_PROPERTIES, rdsReplicaToken, true);
             dataReplicaSource = DataSourceFactory.create(jdbcReplicaStore, MYSQL_REPLICA_CONNECTION_PROPERTIES);
         }
         
@@ -129,7 +130,7 @@ public class AWSObjectStoreFactory implements ObjectStoreFactory {
         scheduledThreadPool.shutdownNow();
     }
 
-    void setConnectionProperties(Properties mysqlProperties, final String token) {
+    void setConnectionProperties(Properties mysqlProperties, final String token, boolean readOnly) {
         mysqlProperties.setProperty(DB_PROP_VERIFY_SERVER_CERT,
                 System.getProperty(ZMS_PROP_JDBC_VERIFY_SERVER_CERT, "true"));
         mysqlProperties.setProperty(DB_PROP_USE_SSL,
@@ -138,6 +139,13 @@ public class AWSObjectStoreFactory implements ObjectStoreFactory {
                 System.getProperty(ZMS_PROP_JDBC_TLS_VERSIONS, JDBC_TLS_VERSIONS));
         mysqlProperties.setProperty(DB_PROP_USER, rdsUser);
         mysqlProperties.setProperty(DB_PROP_PASSWORD, token);
+
+        // multiple statements are only allowed on the read-only replica
+        // which is used to load the full domain with a single statement
+
+        if (readOnly && Boolean.parseBoolean(System.getProperty(JDBCConsts.ZMS_PROP_MYSQL_MULTI_QUERY_DOMAIN_LOAD, "false"))) {
+            mysqlProperties.setProperty(DB_PROP_ALLOW_MULTI_QUERIES, "true");
+        }
     }
 
     Region getRegion() {
@@ -23,7 +23,11 @@ import org.mockito.Mockito;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 
 public class AWSObjectStoreFactoryTest {
 
@@ -130,6 +134,25 @@ public class AWSObjectStoreFactoryTest {
         Mockito.verifyNoInteractions(mockDs);
     }
 
+    @Test
+    public void testSetConnectionPropertiesMultiQueryDomainLoad() {
+
+        AWSObjectStoreFactory factory = new TestAWSObjectStoreFactory();
+        System.setProperty(JDBCConsts.ZMS_PROP_MYSQL_MULTI_QUERY_DOMAIN_LOAD, "true");
+
+        // multiple statements are only allowed for the read-only replica
+
+        Properties properties = new Properties();
+        factory.setConnectionProperties(properties, "token", false);
+        assertNull(properties.getProperty(AWSObjectStoreFactory.DB_PROP_ALLOW_MULTI_QUERIES));
+
+        properties = new Properties();
+        factory.setConnectionProperties(properties, "token", true);
+        assertEquals(properties.getProperty(AWSObjectStoreFactory.DB_PROP_ALLOW_MULTI_QUERIES), "true");
+
+        System.clearProperty(JDBCConsts.ZMS_PROP_MYSQL_MULTI_QUERY_DOMAIN_LOAD);
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void testSchemaMigrationInvalidDirectory() {
         System.setProperty(JDBCConsts.ZMS_PROP_JDBC_SCHEMA_MIGRATION_DIR, "/non/existent/dir");
@@ -59,6 +59,7 @@ public final class ServerCommonConsts {
     public static final String DB_PROP_VERIFY_SERVER_CERT = "verifyServerCertificate";
     public static final String DB_PROP_TLS_PROTOCOLS      = "enabledTLSProtocols";
     public static final String DB_PROP_CONN_TIME_ZONE     = "connectionTimeZone";
+    public static final String DB_PROP_ALLOW_MULTI_QUERIES = "allowMultiQueries";
 
     public static final String SYS_AUTH_AUDIT_BY_ORG    = "sys.auth.audit.org";
     public static final String SYS_AUTH_AUDIT_BY_DOMAIN = "sys.auth.audit.domain";
@@ -16,6 +16,8 @@
 
 package com.yahoo.athenz.common.messaging;
 
+import java.util.List;
+
 /**
  * change publisher interface
  */
@@ -27,6 +29,19 @@ public interface ChangePublisher<T> {
      */
     void publish(T message);
 
+    /**
+     * Publishes the list of messages to the configured messaging system.
+     * The default implementation publishes each message separately.
+     * Implementations should override it if the messaging system
+     * supports sending multiple messages in a single batch.
+     * @param messages list of messages to be published
+     */
+    default void publishBatch(List<T> messages) {
+        for (T message : messages) {
+            publish(message);
+        }
+    }
+
     /**
      * Close the producer and releases resources allocated.
      */
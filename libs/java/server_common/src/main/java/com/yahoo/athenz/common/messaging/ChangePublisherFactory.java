@@ -26,4 +26,18 @@ public interface ChangePublisherFactory<T> {
      * @return ChangePublisher that was just created
      */
      ChangePublisher<T> create(PrivateKeyStore keyStore, String topicName);
+
+    /**
+     * creates a ChangePublisher for a caller that publishes the messages
+     * asynchronously with publishBatch, so the publisher can be configured
+     * to combine the messages into batches. The default implementation
+     * returns the same publisher as create
+     * @param keyStore private keystore object for fetching any secrets if needed
+     * @param topicName of the topic to subscribe to
+     * @param batchPublishing true if the messages are published asynchronously in batches
+     * @return ChangePublisher that was just created
+     */
+    default ChangePublisher<T> create(PrivateKeyStore keyStore, String topicName, boolean batchPublishing) {
+        return create(keyStore, topicName);
+    }
 }
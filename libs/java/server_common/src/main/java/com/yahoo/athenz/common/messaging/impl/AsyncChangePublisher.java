@@ -0,0 +1,333 @@
+/*
+ *
+ *   Copyright The Athenz Authors
+ *  
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *  
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.common.messaging.impl;
+
+import com.yahoo.athenz.common.messaging.ChangePublisher;
+import com.yahoo.athenz.common.metrics.Metric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation of {@link ChangePublisher} that publishes the messages
+ * asynchronously with the given publisher so the caller is not blocked
+ * by the messaging system. The messages are added to a bounded queue
+ * and a single thread publishes them in batches of up to batchSize
+ * messages. If the queue is full, the caller is blocked for up to
+ * blockTimeout milliseconds before the message is dropped. A batch that
+ * fails to be published is retried up to retryCount times with an
+ * exponential backoff starting at retryBackoff milliseconds before it's
+ * counted as failed. When the publisher is closed, the queued messages
+ * are published for up to flushTimeout milliseconds before the given
+ * publisher is closed.
+ */
+public class AsyncChangePublisher<T> implements ChangePublisher<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncChangePublisher.class);
+
+    public static final String METRIC_PUBLISH_BLOCKED = "change_publisher_blocked";
+    public static final String METRIC_PUBLISH_DROPPED = "change_publisher_dropped";
+    public static final String METRIC_PUBLISH_FAILED = "change_publisher_failed";
+
+    public static final int DEFAULT_RETRY_COUNT = 3;
+    public static final long DEFAULT_RETRY_BACKOFF_MS = 100;
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final ChangePublisher<T> publisher;
+    private final BlockingQueue<T> messages;
+    private final int batchSize;
+    private final long batchDelayMs;
+    private final long blockTimeoutMs;
+    private final long flushTimeoutMs;
+    private final int retryCount;
+    private final long retryBackoffMs;
+    private final Metric metric;
+    private final Thread publisherThread;
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong blockedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private volatile boolean closed = false;
+    private volatile boolean stopped = false;
+
+    /**
+     * Create a new async publisher for the given publisher
+     * @param publisher publisher used to publish the messages
+     * @param queueSize maximum number of messages waiting to be published
+     * @param batchSize maximum number of messages published in a single batch
+     * @param batchDelayMs number of milliseconds to wait for additional messages
+     *      before publishing a batch that has less than batchSize messages
+     * @param blockTimeoutMs number of milliseconds the caller is blocked when
+     *      the queue is full before the message is dropped
+     * @param flushTimeoutMs number of milliseconds to wait for the queued
+     *      messages to be published when the publisher is closed
+     * @param metric metric object to report blocked, dropped and failed messages
+     */
+    public AsyncChangePublisher(ChangePublisher<T> publisher, int queueSize, int batchSize, long batchDelayMs,
+            long blockTimeoutMs, long flushTimeoutMs, Metric metric) {
+        this(publisher, queueSize, batchSize, batchDelayMs, blockTimeoutMs, flushTimeoutMs,
+                DEFAULT_RETRY_COUNT, DEFAULT_RETRY_BACKOFF_MS, metric);
+    }
+
+    /**
+     * Create a new async publisher for the given publisher
+     * @param publisher publisher used to publish the messages
+     * @param queueSize maximum number of messages waiting to be published
+     * @param batchSize maximum number of messages published in a single batch
+     * @param batchDelayMs number of milliseconds to wait for additional messages
+     *      before publishing a batch that has less than batchSize messages
+     * @param blockTimeoutMs number of milliseconds the caller is blocked when
+     *      the queue is full before the message is dropped
+     * @param flushTimeoutMs number of milliseconds to wait for the queued
+     *      messages to be published when the publisher is closed
+     * @param retryCount number of times a failed batch is retried
+     * @param retryBackoffMs number of milliseconds to wait before the first
+     *      retry. the wait time is doubled for each following retry
+     * @param metric metric object to report blocked, dropped and failed messages
+     */
+    public AsyncChangePublisher(ChangePublisher<T> publisher, int queueSize, int batchSize, long batchDelayMs,
+            long blockTimeoutMs, long flushTimeoutMs, int retryCount, long retryBackoffMs, Metric metric) {
+
+        this.publisher = publisher;
+        this.messages = new LinkedBlockingQueue<>(queueSize);
+        this.batchSize = Math.max(batchSize, 1);
+        this.batchDelayMs = batchDelayMs;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.flushTimeoutMs = flushTimeoutMs;
+        this.retryCount = Math.max(retryCount, 0);
+        this.retryBackoffMs = Math.max(retryBackoffMs, 0);
+        this.metric = metric;
+
+        publisherThread = new Thread(this::processMessages, "async-change-publisher");
+        publisherThread.setDaemon(true);
+        publisherThread.start();
+    }
+
+    @Override
+    public void publish(T message) {
+
+        if (closed) {
+            dropMessage(message);
+            return;
+        }
+
+        if (messages.offer(message)) {
+            checkClosedAfterQueued(message);
+            return;
+        }
+
+        // our queue is full so we're going to block the caller
+        // for the configured timeout before dropping the message
+
+        blockedCount.incrementAndGet();
+        metric.increment(METRIC_PUBLISH_BLOCKED);
+
+        boolean queued = false;
+        if (blockTimeoutMs > 0) {
+            try {
+                queued = messages.offer(message, blockTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (!queued) {
+            dropMessage(message);
+        } else {
+            checkClosedAfterQueued(message);
+        }
+    }
+
+    void checkClosedAfterQueued(T message) {
+
+        // if the publisher was closed while we were adding our message,
+        // the queue might have already been drained so our message would
+        // never be published or counted. if we're able to remove it,
+        // then it was not picked up by the publisher thread
+
+        if (closed && messages.remove(message)) {
+            dropMessage(message);
+        }
+    }
+
+    void dropMessage(T message) {
+        final long count = droppedCount.incrementAndGet();
+        metric.increment(METRIC_PUBLISH_DROPPED);
+        LOG.error("unable to queue message for publishing, total dropped messages: {}, message: {}",
+                count, message);
+    }
+
+    void processMessages() {
+
+        List<T> batch = new ArrayList<>(batchSize);
+
+        // once we're closed we continue to publish messages
+        // until the queue is empty or the flush timeout expires
+
+        while (!stopped && (!closed || !messages.isEmpty())) {
+            try {
+                T message = messages.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (message == null) {
+                    continue;
+                }
+                batch.add(message);
+                messages.drainTo(batch, batchSize - batch.size());
+
+                // if we don't have a full batch, wait for up to the
+                // configured delay for additional messages
+
+                final long deadline = System.currentTimeMillis() + batchDelayMs;
+                while (batch.size() < batchSize && !closed) {
+                    final long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    message = messages.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (message == null) {
+                        break;
+                    }
+                    batch.add(message);
+                    messages.drainTo(batch, batchSize - batch.size());
+                }
+
+                publishMessages(batch);
+                batch.clear();
+
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // if we were interrupted while waiting for additional
+        // messages then the current batch is dropped
+
+        if (!batch.isEmpty()) {
+            droppedCount.addAndGet(batch.size());
+            metric.increment(METRIC_PUBLISH_DROPPED, null, batch.size());
+        }
+    }
+
+    void publishMessages(List<T> batch) {
+
+        long backoffMs = retryBackoffMs;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                publisher.publishBatch(batch);
+                publishedCount.addAndGet(batch.size());
+                return;
+            } catch (Exception ex) {
+                LOG.error("unable to publish {} messages (attempt {}): {}", batch.size(), attempt + 1,
+                        ex.getMessage(), ex);
+            }
+
+            // we don't retry if we've been stopped by close or we
+            // have reached our retry limit
+
+            if (stopped || attempt >= retryCount || !waitForRetry(backoffMs)) {
+                break;
+            }
+            backoffMs *= 2;
+        }
+
+        failedCount.addAndGet(batch.size());
+        metric.increment(METRIC_PUBLISH_FAILED, null, batch.size());
+    }
+
+    boolean waitForRetry(long backoffMs) {
+        try {
+            Thread.sleep(backoffMs);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+
+        closed = true;
+
+        // wait for the queued messages to be published
+
+        try {
+            publisherThread.join(flushTimeoutMs);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (publisherThread.isAlive()) {
+            LOG.error("unable to publish all queued messages within {} ms", flushTimeoutMs);
+            stopped = true;
+            publisherThread.interrupt();
+
+            // the thread might still be using the publisher so we
+            // need to wait for it to complete before closing it
+
+            try {
+                publisherThread.join(flushTimeoutMs);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (publisherThread.isAlive()) {
+                LOG.error("publisher thread did not stop within {} ms after interrupt", flushTimeoutMs);
+            }
+        }
+
+        // any messages still in our queue are dropped
+
+        List<T> remaining = new ArrayList<>();
+        messages.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            droppedCount.addAndGet(remaining.size());
+            metric.increment(METRIC_PUBLISH_DROPPED, null, remaining.size());
+        }
+
+        publisher.close();
+    }
+
+    public int getQueueSize() {
+        return messages.size();
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    public long getBlockedCount() {
+        return blockedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ *
+ *   Copyright The Athenz Authors
+ *  
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *  
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.common.messaging.impl;
+
+import com.yahoo.athenz.common.messaging.ChangePublisher;
+
+/**
+ * In-process implementation of {@link ChangePublisher} where the messages
+ * are delivered directly to the subscribers created by
+ * {@link InMemoryChangeSubscriberFactory} for the same topic without
+ * any external messaging system. Used for tests and single host
+ * deployments.
+ */
+public class InMemoryChangePublisher<T> implements ChangePublisher<T> {
+
+    private final String topicName;
+    private volatile boolean closed = false;
+
+    public InMemoryChangePublisher(final String topicName) {
+        this.topicName = topicName;
+    }
+
+    @Override
+    public void publish(T message) {
+        if (!closed) {
+            InMemoryChangeSubscriberFactory.publish(topicName, message);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
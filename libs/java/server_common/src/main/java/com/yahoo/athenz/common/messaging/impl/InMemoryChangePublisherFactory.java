@@ -0,0 +1,36 @@
+/*
+ *
+ *   Copyright The Athenz Authors
+ *  
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *  
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.common.messaging.impl;
+
+import com.yahoo.athenz.auth.PrivateKeyStore;
+import com.yahoo.athenz.common.messaging.ChangePublisher;
+import com.yahoo.athenz.common.messaging.ChangePublisherFactory;
+
+/**
+ * Factory for in-process publishers. The messages are delivered to
+ * the subscribers created by {@link InMemoryChangeSubscriberFactory}
+ * for the same topic.
+ */
+public class InMemoryChangePublisherFactory<T> implements ChangePublisherFactory<T> {
+
+    @Override
+    public ChangePublisher<T> create(PrivateKeyStore keyStore, String topicName) {
+        return new InMemoryChangePublisher<>(topicName);
+    }
+}
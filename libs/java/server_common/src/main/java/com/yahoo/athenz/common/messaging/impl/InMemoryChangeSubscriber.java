@@ -0,0 +1,87 @@
+/*
+ *
+ *   Copyright The Athenz Authors
+ *  
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *  
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.common.messaging.impl;
+
+import com.yahoo.athenz.common.messaging.ChangeSubscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-process implementation of {@link ChangeSubscriber} where the messages
+ * are delivered directly through {@link InMemoryChangeSubscriberFactory}
+ * without any external messaging system. Used for tests and single
+ * host deployments.
+ */
+public class InMemoryChangeSubscriber<T> implements ChangeSubscriber<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryChangeSubscriber.class);
+
+    private final BlockingQueue<T> messages = new LinkedBlockingQueue<>();
+    protected Consumer<T> processor;
+    protected Class<T> valueType;
+    private volatile boolean closed = false;
+
+    @Override
+    public void init(Consumer<T> processor, Class<T> valueType) {
+        this.processor = processor;
+        this.valueType = valueType;
+    }
+
+    /**
+     * Queue the given message for processing by the subscriber thread
+     * @param message message to be processed
+     */
+    public void deliver(T message) {
+        if (!closed) {
+            messages.offer(message);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!closed) {
+            try {
+                T message = messages.poll(100, TimeUnit.MILLISECONDS);
+                if (message != null) {
+                    processor.accept(message);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                LOG.error("exception in processing the message: {}", ex.getMessage(), ex);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        messages.clear();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *
+ *   Copyright The Athenz Authors
+ *  
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *  
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.common.messaging.impl;
+
+import com.yahoo.athenz.auth.PrivateKeyStore;
+import com.yahoo.athenz.common.messaging.ChangeSubscriber;
+import com.yahoo.athenz.common.messaging.ChangeSubscriberFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Factory for in-process subscribers. All subscribers created by the
+ * factory are registered based on their topic name so any message
+ * published to the topic with {@link #publish(String, Object)} is
+ * delivered to each subscriber.
+ */
+public class InMemoryChangeSubscriberFactory<T> implements ChangeSubscriberFactory<T> {
+
+    private static final Map<String, List<InMemoryChangeSubscriber<?>>> SUBSCRIBERS = new ConcurrentHashMap<>();
+
+    @Override
+    public ChangeSubscriber<T> create(PrivateKeyStore keyStore, String topicName, String subscriptionName,
+            String subscriptionType) {
+        InMemoryChangeSubscriber<T> subscriber = new InMemoryChangeSubscriber<>();
+        SUBSCRIBERS.computeIfAbsent(topicName, k -> new CopyOnWriteArrayList<>()).add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * Deliver the message to all active subscribers of the given topic
+     * @param topicName name of the topic
+     * @param message message to be delivered
+     * @return number of subscribers the message was delivered to
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> int publish(final String topicName, T message) {
+
+        List<InMemoryChangeSubscriber<?>> subscribers = SUBSCRIBERS.get(topicName);
+        if (subscribers == null) {
+            return 0;
+        }
+
+        int count = 0;
+        for (InMemoryChangeSubscriber<?> subscriber : subscribers) {
+            if (subscriber.isClosed()) {
+                subscribers.remove(subscriber);
+                continue;
+            }
+            ((InMemoryChangeSubscriber<T>) subscriber).deliver(message);
+            count += 1;
+        }
+        return count;
+    }
+
+    /**
+     * Remove all registered subscribers
+     */
+    public static void reset() {
+        SUBSCRIBERS.clear();
+    }
+}
@@ -24,6 +24,7 @@ import com.yahoo.athenz.zms.SignedDomains;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * An interface that ZTSCore depends on to manage its state.
@@ -122,6 +123,28 @@ public interface ChangeLogStore {
      */
     SignedDomains getUpdatedSignedDomains(StringBuilder lastModTimeBuffer);
 
+    /**
+     * Retrieves the domains modified since the last call and passes each
+     * domain to the given consumer as soon as it's available so the caller
+     * does not need to keep the full set of modified domains in memory
+     * @param lastModTimeBuffer StringBuilder object will be updated to include
+     * the last modification time for the request. If data store
+     * successfully updates the local entries in the cache then
+     * it will call setLastModificationTimestamp with the same value
+     * @param domainConsumer consumer for each retrieved SignedDomain object
+     * @return false if unable to retrieve the list of modified domains
+     */
+    default boolean getUpdatedSignedDomains(StringBuilder lastModTimeBuffer, Consumer<SignedDomain> domainConsumer) {
+        SignedDomains signedDomains = getUpdatedSignedDomains(lastModTimeBuffer);
+        if (signedDomains == null) {
+            return lastModTimeBuffer.length() != 0;
+        }
+        if (signedDomains.getDomains() != null) {
+            signedDomains.getDomains().forEach(domainConsumer);
+        }
+        return true;
+    }
+
     /**
      * Returns the list of domains modified since the last call
      * @param lastModTimeBuffer StringBuilder object will be updated to include
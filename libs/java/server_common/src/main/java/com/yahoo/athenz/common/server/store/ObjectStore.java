@@ -15,6 +15,7 @@
  */
 package com.yahoo.athenz.common.server.store;
 
+import com.yahoo.athenz.common.metrics.Metric;
 import com.yahoo.athenz.common.server.ServerResourceException;
 import com.yahoo.athenz.zms.DomainOptions;
 
@@ -54,6 +55,14 @@ public interface ObjectStore {
     default void setDomainOptions(DomainOptions domainOptions) {
     }
 
+    /**
+     * Set the metric object used by the object store to report
+     * timing details for its operations
+     * @param metric metric object
+     */
+    default void setMetric(Metric metric) {
+    }
+
     /**
      * Clear all connections to the object store. This is called when
      * the server tries to write some object to the object store yet
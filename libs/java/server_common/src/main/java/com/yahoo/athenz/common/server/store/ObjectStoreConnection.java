@@ -101,6 +101,22 @@ public interface ObjectStoreConnection extends Closeable {
     Membership getRoleMember(String domainName, String roleName, String member, long expiration, boolean pending) throws ServerResourceException;
     boolean insertRoleMember(String domainName, String roleName, RoleMember roleMember, String principal, String auditRef) throws ServerResourceException;
     boolean deleteRoleMember(String domainName, String roleName, String member, String principal, String auditRef) throws ServerResourceException;
+    default boolean insertRoleMembers(String domainName, String roleName, List<RoleMember> roleMembers, String principal, String auditRef) throws ServerResourceException {
+        for (RoleMember roleMember : roleMembers) {
+            if (!insertRoleMember(domainName, roleName, roleMember, principal, auditRef)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    default boolean deleteRoleMembers(String domainName, String roleName, List<String> members, String principal, String auditRef) throws ServerResourceException {
+        for (String member : members) {
+            if (!deleteRoleMember(domainName, roleName, member, principal, auditRef)) {
+                return false;
+            }
+        }
+        return true;
+    }
     boolean deleteExpiredRoleMember(String domainName, String roleName, String member, String principal, Timestamp expiration, String auditRef) throws ServerResourceException;
     boolean updateRoleMemberDisabledState(String domainName, String roleName, String member, String principal, int disabledState, String auditRef) throws ServerResourceException;
     boolean deletePendingRoleMember(String domainName, String roleName, String member, String principal, String auditRef) throws ServerResourceException;
@@ -128,6 +144,22 @@ public interface ObjectStoreConnection extends Closeable {
     GroupMembership getGroupMember(String domainName, String groupName, String member, long expiration, boolean pending) throws ServerResourceException;
     boolean insertGroupMember(String domainName, String groupName, GroupMember groupMember, String principal, String auditRef) throws ServerResourceException;
     boolean deleteGroupMember(String domainName, String groupName, String member, String principal, String auditRef) throws ServerResourceException;
+    default boolean insertGroupMembers(String domainName, String groupName, List<GroupMember> groupMembers, String principal, String auditRef) throws ServerResourceException {
+        for (GroupMember groupMember : groupMembers) {
+            if (!insertGroupMember(domainName, groupName, groupMember, principal, auditRef)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    default boolean deleteGroupMembers(String domainName, String groupName, List<String> members, String principal, String auditRef) throws ServerResourceException {
+        for (String member : members) {
+            if (!deleteGroupMember(domainName, groupName, member, principal, auditRef)) {
+                return false;
+            }
+        }
+        return true;
+    }
     boolean deleteExpiredGroupMember(String domainName, String groupName, String member, String principal, Timestamp expiration, String auditRef) throws ServerResourceException;
 
     boolean updateGroupMemberDisabledState(String domainName, String groupName, String member, String principal, int disabledState, String auditRef) throws ServerResourceException;
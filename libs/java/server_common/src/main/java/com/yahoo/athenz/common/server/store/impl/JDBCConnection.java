@@ -17,6 +17,7 @@ package com.yahoo.athenz.common.server.store.impl;
 
 import com.yahoo.athenz.auth.AuthorityConsts;
 import com.yahoo.athenz.common.ServerCommonConsts;
+import com.yahoo.athenz.common.metrics.Metric;
 import com.yahoo.athenz.common.server.store.PrincipalGroup;
 import com.yahoo.athenz.common.server.store.PrincipalRole;
 import com.yahoo.athenz.common.server.util.ResourceUtils;
@@ -48,6 +49,8 @@ public class JDBCConnection implements ObjectStoreConnection {
     private static final int MYSQL_ER_TRANSACTION_ROLLBACK_DURING_COMMIT = 3101;
     private static final int MYSQL_ER_DATA_TOO_LONG = 1406;
 
+    private static final int PRINCIPAL_LOOKUP_BATCH_SIZE = 500;
+
     private static final String MYSQL_EXC_STATE_DEADLOCK   = "40001";
     private static final String MYSQL_EXC_STATE_COMM_ERROR = "08S01";
 
@@ -170,6 +173,8 @@ public class JDBCConnection implements ObjectStoreConnection {
             + "WHERE role.role_id=? AND principal.name=?;";
     private static final String SQL_STD_ROLE_MEMBER_EXISTS = "SELECT principal_id FROM role_member WHERE role_id=? AND principal_id=?;";
     private static final String SQL_PENDING_ROLE_MEMBER_EXISTS = "SELECT pending_state FROM pending_role_member WHERE role_id=? AND principal_id=?;";
+    private static final String SQL_LIST_STD_ROLE_MEMBER_IDS = "SELECT principal_id FROM role_member WHERE role_id=?;";
+    private static final String SQL_LIST_PENDING_ROLE_MEMBER_IDS = "SELECT principal_id, pending_state FROM pending_role_member WHERE role_id=?;";
     private static final String SQL_LIST_ROLE_MEMBERS = "SELECT principal.name, role_member.expiration, "
             + "role_member.review_reminder, role_member.active, role_member.audit_ref, role_member.system_disabled, role_member.req_principal FROM principal "
             + "JOIN role_member ON role_member.principal_id=principal.principal_id "
@@ -180,6 +185,7 @@ public class JDBCConnection implements ObjectStoreConnection {
     private static final String SQL_COUNT_ROLE_MEMBERS = "SELECT COUNT(*) FROM role_member WHERE role_id=?;";
     private static final String SQL_GET_PRINCIPAL_ID = "SELECT principal_id FROM principal WHERE name=?;";
     private static final String SQL_INSERT_PRINCIPAL = "INSERT INTO principal (name) VALUES (?);";
+    private static final String SQL_GET_PRINCIPAL_IDS = "SELECT principal_id, name FROM principal WHERE name IN (%s);";
     private static final String SQL_DELETE_PRINCIPAL = "DELETE FROM principal WHERE name=?;";
     private static final String SQL_DELETE_SUB_PRINCIPALS = "DELETE FROM principal WHERE name LIKE ?;";
     private static final String SQL_LIST_PRINCIPAL = "SELECT * FROM principal;";
@@ -507,6 +513,8 @@ public class JDBCConnection implements ObjectStoreConnection {
     private static final String SQL_COUNT_GROUP_MEMBERS = "SELECT COUNT(*) FROM principal_group_member WHERE group_id=?;";
     private static final String SQL_STD_GROUP_MEMBER_EXISTS = "SELECT principal_id FROM principal_group_member WHERE group_id=? AND principal_id=?;";
     private static final String SQL_PENDING_GROUP_MEMBER_EXISTS = "SELECT pending_state FROM pending_principal_group_member WHERE group_id=? AND principal_id=?;";
+    private static final String SQL_LIST_STD_GROUP_MEMBER_IDS = "SELECT principal_id FROM principal_group_member WHERE group_id=?;";
+    private static final String SQL_LIST_PENDING_GROUP_MEMBER_IDS = "SELECT principal_id, pending_state FROM pending_principal_group_member WHERE group_id=?;";
     private static final String SQL_UPDATE_GROUP_MEMBER = "UPDATE principal_group_member "
             + "SET expiration=?, active=?, audit_ref=?, req_principal=? WHERE group_id=? AND principal_id=?;";
     private static final String SQL_UPDATE_GROUP_MEMBER_DISABLED_STATE = "UPDATE principal_group_member "
@@ -745,6 +753,39 @@ public class JDBCConnection implements ObjectStoreConnection {
             + " LEFT JOIN (SELECT audit_log_id FROM principal_group_audit_log WHERE group_id=? ORDER BY created DESC LIMIT ?) AS t2"
             + " ON t1.audit_log_id = t2.audit_log_id WHERE t1.group_id=? AND t2.audit_log_id IS NULL";
 
+    // the domain object tags are retrieved by the domain id so that
+    // all queries in the multi-query statement have the same argument
+
+    private static final String SQL_GET_DOMAIN_ROLE_TAGS_BY_ID = "SELECT r.name, rt.key, rt.value FROM role_tags rt "
+            + "JOIN role r ON rt.role_id = r.role_id WHERE r.domain_id=?;";
+    private static final String SQL_GET_DOMAIN_GROUP_TAGS_BY_ID = "SELECT g.name, gt.key, gt.value FROM group_tags gt "
+            + "JOIN principal_group g ON gt.group_id = g.group_id WHERE g.domain_id=?;";
+    private static final String SQL_GET_DOMAIN_POLICY_TAGS_BY_ID = "SELECT p.name, pt.key, pt.value, p.version FROM policy_tags pt "
+            + "JOIN policy p ON pt.policy_id = p.policy_id WHERE p.domain_id=?;";
+    private static final String SQL_GET_DOMAIN_SERVICE_TAGS_BY_ID = "SELECT s.name, st.key, st.value FROM service_tags st "
+            + "JOIN service s ON st.service_id = s.service_id WHERE s.domain_id=?;";
+    private static final List<String> SQL_GET_DOMAIN_OBJECTS_QUERIES = List.of(
+            SQL_GET_DOMAIN_TAGS, SQL_LIST_DOMAIN_CONTACTS,
+            SQL_GET_DOMAIN_ROLES, SQL_GET_DOMAIN_ROLE_MEMBERS, SQL_GET_DOMAIN_ROLE_TAGS_BY_ID,
+            SQL_GET_DOMAIN_GROUPS, SQL_GET_DOMAIN_GROUP_MEMBERS, SQL_GET_DOMAIN_GROUP_TAGS_BY_ID,
+            SQL_GET_DOMAIN_POLICIES, SQL_GET_DOMAIN_POLICY_ASSERTIONS, SQL_GET_DOMAIN_POLICY_ASSERTIONS_CONDITIONS,
+            SQL_GET_DOMAIN_POLICY_TAGS_BY_ID,
+            SQL_GET_DOMAIN_SERVICES, SQL_GET_DOMAIN_SERVICES_HOSTS, SQL_GET_DOMAIN_SERVICES_PUBLIC_KEYS,
+            SQL_GET_DOMAIN_SERVICE_TAGS_BY_ID,
+            SQL_GET_DOMAIN_ENTITIES);
+    private static final String SQL_GET_DOMAIN_OBJECTS = SQL_GET_DOMAIN_OBJECTS_QUERIES.stream()
+            .map(query -> query.endsWith(";") ? query : query + ";")
+            .collect(Collectors.joining(" "));
+
+    private static final String METRIC_DOMAIN_LOAD_DOMAIN   = "athenz_domain_load_domain";
+    private static final String METRIC_DOMAIN_LOAD_ROLES    = "athenz_domain_load_roles";
+    private static final String METRIC_DOMAIN_LOAD_GROUPS   = "athenz_domain_load_groups";
+    private static final String METRIC_DOMAIN_LOAD_POLICIES = "athenz_domain_load_policies";
+    private static final String METRIC_DOMAIN_LOAD_SERVICES = "athenz_domain_load_services";
+    private static final String METRIC_DOMAIN_LOAD_ENTITIES = "athenz_domain_load_entities";
+    private static final String METRIC_DOMAIN_LOAD_QUERY    = "athenz_domain_load_query";
+    private static final String METRIC_DOMAIN_LOAD_PROCESS  = "athenz_domain_load_process";
+
     private static final String CACHE_DOMAIN    = "d:";
     private static final String CACHE_ROLE      = "r:";
     private static final String CACHE_GROUP     = "g:";
@@ -771,6 +812,8 @@ public class JDBCConnection implements ObjectStoreConnection {
     Map<String, Integer> objectMap;
     boolean transactionCompleted;
     DomainOptions domainOptions;
+    Metric metric;
+    boolean multiQueryDomainLoad = false;
     private int auditLogRoleMaxLimit;
     private int auditLogRoleKeepCount;
     private int auditLogGroupMaxLimit;
@@ -820,6 +863,14 @@ public class JDBCConnection implements ObjectStoreConnection {
         this.serviceTagsLimit = serviceTagsLimit;
     }
 
+    public void setMetric(Metric metric) {
+        this.metric = metric;
+    }
+
+    public void setMultiQueryDomainLoad(boolean multiQueryDomainLoad) {
+        this.multiQueryDomainLoad = multiQueryDomainLoad;
+    }
+
     public void setAuditLogLimits(int auditLogRoleMaxLimit, int auditLogRoleKeepCount, int auditLogGroupMaxLimit,
             int auditLogGroupKeepCount) {
         this.auditLogRoleMaxLimit = auditLogRoleMaxLimit;
@@ -919,6 +970,24 @@ public class JDBCConnection implements ObjectStoreConnection {
         return ps.executeQuery();
     }
 
+    boolean execute(PreparedStatement ps, String caller) throws SQLException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("{}: {}", caller, ps.toString());
+        }
+        ps.setQueryTimeout(queryTimeout);
+        return ps.execute();
+    }
+
+    Object startTiming(final String metricName, final String domainName) {
+        return metric == null ? null : metric.startTiming(metricName, domainName);
+    }
+
+    void stopTiming(Object timerMetric) {
+        if (timerMetric != null) {
+            metric.stopTiming(timerMetric);
+        }
+    }
+
     int[] executeBatch(PreparedStatement ps, String caller) throws SQLException {
         if (LOG.isDebugEnabled()) {
             LOG.debug("{}: {}", caller, ps.toString());
@@ -1612,20 +1681,26 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_TAGS)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    String tagKey = rs.getString(1);
-                    String tagValue = rs.getString(2);
-                    if (domainTag == null) {
-                        domainTag = new HashMap<>();
-                    }
-                    TagValueList tagValues = domainTag.computeIfAbsent(tagKey, k -> new TagValueList().setList(new ArrayList<>()));
-                    tagValues.getList().add(tagValue);
-                }
+                domainTag = readDomainTags(rs);
             }
         }
         return domainTag;
     }
 
+    Map<String, TagValueList> readDomainTags(ResultSet rs) throws SQLException {
+        Map<String, TagValueList> domainTag = null;
+        while (rs.next()) {
+            String tagKey = rs.getString(1);
+            String tagValue = rs.getString(2);
+            if (domainTag == null) {
+                domainTag = new HashMap<>();
+            }
+            TagValueList tagValues = domainTag.computeIfAbsent(tagKey, k -> new TagValueList().setList(new ArrayList<>()));
+            tagValues.getList().add(tagValue);
+        }
+        return domainTag;
+    }
+
     public List<String> lookupDomainByTags(String tagKey, String tagValue) throws ServerResourceException {
         final String caller = "lookupDomainByTags";
 
@@ -2749,6 +2824,161 @@ public class JDBCConnection implements ObjectStoreConnection {
         return hostId;
     }
 
+    /**
+     * Return the ids of the given principals. The principals that are not
+     * in our cache are looked up with IN queries and, if requested, the
+     * missing principals are inserted with a single batch operation.
+     * @param principals list of principal names
+     * @param insertMissing insert the principals that don't exist
+     * @param caller name of the api
+     * @return map of principal names to their ids
+     * @throws ServerResourceException in case of any db failures
+     */
+    Map<String, Integer> getPrincipalIds(List<String> principals, boolean insertMissing,
+            final String caller) throws ServerResourceException {
+
+        Map<String, Integer> principalIds = new HashMap<>();
+        Set<String> missingPrincipals = new LinkedHashSet<>();
+        for (String principal : principals) {
+            Integer value = objectMap.get(CACHE_PRINCIPAL + principal);
+            if (value != null) {
+                principalIds.put(principal, value);
+            } else {
+                missingPrincipals.add(principal);
+            }
+        }
+
+        lookupPrincipalIds(missingPrincipals, principalIds, caller);
+        missingPrincipals.removeIf(principalIds::containsKey);
+
+        if (!insertMissing || missingPrincipals.isEmpty()) {
+            return principalIds;
+        }
+
+        try (PreparedStatement ps = con.prepareStatement(SQL_INSERT_PRINCIPAL)) {
+            for (String principal : missingPrincipals) {
+                ps.setString(1, principal);
+                ps.addBatch();
+            }
+            executeBatch(ps, caller);
+        } catch (SQLException ex) {
+
+            // another thread might have inserted some of the same principals
+            // so we'll ignore the duplicate entry exception and look up
+            // the ids for all the principals that we tried to insert
+
+            if (ex.getErrorCode() != MYSQL_ER_OPTION_DUPLICATE_ENTRY) {
+                throw sqlError(ex, caller);
+            }
+        }
+
+        // if we still get no response for any of the principals, then
+        // the other thread hasn't completed its transaction yet, so we
+        // return a conflict exception so the server can retry its operation
+
+        lookupPrincipalIds(missingPrincipals, principalIds, caller);
+        for (String principal : missingPrincipals) {
+            if (!principalIds.containsKey(principal)) {
+                throw sqlError(new SQLException("insert principal lock conflict", MYSQL_EXC_STATE_DEADLOCK), caller);
+            }
+        }
+        return principalIds;
+    }
+
+    void lookupPrincipalIds(Collection<String> principals, Map<String, Integer> principalIds,
+            final String caller) throws ServerResourceException {
+
+        List<String> names = new ArrayList<>(principals);
+        for (int start = 0; start < names.size(); start += PRINCIPAL_LOOKUP_BATCH_SIZE) {
+
+            List<String> batch = names.subList(start, Math.min(start + PRINCIPAL_LOOKUP_BATCH_SIZE, names.size()));
+            final String placeholders = String.join(",", Collections.nCopies(batch.size(), "?"));
+
+            try (PreparedStatement ps = con.prepareStatement(String.format(SQL_GET_PRINCIPAL_IDS, placeholders))) {
+                int paramIndex = 1;
+                for (String name : batch) {
+                    ps.setString(paramIndex++, name);
+                }
+                try (ResultSet rs = executeQuery(ps, caller)) {
+                    while (rs.next()) {
+                        final int principalId = rs.getInt(1);
+                        final String name = rs.getString(2);
+                        principalIds.put(name, principalId);
+                        objectMap.put(CACHE_PRINCIPAL + name, principalId);
+                    }
+                }
+            } catch (SQLException ex) {
+                throw sqlError(ex, caller);
+            }
+        }
+    }
+
+    /**
+     * Return the principal ids of the current members of the given role
+     * or group mapped to their pending state (empty for standard members)
+     */
+    Map<Integer, String> getMemberPrincipalIds(final String sqlCommand, int objectId, boolean pending,
+            final String caller) throws ServerResourceException {
+
+        Map<Integer, String> members = new HashMap<>();
+        try (PreparedStatement ps = con.prepareStatement(sqlCommand)) {
+            ps.setInt(1, objectId);
+            try (ResultSet rs = executeQuery(ps, caller)) {
+                while (rs.next()) {
+                    members.put(rs.getInt(1), pending ? rs.getString(2) : "");
+                }
+            }
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+        return members;
+    }
+
+    boolean memberExists(Map<Integer, String> stdMembers, Map<Integer, String> pendingMembers, int principalId,
+            final String principal, final String pendingState, final String caller) throws ServerResourceException {
+
+        // same checks as in roleMemberExists and groupMemberExists
+        // but with the members already retrieved from the db
+
+        if (StringUtil.isEmpty(pendingState)) {
+            return stdMembers.containsKey(principalId);
+        }
+        if (!pendingMembers.containsKey(principalId)) {
+            return false;
+        }
+        final String currentState = pendingMembers.get(principalId);
+        if (currentState != null && !currentState.equals(pendingState)) {
+            throw Utils.requestError("The user " + principal + " already has a pending request in a different state", caller);
+        }
+        return true;
+    }
+
+    void markMemberExists(Map<Integer, String> stdMembers, Map<Integer, String> pendingMembers, int principalId,
+            final String pendingState) {
+        if (StringUtil.isEmpty(pendingState)) {
+            stdMembers.put(principalId, "");
+        } else {
+            pendingMembers.put(principalId, pendingState);
+        }
+    }
+
+    boolean executeMemberBatch(PreparedStatement ps, int batchCount, boolean checkResults,
+            final String caller) throws SQLException {
+
+        if (batchCount == 0) {
+            return true;
+        }
+        int[] results = executeBatch(ps, caller);
+        if (checkResults) {
+            for (int result : results) {
+                if (result == 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     boolean roleMemberExists(int roleId, int principalId, String principal, String pendingState, final String caller) throws ServerResourceException {
         boolean pending = !StringUtil.isEmpty(pendingState);
         String statement =  pending ? SQL_PENDING_ROLE_MEMBER_EXISTS : SQL_STD_ROLE_MEMBER_EXISTS;
@@ -2928,6 +3158,186 @@ public class JDBCConnection implements ObjectStoreConnection {
         return result;
     }
 
+    @Override
+    public boolean insertRoleMembers(String domainName, String roleName, List<RoleMember> roleMembers,
+            String admin, String auditRef) throws ServerResourceException {
+
+        final String caller = "insertRoleMembers";
+
+        int domainId = getDomainId(domainName);
+        if (domainId == 0) {
+            throw notFoundError(caller, JDBCConsts.OBJECT_DOMAIN, domainName);
+        }
+        int roleId = getRoleId(domainId, roleName);
+        if (roleId == 0) {
+            throw notFoundError(caller, JDBCConsts.OBJECT_ROLE, ResourceUtils.roleResourceName(domainName, roleName));
+        }
+        List<String> principals = new ArrayList<>();
+        for (RoleMember roleMember : roleMembers) {
+            final String principal = roleMember.getMemberName();
+            if (!validatePrincipalDomain(principal)) {
+                throw notFoundError(caller, JDBCConsts.OBJECT_DOMAIN, principal);
+            }
+            principals.add(principal);
+        }
+
+        // resolve all principal ids and current members with a fixed
+        // number of queries instead of separate queries per member
+
+        Map<String, Integer> principalIds = getPrincipalIds(principals, true, caller);
+        Map<Integer, String> stdMembers = getMemberPrincipalIds(SQL_LIST_STD_ROLE_MEMBER_IDS, roleId, false, caller);
+        Map<Integer, String> pendingMembers = getMemberPrincipalIds(SQL_LIST_PENDING_ROLE_MEMBER_IDS, roleId, true, caller);
+
+        enforceRoleAuditLogLimit(roleId, roleMembers.size(), caller);
+
+        try (PreparedStatement psInsert = con.prepareStatement(SQL_INSERT_ROLE_MEMBER);
+             PreparedStatement psUpdate = con.prepareStatement(SQL_UPDATE_ROLE_MEMBER);
+             PreparedStatement psInsertPending = con.prepareStatement(SQL_INSERT_PENDING_ROLE_MEMBER);
+             PreparedStatement psUpdatePending = con.prepareStatement(SQL_UPDATE_PENDING_ROLE_MEMBER);
+             PreparedStatement psAuditLog = con.prepareStatement(SQL_INSERT_ROLE_AUDIT_LOG)) {
+
+            int insertCount = 0;
+            int updateCount = 0;
+            int insertPendingCount = 0;
+            int updatePendingCount = 0;
+
+            for (RoleMember roleMember : roleMembers) {
+
+                final String principal = roleMember.getMemberName();
+                final int principalId = principalIds.get(principal);
+                final String pendingState = roleMember.getPendingState();
+                boolean roleMemberExists = memberExists(stdMembers, pendingMembers, principalId,
+                        principal, pendingState, caller);
+
+                java.sql.Timestamp expiration = roleMember.getExpiration() == null ? null :
+                        new java.sql.Timestamp(roleMember.getExpiration().millis());
+                java.sql.Timestamp reviewReminder = roleMember.getReviewReminder() == null ? null :
+                        new java.sql.Timestamp(roleMember.getReviewReminder().millis());
+
+                String auditOperation;
+                if (roleMember.getApproved() == Boolean.FALSE) {
+                    if (roleMemberExists) {
+                        psUpdatePending.setTimestamp(1, expiration);
+                        psUpdatePending.setTimestamp(2, reviewReminder);
+                        psUpdatePending.setString(3, processInsertValue(auditRef));
+                        psUpdatePending.setString(4, processInsertValue(admin));
+                        psUpdatePending.setInt(5, roleId);
+                        psUpdatePending.setInt(6, principalId);
+                        psUpdatePending.addBatch();
+                        updatePendingCount += 1;
+                    } else {
+                        psInsertPending.setInt(1, roleId);
+                        psInsertPending.setInt(2, principalId);
+                        psInsertPending.setTimestamp(3, expiration);
+                        psInsertPending.setTimestamp(4, reviewReminder);
+                        psInsertPending.setString(5, processInsertValue(auditRef));
+                        psInsertPending.setString(6, processInsertValue(admin));
+                        psInsertPending.setString(7, pendingState);
+                        psInsertPending.addBatch();
+                        insertPendingCount += 1;
+                    }
+                    auditOperation = AUDIT_OPERATION_REQUEST;
+                } else if (roleMemberExists) {
+                    psUpdate.setTimestamp(1, expiration);
+                    psUpdate.setTimestamp(2, reviewReminder);
+                    psUpdate.setBoolean(3, processInsertValue(roleMember.getActive(), true));
+                    psUpdate.setString(4, processInsertValue(auditRef));
+                    psUpdate.setString(5, processInsertValue(roleMember.getRequestPrincipal()));
+                    psUpdate.setInt(6, roleId);
+                    psUpdate.setInt(7, principalId);
+                    psUpdate.addBatch();
+                    updateCount += 1;
+                    auditOperation = AUDIT_OPERATION_UPDATE;
+                } else {
+                    psInsert.setInt(1, roleId);
+                    psInsert.setInt(2, principalId);
+                    psInsert.setTimestamp(3, expiration);
+                    psInsert.setTimestamp(4, reviewReminder);
+                    psInsert.setBoolean(5, processInsertValue(roleMember.getActive(), true));
+                    psInsert.setString(6, processInsertValue(auditRef));
+                    psInsert.setString(7, processInsertValue(roleMember.getRequestPrincipal()));
+                    psInsert.addBatch();
+                    insertCount += 1;
+                    auditOperation = AUDIT_OPERATION_ADD;
+                }
+
+                // if the same principal is included multiple times, the
+                // following entries are processed as updates
+
+                markMemberExists(stdMembers, pendingMembers, principalId, pendingState);
+
+                psAuditLog.setInt(1, roleId);
+                psAuditLog.setString(2, processInsertValue(admin));
+                psAuditLog.setString(3, principal);
+                psAuditLog.setString(4, auditOperation);
+                psAuditLog.setString(5, processInsertValue(auditRef));
+                psAuditLog.addBatch();
+            }
+
+            // the inserts must be executed before the updates since
+            // duplicate entries in the list are processed as updates
+
+            if (!executeMemberBatch(psInsert, insertCount, true, caller)
+                    || !executeMemberBatch(psUpdate, updateCount, false, caller)
+                    || !executeMemberBatch(psInsertPending, insertPendingCount, true, caller)
+                    || !executeMemberBatch(psUpdatePending, updatePendingCount, true, caller)) {
+                return false;
+            }
+            return executeMemberBatch(psAuditLog, roleMembers.size(), true, caller);
+
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+    }
+
+    @Override
+    public boolean deleteRoleMembers(String domainName, String roleName, List<String> members,
+            String admin, String auditRef) throws ServerResourceException {
+
+        final String caller = "deleteRoleMembers";
+
+        int domainId = getDomainId(domainName);
+        if (domainId == 0) {
+            throw notFoundError(caller, JDBCConsts.OBJECT_DOMAIN, domainName);
+        }
+        int roleId = getRoleId(domainId, roleName);
+        if (roleId == 0) {
+            throw notFoundError(caller, JDBCConsts.OBJECT_ROLE, ResourceUtils.roleResourceName(domainName, roleName));
+        }
+        Map<String, Integer> principalIds = getPrincipalIds(members, false, caller);
+
+        enforceRoleAuditLogLimit(roleId, members.size(), caller);
+
+        try (PreparedStatement psDelete = con.prepareStatement(SQL_DELETE_ROLE_MEMBER);
+             PreparedStatement psAuditLog = con.prepareStatement(SQL_INSERT_ROLE_AUDIT_LOG)) {
+
+            for (String principal : members) {
+                Integer principalId = principalIds.get(principal);
+                if (principalId == null) {
+                    throw notFoundError(caller, JDBCConsts.OBJECT_PRINCIPAL, principal);
+                }
+                psDelete.setInt(1, roleId);
+                psDelete.setInt(2, principalId);
+                psDelete.addBatch();
+
+                psAuditLog.setInt(1, roleId);
+                psAuditLog.setString(2, processInsertValue(admin));
+                psAuditLog.setString(3, principal);
+                psAuditLog.setString(4, AUDIT_OPERATION_DELETE);
+                psAuditLog.setString(5, processInsertValue(auditRef));
+                psAuditLog.addBatch();
+            }
+
+            if (!executeMemberBatch(psDelete, members.size(), true, caller)) {
+                return false;
+            }
+            return executeMemberBatch(psAuditLog, members.size(), true, caller);
+
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+    }
+
     @Override
     public boolean updateRoleMemberDisabledState(String domainName, String roleName, String principal,
             String admin, int disabledState, String auditRef) throws ServerResourceException {
@@ -4250,11 +4660,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_ROLES)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    final String roleName = rs.getString(JDBCConsts.DB_COLUMN_NAME);
-                    Role role = retrieveRole(rs, domainName, roleName);
-                    roleMap.put(roleName, role);
-                }
+                readDomainRoles(rs, domainName, roleMap);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
@@ -4263,31 +4669,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_ROLE_MEMBERS)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    String roleName = rs.getString(1);
-                    Role role = roleMap.get(roleName);
-                    if (role == null) {
-                        continue;
-                    }
-                    List<RoleMember> members = role.getRoleMembers();
-                    if (members == null) {
-                        members = new ArrayList<>();
-                        role.setRoleMembers(members);
-                    }
-                    RoleMember roleMember = new RoleMember();
-                    roleMember.setMemberName(rs.getString(2));
-                    java.sql.Timestamp expiration = rs.getTimestamp(3);
-                    if (expiration != null) {
-                        roleMember.setExpiration(Timestamp.fromMillis(expiration.getTime()));
-                    }
-                    java.sql.Timestamp reviewReminder = rs.getTimestamp(4);
-                    if (reviewReminder != null) {
-                        roleMember.setReviewReminder(Timestamp.fromMillis(reviewReminder.getTime()));
-                    }
-                    roleMember.setSystemDisabled(nullIfDefaultValue(rs.getInt(5), 0));
-                    roleMember.setRequestPrincipal(rs.getString(6));
-                    members.add(roleMember);
-                }
+                readDomainRoleMembers(rs, roleMap);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
@@ -4299,6 +4681,42 @@ public class JDBCConnection implements ObjectStoreConnection {
         athenzDomain.getRoles().addAll(roleMap.values());
     }
 
+    void readDomainRoles(ResultSet rs, String domainName, Map<String, Role> roleMap) throws SQLException {
+        while (rs.next()) {
+            final String roleName = rs.getString(JDBCConsts.DB_COLUMN_NAME);
+            Role role = retrieveRole(rs, domainName, roleName);
+            roleMap.put(roleName, role);
+        }
+    }
+
+    void readDomainRoleMembers(ResultSet rs, Map<String, Role> roleMap) throws SQLException {
+        while (rs.next()) {
+            String roleName = rs.getString(1);
+            Role role = roleMap.get(roleName);
+            if (role == null) {
+                continue;
+            }
+            List<RoleMember> members = role.getRoleMembers();
+            if (members == null) {
+                members = new ArrayList<>();
+                role.setRoleMembers(members);
+            }
+            RoleMember roleMember = new RoleMember();
+            roleMember.setMemberName(rs.getString(2));
+            java.sql.Timestamp expiration = rs.getTimestamp(3);
+            if (expiration != null) {
+                roleMember.setExpiration(Timestamp.fromMillis(expiration.getTime()));
+            }
+            java.sql.Timestamp reviewReminder = rs.getTimestamp(4);
+            if (reviewReminder != null) {
+                roleMember.setReviewReminder(Timestamp.fromMillis(reviewReminder.getTime()));
+            }
+            roleMember.setSystemDisabled(nullIfDefaultValue(rs.getInt(5), 0));
+            roleMember.setRequestPrincipal(rs.getString(6));
+            members.add(roleMember);
+        }
+    }
+
     void getAthenzDomainGroups(String domainName, int domainId, AthenzDomain athenzDomain) throws ServerResourceException {
 
         final String caller = "getAthenzDomain";
@@ -4306,11 +4724,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_GROUPS)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    final String groupName = rs.getString(JDBCConsts.DB_COLUMN_NAME);
-                    Group group = retrieveGroup(rs, domainName, groupName);
-                    groupMap.put(groupName, group);
-                }
+                readDomainGroups(rs, domainName, groupMap);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
@@ -4319,27 +4733,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_GROUP_MEMBERS)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    final String groupName = rs.getString(1);
-                    Group group = groupMap.get(groupName);
-                    if (group == null) {
-                        continue;
-                    }
-                    List<GroupMember> members = group.getGroupMembers();
-                    if (members == null) {
-                        members = new ArrayList<>();
-                        group.setGroupMembers(members);
-                    }
-                    GroupMember groupMember = new GroupMember();
-                    groupMember.setMemberName(rs.getString(2));
-                    groupMember.setGroupName(group.getName());
-                    java.sql.Timestamp expiration = rs.getTimestamp(3);
-                    if (expiration != null) {
-                        groupMember.setExpiration(Timestamp.fromMillis(expiration.getTime()));
-                    }
-                    groupMember.setSystemDisabled(nullIfDefaultValue(rs.getInt(4), 0));
-                    members.add(groupMember);
-                }
+                readDomainGroupMembers(rs, groupMap);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
@@ -4351,6 +4745,38 @@ public class JDBCConnection implements ObjectStoreConnection {
         athenzDomain.getGroups().addAll(groupMap.values());
     }
 
+    void readDomainGroups(ResultSet rs, String domainName, Map<String, Group> groupMap) throws SQLException {
+        while (rs.next()) {
+            final String groupName = rs.getString(JDBCConsts.DB_COLUMN_NAME);
+            Group group = retrieveGroup(rs, domainName, groupName);
+            groupMap.put(groupName, group);
+        }
+    }
+
+    void readDomainGroupMembers(ResultSet rs, Map<String, Group> groupMap) throws SQLException {
+        while (rs.next()) {
+            final String groupName = rs.getString(1);
+            Group group = groupMap.get(groupName);
+            if (group == null) {
+                continue;
+            }
+            List<GroupMember> members = group.getGroupMembers();
+            if (members == null) {
+                members = new ArrayList<>();
+                group.setGroupMembers(members);
+            }
+            GroupMember groupMember = new GroupMember();
+            groupMember.setMemberName(rs.getString(2));
+            groupMember.setGroupName(group.getName());
+            java.sql.Timestamp expiration = rs.getTimestamp(3);
+            if (expiration != null) {
+                groupMember.setExpiration(Timestamp.fromMillis(expiration.getTime()));
+            }
+            groupMember.setSystemDisabled(nullIfDefaultValue(rs.getInt(4), 0));
+            members.add(groupMember);
+        }
+    }
+
     void getAthenzDomainPolicies(String domainName, int domainId, AthenzDomain athenzDomain) throws ServerResourceException {
 
         final String caller = "getAthenzDomain";
@@ -4358,11 +4784,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_POLICIES)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    int policyId = rs.getInt(JDBCConsts.DB_COLUMN_POLICY_ID);
-                    final String policyName = rs.getString(JDBCConsts.DB_COLUMN_NAME);
-                    policyMap.put(policyId, savePolicySettings(domainName, policyName, rs));
-                }
+                readDomainPolicies(rs, domainName, policyMap);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
@@ -4372,27 +4794,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_POLICY_ASSERTIONS)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    int policyId = rs.getInt(JDBCConsts.DB_COLUMN_POLICY_ID);
-                    Policy policy = policyMap.get(policyId);
-                    if (policy == null) {
-                        continue;
-                    }
-                    List<Assertion> assertions = policy.getAssertions();
-                    if (assertions == null) {
-                        assertions = new ArrayList<>();
-                        policy.setAssertions(assertions);
-                    }
-                    Assertion assertion = new Assertion();
-                    assertion.setRole(ResourceUtils.roleResourceName(domainName, rs.getString(JDBCConsts.DB_COLUMN_ROLE)));
-                    assertion.setResource(rs.getString(JDBCConsts.DB_COLUMN_RESOURCE));
-                    assertion.setAction(rs.getString(JDBCConsts.DB_COLUMN_ACTION));
-                    assertion.setEffect(AssertionEffect.valueOf(rs.getString(JDBCConsts.DB_COLUMN_EFFECT)));
-                    assertion.setId(rs.getLong(JDBCConsts.DB_COLUMN_ASSERT_ID));
-
-                    assertions.add(assertion);
-                    assertionsMap.put(assertion.getId(), assertion);
-                }
+                readDomainPolicyAssertions(rs, domainName, policyMap, assertionsMap);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
@@ -4400,40 +4802,10 @@ public class JDBCConnection implements ObjectStoreConnection {
 
         // assertion conditions fetch
 
-        Map<String, AssertionCondition> assertionConditionMap = new HashMap<>();
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_POLICY_ASSERTIONS_CONDITIONS)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    long assertionId = rs.getLong(JDBCConsts.DB_COLUMN_ASSERT_ID);
-                    Assertion assertion = assertionsMap.get(assertionId);
-                    if (assertion == null) {
-                        continue;
-                    }
-                    AssertionConditions assertionConditions = assertion.getConditions();
-                    if (assertionConditions == null) {
-                        assertionConditions = new AssertionConditions();
-                        List<AssertionCondition> assertionConditionList = new ArrayList<>();
-                        assertionConditions.setConditionsList(assertionConditionList);
-                        assertion.setConditions(assertionConditions);
-                    }
-                    int conditionId = rs.getInt(JDBCConsts.DB_COLUMN_CONDITION_ID);
-                    AssertionCondition assertionCondition = assertionConditionMap.get(assertionId + ":" + conditionId);
-                    if (assertionCondition == null) {
-                        assertionCondition = new AssertionCondition();
-                        Map<String, AssertionConditionData> assertionConditionDataMap = new HashMap<>();
-                        assertionCondition.setConditionsMap(assertionConditionDataMap);
-                        assertionCondition.setId(conditionId);
-                        assertionConditionMap.put(assertionId + ":" + conditionId, assertionCondition);
-                        assertionConditions.getConditionsList().add(assertionCondition);
-                    }
-                    AssertionConditionData assertionConditionData = new AssertionConditionData();
-                    if (rs.getString(JDBCConsts.DB_COLUMN_OPERATOR) != null) {
-                        assertionConditionData.setOperator(AssertionConditionOperator.fromString(rs.getString(JDBCConsts.DB_COLUMN_OPERATOR)));
-                    }
-                    assertionConditionData.setValue(rs.getString(JDBCConsts.DB_COLUMN_VALUE));
-                    assertionCondition.getConditionsMap().put(rs.getString(JDBCConsts.DB_COLUMN_KEY), assertionConditionData);
-                }
+                readDomainPolicyAssertionConditions(rs, assertionsMap);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
@@ -4445,9 +4817,79 @@ public class JDBCConnection implements ObjectStoreConnection {
         athenzDomain.getPolicies().addAll(policyMap.values());
     }
 
+    void readDomainPolicies(ResultSet rs, String domainName, Map<Integer, Policy> policyMap) throws SQLException {
+        while (rs.next()) {
+            int policyId = rs.getInt(JDBCConsts.DB_COLUMN_POLICY_ID);
+            final String policyName = rs.getString(JDBCConsts.DB_COLUMN_NAME);
+            policyMap.put(policyId, savePolicySettings(domainName, policyName, rs));
+        }
+    }
+
+    void readDomainPolicyAssertions(ResultSet rs, String domainName, Map<Integer, Policy> policyMap,
+            Map<Long, Assertion> assertionsMap) throws SQLException {
+        while (rs.next()) {
+            int policyId = rs.getInt(JDBCConsts.DB_COLUMN_POLICY_ID);
+            Policy policy = policyMap.get(policyId);
+            if (policy == null) {
+                continue;
+            }
+            List<Assertion> assertions = policy.getAssertions();
+            if (assertions == null) {
+                assertions = new ArrayList<>();
+                policy.setAssertions(assertions);
+            }
+            Assertion assertion = new Assertion();
+            assertion.setRole(ResourceUtils.roleResourceName(domainName, rs.getString(JDBCConsts.DB_COLUMN_ROLE)));
+            assertion.setResource(rs.getString(JDBCConsts.DB_COLUMN_RESOURCE));
+            assertion.setAction(rs.getString(JDBCConsts.DB_COLUMN_ACTION));
+            assertion.setEffect(AssertionEffect.valueOf(rs.getString(JDBCConsts.DB_COLUMN_EFFECT)));
+            assertion.setId(rs.getLong(JDBCConsts.DB_COLUMN_ASSERT_ID));
+
+            assertions.add(assertion);
+            assertionsMap.put(assertion.getId(), assertion);
+        }
+    }
+
+    void readDomainPolicyAssertionConditions(ResultSet rs, Map<Long, Assertion> assertionsMap) throws SQLException {
+        Map<String, AssertionCondition> assertionConditionMap = new HashMap<>();
+        while (rs.next()) {
+            long assertionId = rs.getLong(JDBCConsts.DB_COLUMN_ASSERT_ID);
+            Assertion assertion = assertionsMap.get(assertionId);
+            if (assertion == null) {
+                continue;
+            }
+            AssertionConditions assertionConditions = assertion.getConditions();
+            if (assertionConditions == null) {
+                assertionConditions = new AssertionConditions();
+                List<AssertionCondition> assertionConditionList = new ArrayList<>();
+                assertionConditions.setConditionsList(assertionConditionList);
+                assertion.setConditions(assertionConditions);
+            }
+            int conditionId = rs.getInt(JDBCConsts.DB_COLUMN_CONDITION_ID);
+            AssertionCondition assertionCondition = assertionConditionMap.get(assertionId + ":" + conditionId);
+            if (assertionCondition == null) {
+                assertionCondition = new AssertionCondition();
+                Map<String, AssertionConditionData> assertionConditionDataMap = new HashMap<>();
+                assertionCondition.setConditionsMap(assertionConditionDataMap);
+                assertionCondition.setId(conditionId);
+                assertionConditionMap.put(assertionId + ":" + conditionId, assertionCondition);
+                assertionConditions.getConditionsList().add(assertionCondition);
+            }
+            AssertionConditionData assertionConditionData = new AssertionConditionData();
+            if (rs.getString(JDBCConsts.DB_COLUMN_OPERATOR) != null) {
+                assertionConditionData.setOperator(AssertionConditionOperator.fromString(rs.getString(JDBCConsts.DB_COLUMN_OPERATOR)));
+            }
+            assertionConditionData.setValue(rs.getString(JDBCConsts.DB_COLUMN_VALUE));
+            assertionCondition.getConditionsMap().put(rs.getString(JDBCConsts.DB_COLUMN_KEY), assertionConditionData);
+        }
+    }
+
     void addTagsToPolicies(Map<Integer, Policy> policyMap, String domainName) throws ServerResourceException {
+        addTagsToPolicies(policyMap, domainName, getDomainPolicyTags(domainName));
+    }
 
-        Map<String, Map<String, TagValueList>> domainPolicyTags = getDomainPolicyTags(domainName);
+    void addTagsToPolicies(Map<Integer, Policy> policyMap, String domainName,
+            Map<String, Map<String, TagValueList>> domainPolicyTags) {
         if (domainPolicyTags != null) {
             for (Map.Entry<Integer, Policy> policyEntry : policyMap.entrySet()) {
                 Map<String, TagValueList> policyTag = domainPolicyTags.get(Utils.extractPolicyName(domainName, policyEntry.getValue().name) + ":" + policyEntry.getValue().getVersion());
@@ -4465,18 +4907,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_POLICY_TAGS)) {
             ps.setString(1, domainName);
             try (ResultSet rs = executeQuery(ps, funcCaller)) {
-                while (rs.next()) {
-                    String resourceName = rs.getString(1);
-                    String tagKey = rs.getString(2);
-                    String tagValue = rs.getString(3);
-                    String version = rs.getString(4);
-                    if (domainResourceTags == null) {
-                        domainResourceTags = new HashMap<>();
-                    }
-                    Map<String, TagValueList> resourceTag = domainResourceTags.computeIfAbsent(resourceName + ":" + version, tags -> new HashMap<>());
-                    TagValueList tagValues = resourceTag.computeIfAbsent(tagKey, k -> new TagValueList().setList(new ArrayList<>()));
-                    tagValues.getList().add(tagValue);
-                }
+                domainResourceTags = readDomainPolicyTags(rs);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, funcCaller);
@@ -4484,6 +4915,23 @@ public class JDBCConnection implements ObjectStoreConnection {
         return domainResourceTags;
     }
 
+    Map<String, Map<String, TagValueList>> readDomainPolicyTags(ResultSet rs) throws SQLException {
+        Map<String, Map<String, TagValueList>> domainResourceTags = null;
+        while (rs.next()) {
+            String resourceName = rs.getString(1);
+            String tagKey = rs.getString(2);
+            String tagValue = rs.getString(3);
+            String version = rs.getString(4);
+            if (domainResourceTags == null) {
+                domainResourceTags = new HashMap<>();
+            }
+            Map<String, TagValueList> resourceTag = domainResourceTags.computeIfAbsent(resourceName + ":" + version, tags -> new HashMap<>());
+            TagValueList tagValues = resourceTag.computeIfAbsent(tagKey, k -> new TagValueList().setList(new ArrayList<>()));
+            tagValues.getList().add(tagValue);
+        }
+        return domainResourceTags;
+    }
+
     @Override
     public boolean insertPolicyTags(String policyName, String domainName, Map<String, TagValueList> policyTags, String version) throws ServerResourceException {
         final String caller = "insertPolicyTags";
@@ -4599,13 +5047,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_SERVICES)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    String serviceName = rs.getString(JDBCConsts.DB_COLUMN_NAME);
-                    ServiceIdentity service = saveServiceIdentitySettings(domainName, serviceName, rs);
-                    List<PublicKeyEntry> publicKeys = new ArrayList<>();
-                    service.setPublicKeys(publicKeys);
-                    serviceMap.put(serviceName, service);
-                }
+                readDomainServices(rs, domainName, serviceMap);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
@@ -4614,19 +5056,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_SERVICES_HOSTS)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    String serviceName = rs.getString(1);
-                    ServiceIdentity service = serviceMap.get(serviceName);
-                    if (service == null) {
-                        continue;
-                    }
-                    List<String> hosts = service.getHosts();
-                    if (hosts == null) {
-                        hosts = new ArrayList<>();
-                        service.setHosts(hosts);
-                    }
-                    hosts.add(rs.getString(2));
-                }
+                readDomainServiceHosts(rs, serviceMap);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
@@ -4635,17 +5065,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_SERVICES_PUBLIC_KEYS)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    String serviceName = rs.getString(1);
-                    ServiceIdentity service = serviceMap.get(serviceName);
-                    if (service == null) {
-                        continue;
-                    }
-                    PublicKeyEntry publicKey = new PublicKeyEntry()
-                            .setId(rs.getString(JDBCConsts.DB_COLUMN_KEY_ID))
-                            .setKey(rs.getString(JDBCConsts.DB_COLUMN_KEY_VALUE));
-                    service.getPublicKeys().add(publicKey);
-                }
+                readDomainServicePublicKeys(rs, serviceMap);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
@@ -4657,23 +5077,183 @@ public class JDBCConnection implements ObjectStoreConnection {
         athenzDomain.getServices().addAll(serviceMap.values());
     }
 
+    void readDomainServices(ResultSet rs, String domainName, Map<String, ServiceIdentity> serviceMap) throws SQLException {
+        while (rs.next()) {
+            String serviceName = rs.getString(JDBCConsts.DB_COLUMN_NAME);
+            ServiceIdentity service = saveServiceIdentitySettings(domainName, serviceName, rs);
+            List<PublicKeyEntry> publicKeys = new ArrayList<>();
+            service.setPublicKeys(publicKeys);
+            serviceMap.put(serviceName, service);
+        }
+    }
+
+    void readDomainServiceHosts(ResultSet rs, Map<String, ServiceIdentity> serviceMap) throws SQLException {
+        while (rs.next()) {
+            String serviceName = rs.getString(1);
+            ServiceIdentity service = serviceMap.get(serviceName);
+            if (service == null) {
+                continue;
+            }
+            List<String> hosts = service.getHosts();
+            if (hosts == null) {
+                hosts = new ArrayList<>();
+                service.setHosts(hosts);
+            }
+            hosts.add(rs.getString(2));
+        }
+    }
+
+    void readDomainServicePublicKeys(ResultSet rs, Map<String, ServiceIdentity> serviceMap) throws SQLException {
+        while (rs.next()) {
+            String serviceName = rs.getString(1);
+            ServiceIdentity service = serviceMap.get(serviceName);
+            if (service == null) {
+                continue;
+            }
+            PublicKeyEntry publicKey = new PublicKeyEntry()
+                    .setId(rs.getString(JDBCConsts.DB_COLUMN_KEY_ID))
+                    .setKey(rs.getString(JDBCConsts.DB_COLUMN_KEY_VALUE));
+            service.getPublicKeys().add(publicKey);
+        }
+    }
+
     void getAthenzDomainEntities(String domainName, int domainId, AthenzDomain athenzDomain) throws ServerResourceException {
 
         final String caller = "getAthenzDomain";
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_ENTITIES)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    athenzDomain.getEntities().add(new Entity()
-                            .setName(ResourceUtils.entityResourceName(domainName, rs.getString(JDBCConsts.DB_COLUMN_NAME)))
-                            .setValue(JSON.fromString(rs.getString(JDBCConsts.DB_COLUMN_VALUE), Struct.class)));
-                }
+                readDomainEntities(rs, domainName, athenzDomain);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
         }
     }
 
+    void readDomainEntities(ResultSet rs, String domainName, AthenzDomain athenzDomain) throws SQLException {
+        while (rs.next()) {
+            athenzDomain.getEntities().add(new Entity()
+                    .setName(ResourceUtils.entityResourceName(domainName, rs.getString(JDBCConsts.DB_COLUMN_NAME)))
+                    .setValue(JSON.fromString(rs.getString(JDBCConsts.DB_COLUMN_VALUE), Struct.class)));
+        }
+    }
+
+    /**
+     * Retrieve all the objects for the given domain with a single
+     * multi-query statement. The result sets are returned in the same
+     * order as the queries in SQL_GET_DOMAIN_OBJECTS and are processed
+     * one at a time as they're streamed from the server.
+     * @param domainName name of the domain
+     * @param domainId id of the domain
+     * @param athenzDomain domain object to be updated
+     * @throws ServerResourceException in case of any failures
+     */
+    void getAthenzDomainObjects(String domainName, int domainId, AthenzDomain athenzDomain) throws ServerResourceException {
+
+        final String caller = "getAthenzDomain";
+
+        Map<String, Role> roleMap = new HashMap<>();
+        Map<String, Group> groupMap = new HashMap<>();
+        Map<Integer, Policy> policyMap = new HashMap<>();
+        Map<Long, Assertion> assertionsMap = new HashMap<>();
+        Map<String, ServiceIdentity> serviceMap = new HashMap<>();
+
+        try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_OBJECTS)) {
+
+            for (int idx = 1; idx <= SQL_GET_DOMAIN_OBJECTS_QUERIES.size(); idx++) {
+                ps.setInt(idx, domainId);
+            }
+
+            Object timerMetric = startTiming(METRIC_DOMAIN_LOAD_QUERY, domainName);
+            boolean resultSetAvailable = execute(ps, caller);
+            stopTiming(timerMetric);
+
+            timerMetric = startTiming(METRIC_DOMAIN_LOAD_PROCESS, domainName);
+
+            Domain domain = athenzDomain.getDomain();
+            try (ResultSet rs = getFirstResultSet(ps, resultSetAvailable, caller)) {
+                domain.setTags(readDomainTags(rs));
+            }
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                domain.setContacts(readDomainContacts(rs));
+            }
+
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                readDomainRoles(rs, domainName, roleMap);
+            }
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                readDomainRoleMembers(rs, roleMap);
+            }
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                addTagsToRoles(roleMap, readDomainResourceTags(rs));
+            }
+
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                readDomainGroups(rs, domainName, groupMap);
+            }
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                readDomainGroupMembers(rs, groupMap);
+            }
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                addTagsToGroups(groupMap, readDomainResourceTags(rs));
+            }
+
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                readDomainPolicies(rs, domainName, policyMap);
+            }
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                readDomainPolicyAssertions(rs, domainName, policyMap, assertionsMap);
+            }
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                readDomainPolicyAssertionConditions(rs, assertionsMap);
+            }
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                addTagsToPolicies(policyMap, domainName, readDomainPolicyTags(rs));
+            }
+
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                readDomainServices(rs, domainName, serviceMap);
+            }
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                readDomainServiceHosts(rs, serviceMap);
+            }
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                readDomainServicePublicKeys(rs, serviceMap);
+            }
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                addTagsToServices(serviceMap, readDomainResourceTags(rs));
+            }
+
+            try (ResultSet rs = getNextResultSet(ps, caller)) {
+                readDomainEntities(rs, domainName, athenzDomain);
+            }
+
+            stopTiming(timerMetric);
+
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+
+        athenzDomain.getRoles().addAll(roleMap.values());
+        athenzDomain.getGroups().addAll(groupMap.values());
+        athenzDomain.getPolicies().addAll(policyMap.values());
+        athenzDomain.getServices().addAll(serviceMap.values());
+    }
+
+    ResultSet getFirstResultSet(PreparedStatement ps, boolean resultSetAvailable, final String caller) throws SQLException {
+        if (!resultSetAvailable) {
+            throw new SQLException(caller + ": multi-query statement did not return a result set");
+        }
+        return ps.getResultSet();
+    }
+
+    ResultSet getNextResultSet(PreparedStatement ps, final String caller) throws SQLException {
+        if (!ps.getMoreResults()) {
+            throw new SQLException(caller + ": multi-query statement returned fewer result sets than expected");
+        }
+        return ps.getResultSet();
+    }
+
     @Override
     public AthenzDomain getAthenzDomain(String domainName) throws ServerResourceException {
 
@@ -4682,27 +5262,51 @@ public class JDBCConnection implements ObjectStoreConnection {
         int domainId = 0;
         AthenzDomain athenzDomain = new AthenzDomain(domainName);
 
+        // with the multi-query option the domain tags and contacts
+        // are retrieved along with all other domain objects
+
+        Object timerMetric = startTiming(METRIC_DOMAIN_LOAD_DOMAIN, domainName);
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN)) {
             ps.setString(1, domainName);
             try (ResultSet rs = executeQuery(ps, caller)) {
                 if (rs.next()) {
-                    athenzDomain.setDomain(saveDomainSettings(domainName, rs, true));
+                    athenzDomain.setDomain(saveDomainSettings(domainName, rs, !multiQueryDomainLoad));
                     domainId = rs.getInt(JDBCConsts.DB_COLUMN_DOMAIN_ID);
                 }
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
         }
+        stopTiming(timerMetric);
 
         if (domainId == 0) {
             throw notFoundError(caller, JDBCConsts.OBJECT_DOMAIN, domainName);
         }
 
+        if (multiQueryDomainLoad) {
+            getAthenzDomainObjects(domainName, domainId, athenzDomain);
+            return athenzDomain;
+        }
+
+        timerMetric = startTiming(METRIC_DOMAIN_LOAD_ROLES, domainName);
         getAthenzDomainRoles(domainName, domainId, athenzDomain);
+        stopTiming(timerMetric);
+
+        timerMetric = startTiming(METRIC_DOMAIN_LOAD_GROUPS, domainName);
         getAthenzDomainGroups(domainName, domainId, athenzDomain);
+        stopTiming(timerMetric);
+
+        timerMetric = startTiming(METRIC_DOMAIN_LOAD_POLICIES, domainName);
         getAthenzDomainPolicies(domainName, domainId, athenzDomain);
+        stopTiming(timerMetric);
+
+        timerMetric = startTiming(METRIC_DOMAIN_LOAD_SERVICES, domainName);
         getAthenzDomainServices(domainName, domainId, athenzDomain);
+        stopTiming(timerMetric);
+
+        timerMetric = startTiming(METRIC_DOMAIN_LOAD_ENTITIES, domainName);
         getAthenzDomainEntities(domainName, domainId, athenzDomain);
+        stopTiming(timerMetric);
 
         return athenzDomain;
     }
@@ -6963,6 +7567,180 @@ public class JDBCConnection implements ObjectStoreConnection {
         return result;
     }
 
+    @Override
+    public boolean insertGroupMembers(String domainName, String groupName, List<GroupMember> groupMembers,
+            String admin, String auditRef) throws ServerResourceException {
+
+        final String caller = "insertGroupMembers";
+
+        int domainId = getDomainId(domainName);
+        if (domainId == 0) {
+            throw notFoundError(caller, JDBCConsts.OBJECT_DOMAIN, domainName);
+        }
+        int groupId = getGroupId(domainId, groupName);
+        if (groupId == 0) {
+            throw notFoundError(caller, JDBCConsts.OBJECT_GROUP, ResourceUtils.groupResourceName(domainName, groupName));
+        }
+        List<String> principals = new ArrayList<>();
+        for (GroupMember groupMember : groupMembers) {
+            final String principal = groupMember.getMemberName();
+            if (!validatePrincipalDomain(principal)) {
+                throw notFoundError(caller, JDBCConsts.OBJECT_DOMAIN, principal);
+            }
+            principals.add(principal);
+        }
+
+        // resolve all principal ids and current members with a fixed
+        // number of queries instead of separate queries per member
+
+        Map<String, Integer> principalIds = getPrincipalIds(principals, true, caller);
+        Map<Integer, String> stdMembers = getMemberPrincipalIds(SQL_LIST_STD_GROUP_MEMBER_IDS, groupId, false, caller);
+        Map<Integer, String> pendingMembers = getMemberPrincipalIds(SQL_LIST_PENDING_GROUP_MEMBER_IDS, groupId, true, caller);
+
+        enforceGroupAuditLogLimit(groupId, groupMembers.size(), caller);
+
+        try (PreparedStatement psInsert = con.prepareStatement(SQL_INSERT_GROUP_MEMBER);
+             PreparedStatement psUpdate = con.prepareStatement(SQL_UPDATE_GROUP_MEMBER);
+             PreparedStatement psInsertPending = con.prepareStatement(SQL_INSERT_PENDING_GROUP_MEMBER);
+             PreparedStatement psUpdatePending = con.prepareStatement(SQL_UPDATE_PENDING_GROUP_MEMBER);
+             PreparedStatement psAuditLog = con.prepareStatement(SQL_INSERT_GROUP_AUDIT_LOG)) {
+
+            int insertCount = 0;
+            int updateCount = 0;
+            int insertPendingCount = 0;
+            int updatePendingCount = 0;
+
+            for (GroupMember groupMember : groupMembers) {
+
+                final String principal = groupMember.getMemberName();
+                final int principalId = principalIds.get(principal);
+                final String pendingState = groupMember.getPendingState();
+                boolean groupMemberExists = memberExists(stdMembers, pendingMembers, principalId,
+                        principal, pendingState, caller);
+
+                java.sql.Timestamp expiration = groupMember.getExpiration() == null ? null
+                        : new java.sql.Timestamp(groupMember.getExpiration().millis());
+
+                String auditOperation;
+                if (groupMember.getApproved() == Boolean.FALSE) {
+                    if (groupMemberExists) {
+                        psUpdatePending.setTimestamp(1, expiration);
+                        psUpdatePending.setString(2, processInsertValue(auditRef));
+                        psUpdatePending.setString(3, processInsertValue(admin));
+                        psUpdatePending.setInt(4, groupId);
+                        psUpdatePending.setInt(5, principalId);
+                        psUpdatePending.addBatch();
+                        updatePendingCount += 1;
+                    } else {
+                        psInsertPending.setInt(1, groupId);
+                        psInsertPending.setInt(2, principalId);
+                        psInsertPending.setTimestamp(3, expiration);
+                        psInsertPending.setString(4, processInsertValue(auditRef));
+                        psInsertPending.setString(5, processInsertValue(admin));
+                        psInsertPending.setString(6, processInsertValue(pendingState));
+                        psInsertPending.addBatch();
+                        insertPendingCount += 1;
+                    }
+                    auditOperation = AUDIT_OPERATION_REQUEST;
+                } else if (groupMemberExists) {
+                    psUpdate.setTimestamp(1, expiration);
+                    psUpdate.setBoolean(2, processInsertValue(groupMember.getActive(), true));
+                    psUpdate.setString(3, processInsertValue(auditRef));
+                    psUpdate.setString(4, processInsertValue(admin));
+                    psUpdate.setInt(5, groupId);
+                    psUpdate.setInt(6, principalId);
+                    psUpdate.addBatch();
+                    updateCount += 1;
+                    auditOperation = AUDIT_OPERATION_UPDATE;
+                } else {
+                    psInsert.setInt(1, groupId);
+                    psInsert.setInt(2, principalId);
+                    psInsert.setTimestamp(3, expiration);
+                    psInsert.setBoolean(4, processInsertValue(groupMember.getActive(), true));
+                    psInsert.setString(5, processInsertValue(auditRef));
+                    psInsert.setString(6, processInsertValue(admin));
+                    psInsert.addBatch();
+                    insertCount += 1;
+                    auditOperation = AUDIT_OPERATION_ADD;
+                }
+
+                // if the same principal is included multiple times, the
+                // following entries are processed as updates
+
+                markMemberExists(stdMembers, pendingMembers, principalId, pendingState);
+
+                psAuditLog.setInt(1, groupId);
+                psAuditLog.setString(2, processInsertValue(admin));
+                psAuditLog.setString(3, principal);
+                psAuditLog.setString(4, auditOperation);
+                psAuditLog.setString(5, processInsertValue(auditRef));
+                psAuditLog.addBatch();
+            }
+
+            // the inserts must be executed before the updates since
+            // duplicate entries in the list are processed as updates
+
+            if (!executeMemberBatch(psInsert, insertCount, true, caller)
+                    || !executeMemberBatch(psUpdate, updateCount, false, caller)
+                    || !executeMemberBatch(psInsertPending, insertPendingCount, true, caller)
+                    || !executeMemberBatch(psUpdatePending, updatePendingCount, true, caller)) {
+                return false;
+            }
+            return executeMemberBatch(psAuditLog, groupMembers.size(), true, caller);
+
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+    }
+
+    @Override
+    public boolean deleteGroupMembers(String domainName, String groupName, List<String> members,
+            String admin, String auditRef) throws ServerResourceException {
+
+        final String caller = "deleteGroupMembers";
+
+        int domainId = getDomainId(domainName);
+        if (domainId == 0) {
+            throw notFoundError(caller, JDBCConsts.OBJECT_DOMAIN, domainName);
+        }
+        int groupId = getGroupId(domainId, groupName);
+        if (groupId == 0) {
+            throw notFoundError(caller, JDBCConsts.OBJECT_GROUP, ResourceUtils.groupResourceName(domainName, groupName));
+        }
+        Map<String, Integer> principalIds = getPrincipalIds(members, false, caller);
+
+        enforceGroupAuditLogLimit(groupId, members.size(), caller);
+
+        try (PreparedStatement psDelete = con.prepareStatement(SQL_DELETE_GROUP_MEMBER);
+             PreparedStatement psAuditLog = con.prepareStatement(SQL_INSERT_GROUP_AUDIT_LOG)) {
+
+            for (String principal : members) {
+                Integer principalId = principalIds.get(principal);
+                if (principalId == null) {
+                    throw notFoundError(caller, JDBCConsts.OBJECT_PRINCIPAL, principal);
+                }
+                psDelete.setInt(1, groupId);
+                psDelete.setInt(2, principalId);
+                psDelete.addBatch();
+
+                psAuditLog.setInt(1, groupId);
+                psAuditLog.setString(2, processInsertValue(admin));
+                psAuditLog.setString(3, principal);
+                psAuditLog.setString(4, AUDIT_OPERATION_DELETE);
+                psAuditLog.setString(5, processInsertValue(auditRef));
+                psAuditLog.addBatch();
+            }
+
+            if (!executeMemberBatch(psDelete, members.size(), true, caller)) {
+                return false;
+            }
+            return executeMemberBatch(psAuditLog, members.size(), true, caller);
+
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+    }
+
     @Override
     public boolean deleteGroupMember(String domainName, String groupName, String principal, String admin, String auditRef) throws ServerResourceException {
 
@@ -7477,8 +8255,10 @@ public class JDBCConnection implements ObjectStoreConnection {
     }
 
     private void addTagsToRoles(Map<String, Role> roleMap, String domainName) throws ServerResourceException {
+        addTagsToRoles(roleMap, getDomainRoleTags(domainName));
+    }
 
-        Map<String, Map<String, TagValueList>> domainRoleTags = getDomainRoleTags(domainName);
+    private void addTagsToRoles(Map<String, Role> roleMap, Map<String, Map<String, TagValueList>> domainRoleTags) {
         if (domainRoleTags != null) {
             for (Map.Entry<String, Role> roleEntry : roleMap.entrySet()) {
                 Map<String, TagValueList> roleTag = domainRoleTags.get(roleEntry.getKey());
@@ -7490,8 +8270,11 @@ public class JDBCConnection implements ObjectStoreConnection {
     }
 
     private void addTagsToServices(Map<String, ServiceIdentity> serviceMap, String domainName) throws ServerResourceException {
+        addTagsToServices(serviceMap, getServiceResourceTags(domainName));
+    }
 
-        Map<String, Map<String, TagValueList>> domainServiceTags = getServiceResourceTags(domainName);
+    private void addTagsToServices(Map<String, ServiceIdentity> serviceMap,
+            Map<String, Map<String, TagValueList>> domainServiceTags) {
         if (domainServiceTags != null) {
             for (Map.Entry<String, ServiceIdentity> serviceEntry : serviceMap.entrySet()) {
                 Map<String, TagValueList> serviceTag = domainServiceTags.get(serviceEntry.getKey());
@@ -7509,17 +8292,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_ROLE_TAGS)) {
             ps.setString(1, domainName);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    String roleName = rs.getString(1);
-                    String tagKey = rs.getString(2);
-                    String tagValue = rs.getString(3);
-                    if (domainRoleTags == null) {
-                        domainRoleTags = new HashMap<>();
-                    }
-                    Map<String, TagValueList> roleTag = domainRoleTags.computeIfAbsent(roleName, tags -> new HashMap<>());
-                    TagValueList tagValues = roleTag.computeIfAbsent(tagKey, k -> new TagValueList().setList(new ArrayList<>()));
-                    tagValues.getList().add(tagValue);
-                }
+                domainRoleTags = readDomainResourceTags(rs);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
@@ -7732,8 +8505,10 @@ public class JDBCConnection implements ObjectStoreConnection {
 
 
     private void addTagsToGroups(Map<String, Group> groupMap, String domainName) throws ServerResourceException {
+        addTagsToGroups(groupMap, getDomainGroupTags(domainName));
+    }
 
-        Map<String, Map<String, TagValueList>> domainGroupTags = getDomainGroupTags(domainName);
+    private void addTagsToGroups(Map<String, Group> groupMap, Map<String, Map<String, TagValueList>> domainGroupTags) {
         if (domainGroupTags != null) {
             for (Map.Entry<String, Group> groupEntry : groupMap.entrySet()) {
                 Map<String, TagValueList> groupTag = domainGroupTags.get(groupEntry.getKey());
@@ -7751,17 +8526,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_SERVICE_TAGS)) {
             ps.setString(1, domainName);
             try (ResultSet rs = executeQuery(ps, funcCaller)) {
-                while (rs.next()) {
-                    String resourceName = rs.getString(1);
-                    String tagKey = rs.getString(2);
-                    String tagValue = rs.getString(3);
-                    if (domainResourceTags == null) {
-                        domainResourceTags = new HashMap<>();
-                    }
-                    Map<String, TagValueList> resourceTag = domainResourceTags.computeIfAbsent(resourceName, tags -> new HashMap<>());
-                    TagValueList tagValues = resourceTag.computeIfAbsent(tagKey, k -> new TagValueList().setList(new ArrayList<>()));
-                    tagValues.getList().add(tagValue);
-                }
+                domainResourceTags = readDomainResourceTags(rs);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, funcCaller);
@@ -7769,6 +8534,22 @@ public class JDBCConnection implements ObjectStoreConnection {
         return domainResourceTags;
     }
 
+    Map<String, Map<String, TagValueList>> readDomainResourceTags(ResultSet rs) throws SQLException {
+        Map<String, Map<String, TagValueList>> domainResourceTags = null;
+        while (rs.next()) {
+            String resourceName = rs.getString(1);
+            String tagKey = rs.getString(2);
+            String tagValue = rs.getString(3);
+            if (domainResourceTags == null) {
+                domainResourceTags = new HashMap<>();
+            }
+            Map<String, TagValueList> resourceTag = domainResourceTags.computeIfAbsent(resourceName, tags -> new HashMap<>());
+            TagValueList tagValues = resourceTag.computeIfAbsent(tagKey, k -> new TagValueList().setList(new ArrayList<>()));
+            tagValues.getList().add(tagValue);
+        }
+        return domainResourceTags;
+    }
+
     Map<String, Map<String, TagValueList>> getDomainGroupTags(String domainName) throws ServerResourceException {
         final String caller = "getDomainGroupTags";
         Map<String, Map<String, TagValueList>> domainGroupTags = null;
@@ -7776,17 +8557,7 @@ public class JDBCConnection implements ObjectStoreConnection {
         try (PreparedStatement ps = con.prepareStatement(SQL_GET_DOMAIN_GROUP_TAGS)) {
             ps.setString(1, domainName);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    String groupName = rs.getString(1);
-                    String tagKey = rs.getString(2);
-                    String tagValue = rs.getString(3);
-                    if (domainGroupTags == null) {
-                        domainGroupTags = new HashMap<>();
-                    }
-                    Map<String, TagValueList> groupTag = domainGroupTags.computeIfAbsent(groupName, tags -> new HashMap<>());
-                    TagValueList tagValues = groupTag.computeIfAbsent(tagKey, k -> new TagValueList().setList(new ArrayList<>()));
-                    tagValues.getList().add(tagValue);
-                }
+                domainGroupTags = readDomainResourceTags(rs);
             }
         } catch (SQLException ex) {
             throw sqlError(ex, caller);
@@ -8366,15 +9137,19 @@ public class JDBCConnection implements ObjectStoreConnection {
     public Map<String, String> getDomainContacts(int domainId) throws SQLException {
 
         final String caller = "getDomainContacts";
-        Map<String, String> domainContacts = new HashMap<>();
         try (PreparedStatement ps = con.prepareStatement(SQL_LIST_DOMAIN_CONTACTS)) {
             ps.setInt(1, domainId);
             try (ResultSet rs = executeQuery(ps, caller)) {
-                while (rs.next()) {
-                    domainContacts.put(rs.getString(JDBCConsts.DB_COLUMN_TYPE), rs.getString(JDBCConsts.DB_COLUMN_NAME));
-                }
+                return readDomainContacts(rs);
             }
         }
+    }
+
+    Map<String, String> readDomainContacts(ResultSet rs) throws SQLException {
+        Map<String, String> domainContacts = new HashMap<>();
+        while (rs.next()) {
+            domainContacts.put(rs.getString(JDBCConsts.DB_COLUMN_TYPE), rs.getString(JDBCConsts.DB_COLUMN_NAME));
+        }
         return domainContacts;
     }
 
@@ -8592,17 +9367,25 @@ public class JDBCConnection implements ObjectStoreConnection {
     }
 
     void enforceRoleAuditLogLimit(int roleId, final String caller) {
-        enforceAuditLogLimit(roleId, caller, auditLogRoleMaxLimit, auditLogRoleKeepCount,
+        enforceRoleAuditLogLimit(roleId, 1, caller);
+    }
+
+    void enforceRoleAuditLogLimit(int roleId, int newEntries, final String caller) {
+        enforceAuditLogLimit(roleId, newEntries, caller, auditLogRoleMaxLimit, auditLogRoleKeepCount,
                 SQL_COUNT_ROLE_AUDIT_LOG, SQL_CLEANUP_ROLE_AUDIT_LOG);
     }
 
     void enforceGroupAuditLogLimit(int groupId, final String caller) {
-        enforceAuditLogLimit(groupId, caller, auditLogGroupMaxLimit, auditLogGroupKeepCount,
+        enforceGroupAuditLogLimit(groupId, 1, caller);
+    }
+
+    void enforceGroupAuditLogLimit(int groupId, int newEntries, final String caller) {
+        enforceAuditLogLimit(groupId, newEntries, caller, auditLogGroupMaxLimit, auditLogGroupKeepCount,
                 SQL_COUNT_GROUP_AUDIT_LOG, SQL_CLEANUP_GROUP_AUDIT_LOG);
     }
 
-    private void enforceAuditLogLimit(int objectId, final String caller, int maxLimit, int keepCount,
-            final String countSql, final String cleanupSql) {
+    private void enforceAuditLogLimit(int objectId, int newEntries, final String caller, int maxLimit,
+            int keepCount, final String countSql, final String cleanupSql) {
 
         // first verify that the limits are configured and valid
 
@@ -8614,11 +9397,13 @@ public class JDBCConnection implements ObjectStoreConnection {
 
         int count = getAuditLogEntryCount(countSql, objectId, caller);
 
-        // if the current count is bigger than our limit
-        // then we'll need to delete some entries as configured
+        // if the current count along with the entries we're about
+        // to add is bigger than our limit then we'll need to delete
+        // some entries as configured. for batch operations we keep
+        // fewer entries so the new entries do not exceed the limit
 
-        if (count >= maxLimit) {
-            cleanUpAuditLog(cleanupSql, objectId, keepCount, caller);
+        if (count + newEntries > maxLimit) {
+            cleanUpAuditLog(cleanupSql, objectId, Math.max(0, Math.min(keepCount, maxLimit - newEntries)), caller);
         }
     }
 }
@@ -170,6 +170,7 @@ public final class JDBCConsts {
     public static final String ZMS_PROP_MYSQL_AUDIT_LOG_ROLE_KEEP_COUNT      = "athenz.zms.jdbc.audit_log_role_keep_count";
     public static final String ZMS_PROP_MYSQL_AUDIT_LOG_GROUP_MAX_LIMIT      = "athenz.zms.jdbc.audit_log_group_max_limit";
     public static final String ZMS_PROP_MYSQL_AUDIT_LOG_GROUP_KEEP_COUNT     = "athenz.zms.jdbc.audit_log_group_keep_count";
+    public static final String ZMS_PROP_MYSQL_MULTI_QUERY_DOMAIN_LOAD        = "athenz.zms.jdbc.multi_query_domain_load";
 
     public static final String NOTIFY_DETAILS_SELF_SERVE_ROLE = "self-serve role";
     public static final String NOTIFY_DETAILS_SELF_SERVE_GROUP = "self-serve group";
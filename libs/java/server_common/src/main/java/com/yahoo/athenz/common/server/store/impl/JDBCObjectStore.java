@@ -15,6 +15,7 @@
  */
 package com.yahoo.athenz.common.server.store.impl;
 
+import com.yahoo.athenz.common.metrics.Metric;
 import com.yahoo.athenz.common.server.db.PoolableDataSource;
 import com.yahoo.athenz.common.server.util.Utils;
 import com.yahoo.athenz.zms.DomainOptions;
@@ -37,11 +38,21 @@ public class JDBCObjectStore implements ObjectStore {
     private int auditLogGroupMaxLimit;
     private int auditLogGroupKeepCount;
     private DomainOptions domainOptions;
+    private Metric metric;
+    private final boolean multiQueryDomainLoad;
     private final Object synchronizer = new Object();
 
     public JDBCObjectStore(PoolableDataSource rwSrc, PoolableDataSource roSrc) {
         this.rwSrc = rwSrc;
         this.roSrc = roSrc;
+
+        // check if we're going to load all the domain objects with
+        // a single multi-query statement instead of a query per object.
+        // this is only supported with a dedicated read-only source since
+        // the read-write source does not allow multiple statements
+
+        multiQueryDomainLoad = roSrc != null &&
+                Boolean.parseBoolean(System.getProperty(JDBCConsts.ZMS_PROP_MYSQL_MULTI_QUERY_DOMAIN_LOAD, "false"));
         
         // if we're not given read-only source pool then we'll
         // be using the read-write for all operations
@@ -70,6 +81,8 @@ public class JDBCObjectStore implements ObjectStore {
             jdbcConn.setAuditLogLimits(auditLogRoleMaxLimit, auditLogRoleKeepCount, auditLogGroupMaxLimit,
                     auditLogGroupKeepCount);
             jdbcConn.setDomainOptions(domainOptions);
+            jdbcConn.setMetric(metric);
+            jdbcConn.setMultiQueryDomainLoad(multiQueryDomainLoad && !readWrite);
             return jdbcConn;
         } catch (Exception ex) {
             
@@ -98,6 +111,11 @@ public class JDBCObjectStore implements ObjectStore {
         this.domainOptions = domainOptions;
     }
 
+    @Override
+    public void setMetric(Metric metric) {
+        this.metric = metric;
+    }
+
     @Override
     public void setTagLimit(int domainLimit, int roleLimit, int groupLimit, int policyLimit, int serviceLimit) {
         this.domainTagsLimit = domainLimit;
@@ -53,7 +53,7 @@ public class JDBCObjectStoreFactory implements ObjectStoreFactory {
         final String password = System.getProperty(JDBCConsts.ZMS_PROP_JDBC_RW_PASSWORD, "");
         final String jdbcAppName = System.getProperty(JDBCConsts.ZMS_PROP_JDBC_APP_NAME, JDBC_APP_NAME);
         final String jdbcKeygroupName = System.getProperty(JDBCConsts.ZMS_PROP_JDBC_KEYGROUP_NAME, "");
-        Properties readWriteProperties = getProperties(jdbcUser, keyStore.getSecret(jdbcAppName, jdbcKeygroupName, password));
+        Properties readWriteProperties = getProperties(jdbcUser, keyStore.getSecret(jdbcAppName, jdbcKeygroupName, password), false);
         PoolableDataSource readWriteSrc = DataSourceFactory.create(jdbcStore, readWriteProperties);
 
         runSchemaMigrations(readWriteSrc);
@@ -67,7 +67,7 @@ public class JDBCObjectStoreFactory implements ObjectStoreFactory {
         if (jdbcReadOnlyStore != null && jdbcReadOnlyStore.startsWith(JDBC_APP_NAME)) {
             final String jdbcReadOnlyUser = getDefaultSetting(JDBCConsts.ZMS_PROP_JDBC_RO_USER, jdbcUser);
             final String readOnlyPassword = getDefaultSetting(JDBCConsts.ZMS_PROP_JDBC_RO_PASSWORD, password);
-            Properties readOnlyProperties = getProperties(jdbcReadOnlyUser, keyStore.getSecret(jdbcAppName, jdbcKeygroupName, readOnlyPassword));
+            Properties readOnlyProperties = getProperties(jdbcReadOnlyUser, keyStore.getSecret(jdbcAppName, jdbcKeygroupName, readOnlyPassword), true);
             readOnlySrc = DataSourceFactory.create(jdbcReadOnlyStore, readOnlyProperties);
         }
         return new JDBCObjectStore(readWriteSrc, readOnlySrc);
@@ -83,7 +83,7 @@ public class JDBCObjectStoreFactory implements ObjectStoreFactory {
         return (StringUtil.isEmpty(value)) ? defaultValue : value;
     }
 
-    Properties getProperties(final String dbUser, final char[] dbPassword) {
+    Properties getProperties(final String dbUser, final char[] dbPassword, boolean readOnly) {
         Properties properties = new Properties();
         properties.setProperty(ServerCommonConsts.DB_PROP_USER, dbUser);
         properties.setProperty(ServerCommonConsts.DB_PROP_PASSWORD, String.valueOf(dbPassword));
@@ -94,6 +94,15 @@ public class JDBCObjectStoreFactory implements ObjectStoreFactory {
         properties.setProperty(ServerCommonConsts.DB_PROP_TLS_PROTOCOLS,
                 System.getProperty(JDBCConsts.ZMS_PROP_JDBC_TLS_VERSIONS, JDBC_TLS_VERSIONS));
         properties.setProperty(ServerCommonConsts.DB_PROP_CONN_TIME_ZONE, JDBC_TIME_ZONE);
+
+        // loading all the domain objects with a single statement
+        // requires multi-query support enabled in the driver. the
+        // domain is only loaded this way from the read-only store so
+        // we never allow multiple statements with read-write access
+
+        if (readOnly && Boolean.parseBoolean(System.getProperty(JDBCConsts.ZMS_PROP_MYSQL_MULTI_QUERY_DOMAIN_LOAD, "false"))) {
+            properties.setProperty(ServerCommonConsts.DB_PROP_ALLOW_MULTI_QUERIES, "true");
+        }
         return properties;
     }
 }
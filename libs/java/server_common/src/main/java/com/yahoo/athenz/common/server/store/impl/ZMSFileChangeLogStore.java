@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 
 import java.security.PrivateKey;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static com.yahoo.athenz.common.ServerCommonConsts.*;
 
@@ -60,7 +61,7 @@ public class ZMSFileChangeLogStore implements ChangeLogStore {
 
         // create our common logic object
 
-        changeLogStoreCommon = new ZMSFileChangeLogStoreCommon(rootDirectory);
+        changeLogStoreCommon = ZMSFileChangeLogStoreCommon.newInstance(rootDirectory);
     }
 
     @Override
@@ -191,6 +192,17 @@ public class ZMSFileChangeLogStore implements ChangeLogStore {
         }
     }
 
+    @Override
+    public boolean getUpdatedSignedDomains(StringBuilder lastModTimeBuffer, Consumer<SignedDomain> domainConsumer) {
+
+        try (ZMSClient zmsClient = getZMSClient()) {
+            return changeLogStoreCommon.getUpdatedSignedDomains(zmsClient, lastModTimeBuffer, domainConsumer);
+        } catch (ZMSClientException ex) {
+            LOGGER.error("Error when refreshing data from ZMS: {}", ex.getMessage());
+            return false;
+        }
+    }
+
     @Override
     public List<JWSDomain> getUpdatedJWSDomains(StringBuilder lastModTimeBuffer) {
 
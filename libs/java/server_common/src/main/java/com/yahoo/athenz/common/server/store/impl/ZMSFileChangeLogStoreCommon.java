@@ -29,6 +29,9 @@ import java.io.IOException;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 public class ZMSFileChangeLogStoreCommon {
 
@@ -48,6 +51,13 @@ public class ZMSFileChangeLogStoreCommon {
     boolean requestConditions;
     int maxRateLimitRetryCount = 101;
 
+    // domain files can be read in parallel (e.g. during server
+    // startup) but updates and deletes must be exclusive
+
+    private final ReentrantReadWriteLock fileRWLock = new ReentrantReadWriteLock();
+    private final Lock fileRLock = fileRWLock.readLock();
+    private final Lock fileWLock = fileRWLock.writeLock();
+
     public ZMSFileChangeLogStoreCommon(final String rootDirectory) {
 
         // create our file helper object
@@ -94,6 +104,20 @@ public class ZMSFileChangeLogStoreCommon {
         }
     }
 
+    /**
+     * Create the common change log store object for the given directory.
+     * If configured, the domains are stored in a single memory mapped
+     * snapshot file instead of individual domain files.
+     * @param rootDirectory directory for storing domain files
+     * @return change log store common object
+     */
+    static ZMSFileChangeLogStoreCommon newInstance(final String rootDirectory) {
+        if (Boolean.parseBoolean(System.getProperty(ZMSFileSnapshotChangeLogStoreCommon.PROP_SNAPSHOT_ENABLED, "false"))) {
+            return new ZMSFileSnapshotChangeLogStoreCommon(rootDirectory);
+        }
+        return new ZMSFileChangeLogStoreCommon(rootDirectory);
+    }
+
     public void setRequestConditions(final boolean requestConditions) {
         this.requestConditions = requestConditions;
     }
@@ -164,45 +188,67 @@ public class ZMSFileChangeLogStoreCommon {
         }
     }
 
-    public synchronized <T> T get(String name, Class<T> classType) {
+    public <T> T get(String name, Class<T> classType) {
 
-        File file = new File(rootDir, name);
-        if (!file.exists()) {
+        try {
+            fileRLock.lock();
+
+            File file = new File(rootDir, name);
+            if (!file.exists()) {
+                return null;
+            }
+
+            try {
+                return jsonMapper.readValue(file, classType);
+            } catch (Exception ex) {
+                LOGGER.error("Unable to retrieve file: {} error: {}", file.getAbsolutePath(), ex.getMessage());
+            }
             return null;
-        }
 
-        try {
-            return jsonMapper.readValue(file, classType);
-        } catch (Exception ex) {
-            LOGGER.error("Unable to retrieve file: {} error: {}", file.getAbsolutePath(), ex.getMessage());
+        } finally {
+            fileRLock.unlock();
         }
-        return null;
     }
 
-    public synchronized void put(String name, byte[] data) {
-
-        File file = new File(rootDir, name);
-        if (!file.exists()) {
-            setupDomainFile(file);
-        }
+    public void put(String name, byte[] data) {
 
         try {
-            filesHelper.write(file, data);
-        } catch (IOException ex) {
-            error("unable to save file: " + file.getPath() + " error: " + ex.getMessage());
+            fileWLock.lock();
+
+            File file = new File(rootDir, name);
+            if (!file.exists()) {
+                setupDomainFile(file);
+            }
+
+            try {
+                filesHelper.write(file, data);
+            } catch (IOException ex) {
+                error("unable to save file: " + file.getPath() + " error: " + ex.getMessage());
+            }
+
+        } finally {
+            fileWLock.unlock();
         }
     }
 
-    public synchronized void delete(String name) {
-        File file = new File(rootDir, name);
-        if (!file.exists()) {
-            return;
-        }
+    public void delete(String name) {
 
         try {
-            filesHelper.delete(file);
-        } catch (Exception exc) {
-            error("Cannot delete file or directory: " + name + " : exc: " + exc);
+            fileWLock.lock();
+
+            File file = new File(rootDir, name);
+            if (!file.exists()) {
+                return;
+            }
+
+            try {
+                filesHelper.delete(file);
+            } catch (Exception exc) {
+                error("Cannot delete file or directory: " + name + " : exc: " + exc);
+            }
+
+        } finally {
+            fileWLock.unlock();
         }
     }
 
@@ -301,6 +347,13 @@ public class ZMSFileChangeLogStoreCommon {
     List<SignedDomain> getSignedDomainList(ZMSClient zmsClient, SignedDomains domainList) {
 
         List<SignedDomain> domains = new ArrayList<>();
+        processSignedDomainList(zmsClient, domainList, domains::add);
+        return domains;
+    }
+
+    void processSignedDomainList(ZMSClient zmsClient, SignedDomains domainList,
+            Consumer<SignedDomain> domainConsumer) {
+
         for (SignedDomain domain : domainList.getDomains()) {
 
             final String domainName = domain.getDomain().getName();
@@ -319,7 +372,7 @@ public class ZMSFileChangeLogStoreCommon {
                     SignedDomains singleDomain = makeSignedDomainsCall(zmsClient, domainName, null, null, null);
 
                     if (singleDomain != null && !singleDomain.getDomains().isEmpty()) {
-                        domains.addAll(singleDomain.getDomains());
+                        singleDomain.getDomains().forEach(domainConsumer);
                     }
 
                     break;
@@ -342,7 +395,6 @@ public class ZMSFileChangeLogStoreCommon {
                 }
             }
         }
-        return domains;
     }
 
     List<JWSDomain> getJWSDomainList(ZMSClient zmsClient, SignedDomains domainList) {
@@ -447,6 +499,38 @@ public class ZMSFileChangeLogStoreCommon {
         return new SignedDomains().setDomains(domains);
     }
 
+    /**
+     * Retrieve the domains modified since the last call and pass each domain
+     * to the given consumer as soon as it's retrieved from ZMS so neither
+     * the store nor the caller need to keep the full set of modified
+     * domains in memory (e.g. during a full sync).
+     * @param zmsClient ZMS client object
+     * @param lastModTimeBuffer updated to include the last modification
+     *      time for the request
+     * @param domainConsumer consumer for each retrieved domain
+     * @return false if unable to retrieve the modified domain list
+     */
+    public boolean getUpdatedSignedDomains(ZMSClient zmsClient, StringBuilder lastModTimeBuffer,
+            Consumer<SignedDomain> domainConsumer) {
+
+        // request all the changes from ZMS. In this call we're asking for
+        // metadata only so we'll only get the list of domains
+
+        SignedDomains domainList = getModifiedDomainList(zmsClient, lastModTimeBuffer);
+        if (domainList == null || domainList.getDomains() == null) {
+            return lastModTimeBuffer.length() != 0;
+        }
+
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("getUpdatedSignedDomains: {} updated domains", domainList.getDomains().size());
+        }
+
+        // now let's iterate through our list and retrieve one domain at a time
+
+        processSignedDomainList(zmsClient, domainList, domainConsumer);
+        return true;
+    }
+
     public List<JWSDomain> getUpdatedJWSDomains(ZMSClient zmsClient, StringBuilder lastModTimeBuffer) {
 
         // request all the changes from ZMS. In this call we're asking for
@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static com.yahoo.athenz.common.ServerCommonConsts.*;
 
@@ -66,7 +67,7 @@ public class ZMSFileMTLSChangeLogStore implements ChangeLogStore {
 
         // create our common logic object
 
-        changeLogStoreCommon = new ZMSFileChangeLogStoreCommon(rootDirectory);
+        changeLogStoreCommon = ZMSFileChangeLogStoreCommon.newInstance(rootDirectory);
     }
 
     @Override
@@ -182,6 +183,17 @@ public class ZMSFileMTLSChangeLogStore implements ChangeLogStore {
         }
     }
 
+    @Override
+    public boolean getUpdatedSignedDomains(StringBuilder lastModTimeBuffer, Consumer<SignedDomain> domainConsumer) {
+
+        try {
+            return changeLogStoreCommon.getUpdatedSignedDomains(zmsClient, lastModTimeBuffer, domainConsumer);
+        } catch (ZMSClientException ex) {
+            LOGGER.error("Error when refreshing data from ZMS: {}", ex.getMessage());
+            return false;
+        }
+    }
+
     @Override
     public List<JWSDomain> getUpdatedJWSDomains(StringBuilder lastModTimeBuffer) {
 
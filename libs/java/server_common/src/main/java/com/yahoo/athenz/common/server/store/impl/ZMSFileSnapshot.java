@@ -0,0 +1,248 @@
+/*
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.yahoo.athenz.common.server.store.impl;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Single file snapshot of all locally stored domains. The file
+ * has the following layout (all values in network byte order):
+ *
+ *   int  magic
+ *   int  version
+ *   records: int length followed by length bytes of encoded domain data
+ *   index:   int count followed by count entries of
+ *            utf name, long fetch time (seconds), long record offset
+ *            boolean last mod time present, utf last mod time
+ *   long index offset
+ *
+ * The file is memory mapped when opened and only the index is
+ * parsed. The domain records are returned as read-only buffers
+ * from the mapped region so they're only paged in when accessed.
+ * Since the file is mapped with a single buffer, the snapshot
+ * size is limited to 2GB.
+ */
+class ZMSFileSnapshot {
+
+    static final int MAGIC   = 0x41544853;
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE  = 8;
+    private static final int TRAILER_SIZE = 8;
+
+    static class Entry {
+        final long fetchTime;
+        final int offset;
+
+        Entry(long fetchTime, int offset) {
+            this.fetchTime = fetchTime;
+            this.offset = offset;
+        }
+    }
+
+    private final MappedByteBuffer buffer;
+    private final Map<String, Entry> index;
+    private final String lastModTime;
+
+    private ZMSFileSnapshot(MappedByteBuffer buffer, Map<String, Entry> index, final String lastModTime) {
+        this.buffer = buffer;
+        this.index = index;
+        this.lastModTime = lastModTime;
+    }
+
+    /**
+     * Map the given snapshot file and parse its index
+     * @param file snapshot file
+     * @return snapshot object or null if the file does not exist
+     * @throws IOException if the file can't be mapped or is not a valid snapshot
+     */
+    static ZMSFileSnapshot open(File file) throws IOException {
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("invalid snapshot file size: " + size);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("invalid snapshot file header");
+        }
+
+        final int limit = buffer.limit();
+        final long indexOffset = buffer.getLong(limit - TRAILER_SIZE);
+        if (indexOffset < HEADER_SIZE || indexOffset > limit - TRAILER_SIZE) {
+            throw new IOException("invalid snapshot index offset: " + indexOffset);
+        }
+
+        ByteBuffer indexBuffer = buffer.duplicate();
+        indexBuffer.position((int) indexOffset).limit(limit - TRAILER_SIZE);
+
+        Map<String, Entry> index = new HashMap<>();
+        String lastModTime = null;
+        try (DataInputStream in = new DataInputStream(new ByteBufferBackedInputStream(indexBuffer))) {
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final String name = in.readUTF();
+                final long fetchTime = in.readLong();
+                final long offset = in.readLong();
+                if (offset < HEADER_SIZE || offset >= indexOffset) {
+                    throw new IOException("invalid record offset for " + name);
+                }
+                index.put(name, new Entry(fetchTime, (int) offset));
+            }
+            if (in.readBoolean()) {
+                lastModTime = in.readUTF();
+            }
+        } catch (EOFException ex) {
+            throw new IOException("truncated snapshot index");
+        }
+
+        return new ZMSFileSnapshot(buffer, index, lastModTime);
+    }
+
+    String getLastModTime() {
+        return lastModTime;
+    }
+
+    Set<String> getNames() {
+        return index.keySet();
+    }
+
+    boolean contains(final String name) {
+        return index.containsKey(name);
+    }
+
+    long getFetchTime(final String name) {
+        Entry entry = index.get(name);
+        return entry == null ? 0 : entry.fetchTime;
+    }
+
+    /**
+     * Return the encoded record for the given name. The returned buffer
+     * is a read-only view into the mapped file.
+     * @param name name of the record
+     * @return buffer with the record data or null if not present
+     */
+    ByteBuffer getRecord(final String name) {
+
+        Entry entry = index.get(name);
+        if (entry == null) {
+            return null;
+        }
+
+        final int length = buffer.getInt(entry.offset);
+        ByteBuffer record = buffer.asReadOnlyBuffer();
+        record.position(entry.offset + 4).limit(entry.offset + 4 + length);
+        return record.slice();
+    }
+
+    /**
+     * Writer for a new snapshot file. The records are written into a
+     * temporary file in the same directory which is then atomically
+     * moved to replace the snapshot file once the index is written.
+     */
+    static class Writer implements Closeable {
+
+        private final File file;
+        private final File tmpFile;
+        private final FileOutputStream fileStream;
+        private final DataOutputStream out;
+        private final Map<String, Entry> index = new HashMap<>();
+        private long offset = HEADER_SIZE;
+        private boolean committed = false;
+
+        Writer(File file, File tmpFile) throws IOException {
+            this.file = file;
+            this.tmpFile = tmpFile;
+            fileStream = new FileOutputStream(tmpFile);
+            out = new DataOutputStream(new BufferedOutputStream(fileStream, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        void add(final String name, long fetchTime, ByteBuffer data) throws IOException {
+
+            final int length = data.remaining();
+            if (offset + 4 + length > Integer.MAX_VALUE) {
+                throw new IOException("snapshot size limit exceeded");
+            }
+
+            out.writeInt(length);
+            if (data.hasArray()) {
+                out.write(data.array(), data.arrayOffset() + data.position(), length);
+            } else {
+                byte[] bytes = new byte[length];
+                data.get(bytes);
+                out.write(bytes);
+            }
+
+            index.put(name, new Entry(fetchTime, (int) offset));
+            offset += 4 + length;
+        }
+
+        void commit(final String lastModTime) throws IOException {
+
+            out.writeInt(index.size());
+            for (Map.Entry<String, Entry> entry : index.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().fetchTime);
+                out.writeLong(entry.getValue().offset);
+            }
+            out.writeBoolean(lastModTime != null);
+            if (lastModTime != null) {
+                out.writeUTF(lastModTime);
+            }
+            out.writeLong(offset);
+            out.flush();
+
+            // make sure the data is on disk before we replace the
+            // current snapshot file
+
+            fileStream.getFD().sync();
+            out.close();
+
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                out.close();
+                Files.deleteIfExists(tmpFile.toPath());
+            }
+        }
+    }
+}
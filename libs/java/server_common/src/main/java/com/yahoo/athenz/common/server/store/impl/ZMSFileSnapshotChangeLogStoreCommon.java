@@ -0,0 +1,356 @@
+/*
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.yahoo.athenz.common.server.store.impl;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.yahoo.athenz.zms.DomainAttributes;
+import com.yahoo.athenz.zms.JWSDomain;
+import com.yahoo.athenz.zms.SignedDomain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Change log store that keeps the bulk of the local domains in a single
+ * memory mapped snapshot file with CBOR encoded domain records instead
+ * of one json file per domain. Domains updated or deleted since the
+ * snapshot was written are tracked as regular domain files and are
+ * folded into a new snapshot once the number of pending changes
+ * reaches the configured threshold. Deleted domains are only tracked
+ * in memory so the snapshot is rewritten as soon as the changes that
+ * include the delete operations are successfully processed.
+ */
+public class ZMSFileSnapshotChangeLogStoreCommon extends ZMSFileChangeLogStoreCommon {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZMSFileSnapshotChangeLogStoreCommon.class);
+
+    public static final String PROP_SNAPSHOT_ENABLED           = "athenz.common.server.clog.snapshot_enabled";
+    public static final String PROP_SNAPSHOT_COMPACT_THRESHOLD = "athenz.common.server.clog.snapshot_compact_threshold";
+    public static final String PROP_SNAPSHOT_RESTORE_TIMESTAMP = "athenz.common.server.clog.snapshot_restore_timestamp";
+
+    static final String SNAPSHOT_FNAME     = ".snapshot";
+    static final String SNAPSHOT_TMP_FNAME = ".snapshot.tmp";
+
+    ObjectMapper cborMapper;
+    int compactThreshold;
+    volatile ZMSFileSnapshot snapshot;
+
+    final Set<String> pendingDomains = ConcurrentHashMap.newKeySet();
+    final Set<String> deletedDomains = ConcurrentHashMap.newKeySet();
+
+    // domain reads and updates can run concurrently but
+    // rewriting the snapshot requires exclusive access
+
+    private final ReentrantReadWriteLock snapshotRWLock = new ReentrantReadWriteLock();
+    private final Lock snapshotRLock = snapshotRWLock.readLock();
+    private final Lock snapshotWLock = snapshotRWLock.writeLock();
+
+    public ZMSFileSnapshotChangeLogStoreCommon(final String rootDirectory) {
+
+        super(rootDirectory);
+
+        cborMapper = new ObjectMapper(new CBORFactory());
+        cborMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        compactThreshold = Integer.parseInt(System.getProperty(PROP_SNAPSHOT_COMPACT_THRESHOLD, "1000"));
+
+        // any domain files in our directory are considered pending
+        // changes that are not yet part of the snapshot
+
+        pendingDomains.addAll(super.getLocalDomainList());
+
+        // a pending snapshot file is only left behind if we were
+        // interrupted while writing a new snapshot so it's discarded
+
+        deleteSnapshotTmpFile();
+
+        try {
+            snapshot = ZMSFileSnapshot.open(new File(rootDir, SNAPSHOT_FNAME));
+        } catch (IOException ex) {
+
+            // if we can't use our snapshot then we need to discard it
+            // along with our last modification timestamp so we get
+            // the full set of domains from ZMS
+
+            LOGGER.error("Unable to open domain snapshot: {}", ex.getMessage());
+            deleteSnapshotFile();
+            super.setLastModificationTimestamp(null);
+            return;
+        }
+
+        // removing the last modification timestamp file forces a full
+        // resync from ZMS, so without the timestamp we discard our
+        // snapshot. only if explicitly configured (e.g. the snapshot
+        // was copied from another host) we'll use the timestamp from
+        // the snapshot so we only fetch the domains modified since then
+
+        if (snapshot != null && lastModTime == null) {
+            final boolean restoreTimestamp = Boolean.parseBoolean(
+                    System.getProperty(PROP_SNAPSHOT_RESTORE_TIMESTAMP, "false"));
+            if (restoreTimestamp && snapshot.getLastModTime() != null) {
+                super.setLastModificationTimestamp(snapshot.getLastModTime());
+            } else {
+                snapshot = null;
+                deleteSnapshotFile();
+            }
+        }
+    }
+
+    @Override
+    public SignedDomain getLocalSignedDomain(final String domainName) {
+        return getLocalDomain(domainName, SignedDomain.class);
+    }
+
+    @Override
+    public JWSDomain getLocalJWSDomain(final String domainName) {
+        return getLocalDomain(domainName, JWSDomain.class);
+    }
+
+    <T> T getLocalDomain(final String domainName, Class<T> classType) {
+
+        try {
+            snapshotRLock.lock();
+
+            ZMSFileSnapshot current = snapshot;
+            if (current == null || pendingDomains.contains(domainName)) {
+                return get(domainName, classType);
+            }
+
+            if (deletedDomains.contains(domainName)) {
+                return null;
+            }
+
+            ByteBuffer record = current.getRecord(domainName);
+            if (record == null) {
+                return null;
+            }
+
+            try {
+                return cborMapper.readValue(new ByteBufferBackedInputStream(record), classType);
+            } catch (Exception ex) {
+                LOGGER.error("Unable to decode snapshot domain: {} error: {}", domainName, ex.getMessage());
+            }
+            return null;
+
+        } finally {
+            snapshotRLock.unlock();
+        }
+    }
+
+    @Override
+    public void saveLocalDomain(String domainName, SignedDomain signedDomain) {
+
+        try {
+            snapshotRLock.lock();
+            super.saveLocalDomain(domainName, signedDomain);
+            pendingDomains.add(domainName);
+            deletedDomains.remove(domainName);
+        } finally {
+            snapshotRLock.unlock();
+        }
+    }
+
+    @Override
+    public void saveLocalDomain(String domainName, JWSDomain jwsDomain) {
+
+        try {
+            snapshotRLock.lock();
+            super.saveLocalDomain(domainName, jwsDomain);
+            pendingDomains.add(domainName);
+            deletedDomains.remove(domainName);
+        } finally {
+            snapshotRLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeLocalDomain(String domainName) {
+
+        try {
+            snapshotRLock.lock();
+            super.removeLocalDomain(domainName);
+            pendingDomains.remove(domainName);
+            ZMSFileSnapshot current = snapshot;
+            if (current != null && current.contains(domainName)) {
+                deletedDomains.add(domainName);
+            }
+        } finally {
+            snapshotRLock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> getLocalDomainList() {
+
+        // this method is called from our base class constructor
+        // before the snapshot is loaded
+
+        ZMSFileSnapshot current = snapshot;
+        if (current == null) {
+            return super.getLocalDomainList();
+        }
+
+        Set<String> names = new HashSet<>(current.getNames());
+        names.removeAll(deletedDomains);
+        names.addAll(pendingDomains);
+        return new ArrayList<>(names);
+    }
+
+    @Override
+    public Map<String, DomainAttributes> getLocalDomainAttributeList() {
+
+        ZMSFileSnapshot current = snapshot;
+        if (current == null) {
+            return super.getLocalDomainAttributeList();
+        }
+
+        Map<String, DomainAttributes> domainAttrs = new HashMap<>();
+        for (String name : current.getNames()) {
+            if (!deletedDomains.contains(name)) {
+                domainAttrs.put(name, new DomainAttributes().setFetchTime(current.getFetchTime(name)));
+            }
+        }
+        for (String name : pendingDomains) {
+            File file = new File(rootDir, name);
+            domainAttrs.put(name, new DomainAttributes().setFetchTime(file.lastModified() / 1000));
+        }
+        return domainAttrs;
+    }
+
+    @Override
+    public void setLastModificationTimestamp(String newLastModTime) {
+
+        super.setLastModificationTimestamp(newLastModTime);
+
+        // if the timestamp is reset then we must not pick up the
+        // stale value from our snapshot during the next restart
+
+        if (newLastModTime == null) {
+            deleteSnapshotFile();
+            return;
+        }
+
+        // the changes are successfully processed so we'll check
+        // if it's time to fold our pending changes into the snapshot
+
+        if (!deletedDomains.isEmpty() || pendingDomains.size() >= compactThreshold) {
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Write a new snapshot that includes all domains from the current
+     * snapshot along with any pending domain files. Once the snapshot
+     * is successfully written, the pending domain files are deleted.
+     * @return true if the snapshot was successfully written
+     */
+    public boolean writeSnapshot() {
+
+        try {
+            snapshotWLock.lock();
+
+            final long startTime = System.currentTimeMillis();
+            final File snapshotFile = new File(rootDir, SNAPSHOT_FNAME);
+            final File tmpFile = new File(rootDir, SNAPSHOT_TMP_FNAME);
+            setupDomainFile(tmpFile);
+
+            ZMSFileSnapshot current = snapshot;
+            List<String> compactedDomains = new ArrayList<>();
+
+            try (ZMSFileSnapshot.Writer writer = new ZMSFileSnapshot.Writer(snapshotFile, tmpFile)) {
+
+                // first copy all the unmodified records from the current
+                // snapshot without decoding them
+
+                if (current != null) {
+                    for (String name : current.getNames()) {
+                        if (!pendingDomains.contains(name) && !deletedDomains.contains(name)) {
+                            writer.add(name, current.getFetchTime(name), current.getRecord(name));
+                        }
+                    }
+                }
+
+                // then add our pending domain files. we don't need to know
+                // the type of the domain object since we only convert the
+                // json tree to cbor. any file that we can't parse is left
+                // as is to be processed as a regular domain file
+
+                for (String name : pendingDomains) {
+                    JsonNode domain = get(name, JsonNode.class);
+                    if (domain == null) {
+                        continue;
+                    }
+                    final long fetchTime = new File(rootDir, name).lastModified() / 1000;
+                    writer.add(name, fetchTime, ByteBuffer.wrap(cborMapper.writeValueAsBytes(domain)));
+                    compactedDomains.add(name);
+                }
+
+                writer.commit(lastModTime);
+                snapshot = ZMSFileSnapshot.open(snapshotFile);
+
+            } catch (IOException ex) {
+                LOGGER.error("Unable to write domain snapshot: {}", ex.getMessage());
+                deleteSnapshotTmpFile();
+                return false;
+            }
+
+            // our domains are now part of the snapshot so we can
+            // remove the individual domain files
+
+            for (String name : compactedDomains) {
+                delete(name);
+                pendingDomains.remove(name);
+            }
+            deletedDomains.clear();
+
+            LOGGER.info("Domain snapshot with {} domains written in {} ms",
+                    snapshot.getNames().size(), System.currentTimeMillis() - startTime);
+            return true;
+
+        } finally {
+            snapshotWLock.unlock();
+        }
+    }
+
+    void deleteSnapshotFile() {
+        try {
+            Files.deleteIfExists(new File(rootDir, SNAPSHOT_FNAME).toPath());
+        } catch (IOException ex) {
+            LOGGER.error("Unable to delete domain snapshot: {}", ex.getMessage());
+        }
+        deleteSnapshotTmpFile();
+    }
+
+    void deleteSnapshotTmpFile() {
+        try {
+            Files.deleteIfExists(new File(rootDir, SNAPSHOT_TMP_FNAME).toPath());
+        } catch (IOException ex) {
+            LOGGER.error("Unable to delete pending domain snapshot: {}", ex.getMessage());
+        }
+    }
+}
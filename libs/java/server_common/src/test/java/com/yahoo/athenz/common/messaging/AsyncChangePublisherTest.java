@@ -0,0 +1,245 @@
+/*
+ *
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.common.messaging;
+
+import com.yahoo.athenz.common.messaging.impl.AsyncChangePublisher;
+import com.yahoo.athenz.common.metrics.Metric;
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class AsyncChangePublisherTest {
+
+    static class TestChangePublisher implements ChangePublisher<DomainChangeMessage> {
+
+        final List<String> messages = new CopyOnWriteArrayList<>();
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final CountDownLatch latch;
+        boolean failure = false;
+        final AtomicInteger remainingFailures = new AtomicInteger();
+        final AtomicInteger attempts = new AtomicInteger();
+        volatile boolean closed = false;
+
+        TestChangePublisher(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void publish(DomainChangeMessage message) {
+            publishBatch(List.of(message));
+        }
+
+        @Override
+        public void publishBatch(List<DomainChangeMessage> batch) {
+            try {
+                latch.await();
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException("interrupted");
+            }
+            attempts.incrementAndGet();
+            if (failure || remainingFailures.getAndDecrement() > 0) {
+                throw new IllegalStateException("publish failure");
+            }
+            batchSizes.add(batch.size());
+            for (DomainChangeMessage message : batch) {
+                messages.add(message.getDomainName());
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private void waitForEmptyQueue(AsyncChangePublisher<DomainChangeMessage> publisher) throws InterruptedException {
+        for (int i = 0; i < 50 && publisher.getQueueSize() != 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(publisher.getQueueSize(), 0);
+    }
+
+    @Test
+    public void testPublish() {
+
+        Metric metric = Mockito.mock(Metric.class);
+        TestChangePublisher testPublisher = new TestChangePublisher(new CountDownLatch(0));
+        AsyncChangePublisher<DomainChangeMessage> publisher = new AsyncChangePublisher<>(testPublisher,
+                100, 10, 50, 0, 5000, metric);
+
+        List<String> domainNames = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            domainNames.add("domain" + i);
+            publisher.publish(new DomainChangeMessage().setDomainName("domain" + i));
+        }
+        publisher.publishBatch(List.of(new DomainChangeMessage().setDomainName("domain25")));
+        domainNames.add("domain25");
+
+        // closing the publisher must publish all queued messages
+
+        publisher.close();
+        assertTrue(testPublisher.closed);
+
+        assertEquals(testPublisher.messages, domainNames);
+        for (int batchSize : testPublisher.batchSizes) {
+            assertTrue(batchSize <= 10);
+        }
+        assertEquals(publisher.getPublishedCount(), 26);
+        assertEquals(publisher.getDroppedCount(), 0);
+        assertEquals(publisher.getBlockedCount(), 0);
+        assertEquals(publisher.getFailedCount(), 0);
+        Mockito.verifyNoInteractions(metric);
+
+        // messages published after close are dropped
+
+        publisher.publish(new DomainChangeMessage().setDomainName("closed"));
+        assertEquals(publisher.getDroppedCount(), 1);
+        Mockito.verify(metric, Mockito.times(1)).increment(AsyncChangePublisher.METRIC_PUBLISH_DROPPED);
+    }
+
+    @Test
+    public void testPublishQueueFull() throws InterruptedException {
+
+        Metric metric = Mockito.mock(Metric.class);
+        CountDownLatch latch = new CountDownLatch(1);
+        TestChangePublisher testPublisher = new TestChangePublisher(latch);
+        AsyncChangePublisher<DomainChangeMessage> publisher = new AsyncChangePublisher<>(testPublisher,
+                2, 1, 0, 10, 5000, metric);
+
+        // our first message is picked up by the publisher
+        // thread which is blocked until we release the latch
+
+        publisher.publish(new DomainChangeMessage().setDomainName("domain0"));
+        waitForEmptyQueue(publisher);
+
+        publisher.publish(new DomainChangeMessage().setDomainName("domain1"));
+        publisher.publish(new DomainChangeMessage().setDomainName("domain2"));
+        assertEquals(publisher.getQueueSize(), 2);
+
+        // the next message blocks for 10ms and is then dropped
+
+        publisher.publish(new DomainChangeMessage().setDomainName("domain3"));
+        assertEquals(publisher.getBlockedCount(), 1);
+        assertEquals(publisher.getDroppedCount(), 1);
+        Mockito.verify(metric, Mockito.times(1)).increment(AsyncChangePublisher.METRIC_PUBLISH_BLOCKED);
+        Mockito.verify(metric, Mockito.times(1)).increment(AsyncChangePublisher.METRIC_PUBLISH_DROPPED);
+
+        latch.countDown();
+        publisher.close();
+
+        assertEquals(testPublisher.messages, List.of("domain0", "domain1", "domain2"));
+        assertEquals(publisher.getPublishedCount(), 3);
+        assertEquals(publisher.getDroppedCount(), 1);
+    }
+
+    @Test
+    public void testPublishFailure() {
+
+        Metric metric = Mockito.mock(Metric.class);
+        TestChangePublisher testPublisher = new TestChangePublisher(new CountDownLatch(0));
+        testPublisher.failure = true;
+        AsyncChangePublisher<DomainChangeMessage> publisher = new AsyncChangePublisher<>(testPublisher,
+                10, 5, 10, 0, 5000, metric);
+
+        publisher.publish(new DomainChangeMessage().setDomainName("domain0"));
+        publisher.publish(new DomainChangeMessage().setDomainName("domain1"));
+        publisher.close();
+
+        assertTrue(testPublisher.messages.isEmpty());
+        assertEquals(publisher.getPublishedCount(), 0);
+        assertEquals(publisher.getFailedCount(), 2);
+
+        // each batch is retried before it's counted as failed
+
+        assertEquals(testPublisher.attempts.get() % (AsyncChangePublisher.DEFAULT_RETRY_COUNT + 1), 0);
+        Mockito.verify(metric, Mockito.atLeastOnce()).increment(Mockito.eq(AsyncChangePublisher.METRIC_PUBLISH_FAILED),
+                Mockito.isNull(), Mockito.anyInt());
+    }
+
+    @Test
+    public void testPublishRetry() {
+
+        Metric metric = Mockito.mock(Metric.class);
+        TestChangePublisher testPublisher = new TestChangePublisher(new CountDownLatch(0));
+        testPublisher.remainingFailures.set(2);
+        AsyncChangePublisher<DomainChangeMessage> publisher = new AsyncChangePublisher<>(testPublisher,
+                10, 5, 0, 0, 5000, 2, 10, metric);
+
+        // the batch fails twice and is published with the last retry
+
+        publisher.publish(new DomainChangeMessage().setDomainName("domain0"));
+        publisher.close();
+
+        assertEquals(testPublisher.messages, List.of("domain0"));
+        assertEquals(testPublisher.attempts.get(), 3);
+        assertEquals(publisher.getPublishedCount(), 1);
+        assertEquals(publisher.getFailedCount(), 0);
+        Mockito.verifyNoInteractions(metric);
+
+        // without any retries the batch fails right away
+
+        testPublisher = new TestChangePublisher(new CountDownLatch(0));
+        testPublisher.remainingFailures.set(1);
+        publisher = new AsyncChangePublisher<>(testPublisher, 10, 5, 0, 0, 5000, 0, 10, metric);
+
+        publisher.publish(new DomainChangeMessage().setDomainName("domain1"));
+        publisher.close();
+
+        assertTrue(testPublisher.messages.isEmpty());
+        assertEquals(testPublisher.attempts.get(), 1);
+        assertEquals(publisher.getFailedCount(), 1);
+    }
+
+    @Test
+    public void testCloseTimeout() throws InterruptedException {
+
+        Metric metric = Mockito.mock(Metric.class);
+        TestChangePublisher testPublisher = new TestChangePublisher(new CountDownLatch(1));
+        AsyncChangePublisher<DomainChangeMessage> publisher = new AsyncChangePublisher<>(testPublisher,
+                10, 1, 0, 0, 100, metric);
+
+        publisher.publish(new DomainChangeMessage().setDomainName("domain0"));
+        publisher.publish(new DomainChangeMessage().setDomainName("domain1"));
+        publisher.publish(new DomainChangeMessage().setDomainName("domain2"));
+
+        // the publisher is blocked so the first message fails
+        // after the thread is interrupted and the queued messages
+        // are dropped
+
+        publisher.close();
+        assertTrue(testPublisher.closed);
+        assertTrue(testPublisher.messages.isEmpty());
+        assertEquals(publisher.getPublishedCount(), 0);
+        assertEquals(publisher.getQueueSize(), 0);
+
+        // the publisher thread reports its failure once interrupted
+
+        for (int i = 0; i < 50 && publisher.getFailedCount() + publisher.getDroppedCount() < 3; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(publisher.getFailedCount() + publisher.getDroppedCount(), 3);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.common.messaging;
+
+import com.yahoo.athenz.common.messaging.impl.InMemoryChangePublisher;
+import com.yahoo.athenz.common.messaging.impl.InMemoryChangePublisherFactory;
+import com.yahoo.athenz.common.messaging.impl.InMemoryChangeSubscriberFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.testng.Assert.*;
+
+public class InMemoryChangePublisherTest {
+
+    @AfterMethod
+    public void cleanup() {
+        InMemoryChangeSubscriberFactory.reset();
+    }
+
+    @Test
+    public void testInMemoryChangePublisher() throws InterruptedException {
+
+        ChangePublisherFactory<DomainChangeMessage> publisherFactory = new InMemoryChangePublisherFactory<>();
+        ChangePublisher<DomainChangeMessage> publisher = publisherFactory.create(null, "topic1");
+        assertTrue(publisher instanceof InMemoryChangePublisher);
+
+        ChangeSubscriberFactory<DomainChangeMessage> subscriberFactory = new InMemoryChangeSubscriberFactory<>();
+        ChangeSubscriber<DomainChangeMessage> subscriber = subscriberFactory.create(null, "topic1", "sub1", "Exclusive");
+
+        List<String> received = new CopyOnWriteArrayList<>();
+        subscriber.init(msg -> received.add(msg.getDomainName()), DomainChangeMessage.class);
+        Thread thread = new Thread(subscriber);
+        thread.start();
+
+        publisher.publish(new DomainChangeMessage().setDomainName("sports"));
+        publisher.publishBatch(List.of(new DomainChangeMessage().setDomainName("weather"),
+                new DomainChangeMessage().setDomainName("news")));
+
+        for (int i = 0; i < 50 && received.size() < 3; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(received, List.of("sports", "weather", "news"));
+
+        // closed publisher no longer delivers any messages
+
+        publisher.close();
+        assertTrue(((InMemoryChangePublisher<DomainChangeMessage>) publisher).isClosed());
+        publisher.publish(new DomainChangeMessage().setDomainName("finance"));
+
+        subscriber.close();
+        thread.join(1000);
+        assertEquals(received.size(), 3);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.common.messaging;
+
+import com.yahoo.athenz.common.messaging.impl.InMemoryChangeSubscriber;
+import com.yahoo.athenz.common.messaging.impl.InMemoryChangeSubscriberFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.testng.Assert.*;
+
+public class InMemoryChangeSubscriberTest {
+
+    @AfterMethod
+    public void cleanup() {
+        InMemoryChangeSubscriberFactory.reset();
+    }
+
+    @Test
+    public void testInMemoryChangeSubscriber() throws InterruptedException {
+
+        ChangeSubscriberFactory<DomainChangeMessage> factory = new InMemoryChangeSubscriberFactory<>();
+        ChangeSubscriber<DomainChangeMessage> subscriber1 = factory.create(null, "topic1", "sub1", "Exclusive");
+        ChangeSubscriber<DomainChangeMessage> subscriber2 = factory.create(null, "topic1", "sub2", "Exclusive");
+        ChangeSubscriber<DomainChangeMessage> subscriber3 = factory.create(null, "topic2", "sub3", "Exclusive");
+        assertTrue(subscriber1 instanceof InMemoryChangeSubscriber);
+
+        List<String> received1 = new CopyOnWriteArrayList<>();
+        List<String> received2 = new CopyOnWriteArrayList<>();
+        subscriber1.init(msg -> received1.add(msg.getDomainName()), DomainChangeMessage.class);
+        subscriber2.init(msg -> {
+            // failures in the processor must not stop the subscriber
+            if ("fail".equals(msg.getDomainName())) {
+                throw new IllegalArgumentException("processor failure");
+            }
+            received2.add(msg.getDomainName());
+        }, DomainChangeMessage.class);
+        subscriber3.init(msg -> fail(), DomainChangeMessage.class);
+
+        Thread thread1 = new Thread(subscriber1);
+        Thread thread2 = new Thread(subscriber2);
+        thread1.start();
+        thread2.start();
+
+        assertEquals(InMemoryChangeSubscriberFactory.publish("topic1", new DomainChangeMessage().setDomainName("fail")), 2);
+        assertEquals(InMemoryChangeSubscriberFactory.publish("topic1", new DomainChangeMessage().setDomainName("sports")), 2);
+        assertEquals(InMemoryChangeSubscriberFactory.publish("unknown", new DomainChangeMessage().setDomainName("sports")), 0);
+
+        for (int i = 0; i < 50 && (received1.size() < 2 || received2.isEmpty()); i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(received1, List.of("fail", "sports"));
+        assertEquals(received2, List.of("sports"));
+
+        // closed subscribers no longer receive any messages
+
+        subscriber1.close();
+        thread1.join(1000);
+        assertFalse(thread1.isAlive());
+        assertEquals(InMemoryChangeSubscriberFactory.publish("topic1", new DomainChangeMessage().setDomainName("weather")), 1);
+
+        // interrupting the thread stops the subscriber
+
+        thread2.interrupt();
+        thread2.join(1000);
+        assertFalse(thread2.isAlive());
+
+        subscriber2.close();
+        subscriber3.close();
+        assertEquals(InMemoryChangeSubscriberFactory.publish("topic1", new DomainChangeMessage()), 0);
+    }
+}
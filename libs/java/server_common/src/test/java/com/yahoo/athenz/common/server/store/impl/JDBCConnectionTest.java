@@ -15,6 +15,7 @@
  */
 package com.yahoo.athenz.common.server.store.impl;
 
+import com.yahoo.athenz.common.metrics.Metric;
 import com.yahoo.athenz.common.server.db.PoolableDataSource;
 import com.yahoo.athenz.common.server.ServerResourceException;
 import com.yahoo.athenz.common.server.store.PrincipalGroup;
@@ -2208,6 +2209,328 @@ public class JDBCConnectionTest {
         jdbcConn.close();
     }
 
+    @Test
+    public void testInsertRoleMembers() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        Mockito.when(mockResultSet.getInt(1))
+                .thenReturn(5) // domain id
+                .thenReturn(7) // role id
+                .thenReturn(11) // principal domain id
+                .thenReturn(101).thenReturn(102).thenReturn(103) // principal ids
+                .thenReturn(102); // existing standard member
+        Mockito.when(mockResultSet.getString(2))
+                .thenReturn("user.user1").thenReturn("user.user2").thenReturn("user.user3");
+        Mockito.when(mockResultSet.next())
+                .thenReturn(true) // domain id
+                .thenReturn(true) // role id
+                .thenReturn(true) // validate principal domain
+                .thenReturn(true).thenReturn(true).thenReturn(true).thenReturn(false) // principal ids
+                .thenReturn(true).thenReturn(false) // standard members
+                .thenReturn(false); // pending members
+        Mockito.when(mockPrepStmt.executeBatch()).thenReturn(new int[]{1});
+
+        // the last entry for user1 is processed as an update
+
+        List<RoleMember> roleMembers = new ArrayList<>();
+        roleMembers.add(new RoleMember().setMemberName("user.user1"));
+        roleMembers.add(new RoleMember().setMemberName("user.user2"));
+        roleMembers.add(new RoleMember().setMemberName("user.user3").setApproved(false).setPendingState("ADD"));
+        roleMembers.add(new RoleMember().setMemberName("user.user1"));
+
+        assertTrue(jdbcConn.insertRoleMembers("my-domain", "role1", roleMembers, "user.admin", "audit-ref"));
+
+        // all principal ids are retrieved with a single query
+
+        Mockito.verify(mockPrepStmt, times(1)).setString(1, "user.user1");
+        Mockito.verify(mockPrepStmt, times(1)).setString(2, "user.user2");
+        Mockito.verify(mockPrepStmt, times(2)).setString(3, "user.user3");
+
+        // one insert, one pending insert and one update batch plus
+        // the audit log batch with all the entries
+
+        Mockito.verify(mockPrepStmt, times(1)).setString(4, "ADD");
+        Mockito.verify(mockPrepStmt, times(2)).setString(4, "UPDATE");
+        Mockito.verify(mockPrepStmt, times(1)).setString(4, "REQUEST");
+        Mockito.verify(mockPrepStmt, times(1)).setString(7, "ADD");
+        Mockito.verify(mockPrepStmt, times(8)).addBatch();
+        Mockito.verify(mockPrepStmt, times(4)).executeBatch();
+        Mockito.verify(mockPrepStmt, Mockito.never()).executeUpdate();
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testInsertRoleMembersNewPrincipals() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        Mockito.when(mockResultSet.getInt(1))
+                .thenReturn(5) // domain id
+                .thenReturn(7) // role id
+                .thenReturn(11) // principal domain id
+                .thenReturn(101); // inserted principal id
+        Mockito.when(mockResultSet.getString(2)).thenReturn("user.user1");
+        Mockito.when(mockResultSet.next())
+                .thenReturn(true) // domain id
+                .thenReturn(true) // role id
+                .thenReturn(true) // validate principal domain
+                .thenReturn(false) // principal ids
+                .thenReturn(true).thenReturn(false) // principal ids after insert
+                .thenReturn(false) // standard members
+                .thenReturn(false); // pending members
+
+        // the principal insert returns a duplicate entry exception
+        // since another thread inserted the same principal
+
+        Mockito.when(mockPrepStmt.executeBatch())
+                .thenThrow(new SQLException("duplicate entry", "23000", 1062))
+                .thenReturn(new int[]{1});
+
+        List<RoleMember> roleMembers = Collections.singletonList(new RoleMember().setMemberName("user.user1"));
+        assertTrue(jdbcConn.insertRoleMembers("my-domain", "role1", roleMembers, "user.admin", "audit-ref"));
+
+        // lookup, batch insert and lookup after the insert
+
+        Mockito.verify(mockPrepStmt, times(3)).setString(1, "user.user1");
+        Mockito.verify(mockPrepStmt, times(1)).setString(4, "ADD");
+        Mockito.verify(mockPrepStmt, times(3)).executeBatch();
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testInsertRoleMembersPrincipalConflict() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        Mockito.when(mockResultSet.getInt(1))
+                .thenReturn(5) // domain id
+                .thenReturn(7) // role id
+                .thenReturn(11); // principal domain id
+        Mockito.when(mockResultSet.next())
+                .thenReturn(true) // domain id
+                .thenReturn(true) // role id
+                .thenReturn(true) // validate principal domain
+                .thenReturn(false) // principal ids
+                .thenReturn(false); // principal ids after insert
+        Mockito.when(mockPrepStmt.executeBatch()).thenReturn(new int[]{0});
+
+        List<RoleMember> roleMembers = Collections.singletonList(new RoleMember().setMemberName("user.user1"));
+        try {
+            jdbcConn.insertRoleMembers("my-domain", "role1", roleMembers, "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.CONFLICT);
+        }
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testInsertRoleMembersPrincipalFailure() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        Mockito.when(mockResultSet.getInt(1))
+                .thenReturn(5) // domain id
+                .thenReturn(7) // role id
+                .thenReturn(11); // principal domain id
+        Mockito.when(mockResultSet.next())
+                .thenReturn(true) // domain id
+                .thenReturn(true) // role id
+                .thenReturn(true) // validate principal domain
+                .thenReturn(false); // principal ids
+        Mockito.when(mockPrepStmt.executeBatch()).thenThrow(new SQLException("failed operation", "state", 1001));
+
+        List<RoleMember> roleMembers = Collections.singletonList(new RoleMember().setMemberName("user.user1"));
+        try {
+            jdbcConn.insertRoleMembers("my-domain", "role1", roleMembers, "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.INTERNAL_SERVER_ERROR);
+        }
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testInsertRoleMembersPendingStateMismatch() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        Mockito.when(mockResultSet.getInt(1))
+                .thenReturn(5) // domain id
+                .thenReturn(7) // role id
+                .thenReturn(11) // principal domain id
+                .thenReturn(101) // principal id
+                .thenReturn(101); // existing pending member
+        Mockito.when(mockResultSet.getString(2))
+                .thenReturn("user.user1") // principal name
+                .thenReturn("DELETE"); // pending state
+        Mockito.when(mockResultSet.next())
+                .thenReturn(true) // domain id
+                .thenReturn(true) // role id
+                .thenReturn(true) // validate principal domain
+                .thenReturn(true).thenReturn(false) // principal ids
+                .thenReturn(false) // standard members
+                .thenReturn(true).thenReturn(false); // pending members
+
+        List<RoleMember> roleMembers = Collections.singletonList(new RoleMember().setMemberName("user.user1")
+                .setApproved(false).setPendingState("ADD"));
+        try {
+            jdbcConn.insertRoleMembers("my-domain", "role1", roleMembers, "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.BAD_REQUEST);
+        }
+        Mockito.verify(mockPrepStmt, Mockito.never()).executeBatch();
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testInsertRoleMembersBatchFailure() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        Mockito.when(mockResultSet.getInt(1))
+                .thenReturn(5) // domain id
+                .thenReturn(7) // role id
+                .thenReturn(11) // principal domain id
+                .thenReturn(101); // principal id
+        Mockito.when(mockResultSet.getString(2)).thenReturn("user.user1");
+        Mockito.when(mockResultSet.next())
+                .thenReturn(true) // domain id
+                .thenReturn(true) // role id
+                .thenReturn(true) // validate principal domain
+                .thenReturn(true).thenReturn(false) // principal ids
+                .thenReturn(false) // standard members
+                .thenReturn(false); // pending members
+        Mockito.when(mockPrepStmt.executeBatch()).thenReturn(new int[]{0});
+
+        List<RoleMember> roleMembers = Collections.singletonList(new RoleMember().setMemberName("user.user1"));
+        assertFalse(jdbcConn.insertRoleMembers("my-domain", "role1", roleMembers, "user.admin", "audit-ref"));
+
+        // the audit log entries are not inserted
+
+        Mockito.verify(mockPrepStmt, times(1)).executeBatch();
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testInsertRoleMembersInvalidObjects() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+        List<RoleMember> roleMembers = Collections.singletonList(new RoleMember().setMemberName("user.user1"));
+
+        // unknown domain
+
+        Mockito.when(mockResultSet.next()).thenReturn(false);
+        try {
+            jdbcConn.insertRoleMembers("my-domain", "role1", roleMembers, "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.NOT_FOUND);
+            assertTrue(ex.getMessage().contains("my-domain"));
+        }
+
+        // unknown role
+
+        Mockito.when(mockResultSet.getInt(1)).thenReturn(5);
+        Mockito.when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        try {
+            jdbcConn.insertRoleMembers("my-domain", "role1", roleMembers, "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.NOT_FOUND);
+            assertTrue(ex.getMessage().contains("my-domain:role.role1"));
+        }
+
+        // unknown principal domain - the domain id is now cached
+
+        Mockito.when(mockResultSet.getInt(1)).thenReturn(7);
+        Mockito.when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        try {
+            jdbcConn.insertRoleMembers("my-domain", "role1", roleMembers, "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.NOT_FOUND);
+            assertTrue(ex.getMessage().contains("user.user1"));
+        }
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testDeleteRoleMembers() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        Mockito.when(mockResultSet.getInt(1))
+                .thenReturn(5) // domain id
+                .thenReturn(7) // role id
+                .thenReturn(101).thenReturn(102); // principal ids
+        Mockito.when(mockResultSet.getString(2))
+                .thenReturn("user.user1").thenReturn("user.user2");
+        Mockito.when(mockResultSet.next())
+                .thenReturn(true) // domain id
+                .thenReturn(true) // role id
+                .thenReturn(true).thenReturn(true).thenReturn(false); // principal ids
+        Mockito.when(mockPrepStmt.executeBatch()).thenReturn(new int[]{1, 1});
+
+        assertTrue(jdbcConn.deleteRoleMembers("my-domain", "role1", Arrays.asList("user.user1", "user.user2"),
+                "user.admin", "audit-ref"));
+
+        Mockito.verify(mockPrepStmt, times(2)).setString(4, "DELETE");
+        Mockito.verify(mockPrepStmt, times(1)).setInt(2, 101);
+        Mockito.verify(mockPrepStmt, times(1)).setInt(2, 102);
+        Mockito.verify(mockPrepStmt, times(4)).addBatch();
+        Mockito.verify(mockPrepStmt, times(2)).executeBatch();
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testDeleteRoleMembersFailures() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        // unknown principal
+
+        Mockito.when(mockResultSet.getInt(1))
+                .thenReturn(5) // domain id
+                .thenReturn(7) // role id
+                .thenReturn(101); // principal id
+        Mockito.when(mockResultSet.getString(2)).thenReturn("user.user1");
+        Mockito.when(mockResultSet.next())
+                .thenReturn(true) // domain id
+                .thenReturn(true) // role id
+                .thenReturn(true).thenReturn(false); // principal ids
+        try {
+            jdbcConn.deleteRoleMembers("my-domain", "role1", Arrays.asList("user.user1", "user.user2"),
+                    "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.NOT_FOUND);
+            assertTrue(ex.getMessage().contains("user.user2"));
+        }
+
+        // member not deleted - user1 principal id is now cached
+
+        Mockito.when(mockResultSet.getInt(1)).thenReturn(7);
+        Mockito.when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        Mockito.when(mockPrepStmt.executeBatch()).thenReturn(new int[]{0});
+        assertFalse(jdbcConn.deleteRoleMembers("my-domain", "role1", Collections.singletonList("user.user1"),
+                "user.admin", "audit-ref"));
+
+        // sql exception
+
+        Mockito.when(mockPrepStmt.executeBatch()).thenThrow(new SQLException("failed operation", "state", 1001));
+        try {
+            jdbcConn.deleteRoleMembers("my-domain", "role1", Collections.singletonList("user.user1"),
+                    "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.INTERNAL_SERVER_ERROR);
+        }
+        jdbcConn.close();
+    }
+
     @Test
     public void testInsertRoleMemberInvalidDomain() throws Exception {
 
@@ -6990,6 +7313,163 @@ public class JDBCConnectionTest {
         jdbcConn.close();
     }
 
+    @Test
+    public void testGetAthenzDomainMultiQuery() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+        jdbcConn.setMultiQueryDomainLoad(true);
+
+        Metric metric = Mockito.mock(Metric.class);
+        Mockito.when(metric.startTiming(ArgumentMatchers.anyString(), ArgumentMatchers.eq("my-domain")))
+                .thenReturn("timer");
+        jdbcConn.setMetric(metric);
+
+        Mockito.doReturn(true).when(mockPrepStmt).execute();
+        Mockito.doReturn(true).when(mockPrepStmt).getMoreResults();
+        Mockito.doReturn(mockResultSet).when(mockPrepStmt).getResultSet();
+
+        // one domain with 1 contact, 1 role with 1 member and 1 tag
+        // 1 policy with 1 assertion, 1 service with 1 host and 1 key
+        Mockito.when(mockResultSet.next()).thenReturn(true) // domain
+            .thenReturn(false) // no domain tags
+            .thenReturn(true).thenReturn(false) // 1 contact
+            .thenReturn(true).thenReturn(false) // 1 role
+            .thenReturn(true).thenReturn(false) // 1 role member
+            .thenReturn(true).thenReturn(false) // 1 role tag
+            .thenReturn(false) // no groups
+            .thenReturn(false) // no group members
+            .thenReturn(false) // no group tags
+            .thenReturn(true).thenReturn(false) // 1 policy
+            .thenReturn(true).thenReturn(false) // 1 assertion
+            .thenReturn(false) // no assertion conditions
+            .thenReturn(false) // no policy tags
+            .thenReturn(true).thenReturn(false) // 1 service
+            .thenReturn(true).thenReturn(false) // 1 host
+            .thenReturn(true).thenReturn(false) // 1 public key
+            .thenReturn(false) // no service tags
+            .thenReturn(false); // no entities
+
+        Mockito.doReturn("").when(mockResultSet).getString(ArgumentMatchers.anyString());
+        Mockito.doReturn(5).when(mockResultSet).getInt(JDBCConsts.DB_COLUMN_DOMAIN_ID);
+        Mockito.doReturn(new java.sql.Timestamp(1454358916)).when(mockResultSet).getTimestamp(JDBCConsts.DB_COLUMN_MODIFIED);
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_TYPE)).thenReturn("security-contact");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_NAME))
+            .thenReturn("user.joe") // contact name
+            .thenReturn("role1") // role name
+            .thenReturn("policy1") // policy name
+            .thenReturn("service1"); // service name
+        Mockito.when(mockResultSet.getString(1))
+            .thenReturn("role1") // role member
+            .thenReturn("role1") // role tag
+            .thenReturn("service1"); // service host and public key
+        Mockito.when(mockResultSet.getString(2))
+            .thenReturn("user.jane") // role member name
+            .thenReturn("role-tag-key") // role tag key
+            .thenReturn("host1"); // service host name
+        Mockito.when(mockResultSet.getString(3)).thenReturn("role-tag-val");
+        Mockito.when(mockResultSet.getInt(JDBCConsts.DB_COLUMN_POLICY_ID)).thenReturn(10001);
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_ROLE)).thenReturn("role1");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_RESOURCE)).thenReturn("my-domain:*");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_ACTION)).thenReturn("read");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_EFFECT)).thenReturn("ALLOW");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_KEY_ID)).thenReturn("zms1.zone1");
+        Mockito.when(mockResultSet.getString(JDBCConsts.DB_COLUMN_KEY_VALUE)).thenReturn("Value1");
+
+        AthenzDomain athenzDomain = jdbcConn.getAthenzDomain("my-domain");
+        assertNotNull(athenzDomain);
+        assertEquals(athenzDomain.getDomain().getName(), "my-domain");
+        assertNull(athenzDomain.getDomain().getTags());
+        assertEquals(athenzDomain.getDomain().getContacts().get("security-contact"), "user.joe");
+        assertEquals(athenzDomain.getRoles().size(), 1);
+        assertEquals(athenzDomain.getRoles().get(0).getName(), "my-domain:role.role1");
+        assertEquals(athenzDomain.getRoles().get(0).getRoleMembers().get(0).getMemberName(), "user.jane");
+        assertEquals(athenzDomain.getRoles().get(0).getTags().get("role-tag-key").getList().get(0), "role-tag-val");
+        assertTrue(athenzDomain.getGroups().isEmpty());
+        assertEquals(athenzDomain.getPolicies().size(), 1);
+        assertEquals(athenzDomain.getPolicies().get(0).getName(), "my-domain:policy.policy1");
+        assertEquals(athenzDomain.getPolicies().get(0).getAssertions().size(), 1);
+        assertEquals(athenzDomain.getPolicies().get(0).getAssertions().get(0).getRole(), "my-domain:role.role1");
+        assertEquals(athenzDomain.getServices().size(), 1);
+        assertEquals(athenzDomain.getServices().get(0).getHosts().get(0), "host1");
+        assertEquals(athenzDomain.getServices().get(0).getPublicKeys().get(0).getId(), "zms1.zone1");
+        assertTrue(athenzDomain.getEntities().isEmpty());
+
+        // only two statements - the domain and the multi-query one
+        // with the domain id set for all queries
+
+        Mockito.verify(mockConn, times(2)).prepareStatement(ArgumentMatchers.isA(String.class));
+        Mockito.verify(mockPrepStmt, times(1)).setString(1, "my-domain");
+        Mockito.verify(mockPrepStmt, times(17)).setInt(ArgumentMatchers.anyInt(), ArgumentMatchers.eq(5));
+        Mockito.verify(mockPrepStmt, times(16)).getMoreResults();
+
+        // domain, query and process phases are timed
+
+        Mockito.verify(metric, times(3)).startTiming(ArgumentMatchers.anyString(), ArgumentMatchers.eq("my-domain"));
+        Mockito.verify(metric, times(3)).stopTiming("timer");
+
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testGetAthenzDomainMultiQueryMissingResultSets() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+        jdbcConn.setMultiQueryDomainLoad(true);
+
+        Mockito.doReturn(true).when(mockPrepStmt).execute();
+        Mockito.doReturn(false).when(mockPrepStmt).getMoreResults();
+        Mockito.doReturn(mockResultSet).when(mockPrepStmt).getResultSet();
+
+        Mockito.when(mockResultSet.next()).thenReturn(true) // domain
+            .thenReturn(false); // no domain tags
+        Mockito.doReturn("").when(mockResultSet).getString(ArgumentMatchers.anyString());
+        Mockito.doReturn(5).when(mockResultSet).getInt(JDBCConsts.DB_COLUMN_DOMAIN_ID);
+        Mockito.doReturn(new java.sql.Timestamp(1454358916)).when(mockResultSet).getTimestamp(JDBCConsts.DB_COLUMN_MODIFIED);
+
+        try {
+            jdbcConn.getAthenzDomain("my-domain");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.INTERNAL_SERVER_ERROR);
+        }
+
+        // no result set at all for the multi-query statement
+
+        Mockito.doReturn(false).when(mockPrepStmt).execute();
+        Mockito.when(mockResultSet.next()).thenReturn(true);
+
+        try {
+            jdbcConn.getAthenzDomain("my-domain");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.INTERNAL_SERVER_ERROR);
+        }
+
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testGetAthenzDomainMultiQueryException() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+        jdbcConn.setMultiQueryDomainLoad(true);
+
+        Mockito.when(mockResultSet.next()).thenReturn(true); // domain
+        Mockito.doReturn("").when(mockResultSet).getString(ArgumentMatchers.anyString());
+        Mockito.doReturn(5).when(mockResultSet).getInt(JDBCConsts.DB_COLUMN_DOMAIN_ID);
+        Mockito.doReturn(new java.sql.Timestamp(1454358916)).when(mockResultSet).getTimestamp(JDBCConsts.DB_COLUMN_MODIFIED);
+        Mockito.when(mockPrepStmt.execute()).thenThrow(new SQLException("failed operation", "state", 1001));
+
+        try {
+            jdbcConn.getAthenzDomain("my-domain");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.INTERNAL_SERVER_ERROR);
+        }
+
+        jdbcConn.close();
+    }
+
     @Test
     public void testSetName() {
         AthenzDomain athenzDomain = new AthenzDomain("my-domain");
@@ -11929,6 +12409,183 @@ public class JDBCConnectionTest {
         jdbcConn.close();
     }
 
+    @Test
+    public void testInsertGroupMembers() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        Mockito.when(mockResultSet.getInt(1))
+                .thenReturn(5) // domain id
+                .thenReturn(7) // group id
+                .thenReturn(11) // principal domain id
+                .thenReturn(101).thenReturn(102) // principal ids
+                .thenReturn(102); // existing pending member
+        Mockito.when(mockResultSet.getString(2))
+                .thenReturn("user.user1").thenReturn("user.user2")
+                .thenReturn("ADD"); // pending state
+        Mockito.when(mockResultSet.next())
+                .thenReturn(true) // domain id
+                .thenReturn(true) // group id
+                .thenReturn(true) // validate principal domain
+                .thenReturn(true).thenReturn(true).thenReturn(false) // principal ids
+                .thenReturn(false) // standard members
+                .thenReturn(true).thenReturn(false); // pending members
+        Mockito.when(mockPrepStmt.executeBatch()).thenReturn(new int[]{1});
+
+        List<GroupMember> groupMembers = new ArrayList<>();
+        groupMembers.add(new GroupMember().setMemberName("user.user1"));
+        groupMembers.add(new GroupMember().setMemberName("user.user2").setApproved(false).setPendingState("ADD"));
+
+        assertTrue(jdbcConn.insertGroupMembers("my-domain", "group1", groupMembers, "user.admin", "audit-ref"));
+
+        Mockito.verify(mockPrepStmt, times(1)).setString(1, "user.user1");
+        Mockito.verify(mockPrepStmt, times(1)).setString(2, "user.user2");
+        Mockito.verify(mockPrepStmt, times(1)).setString(4, "ADD");
+        Mockito.verify(mockPrepStmt, times(1)).setString(4, "REQUEST");
+        Mockito.verify(mockPrepStmt, times(1)).setInt(4, 7);
+        Mockito.verify(mockPrepStmt, times(1)).setInt(5, 102);
+        Mockito.verify(mockPrepStmt, times(4)).addBatch();
+        Mockito.verify(mockPrepStmt, times(3)).executeBatch();
+        Mockito.verify(mockPrepStmt, Mockito.never()).executeUpdate();
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testInsertGroupMembersUpdate() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        Mockito.when(mockResultSet.getInt(1))
+                .thenReturn(5) // domain id
+                .thenReturn(7) // group id
+                .thenReturn(11) // principal domain id
+                .thenReturn(101) // principal id
+                .thenReturn(101); // existing standard member
+        Mockito.when(mockResultSet.getString(2)).thenReturn("user.user1");
+        Mockito.when(mockResultSet.next())
+                .thenReturn(true) // domain id
+                .thenReturn(true) // group id
+                .thenReturn(true) // validate principal domain
+                .thenReturn(true).thenReturn(false) // principal ids
+                .thenReturn(true).thenReturn(false) // standard members
+                .thenReturn(false); // pending members
+        Mockito.when(mockPrepStmt.executeBatch()).thenReturn(new int[]{0}).thenReturn(new int[]{1});
+
+        // the update results are not checked
+
+        List<GroupMember> groupMembers = Collections.singletonList(new GroupMember().setMemberName("user.user1"));
+        assertTrue(jdbcConn.insertGroupMembers("my-domain", "group1", groupMembers, "user.admin", "audit-ref"));
+
+        Mockito.verify(mockPrepStmt, times(1)).setString(4, "UPDATE");
+        Mockito.verify(mockPrepStmt, times(2)).executeBatch();
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testInsertGroupMembersInvalidObjects() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+        List<GroupMember> groupMembers = Collections.singletonList(new GroupMember().setMemberName("user.user1"));
+
+        // unknown domain
+
+        Mockito.when(mockResultSet.next()).thenReturn(false);
+        try {
+            jdbcConn.insertGroupMembers("my-domain", "group1", groupMembers, "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.NOT_FOUND);
+            assertTrue(ex.getMessage().contains("my-domain"));
+        }
+
+        // unknown group
+
+        Mockito.when(mockResultSet.getInt(1)).thenReturn(5);
+        Mockito.when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        try {
+            jdbcConn.insertGroupMembers("my-domain", "group1", groupMembers, "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.NOT_FOUND);
+            assertTrue(ex.getMessage().contains("my-domain:group.group1"));
+        }
+
+        // unknown principal domain - the domain id is now cached
+
+        Mockito.when(mockResultSet.getInt(1)).thenReturn(7);
+        Mockito.when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        try {
+            jdbcConn.insertGroupMembers("my-domain", "group1", groupMembers, "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.NOT_FOUND);
+            assertTrue(ex.getMessage().contains("user.user1"));
+        }
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testDeleteGroupMembers() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        Mockito.when(mockResultSet.getInt(1))
+                .thenReturn(5) // domain id
+                .thenReturn(7) // group id
+                .thenReturn(101).thenReturn(102); // principal ids
+        Mockito.when(mockResultSet.getString(2))
+                .thenReturn("user.user1").thenReturn("user.user2");
+        Mockito.when(mockResultSet.next())
+                .thenReturn(true) // domain id
+                .thenReturn(true) // group id
+                .thenReturn(true).thenReturn(true).thenReturn(false); // principal ids
+        Mockito.when(mockPrepStmt.executeBatch()).thenReturn(new int[]{1, 1}).thenReturn(new int[]{1, 0});
+
+        // the audit log entry for user2 was not inserted
+
+        assertFalse(jdbcConn.deleteGroupMembers("my-domain", "group1", Arrays.asList("user.user1", "user.user2"),
+                "user.admin", "audit-ref"));
+
+        Mockito.verify(mockPrepStmt, times(2)).setString(4, "DELETE");
+        Mockito.verify(mockPrepStmt, times(4)).addBatch();
+        Mockito.verify(mockPrepStmt, times(2)).executeBatch();
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testDeleteGroupMembersFailures() throws Exception {
+
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+
+        // unknown domain
+
+        Mockito.when(mockResultSet.next()).thenReturn(false);
+        try {
+            jdbcConn.deleteGroupMembers("my-domain", "group1", Collections.singletonList("user.user1"),
+                    "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.NOT_FOUND);
+        }
+
+        // unknown principal
+
+        Mockito.when(mockResultSet.getInt(1)).thenReturn(5).thenReturn(7);
+        Mockito.when(mockResultSet.next())
+                .thenReturn(true) // domain id
+                .thenReturn(true) // group id
+                .thenReturn(false); // principal ids
+        try {
+            jdbcConn.deleteGroupMembers("my-domain", "group1", Collections.singletonList("user.user1"),
+                    "user.admin", "audit-ref");
+            fail();
+        } catch (ServerResourceException ex) {
+            assertEquals(ex.getCode(), ServerResourceException.NOT_FOUND);
+            assertTrue(ex.getMessage().contains("user.user1"));
+        }
+        jdbcConn.close();
+    }
+
     @Test
     public void testInsertGroupMemberInvalidDomain() throws Exception {
 
@@ -17875,6 +18532,80 @@ public class JDBCConnectionTest {
         jdbcConn.close();
     }
 
+    @Test
+    public void testEnforceRoleAuditLogLimitBatchEntries() throws Exception {
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+        jdbcConn.setAuditLogLimits(100, 10, 100, 10);
+
+        // Mock the count query to return 95 (below max of 100 but
+        // the batch of 6 new entries would exceed the limit)
+        Mockito.when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        Mockito.when(mockResultSet.getInt(1)).thenReturn(95);
+        Mockito.doReturn(85).when(mockPrepStmt).executeUpdate();
+
+        jdbcConn.enforceRoleAuditLogLimit(5, 6, "testCaller");
+
+        // Verify cleanup was executed with the configured keep count
+        Mockito.verify(mockPrepStmt, times(1)).executeQuery();
+        Mockito.verify(mockPrepStmt, times(1)).executeUpdate();
+        Mockito.verify(mockPrepStmt, times(1)).setInt(2, 10); // keepCount at index 2
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testEnforceRoleAuditLogLimitBatchBelowMax() throws Exception {
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+        jdbcConn.setAuditLogLimits(100, 10, 100, 10);
+
+        // Mock the count query to return 95 with a batch of 5 entries
+        // which is exactly at our limit so no cleanup is required
+        Mockito.when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        Mockito.when(mockResultSet.getInt(1)).thenReturn(95);
+
+        jdbcConn.enforceRoleAuditLogLimit(5, 5, "testCaller");
+
+        Mockito.verify(mockPrepStmt, times(1)).executeQuery();
+        Mockito.verify(mockPrepStmt, times(0)).executeUpdate();
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testEnforceGroupAuditLogLimitLargeBatch() throws Exception {
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+        jdbcConn.setAuditLogLimits(100, 10, 100, 10);
+
+        // Mock the count query to return 20 with a batch of 95 entries
+        // so we need to keep fewer entries to stay within the limit
+        Mockito.when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        Mockito.when(mockResultSet.getInt(1)).thenReturn(20);
+        Mockito.doReturn(15).when(mockPrepStmt).executeUpdate();
+
+        jdbcConn.enforceGroupAuditLogLimit(7, 95, "testCaller");
+
+        Mockito.verify(mockPrepStmt, times(1)).executeQuery();
+        Mockito.verify(mockPrepStmt, times(1)).executeUpdate();
+        Mockito.verify(mockPrepStmt, times(1)).setInt(2, 5); // keepCount at index 2
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testEnforceGroupAuditLogLimitBatchAboveMax() throws Exception {
+        JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
+        jdbcConn.setAuditLogLimits(100, 10, 100, 10);
+
+        // a batch larger than the limit removes all existing entries
+        Mockito.when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        Mockito.when(mockResultSet.getInt(1)).thenReturn(20);
+        Mockito.doReturn(20).when(mockPrepStmt).executeUpdate();
+
+        jdbcConn.enforceGroupAuditLogLimit(7, 150, "testCaller");
+
+        Mockito.verify(mockPrepStmt, times(1)).executeQuery();
+        Mockito.verify(mockPrepStmt, times(1)).executeUpdate();
+        Mockito.verify(mockPrepStmt, times(1)).setInt(2, 0); // keepCount at index 2
+        jdbcConn.close();
+    }
+
     @Test
     public void testEnforceRoleAuditLogLimitSQLException() throws Exception {
         JDBCConnection jdbcConn = new JDBCConnection(mockConn, true);
@@ -16,13 +16,16 @@
 package com.yahoo.athenz.common.server.store.impl;
 
 import com.yahoo.athenz.auth.PrivateKeyStore;
+import com.yahoo.athenz.common.ServerCommonConsts;
 import com.yahoo.athenz.common.server.db.PoolableDataSource;
 import com.yahoo.athenz.common.server.store.ObjectStore;
 import org.mockito.Mockito;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
-import static org.testng.Assert.assertNotNull;
+import java.util.Properties;
+
+import static org.testng.Assert.*;
 
 public class JDBCObjectStoreFactoryTest {
 
@@ -107,4 +110,23 @@ public class JDBCObjectStoreFactoryTest {
         JDBCObjectStoreFactory factory = new JDBCObjectStoreFactory();
         factory.runSchemaMigrations(mockDs);
     }
+
+    @Test
+    public void testGetPropertiesMultiQueryDomainLoad() {
+
+        JDBCObjectStoreFactory factory = new JDBCObjectStoreFactory();
+
+        Properties properties = factory.getProperties("user", "password".toCharArray(), true);
+        assertNull(properties.getProperty(ServerCommonConsts.DB_PROP_ALLOW_MULTI_QUERIES));
+
+        System.setProperty(JDBCConsts.ZMS_PROP_MYSQL_MULTI_QUERY_DOMAIN_LOAD, "true");
+        properties = factory.getProperties("user", "password".toCharArray(), true);
+        assertEquals(properties.getProperty(ServerCommonConsts.DB_PROP_ALLOW_MULTI_QUERIES), "true");
+
+        // multiple statements are never allowed for the read-write store
+
+        properties = factory.getProperties("user", "password".toCharArray(), false);
+        assertNull(properties.getProperty(ServerCommonConsts.DB_PROP_ALLOW_MULTI_QUERIES));
+        System.clearProperty(JDBCConsts.ZMS_PROP_MYSQL_MULTI_QUERY_DOMAIN_LOAD);
+    }
 }
@@ -24,6 +24,7 @@ import com.yahoo.athenz.zms.DomainOptions;
 import org.mockito.Mockito;
 import org.testng.annotations.Test;
 
+import com.yahoo.athenz.common.metrics.Metric;
 import com.yahoo.athenz.common.server.db.PoolableDataSource;
 
 import static org.testng.Assert.*;
@@ -52,6 +53,42 @@ public class JDBCObjectStoreTest {
         assertEquals(jdbcConn.con, roMockConn);
     }
     
+    @Test
+    public void testGetConnectionMultiQueryDomainLoad() throws Exception {
+
+        PoolableDataSource mockDataSrc = Mockito.mock(PoolableDataSource.class);
+        Connection mockConn = Mockito.mock(Connection.class);
+        Mockito.doReturn(mockConn).when(mockDataSrc).getConnection();
+        Metric metric = Mockito.mock(Metric.class);
+
+        JDBCObjectStore store = new JDBCObjectStore(mockDataSrc, null);
+        store.setMetric(metric);
+        JDBCConnection jdbcConn = (JDBCConnection) store.getConnection(true, true);
+        assertEquals(jdbcConn.metric, metric);
+        assertFalse(jdbcConn.multiQueryDomainLoad);
+
+        System.setProperty(JDBCConsts.ZMS_PROP_MYSQL_MULTI_QUERY_DOMAIN_LOAD, "true");
+
+        // without a dedicated read-only source the multi-query
+        // domain load is not enabled
+
+        store = new JDBCObjectStore(mockDataSrc, null);
+        jdbcConn = (JDBCConnection) store.getConnection(true, false);
+        assertNull(jdbcConn.metric);
+        assertFalse(jdbcConn.multiQueryDomainLoad);
+
+        // with a read-only source it's only enabled for read-only connections
+
+        PoolableDataSource mockReadOnlySrc = Mockito.mock(PoolableDataSource.class);
+        Mockito.doReturn(mockConn).when(mockReadOnlySrc).getConnection();
+        store = new JDBCObjectStore(mockDataSrc, mockReadOnlySrc);
+        jdbcConn = (JDBCConnection) store.getConnection(true, false);
+        assertTrue(jdbcConn.multiQueryDomainLoad);
+        jdbcConn = (JDBCConnection) store.getConnection(true, true);
+        assertFalse(jdbcConn.multiQueryDomainLoad);
+        System.clearProperty(JDBCConsts.ZMS_PROP_MYSQL_MULTI_QUERY_DOMAIN_LOAD);
+    }
+
     @Test
     public void testGetConnectionReadWriteOnly() throws Exception {
         PoolableDataSource mockDataSrc = Mockito.mock(PoolableDataSource.class);
@@ -115,6 +115,56 @@ public class ZMSFileChangeLogStoreCommonTest {
         assertEquals(returnList.get(0).getDomain().getName(), "athenz");
     }
 
+    @Test
+    public void testGetUpdatedSignedDomainsConsumer() {
+
+        ZMSFileChangeLogStoreCommon fstore = new ZMSFileChangeLogStoreCommon(FSTORE_PATH) {
+            @Override
+            public String retrieveTagHeader(Map<String, List<String>> responseHeaders) {
+                return "2024-01-01T12:00:00";
+            }
+        };
+        ZMSClient zmsClient = Mockito.mock(ZMSClient.class);
+
+        List<SignedDomain> domains = new ArrayList<>();
+        domains.add(new SignedDomain().setDomain(new DomainData().setName("athenz")));
+        domains.add(new SignedDomain().setDomain(new DomainData().setName("sports")));
+        SignedDomains domainList = new SignedDomains().setDomains(domains);
+
+        Mockito.when(zmsClient.getSignedDomains(Mockito.isNull(), Mockito.eq("true"), Mockito.isNull(),
+                Mockito.eq(true), Mockito.eq(false), Mockito.isNull(), any())).thenReturn(domainList);
+        Mockito.when(zmsClient.getSignedDomains("athenz", null, null, true, false, null, null))
+                .thenReturn(new SignedDomains().setDomains(Collections.singletonList(domains.get(0))));
+        Mockito.when(zmsClient.getSignedDomains("sports", null, null, true, false, null, null))
+                .thenReturn(new SignedDomains().setDomains(Collections.singletonList(domains.get(1))));
+
+        // each domain is passed to the consumer as soon as it's retrieved
+
+        List<String> domainNames = new ArrayList<>();
+        StringBuilder lastModTimeBuffer = new StringBuilder();
+        assertTrue(fstore.getUpdatedSignedDomains(zmsClient, lastModTimeBuffer,
+                signedDomain -> domainNames.add(signedDomain.getDomain().getName())));
+        assertEquals(domainNames, Arrays.asList("athenz", "sports"));
+        assertEquals(lastModTimeBuffer.toString(), "2024-01-01T12:00:00");
+
+        // no updated domains
+
+        Mockito.when(zmsClient.getSignedDomains(Mockito.isNull(), Mockito.eq("true"), Mockito.isNull(),
+                Mockito.eq(true), Mockito.eq(false), Mockito.isNull(), any())).thenReturn(null);
+        domainNames.clear();
+        assertTrue(fstore.getUpdatedSignedDomains(zmsClient, lastModTimeBuffer,
+                signedDomain -> domainNames.add(signedDomain.getDomain().getName())));
+        assertTrue(domainNames.isEmpty());
+
+        // failure to retrieve the tag header
+
+        ZMSFileChangeLogStoreCommon fstore2 = new ZMSFileChangeLogStoreCommon(FSTORE_PATH);
+        StringBuilder lastModTimeBuffer2 = new StringBuilder();
+        assertFalse(fstore2.getUpdatedSignedDomains(zmsClient, lastModTimeBuffer2,
+                signedDomain -> domainNames.add(signedDomain.getDomain().getName())));
+        assertTrue(domainNames.isEmpty());
+    }
+
     @Test
     public void testGetSignedDomainListNonRateFailure() {
         ZMSFileChangeLogStoreCommon fstore = new ZMSFileChangeLogStoreCommon(FSTORE_PATH);
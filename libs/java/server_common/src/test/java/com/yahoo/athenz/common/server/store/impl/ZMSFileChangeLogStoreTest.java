@@ -245,6 +245,14 @@ public class ZMSFileChangeLogStoreTest {
         assertNull(store.getUpdatedSignedDomains(str));
     }
 
+    @Test
+    public void testGetUpdatedSignedDomainsConsumerException() {
+        MockZMSFileChangeLogStore store = new MockZMSFileChangeLogStore(FSTORE_PATH, null, "0");
+        store.setSignedDomainsExc();
+        StringBuilder str = new StringBuilder();
+        assertFalse(store.getUpdatedSignedDomains(str, signedDomain -> fail()));
+    }
+
     @Test
     public void testGetUpdatedSignedDomainsNullDomains() {
         MockZMSFileChangeLogStore store = new MockZMSFileChangeLogStore(FSTORE_PATH, null, "0");
@@ -724,6 +724,8 @@ public class ZMSFileMTLSChangeLogStoreTest {
         store.saveLocalDomain("domain", new JWSDomain());
         assertNull(store.getLocalDomainAttributeList());
         assertNull(store.getUpdatedJWSDomains(new StringBuilder()));
+        assertFalse(store.getUpdatedSignedDomains(new StringBuilder(), signedDomain -> fail()));
+        assertTrue(store.getUpdatedSignedDomains(new StringBuilder("tag"), signedDomain -> fail()));
         store.setRequestConditions(false);
         store.setJWSDomainSupport(false);
     }
@@ -0,0 +1,314 @@
+/*
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.yahoo.athenz.common.server.store.impl;
+
+import com.yahoo.athenz.CommonTestUtils;
+import com.yahoo.athenz.zms.*;
+import com.yahoo.rdl.Timestamp;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class ZMSFileSnapshotChangeLogStoreCommonTest {
+
+    private final String FSTORE_PATH = "/tmp/zts_file_snapshot_store_unit_test";
+
+    @BeforeMethod
+    public void setup() {
+        CommonTestUtils.deleteDirectory(new File(FSTORE_PATH));
+        System.setProperty(ZMSFileSnapshotChangeLogStoreCommon.PROP_SNAPSHOT_COMPACT_THRESHOLD, "3");
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        CommonTestUtils.deleteDirectory(new File(FSTORE_PATH));
+        System.clearProperty(ZMSFileSnapshotChangeLogStoreCommon.PROP_SNAPSHOT_COMPACT_THRESHOLD);
+        System.clearProperty(ZMSFileSnapshotChangeLogStoreCommon.PROP_SNAPSHOT_ENABLED);
+        System.clearProperty(ZMSFileSnapshotChangeLogStoreCommon.PROP_SNAPSHOT_RESTORE_TIMESTAMP);
+    }
+
+    private SignedDomain createSignedDomain(final String domainName) {
+        DomainData domData = new DomainData().setName(domainName)
+                .setModified(Timestamp.fromMillis(1000000L))
+                .setRoles(Collections.singletonList(new Role().setName(domainName + ":role.admin")
+                        .setRoleMembers(Collections.singletonList(new RoleMember().setMemberName("user.joe")))));
+        return new SignedDomain().setDomain(domData).setSignature("signature").setKeyId("0");
+    }
+
+    @Test
+    public void testNewInstance() {
+
+        ZMSFileChangeLogStoreCommon fstore = ZMSFileChangeLogStoreCommon.newInstance(FSTORE_PATH);
+        assertFalse(fstore instanceof ZMSFileSnapshotChangeLogStoreCommon);
+
+        System.setProperty(ZMSFileSnapshotChangeLogStoreCommon.PROP_SNAPSHOT_ENABLED, "true");
+        fstore = ZMSFileChangeLogStoreCommon.newInstance(FSTORE_PATH);
+        assertTrue(fstore instanceof ZMSFileSnapshotChangeLogStoreCommon);
+    }
+
+    @Test
+    public void testSnapshotLifecycle() {
+
+        ZMSFileSnapshotChangeLogStoreCommon fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        assertNull(fstore.snapshot);
+
+        fstore.saveLocalDomain("coretech", createSignedDomain("coretech"));
+        fstore.saveLocalDomain("sports", createSignedDomain("sports"));
+        fstore.saveLocalDomain("weather", new JWSDomain().setPayload("payload")
+                .setProtectedHeader("header").setSignature("signature"));
+
+        // before the timestamp is updated we only have domain files
+
+        assertNull(fstore.snapshot);
+        assertEquals(fstore.getLocalSignedDomain("coretech").getDomain().getName(), "coretech");
+        assertEquals(fstore.getLocalDomainAttributeList().size(), 3);
+
+        // with our threshold of 3 the snapshot is now written
+
+        fstore.setLastModificationTimestamp("2000");
+        assertNotNull(fstore.snapshot);
+        assertTrue(fstore.pendingDomains.isEmpty());
+        assertFalse(new File(FSTORE_PATH, "coretech").exists());
+        assertTrue(new File(FSTORE_PATH, ZMSFileSnapshotChangeLogStoreCommon.SNAPSHOT_FNAME).exists());
+
+        SignedDomain signedDomain = fstore.getLocalSignedDomain("coretech");
+        assertEquals(signedDomain.getDomain().getName(), "coretech");
+        assertEquals(signedDomain.getDomain().getModified().millis(), 1000000L);
+        assertEquals(signedDomain.getDomain().getRoles().get(0).getRoleMembers().get(0).getMemberName(), "user.joe");
+        assertEquals(signedDomain.getSignature(), "signature");
+
+        JWSDomain jwsDomain = fstore.getLocalJWSDomain("weather");
+        assertEquals(jwsDomain.getPayload(), "payload");
+        assertNull(fstore.getLocalSignedDomain("unknown"));
+
+        List<String> domains = fstore.getLocalDomainList();
+        assertEquals(domains.size(), 3);
+        assertTrue(domains.containsAll(Arrays.asList("coretech", "sports", "weather")));
+        Map<String, DomainAttributes> attrs = fstore.getLocalDomainAttributeList();
+        assertEquals(attrs.size(), 3);
+        assertTrue(attrs.get("sports").getFetchTime() > 0);
+
+        // update one domain and delete another one
+
+        fstore.saveLocalDomain("sports", createSignedDomain("sports").setKeyId("1"));
+        fstore.removeLocalDomain("weather");
+
+        assertEquals(fstore.getLocalSignedDomain("sports").getKeyId(), "1");
+        assertNull(fstore.getLocalJWSDomain("weather"));
+        domains = fstore.getLocalDomainList();
+        assertEquals(domains.size(), 2);
+        assertFalse(domains.contains("weather"));
+        assertEquals(fstore.getLocalDomainAttributeList().size(), 2);
+
+        // the delete operation triggers the snapshot update
+        // while the updated domain is included as well
+
+        fstore.setLastModificationTimestamp("3000");
+        assertTrue(fstore.deletedDomains.isEmpty());
+        assertTrue(fstore.pendingDomains.isEmpty());
+        assertEquals(fstore.snapshot.getNames().size(), 2);
+        fstore.saveLocalDomain("sports", createSignedDomain("sports").setKeyId("2"));
+
+        // a new store must pick up the snapshot and the pending changes
+
+        fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        assertEquals(fstore.lastModTime, "3000");
+        assertEquals(fstore.pendingDomains.size(), 1);
+        assertEquals(fstore.getLocalSignedDomain("sports").getKeyId(), "2");
+        assertEquals(fstore.getLocalSignedDomain("coretech").getKeyId(), "0");
+        assertEquals(fstore.getLocalDomainList().size(), 2);
+
+        // re-adding a deleted domain removes it from the deleted set
+
+        fstore.removeLocalDomain("coretech");
+        assertNull(fstore.getLocalSignedDomain("coretech"));
+        fstore.saveLocalDomain("coretech", createSignedDomain("coretech").setKeyId("2"));
+        assertTrue(fstore.deletedDomains.isEmpty());
+        assertEquals(fstore.getLocalSignedDomain("coretech").getKeyId(), "2");
+
+        // compact everything into the snapshot
+
+        assertTrue(fstore.writeSnapshot());
+        assertEquals(fstore.snapshot.getNames().size(), 2);
+        assertEquals(fstore.getLocalSignedDomain("coretech").getKeyId(), "2");
+        assertEquals(fstore.getLocalSignedDomain("sports").getKeyId(), "2");
+    }
+
+    @Test
+    public void testSnapshotLastModTime() {
+
+        ZMSFileSnapshotChangeLogStoreCommon fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        fstore.saveLocalDomain("coretech", createSignedDomain("coretech"));
+        fstore.setLastModificationTimestamp("2000");
+        assertTrue(fstore.writeSnapshot());
+
+        // without the timestamp file, we should use the value
+        // from our snapshot if configured to do so
+
+        System.setProperty(ZMSFileSnapshotChangeLogStoreCommon.PROP_SNAPSHOT_RESTORE_TIMESTAMP, "true");
+        fstore.delete(".lastModTime");
+        fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        System.clearProperty(ZMSFileSnapshotChangeLogStoreCommon.PROP_SNAPSHOT_RESTORE_TIMESTAMP);
+        assertEquals(fstore.lastModTime, "2000");
+        assertEquals(fstore.retrieveLastModificationTime(), "2000");
+        assertNotNull(fstore.getLocalSignedDomain("coretech"));
+
+        // resetting the timestamp removes the snapshot file
+
+        fstore.setLastModificationTimestamp(null);
+        assertFalse(new File(FSTORE_PATH, ZMSFileSnapshotChangeLogStoreCommon.SNAPSHOT_FNAME).exists());
+
+        fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        assertNull(fstore.lastModTime);
+        assertNull(fstore.snapshot);
+        assertTrue(fstore.getLocalDomainList().isEmpty());
+    }
+
+    @Test
+    public void testSnapshotLastModTimeRemoved() {
+
+        ZMSFileSnapshotChangeLogStoreCommon fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        fstore.saveLocalDomain("coretech", createSignedDomain("coretech"));
+        fstore.setLastModificationTimestamp("2000");
+        assertTrue(fstore.writeSnapshot());
+
+        // removing the timestamp file forces a full resync so
+        // by default our snapshot is discarded
+
+        fstore.delete(".lastModTime");
+        fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        assertNull(fstore.lastModTime);
+        assertNull(fstore.snapshot);
+        assertFalse(new File(FSTORE_PATH, ZMSFileSnapshotChangeLogStoreCommon.SNAPSHOT_FNAME).exists());
+        assertNull(fstore.getLocalSignedDomain("coretech"));
+    }
+
+    @Test
+    public void testSnapshotWithoutLastModTime() {
+
+        ZMSFileSnapshotChangeLogStoreCommon fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        fstore.saveLocalDomain("coretech", createSignedDomain("coretech"));
+        assertTrue(fstore.writeSnapshot());
+
+        // our snapshot has no timestamp so it must be discarded
+
+        fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        assertNull(fstore.snapshot);
+        assertFalse(new File(FSTORE_PATH, ZMSFileSnapshotChangeLogStoreCommon.SNAPSHOT_FNAME).exists());
+        assertNull(fstore.getLocalSignedDomain("coretech"));
+    }
+
+    @Test
+    public void testInvalidSnapshot() throws IOException {
+
+        ZMSFileSnapshotChangeLogStoreCommon fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        fstore.saveLocalDomain("coretech", createSignedDomain("coretech"));
+        fstore.setLastModificationTimestamp("2000");
+        assertTrue(fstore.writeSnapshot());
+
+        Files.write(new File(FSTORE_PATH, ZMSFileSnapshotChangeLogStoreCommon.SNAPSHOT_FNAME).toPath(),
+                "invalid-snapshot-data".getBytes());
+        Files.write(new File(FSTORE_PATH, ZMSFileSnapshotChangeLogStoreCommon.SNAPSHOT_TMP_FNAME).toPath(),
+                "pending-snapshot-data".getBytes());
+
+        // we must discard the snapshot, any pending snapshot and our timestamp
+
+        fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        assertNull(fstore.snapshot);
+        assertNull(fstore.lastModTime);
+        assertNull(fstore.retrieveLastModificationTime());
+        assertFalse(new File(FSTORE_PATH, ZMSFileSnapshotChangeLogStoreCommon.SNAPSHOT_FNAME).exists());
+        assertFalse(new File(FSTORE_PATH, ZMSFileSnapshotChangeLogStoreCommon.SNAPSHOT_TMP_FNAME).exists());
+    }
+
+    @Test
+    public void testStalePendingSnapshot() throws IOException {
+
+        ZMSFileSnapshotChangeLogStoreCommon fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        fstore.saveLocalDomain("coretech", createSignedDomain("coretech"));
+        fstore.setLastModificationTimestamp("2000");
+        assertTrue(fstore.writeSnapshot());
+
+        // a pending snapshot left behind by an interrupted write
+        // is removed while our valid snapshot is kept
+
+        Files.write(new File(FSTORE_PATH, ZMSFileSnapshotChangeLogStoreCommon.SNAPSHOT_TMP_FNAME).toPath(),
+                "pending-snapshot-data".getBytes());
+        fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        assertNotNull(fstore.snapshot);
+        assertNotNull(fstore.getLocalSignedDomain("coretech"));
+        assertFalse(new File(FSTORE_PATH, ZMSFileSnapshotChangeLogStoreCommon.SNAPSHOT_TMP_FNAME).exists());
+    }
+
+    @Test
+    public void testWriteSnapshotInvalidDomainFile() throws IOException {
+
+        ZMSFileSnapshotChangeLogStoreCommon fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        fstore.setLastModificationTimestamp("2000");
+        fstore.saveLocalDomain("coretech", createSignedDomain("coretech"));
+        fstore.saveLocalDomain("sports", createSignedDomain("sports"));
+        Files.write(new File(FSTORE_PATH, "sports").toPath(), "{invalid-json".getBytes());
+
+        // the invalid file is skipped and left as a pending domain
+
+        assertTrue(fstore.writeSnapshot());
+        assertEquals(fstore.snapshot.getNames().size(), 1);
+        assertEquals(fstore.pendingDomains, Collections.singleton("sports"));
+        assertTrue(new File(FSTORE_PATH, "sports").exists());
+        assertNotNull(fstore.getLocalSignedDomain("coretech"));
+        assertNull(fstore.getLocalSignedDomain("sports"));
+    }
+
+    @Test
+    public void testWriteSnapshotFailure() {
+
+        ZMSFileSnapshotChangeLogStoreCommon fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        fstore.setLastModificationTimestamp("2000");
+        fstore.saveLocalDomain("coretech", createSignedDomain("coretech"));
+
+        // block the snapshot file with a non-empty directory so the
+        // atomic move fails
+
+        File snapshotDir = new File(FSTORE_PATH, ZMSFileSnapshotChangeLogStoreCommon.SNAPSHOT_FNAME);
+        assertTrue(new File(snapshotDir, "file").mkdirs());
+
+        assertFalse(fstore.writeSnapshot());
+        assertNull(fstore.snapshot);
+        assertTrue(new File(FSTORE_PATH, "coretech").exists());
+        assertFalse(new File(FSTORE_PATH, ZMSFileSnapshotChangeLogStoreCommon.SNAPSHOT_TMP_FNAME).exists());
+        assertNotNull(fstore.getLocalSignedDomain("coretech"));
+    }
+
+    @Test
+    public void testGetLocalDomainInvalidRecord() {
+
+        ZMSFileSnapshotChangeLogStoreCommon fstore = new ZMSFileSnapshotChangeLogStoreCommon(FSTORE_PATH);
+        fstore.setLastModificationTimestamp("2000");
+        fstore.saveLocalDomain("coretech", createSignedDomain("coretech"));
+        assertTrue(fstore.writeSnapshot());
+
+        // a signed domain record can't be decoded as a list
+
+        assertNull(fstore.getLocalDomain("coretech", List.class));
+    }
+}
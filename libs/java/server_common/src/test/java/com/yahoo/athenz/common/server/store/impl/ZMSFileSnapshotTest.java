@@ -0,0 +1,177 @@
+/*
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.yahoo.athenz.common.server.store.impl;
+
+import com.yahoo.athenz.CommonTestUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.testng.Assert.*;
+
+public class ZMSFileSnapshotTest {
+
+    private final String FSTORE_PATH = "/tmp/zts_file_snapshot_unit_test";
+
+    private File snapshotFile;
+    private File tmpFile;
+
+    @BeforeMethod
+    public void setup() {
+        CommonTestUtils.deleteDirectory(new File(FSTORE_PATH));
+        assertTrue(new File(FSTORE_PATH).mkdirs());
+        snapshotFile = new File(FSTORE_PATH, "snapshot");
+        tmpFile = new File(FSTORE_PATH, "snapshot.tmp");
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        CommonTestUtils.deleteDirectory(new File(FSTORE_PATH));
+    }
+
+    private String recordAsString(ByteBuffer record) {
+        byte[] data = new byte[record.remaining()];
+        record.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testWriteAndOpen() throws IOException {
+
+        assertNull(ZMSFileSnapshot.open(snapshotFile));
+
+        try (ZMSFileSnapshot.Writer writer = new ZMSFileSnapshot.Writer(snapshotFile, tmpFile)) {
+            writer.add("coretech", 100, ByteBuffer.wrap("coretech-data".getBytes(StandardCharsets.UTF_8)));
+            writer.add("sports", 200, ByteBuffer.allocateDirect(11).put("sports-data".getBytes(StandardCharsets.UTF_8)).flip());
+            writer.add("empty", 300, ByteBuffer.allocate(0));
+            writer.commit("lastmod");
+        }
+        assertFalse(tmpFile.exists());
+
+        ZMSFileSnapshot snapshot = ZMSFileSnapshot.open(snapshotFile);
+        assertNotNull(snapshot);
+        assertEquals(snapshot.getLastModTime(), "lastmod");
+        assertEquals(snapshot.getNames().size(), 3);
+        assertTrue(snapshot.contains("sports"));
+        assertFalse(snapshot.contains("weather"));
+
+        assertEquals(recordAsString(snapshot.getRecord("coretech")), "coretech-data");
+        assertEquals(recordAsString(snapshot.getRecord("sports")), "sports-data");
+        assertEquals(snapshot.getRecord("empty").remaining(), 0);
+        assertNull(snapshot.getRecord("weather"));
+
+        assertEquals(snapshot.getFetchTime("coretech"), 100);
+        assertEquals(snapshot.getFetchTime("sports"), 200);
+        assertEquals(snapshot.getFetchTime("weather"), 0);
+
+        // the records are read-only views into the mapped file
+
+        assertTrue(snapshot.getRecord("coretech").isReadOnly());
+    }
+
+    @Test
+    public void testWriteWithoutLastModTime() throws IOException {
+
+        try (ZMSFileSnapshot.Writer writer = new ZMSFileSnapshot.Writer(snapshotFile, tmpFile)) {
+            writer.commit(null);
+        }
+
+        ZMSFileSnapshot snapshot = ZMSFileSnapshot.open(snapshotFile);
+        assertNotNull(snapshot);
+        assertNull(snapshot.getLastModTime());
+        assertTrue(snapshot.getNames().isEmpty());
+    }
+
+    @Test
+    public void testWriterNotCommitted() throws IOException {
+
+        try (ZMSFileSnapshot.Writer writer = new ZMSFileSnapshot.Writer(snapshotFile, tmpFile)) {
+            writer.add("coretech", 100, ByteBuffer.wrap("coretech-data".getBytes(StandardCharsets.UTF_8)));
+        }
+        assertFalse(tmpFile.exists());
+        assertFalse(snapshotFile.exists());
+    }
+
+    @Test
+    public void testOpenInvalidFiles() throws IOException {
+
+        try (ZMSFileSnapshot.Writer writer = new ZMSFileSnapshot.Writer(snapshotFile, tmpFile)) {
+            writer.add("coretech", 100, ByteBuffer.wrap("coretech-data".getBytes(StandardCharsets.UTF_8)));
+            writer.commit("lastmod");
+        }
+        final byte[] valid = Files.readAllBytes(snapshotFile.toPath());
+
+        // file too small
+
+        Files.write(snapshotFile.toPath(), new byte[4]);
+        assertOpenFailure();
+
+        // invalid magic and version values
+
+        byte[] data = valid.clone();
+        data[0] = 0;
+        Files.write(snapshotFile.toPath(), data);
+        assertOpenFailure();
+
+        data = valid.clone();
+        data[7] = 2;
+        Files.write(snapshotFile.toPath(), data);
+        assertOpenFailure();
+
+        // invalid index offset in the trailer
+
+        data = valid.clone();
+        ByteBuffer.wrap(data).putLong(data.length - 8, data.length);
+        Files.write(snapshotFile.toPath(), data);
+        assertOpenFailure();
+
+        data = valid.clone();
+        ByteBuffer.wrap(data).putLong(data.length - 8, 2);
+        Files.write(snapshotFile.toPath(), data);
+        assertOpenFailure();
+
+        // truncated index - drop the last mod time from the index
+
+        final long indexOffset = ByteBuffer.wrap(valid).getLong(valid.length - 8);
+        data = Arrays.copyOf(valid, (int) indexOffset + 4 + 8);
+        ByteBuffer.wrap(data).putLong(data.length - 8, indexOffset);
+        Files.write(snapshotFile.toPath(), data);
+        assertOpenFailure();
+
+        // record offset pointing into the index
+
+        data = valid.clone();
+        final int offsetPosition = (int) indexOffset + 4 + 2 + "coretech".length() + 8;
+        ByteBuffer.wrap(data).putLong(offsetPosition, indexOffset);
+        Files.write(snapshotFile.toPath(), data);
+        assertOpenFailure();
+    }
+
+    private void assertOpenFailure() {
+        try {
+            ZMSFileSnapshot.open(snapshotFile);
+            fail();
+        } catch (IOException ignored) {
+        }
+    }
+}
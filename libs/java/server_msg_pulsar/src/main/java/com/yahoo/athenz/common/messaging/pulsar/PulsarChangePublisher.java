@@ -22,6 +22,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yahoo.athenz.common.messaging.ChangePublisher;
 import com.yahoo.athenz.common.messaging.pulsar.client.AthenzPulsarClient;
+import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.api.Producer;
 import org.apache.pulsar.client.api.PulsarClientException;
 import org.apache.pulsar.client.impl.PulsarClientImpl;
@@ -30,6 +31,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class PulsarChangePublisher<T> implements ChangePublisher<T> {
 
@@ -40,7 +45,13 @@ public class PulsarChangePublisher<T> implements ChangePublisher<T> {
     private final PulsarClientImpl pulsarClient;
 
     public PulsarChangePublisher(String serviceUrl, String topicName, AthenzPulsarClient.TlsConfig tlsConfig) {
-        ProducerConfigurationData producerConfig = AthenzPulsarClient.defaultProducerConfig(topicName);
+        this(serviceUrl, topicName, tlsConfig, false);
+    }
+
+    public PulsarChangePublisher(String serviceUrl, String topicName, AthenzPulsarClient.TlsConfig tlsConfig,
+            boolean batchPublishing) {
+        ProducerConfigurationData producerConfig = AthenzPulsarClient.defaultProducerConfig(topicName,
+                batchPublishing);
         pulsarClient = AthenzPulsarClient.createPulsarClient(serviceUrl, tlsConfig);
         producer = AthenzPulsarClient.createProducer(pulsarClient, producerConfig);
         LOG.debug("created publisher: {}, producer: {}", this.getClass(), producer);
@@ -58,6 +69,38 @@ public class PulsarChangePublisher<T> implements ChangePublisher<T> {
         }
     }
 
+    /**
+     * Queue all the messages with the producer so they're combined
+     * into batches and then wait until all of them are persisted.
+     * @param messages list of messages to be published
+     * @throws IllegalStateException if any of the messages could not be
+     *      published so the caller can report the failure
+     */
+    @Override
+    public void publishBatch(List<T> messages) {
+
+        List<CompletableFuture<MessageId>> results = new ArrayList<>(messages.size());
+        for (T message : messages) {
+            try {
+                results.add(producer.sendAsync(OBJECT_MAPPER.writeValueAsBytes(message)));
+            } catch (JsonProcessingException e) {
+                LOG.error("Unable to serialize message: {}, error: {}", message, e.getMessage(), e);
+            }
+        }
+        try {
+            producer.flush();
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+        } catch (PulsarClientException | CompletionException e) {
+            LOG.error("Pulsar client was not able to publish {} messages. error: {}",
+                    messages.size(), e.getMessage(), e);
+            throw new IllegalStateException("unable to publish " + messages.size() + " messages", e);
+        }
+        if (results.size() != messages.size()) {
+            throw new IllegalStateException("unable to serialize " + (messages.size() - results.size())
+                    + " messages");
+        }
+    }
+
     @Override
     public void close() {
         try {
@@ -70,6 +70,12 @@ public class PulsarFactory<T> implements ChangePublisherFactory<T>, ChangeSubscr
         return new PulsarChangePublisher<>(serviceUrl(), topicName, tlsConfig());
     }
 
+    @Override
+    public ChangePublisher<T> create(PrivateKeyStore keyStore, String topicName, boolean batchPublishing) {
+        LOG.info("creating a pulsar change publisher with batch publishing: {}", batchPublishing);
+        return new PulsarChangePublisher<>(serviceUrl(), topicName, tlsConfig(), batchPublishing);
+    }
+
     @Override
     public ChangeSubscriber<T> create(PrivateKeyStore keyStore, String topicName, String subscriptionName,
             String subscriptionTypeAsString) {
@@ -34,6 +34,7 @@ public class AthenzPulsarClient {
 
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
     public static final String PROP_PULSAR_MAX_PENDING_MSGS = "athenz.pulsar.max_pending_msgs";
+    public static final String PROP_PULSAR_COMPRESSION_TYPE = "athenz.pulsar.compression_type";
     public static final String PROP_ATHENZ_PULSAR_CLIENT_CLASS = "athenz.pulsar.pulsar_client_class";
     public static final String PROP_ATHENZ_PULSAR_CLIENT_CLASS_DEFAULT = "com.yahoo.athenz.common.messaging.pulsar.client.AthenzPulsarClient";
 
@@ -56,14 +57,38 @@ public class AthenzPulsarClient {
     }
 
     public static ProducerConfigurationData defaultProducerConfig(String topicName) {
+        return defaultProducerConfig(topicName, false);
+    }
+
+    public static ProducerConfigurationData defaultProducerConfig(String topicName, boolean batchPublishing) {
         int maxPendingMessages = Integer.parseInt(System.getProperty(PROP_PULSAR_MAX_PENDING_MSGS, "10000"));
         ProducerConfigurationData producerConfiguration = new ProducerConfigurationData();
         producerConfiguration.setBlockIfQueueFull(true);
         producerConfiguration.setMaxPendingMessages(maxPendingMessages);
+
+        // if the caller publishes the messages asynchronously then they
+        // are combined into batches which are compressed before being
+        // sent to the broker. otherwise, we keep the default settings
+        // so the synchronous sends are not delayed
+
+        if (batchPublishing) {
+            producerConfiguration.setBatchingEnabled(true);
+            producerConfiguration.setCompressionType(getCompressionType());
+        }
         producerConfiguration.setTopicName(topicName);
         return producerConfiguration;
     }
 
+    static CompressionType getCompressionType() {
+        final String compressionType = System.getProperty(PROP_PULSAR_COMPRESSION_TYPE, "LZ4");
+        try {
+            return CompressionType.valueOf(compressionType.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            LOG.error("Invalid pulsar compression type: {}, using LZ4", compressionType);
+            return CompressionType.LZ4;
+        }
+    }
+
     public static Producer<byte[]> createProducer(String serviceUrl, String topicName, TlsConfig tlsConfig) {
         ProducerConfigurationData producerConfiguration = defaultProducerConfig(topicName);
         PulsarClientImpl pulsarClient = createPulsarClient(serviceUrl, tlsConfig);
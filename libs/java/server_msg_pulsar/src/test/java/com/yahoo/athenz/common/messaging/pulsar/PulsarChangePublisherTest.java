@@ -21,15 +21,20 @@ package com.yahoo.athenz.common.messaging.pulsar;
 import com.yahoo.athenz.common.messaging.DomainChangeMessage;
 import com.yahoo.athenz.common.messaging.pulsar.client.AthenzPulsarClient.TlsConfig;
 import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.mockito.Mockito;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.yahoo.athenz.common.messaging.pulsar.PulsarFactory.PROP_MESSAGING_CLI_SERVICE_URL;
 import static com.yahoo.athenz.common.messaging.pulsar.PulsarFactory.serviceUrl;
 import static com.yahoo.athenz.common.messaging.pulsar.client.AthenzPulsarClient.PROP_ATHENZ_PULSAR_CLIENT_CLASS;
+import static org.mockito.ArgumentMatchers.any;
 import static org.testng.Assert.*;
 
 public class PulsarChangePublisherTest {
@@ -92,6 +97,36 @@ public class PulsarChangePublisherTest {
         System.clearProperty(PROP_MESSAGING_CLI_SERVICE_URL);
     }
 
+    @Test
+    public void testPublishBatch() throws PulsarClientException {
+
+        System.setProperty(PROP_MESSAGING_CLI_SERVICE_URL, "some-service");
+        PulsarChangePublisher<DomainChangeMessage> publisher = new PulsarChangePublisher<>(serviceUrl(),
+                "some-topic", new TlsConfig("cert", "key", "trust"));
+        Producer<byte[]> producer = getPulsarProducer(publisher);
+        Mockito.when(producer.sendAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        publisher.publishBatch(List.of(new DomainChangeMessage().setDomainName("sports"),
+                new DomainChangeMessage().setDomainName("weather")));
+        Mockito.verify(producer, Mockito.times(2)).sendAsync(any());
+        Mockito.verify(producer, Mockito.times(1)).flush();
+
+        // failures are reported to the caller
+
+        Mockito.when(producer.sendAsync(any())).thenReturn(CompletableFuture.failedFuture(
+                new PulsarClientException("send failure")));
+        expectThrows(IllegalStateException.class, () ->
+                publisher.publishBatch(List.of(new DomainChangeMessage().setDomainName("sports"))));
+
+        Mockito.doThrow(new PulsarClientException("flush failure")).when(producer).flush();
+        expectThrows(IllegalStateException.class, () ->
+                publisher.publishBatch(List.of(new DomainChangeMessage().setDomainName("sports"))));
+        Mockito.verify(producer, Mockito.times(4)).sendAsync(any());
+
+        publisher.close();
+        System.clearProperty(PROP_MESSAGING_CLI_SERVICE_URL);
+    }
+
     /**
      * Since pulsarProducer is private member, and not exposes outside,
      * load it in reflection for better assertion.
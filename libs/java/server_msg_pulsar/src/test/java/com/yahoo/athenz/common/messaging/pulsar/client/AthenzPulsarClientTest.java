@@ -18,12 +18,14 @@
 
 package com.yahoo.athenz.common.messaging.pulsar.client;
 
+import org.apache.pulsar.client.api.CompressionType;
 import org.apache.pulsar.client.api.Consumer;
 import org.apache.pulsar.client.api.Producer;
 import org.apache.pulsar.client.api.PulsarClientException;
 import org.apache.pulsar.client.api.SubscriptionType;
 import org.apache.pulsar.client.impl.PulsarClientImpl;
 import org.apache.pulsar.client.impl.conf.ClientConfigurationData;
+import org.apache.pulsar.client.impl.conf.ProducerConfigurationData;
 import org.mockito.Mockito;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -55,6 +57,31 @@ public class AthenzPulsarClientTest {
         assertNotNull(producer);
     }
 
+    @Test
+    public void testDefaultProducerConfig() {
+        ProducerConfigurationData config = defaultProducerConfig("topic", true);
+        assertEquals(config.getTopicName(), "topic");
+        assertTrue(config.isBatchingEnabled());
+        assertEquals(config.getCompressionType(), CompressionType.LZ4);
+
+        System.setProperty(PROP_PULSAR_COMPRESSION_TYPE, "zstd");
+        assertEquals(defaultProducerConfig("topic", true).getCompressionType(), CompressionType.ZSTD);
+
+        // invalid compression type falls back to the default
+
+        System.setProperty(PROP_PULSAR_COMPRESSION_TYPE, "unknown");
+        assertEquals(defaultProducerConfig("topic", true).getCompressionType(), CompressionType.LZ4);
+        System.clearProperty(PROP_PULSAR_COMPRESSION_TYPE);
+
+        // without batch publishing the producer defaults are not changed
+
+        ProducerConfigurationData defaultConfig = new ProducerConfigurationData();
+        config = defaultProducerConfig("topic");
+        assertEquals(config.getTopicName(), "topic");
+        assertEquals(config.isBatchingEnabled(), defaultConfig.isBatchingEnabled());
+        assertEquals(config.getCompressionType(), defaultConfig.getCompressionType());
+    }
+
     @Test
     public void testCreateProducerFailure() {
         PulsarClientImpl client = Mockito.mock(PulsarClientImpl.class);
@@ -0,0 +1,220 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zms;
+
+import com.yahoo.athenz.auth.util.StringUtils;
+import com.yahoo.athenz.common.server.store.AthenzDomain;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled authorization index for a domain. The assertions of all
+ * active policies are grouped by their action with separate deny and
+ * allow lists. The action and resource globs are compiled once and
+ * each assertion keeps the list of domain roles that match its role
+ * value, so an access check only processes the assertions for the
+ * requested action and never converts or compiles any patterns.
+ */
+public class AccessPolicyIndex {
+
+    /**
+     * Precompiled matcher for values that might include glob
+     * wildcard characters
+     */
+    interface GlobMatch {
+
+        boolean matches(String value);
+
+        static GlobMatch getMatchObject(final String glob) {
+
+            if ("*".equals(glob)) {
+                return value -> true;
+            }
+
+            int anyCharMatch = glob.indexOf('*');
+            int singleCharMatch = glob.indexOf('?');
+
+            if (anyCharMatch == -1 && singleCharMatch == -1) {
+                return glob::equals;
+            } else if (anyCharMatch == glob.length() - 1 && singleCharMatch == -1) {
+                final String prefix = glob.substring(0, glob.length() - 1);
+                return value -> value.startsWith(prefix);
+            } else {
+                final Pattern pattern = Pattern.compile(StringUtils.patternFromGlob(glob));
+                return value -> pattern.matcher(value).matches();
+            }
+        }
+    }
+
+    static class IndexedAssertion {
+
+        // only set for assertions with glob characters in the action
+
+        final GlobMatch actionMatch;
+        final GlobMatch resourceMatch;
+        final List<Role> roles;
+
+        IndexedAssertion(GlobMatch actionMatch, GlobMatch resourceMatch, List<Role> roles) {
+            this.actionMatch = actionMatch;
+            this.resourceMatch = resourceMatch;
+            this.roles = roles;
+        }
+    }
+
+    static class ActionAssertions {
+        final List<IndexedAssertion> denyAssertions = new ArrayList<>();
+        final List<IndexedAssertion> allowAssertions = new ArrayList<>();
+    }
+
+    private final Map<String, ActionAssertions> actionAssertions = new HashMap<>();
+    private final ActionAssertions wildcardActionAssertions = new ActionAssertions();
+    private int assertionCount = 0;
+
+    public AccessPolicyIndex(AthenzDomain domain) {
+
+        // keep track of the matching roles for each role value since
+        // most assertions in a domain refer to the same small set of roles
+
+        Map<String, List<Role>> matchedRoles = new HashMap<>();
+        List<Role> roles = domain.getRoles();
+        Map<String, Role> roleMap = new HashMap<>();
+        for (Role role : roles) {
+            roleMap.put(role.getName(), role);
+        }
+
+        for (Policy policy : domain.getPolicies()) {
+
+            // ignore any inactive/multi-version policies
+
+            if (policy.getActive() == Boolean.FALSE) {
+                continue;
+            }
+
+            List<Assertion> assertions = policy.getAssertions();
+            if (assertions == null) {
+                continue;
+            }
+
+            for (Assertion assertion : assertions) {
+
+                List<Role> assertionRoles = matchedRoles.computeIfAbsent(assertion.getRole(),
+                        rolePattern -> getMatchedRoles(rolePattern, roles, roleMap));
+
+                // assertions without any matching roles can never
+                // match so there is no need to index them
+
+                if (assertionRoles.isEmpty()) {
+                    continue;
+                }
+
+                final String action = assertion.getAction().toLowerCase();
+                final GlobMatch resourceMatch = GlobMatch.getMatchObject(assertion.getResource().toLowerCase());
+
+                ActionAssertions entry;
+                IndexedAssertion indexedAssertion;
+                if (StringUtils.containsMatchCharacter(action)) {
+                    entry = wildcardActionAssertions;
+                    indexedAssertion = new IndexedAssertion(GlobMatch.getMatchObject(action), resourceMatch, assertionRoles);
+                } else {
+                    entry = actionAssertions.computeIfAbsent(action, k -> new ActionAssertions());
+                    indexedAssertion = new IndexedAssertion(null, resourceMatch, assertionRoles);
+                }
+
+                if (assertion.getEffect() == AssertionEffect.DENY) {
+                    entry.denyAssertions.add(indexedAssertion);
+                } else {
+                    entry.allowAssertions.add(indexedAssertion);
+                }
+                assertionCount += 1;
+            }
+        }
+    }
+
+    static List<Role> getMatchedRoles(final String rolePattern, List<Role> roles, Map<String, Role> roleMap) {
+
+        if (!StringUtils.containsMatchCharacter(rolePattern)) {
+            Role role = roleMap.get(rolePattern);
+            return role == null ? Collections.emptyList() : Collections.singletonList(role);
+        }
+
+        GlobMatch roleMatch = GlobMatch.getMatchObject(rolePattern);
+        List<Role> matchedRoles = new ArrayList<>();
+        for (Role role : roles) {
+            if (roleMatch.matches(role.getName())) {
+                matchedRoles.add(role);
+            }
+        }
+        return matchedRoles;
+    }
+
+    /**
+     * @return number of indexed assertions
+     */
+    public int getAssertionCount() {
+        return assertionCount;
+    }
+
+    /**
+     * Evaluate the access for the given action and resource. Any matching
+     * deny assertion denies the access, otherwise a matching allow
+     * assertion grants it.
+     * @param action action value in lower case
+     * @param resource resource value in lower case
+     * @param roleMatch predicate that returns true if the principal is
+     *      included in any of the given roles
+     * @return ALLOWED or DENIED access status
+     */
+    ZMSImpl.AccessStatus evaluateAccess(final String action, final String resource,
+            Predicate<List<Role>> roleMatch) {
+
+        final ActionAssertions entry = actionAssertions.get(action);
+
+        if (entry != null && assertionMatch(entry.denyAssertions, action, resource, roleMatch)) {
+            return ZMSImpl.AccessStatus.DENIED;
+        }
+        if (assertionMatch(wildcardActionAssertions.denyAssertions, action, resource, roleMatch)) {
+            return ZMSImpl.AccessStatus.DENIED;
+        }
+
+        if (entry != null && assertionMatch(entry.allowAssertions, action, resource, roleMatch)) {
+            return ZMSImpl.AccessStatus.ALLOWED;
+        }
+        if (assertionMatch(wildcardActionAssertions.allowAssertions, action, resource, roleMatch)) {
+            return ZMSImpl.AccessStatus.ALLOWED;
+        }
+
+        return ZMSImpl.AccessStatus.DENIED;
+    }
+
+    boolean assertionMatch(List<IndexedAssertion> assertions, final String action, final String resource,
+            Predicate<List<Role>> roleMatch) {
+
+        for (IndexedAssertion assertion : assertions) {
+            if (assertion.actionMatch != null && !assertion.actionMatch.matches(action)) {
+                continue;
+            }
+            if (!assertion.resourceMatch.matches(resource)) {
+                continue;
+            }
+            if (roleMatch.test(assertion.roles)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -19,8 +19,11 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.yahoo.athenz.auth.AuthorityConsts;
 import com.yahoo.athenz.auth.Principal;
+import com.yahoo.athenz.auth.PrivateKeyStore;
 import com.yahoo.athenz.auth.util.AthenzUtils;
 import com.yahoo.athenz.auth.util.StringUtils;
+import com.yahoo.athenz.common.messaging.ChangeSubscriber;
+import com.yahoo.athenz.common.messaging.ChangeSubscriberFactory;
 import com.yahoo.athenz.common.messaging.DomainChangeMessage;
 import com.yahoo.athenz.common.server.assertion.ResourceValueUpdater;
 import com.yahoo.athenz.common.server.audit.AuditReferenceValidator;
@@ -45,6 +48,8 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -66,12 +71,21 @@ public class DBService implements RolesProvider, DomainProvider {
     int retrySleepTime;
     int defaultRetryCount;
     int defaultOpTimeout;
+    int memberBatchThreshold;
     ZMSConfig zmsConfig;
     String monitorIdentity;
     private final int maxPolicyVersions;
     long maxLastReviewDateOffsetMillisForNewObjects;
     long maxLastReviewDateOffsetMillisForUpdatedObjects;
     ResourceUpdaterManager resourceUpdaterManager;
+    boolean accessPolicyIndexEnabled;
+    boolean domainCachePushMode;
+    long domainCacheMaxStaleness;
+    long domainCacheReplicaLag;
+    final Map<String, Long> domainCacheInvalidations = new ConcurrentHashMap<>();
+    volatile long domainCacheInvalidationsPruneTime;
+    final List<ChangeSubscriber<DomainChangeMessage>> domainCacheSubscribers = new ArrayList<>();
+    ExecutorService domainCacheSubscriberExecutor;
 
     private static final Logger LOG = LoggerFactory.getLogger(DBService.class);
 
@@ -108,10 +122,42 @@ public class DBService implements RolesProvider, DomainProvider {
         this.zmsConfig = zmsConfig;
         this.auditLogger = auditLogger;
         this.authHistoryStore = authHistoryStore;
-        cacheStore = CacheBuilder.newBuilder().concurrencyLevel(25).build();
+
+        // by default our domain cache is not bounded. if configured, the
+        // cache is bounded by the number of objects in the cached domains
+        // so a few very large domains cannot use up all the memory
+
+        long domainCacheMaxWeight = Long.parseLong(
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CACHE_MAX_WEIGHT, "0"));
+        // guava splits the max weight evenly between the cache segments
+        // so we use a single segment for the bounded cache otherwise any
+        // domain heavier than maxWeight/segments would never be cached.
+        // the cache reads do not lock the segment so this only affects
+        // the concurrency of the cache updates
+
+        if (domainCacheMaxWeight > 0) {
+            cacheStore = CacheBuilder.newBuilder().concurrencyLevel(1).maximumWeight(domainCacheMaxWeight)
+                    .<String, DataCache>weigher((domainName, dataCache) -> dataCache.getObjectCount()).build();
+        } else {
+            cacheStore = CacheBuilder.newBuilder().concurrencyLevel(25).build();
+        }
+
+        // with domain change subscribers, the cached domains are only
+        // validated against the db once per max staleness interval and
+        // for the replica lag interval after a change message is received
+
+        domainCacheMaxStaleness = TimeUnit.SECONDS.toMillis(Long.parseLong(
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CACHE_MAX_STALENESS, "60")));
+        domainCacheReplicaLag = TimeUnit.SECONDS.toMillis(Long.parseLong(
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CACHE_REPLICA_LAG, "5")));
 
         monitorIdentity = System.getProperty(ZMSConsts.ZMS_PROP_MONITOR_IDENTITY, ZMSConsts.SYS_AUTH_MONITOR);
 
+        // use compiled authorization indexes for the cached domains
+
+        accessPolicyIndexEnabled = Boolean.parseBoolean(
+                System.getProperty(ZMSConsts.ZMS_PROP_ACCESS_POLICY_INDEX, "true"));
+
         // default timeout in seconds for object store commands
 
         defaultOpTimeout = Integer.parseInt(System.getProperty(ZMSConsts.ZMS_PROP_STORE_OP_TIMEOUT, "60"));
@@ -155,6 +201,11 @@ public class DBService implements RolesProvider, DomainProvider {
             retrySleepTime = 250;
         }
 
+        // number of role/group members after which we use batched
+        // store operations to add or delete the members
+
+        memberBatchThreshold = Integer.parseInt(System.getProperty(ZMSConsts.ZMS_PROP_MEMBER_BATCH_THRESHOLD, "100"));
+
         // check what objects we're going to enforce audit reference flag
 
         setAuditRefObjectBits();
@@ -266,10 +317,14 @@ public class DBService implements RolesProvider, DomainProvider {
     static class DataCache {
         AthenzDomain athenzDomain;
         long modTime;
+        int objectCount;
+        volatile long validatedTime;
+        volatile AccessPolicyIndex accessPolicyIndex;
 
         DataCache(AthenzDomain athenzDomain, long modTime) {
             this.athenzDomain = athenzDomain;
             this.modTime = modTime;
+            this.objectCount = getObjectCount(athenzDomain);
         }
 
         AthenzDomain getAthenzDomain() {
@@ -279,6 +334,68 @@ public class DBService implements RolesProvider, DomainProvider {
         long getModTime() {
             return modTime;
         }
+
+        int getObjectCount() {
+            return objectCount;
+        }
+
+        long getValidatedTime() {
+            return validatedTime;
+        }
+
+        void setValidatedTime(long validatedTime) {
+            this.validatedTime = validatedTime;
+        }
+
+        // the weight of the cache entry is the number of objects
+        // in the domain including the domain object itself
+
+        static int getObjectCount(AthenzDomain athenzDomain) {
+
+            long count = 1;
+            if (athenzDomain == null) {
+                return (int) count;
+            }
+            if (athenzDomain.getRoles() != null) {
+                for (Role role : athenzDomain.getRoles()) {
+                    count += 1 + getListSize(role.getRoleMembers());
+                }
+            }
+            if (athenzDomain.getGroups() != null) {
+                for (Group group : athenzDomain.getGroups()) {
+                    count += 1 + getListSize(group.getGroupMembers());
+                }
+            }
+            if (athenzDomain.getPolicies() != null) {
+                for (Policy policy : athenzDomain.getPolicies()) {
+                    count += 1 + getListSize(policy.getAssertions());
+                }
+            }
+            if (athenzDomain.getServices() != null) {
+                for (ServiceIdentity service : athenzDomain.getServices()) {
+                    count += 1 + getListSize(service.getPublicKeys()) + getListSize(service.getHosts());
+                }
+            }
+            count += getListSize(athenzDomain.getEntities());
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        }
+
+        static int getListSize(List<?> list) {
+            return list == null ? 0 : list.size();
+        }
+
+        // the index is only generated when the domain is used for
+        // an authorization check. if multiple threads build it at
+        // the same time, they'll generate identical indexes
+
+        AccessPolicyIndex getAccessPolicyIndex() {
+            AccessPolicyIndex index = accessPolicyIndex;
+            if (index == null) {
+                index = new AccessPolicyIndex(athenzDomain);
+                accessPolicyIndex = index;
+            }
+            return index;
+        }
     }
 
     void rollbackChanges(ObjectStoreConnection con) {
@@ -304,10 +421,21 @@ public class DBService implements RolesProvider, DomainProvider {
         // verifying the last modification time as opposed to reading the
         // full domain data from db
 
+        // if we're subscribed to domain changes, the entry is invalidated
+        // when the domain is updated, so we only need to validate it once
+        // per staleness interval in case a change message was lost
+
+        final long now = System.currentTimeMillis();
+        if (domainCachePushMode && now - data.getValidatedTime() < domainCacheMaxStaleness) {
+            return data.getAthenzDomain();
+        }
+
         long modTime = 0;
+        boolean validated = false;
 
         try {
             modTime = con.getDomainModTimestamp(domainName);
+            validated = true;
         } catch (ServerResourceException ignored) {
             // if the exception is due to timeout or we were not able
             // to get a connection to the object store then we're
@@ -321,6 +449,9 @@ public class DBService implements RolesProvider, DomainProvider {
         // hasn't replicated the data yet)
 
         if (data.getModTime() >= modTime) {
+            if (validated) {
+                setDomainCacheValidated(domainName, data, now);
+            }
             return data.getAthenzDomain();
         }
 
@@ -328,6 +459,189 @@ public class DBService implements RolesProvider, DomainProvider {
         return null;
     }
 
+    void setDomainCacheValidated(final String domainName, DataCache data, long now) {
+        if (domainCachePushMode && isDomainCacheTrustable(domainName, now)) {
+            data.setValidatedTime(now);
+        }
+    }
+
+    /**
+     * Check if the cached data for the given domain can be used without
+     * validating it against the db. After a change message is received,
+     * the read-only replicas might still return the previous version of
+     * the domain so until the replica lag interval expires, we validate
+     * the cached data for every request.
+     * @param domainName name of the domain
+     * @param now current time in millis
+     * @return true if the cached data can be trusted
+     */
+    boolean isDomainCacheTrustable(final String domainName, long now) {
+
+        // the invalidation entries are not removed here since a thread
+        // that started loading the domain before the change message was
+        // received still needs to see them. they're removed when
+        // processing change messages once per staleness interval
+
+        Long invalidationTime = domainCacheInvalidations.get(domainName);
+        return invalidationTime == null || now - invalidationTime >= domainCacheReplicaLag;
+    }
+
+    /**
+     * Remove the recorded invalidations that are older than both the
+     * staleness and replica lag intervals. The invalidations are only
+     * checked when a domain is read, so without pruning the entries
+     * for domains that are never read again would be kept forever.
+     * The pruning is carried out at most once per staleness interval.
+     * @param now current time in millis
+     */
+    void pruneDomainCacheInvalidations(long now) {
+
+        if (now - domainCacheInvalidationsPruneTime < domainCacheMaxStaleness) {
+            return;
+        }
+        domainCacheInvalidationsPruneTime = now;
+
+        final long expiryInterval = Math.max(domainCacheMaxStaleness, domainCacheReplicaLag);
+        domainCacheInvalidations.values().removeIf(invalidationTime -> now - invalidationTime >= expiryInterval);
+    }
+
+    boolean isDomainCacheInvalidatedSince(final String domainName, long loadTime) {
+        Long invalidationTime = domainCacheInvalidations.get(domainName);
+        return invalidationTime != null && invalidationTime >= loadTime;
+    }
+
+    void processDomainCacheChangeMessage(DomainChangeMessage message) {
+
+        final String domainName = message.getDomainName();
+        if (StringUtil.isEmpty(domainName)) {
+            return;
+        }
+
+        LOG.debug("invalidating cached domain {} for {} change: {}", domainName,
+                message.getObjectType(), message.getObjectName());
+
+        // record the invalidation before removing the entry so any
+        // thread loading the domain at the same time does not mark
+        // its data as validated
+
+        final long now = System.currentTimeMillis();
+        pruneDomainCacheInvalidations(now);
+        domainCacheInvalidations.put(domainName, now);
+        cacheStore.invalidate(domainName);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void initDomainCacheSubscribers(PrivateKeyStore keyStore, final String serverHostName) {
+
+        final String factoryClassName = System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CACHE_SUBSCRIBER_FACTORY_CLASS);
+        if (StringUtil.isEmpty(factoryClassName)) {
+            return;
+        }
+
+        final String topicNames = System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CACHE_TOPIC_NAMES,
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_TOPIC_NAMES, ""));
+        if (topicNames.isEmpty()) {
+            LOG.error("No domain change topics configured for the domain cache subscriber");
+            return;
+        }
+
+        ChangeSubscriberFactory<DomainChangeMessage> subscriberFactory;
+        try {
+            subscriberFactory = (ChangeSubscriberFactory<DomainChangeMessage>) Class.forName(factoryClassName)
+                    .getDeclaredConstructor().newInstance();
+        } catch (Exception ex) {
+            LOG.error("unable to initialize subscriber factory for: {}", factoryClassName, ex);
+            return;
+        }
+
+        final String subscriptionName = System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CACHE_SUBSCRIPTION_NAME,
+                "zms-" + serverHostName);
+        final String subscriptionType = System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CACHE_SUBSCRIPTION_TYPE,
+                "Exclusive");
+
+        int topicCount = 0;
+        for (String topic : topicNames.split(",")) {
+            topic = topic.trim();
+            if (topic.isEmpty()) {
+                continue;
+            }
+            topicCount += 1;
+            try {
+                ChangeSubscriber<DomainChangeMessage> subscriber = subscriberFactory.create(keyStore,
+                        topic, subscriptionName, subscriptionType);
+                subscriber.init(this::processDomainCacheChangeMessage, DomainChangeMessage.class);
+                domainCacheSubscribers.add(subscriber);
+            } catch (Exception ex) {
+                LOG.error("unable to create a domain cache subscriber for topic: {}", topic, ex);
+            }
+        }
+
+        // we only skip the db validation if we're able to receive
+        // change messages for all configured topics otherwise we
+        // could miss changes and keep serving stale domains
+
+        if (domainCacheSubscribers.isEmpty()) {
+            return;
+        }
+        if (domainCacheSubscribers.size() != topicCount) {
+            LOG.error("Domain cache subscribers created for {} out of {} topic(s), using db validation",
+                    domainCacheSubscribers.size(), topicCount);
+            closeDomainCacheSubscribers();
+            return;
+        }
+
+        // the subscriber threads are marked as daemon so they don't
+        // block the jvm shutdown. the subscribers are closed by the
+        // server shutdown handling
+
+        domainCacheSubscriberExecutor = Executors.newFixedThreadPool(domainCacheSubscribers.size(), r -> {
+            Thread t = new Thread(r, "DomainCache-Subscriber");
+            t.setDaemon(true);
+            return t;
+        });
+        for (ChangeSubscriber<DomainChangeMessage> subscriber : domainCacheSubscribers) {
+            domainCacheSubscriberExecutor.execute(subscriber);
+        }
+        domainCachePushMode = true;
+
+        LOG.info("Domain cache subscribed to {} domain change topic(s)", domainCacheSubscribers.size());
+    }
+
+    public void closeDomainCacheSubscribers() {
+
+        domainCachePushMode = false;
+        for (ChangeSubscriber<DomainChangeMessage> subscriber : domainCacheSubscribers) {
+            subscriber.close();
+        }
+        domainCacheSubscribers.clear();
+
+        if (domainCacheSubscriberExecutor != null) {
+            domainCacheSubscriberExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Return the compiled authorization index for the given domain. The
+     * index is only available if the domain object is the one currently
+     * in our cache, so it's invalidated with the same modification
+     * timestamp check as the domain data itself.
+     * @param athenzDomain domain object returned by getAthenzDomain
+     * @return authorization index or null if not available
+     */
+    AccessPolicyIndex getAccessPolicyIndex(AthenzDomain athenzDomain) {
+
+        if (!accessPolicyIndexEnabled || athenzDomain == null) {
+            return null;
+        }
+
+        DataCache data = cacheStore.getIfPresent(athenzDomain.getName());
+        if (data == null || data.getAthenzDomain() != athenzDomain) {
+            return null;
+        }
+
+        return data.getAccessPolicyIndex();
+    }
+
     String getPrincipalName(ResourceContext ctx) {
         if (ctx == null) {
             return null;
@@ -825,11 +1139,9 @@ public class DBService implements RolesProvider, DomainProvider {
                         member.setPendingState(null);
                     }
                     member.setRequestPrincipal(admin);
-                    if (!con.insertRoleMember(domainName, roleName, member, admin, auditRef)) {
-                        LOG.error("unable to insert member {} to role {} in domain {}",
-                                member.getMemberName(), roleName, domainName);
-                        return false;
-                    }
+                }
+                if (!insertRoleMembers(con, domainName, roleName, roleMembers, admin, auditRef)) {
+                    return false;
                 }
                 auditLogRoleMembers(auditDetails, "added-members", roleMembers);
             }
@@ -930,11 +1242,9 @@ public class DBService implements RolesProvider, DomainProvider {
                     } else {
                         member.setPendingState(null);
                     }
-                    if (!con.insertGroupMember(domainName, groupName, member, admin, auditRef)) {
-                        LOG.error("unable to insert member {} to group {} in domain {}",
-                                member.getMemberName(), groupName, domainName);
-                        return false;
-                    }
+                }
+                if (!insertGroupMembers(con, domainName, groupName, groupMembers, admin, auditRef)) {
+                    return false;
                 }
                 auditLogGroupMembers(auditDetails, "added-members", groupMembers);
             }
@@ -1162,21 +1472,19 @@ public class DBService implements RolesProvider, DomainProvider {
         AuthzHelper.removeRoleMembers(delMembers, roleMembers, true);
 
         if (!ignoreDeletes) {
-            for (RoleMember member : delMembers) {
-                if (pendingState && deleteProtection == Boolean.TRUE) {
+            if (pendingState && deleteProtection == Boolean.TRUE) {
+                for (RoleMember member : delMembers) {
                     member.setApproved(false).setPendingState(ZMSConsts.PENDING_REQUEST_DELETE_STATE);
-                    if (!con.insertRoleMember(domainName, roleName, member, admin, auditRef)) {
-                        LOG.error("unable to insert member {} to role {} in domain {}",
-                                member.getMemberName(), roleName, domainName);
-                        return false;
-                    }
                     addMemberToNotifySet(notifyMembers, member.getMemberName());
-                } else {
-                    if (!con.deleteRoleMember(domainName, roleName, member.getMemberName(), admin, auditRef)) {
-                        LOG.error("unable to delete member {} from role {} in domain {}",
-                                member.getMemberName(), roleName, domainName);
-                        return false;
-                    }
+                }
+                if (!insertRoleMembers(con, domainName, roleName, delMembers, admin, auditRef)) {
+                    return false;
+                }
+            } else {
+                List<String> delMemberNames = delMembers.stream().map(RoleMember::getMemberName)
+                        .collect(Collectors.toList());
+                if (!deleteRoleMembers(con, domainName, roleName, delMemberNames, admin, auditRef)) {
+                    return false;
                 }
             }
             auditLogRoleMembers(auditDetails, "deleted-members", delMembers);
@@ -1189,13 +1497,59 @@ public class DBService implements RolesProvider, DomainProvider {
             } else {
                 member.setPendingState(null);
             }
+        }
+        if (!insertRoleMembers(con, domainName, roleName, newMembers, admin, auditRef)) {
+            return false;
+        }
+        auditLogRoleMembers(auditDetails, "added-members", newMembers);
+        return true;
+    }
+
+    boolean insertRoleMembers(ObjectStoreConnection con, final String domainName, final String roleName,
+            List<RoleMember> members, final String admin, final String auditRef) throws ServerResourceException {
+
+        // for large member lists we use a single batched store operation
+        // instead of separate principal, member and audit log updates
+        // for each member which keeps our transaction short
+
+        if (memberBatchThreshold > 0 && members.size() > memberBatchThreshold) {
+            if (!con.insertRoleMembers(domainName, roleName, members, admin, auditRef)) {
+                LOG.error("unable to insert {} members to role {} in domain {}",
+                        members.size(), roleName, domainName);
+                return false;
+            }
+            return true;
+        }
+
+        for (RoleMember member : members) {
             if (!con.insertRoleMember(domainName, roleName, member, admin, auditRef)) {
                 LOG.error("unable to insert member {} to role {} in domain {}",
                         member.getMemberName(), roleName, domainName);
                 return false;
             }
         }
-        auditLogRoleMembers(auditDetails, "added-members", newMembers);
+        return true;
+    }
+
+    boolean deleteRoleMembers(ObjectStoreConnection con, final String domainName, final String roleName,
+            List<String> memberNames, final String admin, final String auditRef) throws ServerResourceException {
+
+        if (memberBatchThreshold > 0 && memberNames.size() > memberBatchThreshold) {
+            if (!con.deleteRoleMembers(domainName, roleName, memberNames, admin, auditRef)) {
+                LOG.error("unable to delete {} members from role {} in domain {}",
+                        memberNames.size(), roleName, domainName);
+                return false;
+            }
+            return true;
+        }
+
+        for (String memberName : memberNames) {
+            if (!con.deleteRoleMember(domainName, roleName, memberName, admin, auditRef)) {
+                LOG.error("unable to delete member {} from role {} in domain {}",
+                        memberName, roleName, domainName);
+                return false;
+            }
+        }
         return true;
     }
 
@@ -1222,21 +1576,19 @@ public class DBService implements RolesProvider, DomainProvider {
         AuthzHelper.removeGroupMembers(delMembers, groupMembers, true);
 
         if (!ignoreDeletes) {
-            for (GroupMember member : delMembers) {
-                if (pendingState && deleteProtection == Boolean.TRUE) {
+            if (pendingState && deleteProtection == Boolean.TRUE) {
+                for (GroupMember member : delMembers) {
                     member.setApproved(false).setPendingState(ZMSConsts.PENDING_REQUEST_DELETE_STATE);
-                    if (!con.insertGroupMember(domainName, groupName, member, admin, auditRef)) {
-                        LOG.error("unable to insert member {} to group {} in domain {}",
-                                member.getMemberName(), groupName, domainName);
-                        return false;
-                    }
                     addMemberToNotifySet(notifyMembers, member.getMemberName());
-                } else {
-                    if (!con.deleteGroupMember(domainName, groupName, member.getMemberName(), admin, auditRef)) {
-                        LOG.error("unable to delete member {} from group {} in domain {}",
-                                member.getMemberName(), groupName, domainName);
-                        return false;
-                    }
+                }
+                if (!insertGroupMembers(con, domainName, groupName, delMembers, admin, auditRef)) {
+                    return false;
+                }
+            } else {
+                List<String> delMemberNames = delMembers.stream().map(GroupMember::getMemberName)
+                        .collect(Collectors.toList());
+                if (!deleteGroupMembers(con, domainName, groupName, delMemberNames, admin, auditRef)) {
+                    return false;
                 }
             }
             auditLogGroupMembers(auditDetails, "deleted-members", delMembers);
@@ -1249,13 +1601,55 @@ public class DBService implements RolesProvider, DomainProvider {
             } else {
                 member.setPendingState(null);
             }
+        }
+        if (!insertGroupMembers(con, domainName, groupName, newMembers, admin, auditRef)) {
+            return false;
+        }
+        auditLogGroupMembers(auditDetails, "added-members", newMembers);
+        return true;
+    }
+
+    boolean insertGroupMembers(ObjectStoreConnection con, final String domainName, final String groupName,
+            List<GroupMember> members, final String admin, final String auditRef) throws ServerResourceException {
+
+        if (memberBatchThreshold > 0 && members.size() > memberBatchThreshold) {
+            if (!con.insertGroupMembers(domainName, groupName, members, admin, auditRef)) {
+                LOG.error("unable to insert {} members to group {} in domain {}",
+                        members.size(), groupName, domainName);
+                return false;
+            }
+            return true;
+        }
+
+        for (GroupMember member : members) {
             if (!con.insertGroupMember(domainName, groupName, member, admin, auditRef)) {
                 LOG.error("unable to insert member {} to group {} in domain {}",
                         member.getMemberName(), groupName, domainName);
                 return false;
             }
         }
-        auditLogGroupMembers(auditDetails, "added-members", newMembers);
+        return true;
+    }
+
+    boolean deleteGroupMembers(ObjectStoreConnection con, final String domainName, final String groupName,
+            List<String> memberNames, final String admin, final String auditRef) throws ServerResourceException {
+
+        if (memberBatchThreshold > 0 && memberNames.size() > memberBatchThreshold) {
+            if (!con.deleteGroupMembers(domainName, groupName, memberNames, admin, auditRef)) {
+                LOG.error("unable to delete {} members from group {} in domain {}",
+                        memberNames.size(), groupName, domainName);
+                return false;
+            }
+            return true;
+        }
+
+        for (String memberName : memberNames) {
+            if (!con.deleteGroupMember(domainName, groupName, memberName, admin, auditRef)) {
+                LOG.error("unable to delete member {} from group {} in domain {}",
+                        memberName, groupName, domainName);
+                return false;
+            }
+        }
         return true;
     }
 
@@ -6391,14 +6785,30 @@ public class DBService implements RolesProvider, DomainProvider {
             return athenzDomain;
         }
 
+        // the staleness interval starts before we read the domain
+        // from the db since changes made during the read might not
+        // be included in our data
+
+        final long loadTime = System.currentTimeMillis();
         athenzDomain = con.getAthenzDomain(domainName);
         athenzDomain.setRoleMemberPrincipalTypes(zmsConfig.getUserDomainPrefix(),
                 zmsConfig.getAddlUserCheckDomainPrefixList(), zmsConfig.getHeadlessUserDomainPrefix());
 
         DataCache dataCache = new DataCache(athenzDomain,
                 athenzDomain.getDomain().getModified().millis());
+        setDomainCacheValidated(domainName, dataCache, loadTime);
         cacheStore.put(domainName, dataCache);
 
+        // a change message received after we started reading the domain
+        // might have been processed before our entry was added to the
+        // cache, so it did not invalidate it. our data might not include
+        // that change, so we remove the entry unless it was already
+        // replaced by another thread
+
+        if (domainCachePushMode && isDomainCacheInvalidatedSince(domainName, loadTime)) {
+            cacheStore.asMap().remove(domainName, dataCache);
+        }
+
         return athenzDomain;
     }
 
@@ -0,0 +1,129 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zms;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Objects;
+
+/**
+ * Bounded cache of the signed domain objects returned by the
+ * getJWSDomain and getSignedDomains apis. All ZTS servers request
+ * the same modified domains, so instead of generating and signing
+ * the same payload for each request, the signed object is reused
+ * until the domain is modified again. The entries are keyed by the
+ * domain modification timestamp so no explicit invalidation is
+ * required - entries for older versions of the domain are no longer
+ * requested and are evicted as the cache reaches its limit.
+ */
+public class SignedDomainCache {
+
+    enum SignedDomainType {
+        JWS_DOMAIN,
+        SIGNED_DOMAIN
+    }
+
+    static class CacheKey {
+
+        final SignedDomainType type;
+        final String domainName;
+        final long modTime;
+        final boolean p1363Format;
+        final boolean flag;
+        final String keyId;
+
+        CacheKey(SignedDomainType type, final String domainName, long modTime, boolean p1363Format,
+                boolean flag, final String keyId) {
+            this.type = type;
+            this.domainName = domainName;
+            this.modTime = modTime;
+            this.p1363Format = p1363Format;
+            this.flag = flag;
+            this.keyId = keyId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheKey cacheKey = (CacheKey) o;
+            return modTime == cacheKey.modTime && p1363Format == cacheKey.p1363Format
+                    && flag == cacheKey.flag && type == cacheKey.type
+                    && domainName.equals(cacheKey.domainName) && Objects.equals(keyId, cacheKey.keyId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, domainName, modTime, p1363Format, flag, keyId);
+        }
+    }
+
+    private final Cache<CacheKey, Object> cache;
+
+    public SignedDomainCache(int maxEntries) {
+        cache = CacheBuilder.newBuilder().concurrencyLevel(25).maximumSize(maxEntries).build();
+    }
+
+    /**
+     * Return the cached JWS domain object
+     * @param domainName name of the domain
+     * @param modTime domain modification timestamp
+     * @param p1363Format true if the signature is in P1363 format
+     * @param serviceCreds true if the service credentials are included
+     * @param keyId id of the key used to sign the domain
+     * @return cached object or null if not present
+     */
+    public JWSDomain getJWSDomain(final String domainName, long modTime, boolean p1363Format,
+            boolean serviceCreds, final String keyId) {
+        return (JWSDomain) cache.getIfPresent(new CacheKey(SignedDomainType.JWS_DOMAIN, domainName,
+                modTime, p1363Format, serviceCreds, keyId));
+    }
+
+    public void putJWSDomain(final String domainName, long modTime, boolean p1363Format,
+            boolean serviceCreds, final String keyId, JWSDomain jwsDomain) {
+        cache.put(new CacheKey(SignedDomainType.JWS_DOMAIN, domainName, modTime, p1363Format,
+                serviceCreds, keyId), jwsDomain);
+    }
+
+    /**
+     * Return the cached signed domain object
+     * @param domainName name of the domain
+     * @param modTime domain modification timestamp
+     * @param includeConditions true if the policy conditions are included
+     * @param keyId id of the key used to sign the domain
+     * @return cached object or null if not present
+     */
+    public SignedDomain getSignedDomain(final String domainName, long modTime, boolean includeConditions,
+            final String keyId) {
+        return (SignedDomain) cache.getIfPresent(new CacheKey(SignedDomainType.SIGNED_DOMAIN, domainName,
+                modTime, false, includeConditions, keyId));
+    }
+
+    public void putSignedDomain(final String domainName, long modTime, boolean includeConditions,
+            final String keyId, SignedDomain signedDomain) {
+        cache.put(new CacheKey(SignedDomainType.SIGNED_DOMAIN, domainName, modTime, false,
+                includeConditions, keyId), signedDomain);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zms;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Streams the SignedDomains response for the given list of modified
+ * domains. Instead of generating the signed objects for all domains
+ * before the response is serialized, each domain is retrieved, signed
+ * and written to the output one at a time. The next prefetchCount
+ * domains are retrieved in parallel while the current one is written
+ * so only a bounded number of signed domains is held in memory
+ * regardless of the number of domains in the response. The output
+ * has the same format as the SignedDomains object.
+ */
+public class SignedDomainsStreamingOutput implements StreamingOutput {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SignedDomainsStreamingOutput.class);
+
+    private static final String FIELD_DOMAINS = "domains";
+
+    private final List<Domain> domains;
+    private final Function<Domain, SignedDomain> domainRetriever;
+    private final ExecutorService executor;
+    private final int prefetchCount;
+    private final ObjectMapper jsonMapper;
+
+    public SignedDomainsStreamingOutput(List<Domain> domains, Function<Domain, SignedDomain> domainRetriever,
+            ExecutorService executor, int prefetchCount, ObjectMapper jsonMapper) {
+        this.domains = domains;
+        this.domainRetriever = domainRetriever;
+        this.executor = executor;
+        this.prefetchCount = Math.max(prefetchCount, 1);
+        this.jsonMapper = jsonMapper;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+
+        Deque<Future<SignedDomain>> pendingDomains = new ArrayDeque<>(prefetchCount);
+        Iterator<Domain> iterator = domains.iterator();
+
+        try (JsonGenerator generator = jsonMapper.getFactory().createGenerator(output)) {
+
+            // the container is responsible for closing the output stream.
+            // if we fail to retrieve a domain, closing the generator must
+            // not complete the json object otherwise the client would
+            // receive a truncated but otherwise valid list of domains
+
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+
+            generator.writeStartObject();
+            generator.writeArrayFieldStart(FIELD_DOMAINS);
+
+            while (pendingDomains.size() < prefetchCount && iterator.hasNext()) {
+                pendingDomains.add(submitDomain(iterator.next()));
+            }
+
+            while (!pendingDomains.isEmpty()) {
+
+                SignedDomain signedDomain = getSignedDomain(pendingDomains.poll());
+                if (iterator.hasNext()) {
+                    pendingDomains.add(submitDomain(iterator.next()));
+                }
+
+                // it's possible that our domain was deleted by another
+                // thread while we were processing this request so
+                // if we get a null object, we'll just skip this item
+
+                if (signedDomain != null) {
+                    jsonMapper.writeValue(generator, signedDomain);
+                }
+            }
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.flush();
+
+        } finally {
+
+            // if we're not able to complete the response, there is
+            // no point in processing the domains that are still pending
+
+            for (Future<SignedDomain> pendingDomain : pendingDomains) {
+                pendingDomain.cancel(true);
+            }
+        }
+    }
+
+    Future<SignedDomain> submitDomain(Domain domain) {
+        return executor.submit(() -> domainRetriever.apply(domain));
+    }
+
+    SignedDomain getSignedDomain(Future<SignedDomain> pendingDomain) throws IOException {
+
+        // since the response status has already been committed, the only
+        // option we have is to abort the response so the client does not
+        // receive a partial but otherwise valid list of domains
+
+        try {
+            return pendingDomain.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while retrieving signed domain", ex);
+        } catch (ExecutionException ex) {
+            LOG.error("unable to retrieve signed domain: {}", ex.getCause().getMessage());
+            throw new IOException("unable to retrieve signed domain", ex.getCause());
+        }
+    }
+}
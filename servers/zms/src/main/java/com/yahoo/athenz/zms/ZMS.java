@@ -17,6 +17,8 @@ package com.yahoo.athenz.zms;
 
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.server.ServerProperties;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
 
 class ZMS extends ResourceConfig {
     public ZMS() {
@@ -26,6 +28,23 @@ class ZMS extends ResourceConfig {
         register(JsonProcessingExceptionMapper.class, 1);
         register(ZMSResources.class);
         register(ZMSBinder.getInstance());
+        register(new ZMSLifecycleListener());
         property(ServerProperties.WADL_FEATURE_DISABLE, true);
     }
+
+    static class ZMSLifecycleListener implements ContainerLifecycleListener {
+
+        @Override
+        public void onStartup(Container container) {
+        }
+
+        @Override
+        public void onReload(Container container) {
+        }
+
+        @Override
+        public void onShutdown(Container container) {
+            ZMSImplFactory.getZmsInstance().shutdown();
+        }
+    }
 }
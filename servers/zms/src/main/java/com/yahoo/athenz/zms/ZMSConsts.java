@@ -54,6 +54,7 @@ public final class ZMSConsts {
 
     public static final String ZMS_PROP_AUTHORITY_CLASSES = "athenz.zms.authority_classes";
     public static final String ZMS_PROP_STORE_OP_TIMEOUT  = "athenz.zms.store_operation_timeout";
+    public static final String ZMS_PROP_MEMBER_BATCH_THRESHOLD = "athenz.zms.member_batch_threshold";
     public static final String ZMS_PROP_NOAUTH_URI_LIST   = "athenz.zms.no_auth_uri_list";
     public static final String ZMS_PROP_CORS_ORIGIN_LIST  = "athenz.zms.cors_origin_list";
     public static final String ZMS_PROP_CORS_HEADER_LIST  = "athenz.zms.cors_header_list";
@@ -92,6 +93,8 @@ public final class ZMSConsts {
 
     public static final String ZMS_PROP_VALIDATE_SERVICE_MEMBERS_SKIP_DOMAINS = "athenz.zms.validate_service_members_skip_domains";
     public static final String ZMS_PROP_MASTER_COPY_FOR_SIGNED_DOMAINS        = "athenz.zms.master_copy_for_signed_domains";
+    public static final String ZMS_PROP_SIGNED_DOMAIN_CACHE_SIZE              = "athenz.zms.signed_domain_cache_size";
+    public static final String ZMS_PROP_SIGNED_DOMAINS_STREAM_PREFETCH        = "athenz.zms.signed_domains_stream_prefetch";
     public static final String ZMS_PROP_ALLOW_UNDERSCORE_IN_SERVICE_NAMES     = "athenz.zms.allow_underscore_in_service_names";
     public static final String ZMS_PROP_DOMAIN_DELETE_META_ATTRIBUTES         = "athenz.zms.domain_delete_meta_attributes";
     public static final String ZMS_PROP_DISALLOW_GROUPS_IN_ADMIN_ROLE         = "athenz.zms.disallow_groups_in_admin_role";
@@ -238,6 +241,7 @@ public final class ZMSConsts {
     public static final String ZMS_PENDING_ROLE_MEMBER_LIFESPAN_DEFAULT = "30";
     public static final String SYS_AUTH_MONITOR = "sys.auth.monitor";
     public static final String ZMS_PROP_MONITOR_IDENTITY = "athenz.zms.monitor_identity";
+    public static final String ZMS_PROP_ACCESS_POLICY_INDEX = "athenz.zms.access_policy_index";
 
     public static final String ZMS_PROP_STATUS_CHECKER_FACTORY_CLASS = "athenz.zms.status_checker_factory_class";
 
@@ -266,6 +270,21 @@ public final class ZMSConsts {
     public static final String ZMS_PROP_DOMAIN_CHANGE_TOPIC_NAMES = "athenz.zms.domain_changes_topic_names";
     public static final String ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_FACTORY_CLASS = "athenz.zms.domain_change_publisher_factory_class";
     public static final String ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_DEFAULT = "com.yahoo.athenz.common.messaging.impl.NoOpDomainChangePublisherFactory";
+    public static final String ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_QUEUE_SIZE = "athenz.zms.domain_change_publisher_queue_size";
+    public static final String ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_BATCH_SIZE = "athenz.zms.domain_change_publisher_batch_size";
+    public static final String ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_BATCH_DELAY = "athenz.zms.domain_change_publisher_batch_delay";
+    public static final String ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_BLOCK_TIMEOUT = "athenz.zms.domain_change_publisher_block_timeout";
+    public static final String ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_FLUSH_TIMEOUT = "athenz.zms.domain_change_publisher_flush_timeout";
+    public static final String ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_RETRY_COUNT = "athenz.zms.domain_change_publisher_retry_count";
+    public static final String ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_RETRY_BACKOFF = "athenz.zms.domain_change_publisher_retry_backoff";
+
+    public static final String ZMS_PROP_DOMAIN_CACHE_SUBSCRIBER_FACTORY_CLASS = "athenz.zms.domain_cache_subscriber_factory_class";
+    public static final String ZMS_PROP_DOMAIN_CACHE_TOPIC_NAMES = "athenz.zms.domain_cache_topic_names";
+    public static final String ZMS_PROP_DOMAIN_CACHE_SUBSCRIPTION_NAME = "athenz.zms.domain_cache_subscription_name";
+    public static final String ZMS_PROP_DOMAIN_CACHE_SUBSCRIPTION_TYPE = "athenz.zms.domain_cache_subscription_type";
+    public static final String ZMS_PROP_DOMAIN_CACHE_MAX_STALENESS = "athenz.zms.domain_cache_max_staleness";
+    public static final String ZMS_PROP_DOMAIN_CACHE_REPLICA_LAG = "athenz.zms.domain_cache_replica_lag";
+    public static final String ZMS_PROP_DOMAIN_CACHE_MAX_WEIGHT = "athenz.zms.domain_cache_max_weight";
 
     public static final String DISABLE_REMINDER_NOTIFICATIONS_TAG = "zms.DisableReminderNotifications";
     public static final String DISABLE_EXPIRATION_NOTIFICATIONS_TAG = "zms.DisableExpirationNotifications";
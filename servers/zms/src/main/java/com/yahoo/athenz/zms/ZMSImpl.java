@@ -30,6 +30,7 @@ import com.yahoo.athenz.common.config.AuthzDetailsField;
 import com.yahoo.athenz.common.messaging.ChangePublisher;
 import com.yahoo.athenz.common.messaging.ChangePublisherFactory;
 import com.yahoo.athenz.common.messaging.DomainChangeMessage;
+import com.yahoo.athenz.common.messaging.impl.AsyncChangePublisher;
 import com.yahoo.athenz.common.metrics.Metric;
 import com.yahoo.athenz.common.metrics.MetricFactory;
 import com.yahoo.athenz.common.server.audit.AuditReferenceValidator;
@@ -187,6 +188,9 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
     protected DynamicConfigBoolean validateUserAuthorityPrincipals;
     protected DynamicConfigBoolean allowUnderscoreInServiceNames;
     protected boolean useMasterCopyForSignedDomains = false;
+    protected SignedDomainCache signedDomainCache = null;
+    protected int signedDomainsStreamPrefetch = 0;
+    protected ExecutorService signedDomainsExecutor = null;
     protected List<String> validateServiceMemberSkipDomains;
     protected static Validator validator;
     protected String userDomain;
@@ -712,6 +716,10 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
 
         loadDomainChangePublisher();
 
+        // subscribe to domain changes to invalidate our domain cache
+
+        dbService.initDomainCacheSubscribers(keyStore, serverHostName);
+
         // load the resource validator
 
         loadResourceValidator();
@@ -734,18 +742,76 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
 
     void loadDomainChangePublisher() {
         final String topicNames = System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_TOPIC_NAMES, "");
+
+        // the publishers are only configured to combine the messages
+        // into batches if we're publishing the messages asynchronously
+
+        final boolean asyncPublishing = Integer.parseInt(
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_QUEUE_SIZE, "0")) > 0;
         for (String topic : topicNames.split(",")) {
             topic = topic.trim();
             if (!topic.isEmpty()) {
-                ChangePublisher<DomainChangeMessage> publisher = createPublisher(topic);
+                ChangePublisher<DomainChangeMessage> publisher = createPublisher(topic, asyncPublishing);
                 if (publisher != null) {
-                    domainChangePublishers.add(publisher);
+                    domainChangePublishers.add(createAsyncPublisher(publisher));
                 }
             }
         }
     }
 
-    private ChangePublisher<DomainChangeMessage> createPublisher(String topicName) {
+    ChangePublisher<DomainChangeMessage> createAsyncPublisher(ChangePublisher<DomainChangeMessage> publisher) {
+
+        // if the queue size is not configured then the messages
+        // are published synchronously by the api request thread
+
+        final int queueSize = Integer.parseInt(
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_QUEUE_SIZE, "0"));
+        if (queueSize <= 0) {
+            return publisher;
+        }
+
+        final int batchSize = Integer.parseInt(
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_BATCH_SIZE, "100"));
+        final long batchDelay = Long.parseLong(
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_BATCH_DELAY, "10"));
+        final long blockTimeout = Long.parseLong(
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_BLOCK_TIMEOUT, "0"));
+        final long flushTimeout = Long.parseLong(
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_FLUSH_TIMEOUT, "5000"));
+        final int retryCount = Integer.parseInt(
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_RETRY_COUNT, "3"));
+        final long retryBackoff = Long.parseLong(
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_RETRY_BACKOFF, "100"));
+        return new AsyncChangePublisher<>(publisher, queueSize, batchSize, batchDelay,
+                blockTimeout, flushTimeout, retryCount, retryBackoff, metric);
+    }
+
+    /**
+     * Stop the background tasks started by the server. Called by
+     * the container when the ZMS application is shut down.
+     */
+    public void shutdown() {
+
+        // close our publishers first so any queued change messages
+        // are published before we stop the rest of the server
+
+        closeDomainChangePublishers();
+        if (dbService != null) {
+            dbService.closeDomainCacheSubscribers();
+        }
+    }
+
+    void closeDomainChangePublishers() {
+        for (ChangePublisher<DomainChangeMessage> publisher : domainChangePublishers) {
+            try {
+                publisher.close();
+            } catch (Exception ex) {
+                LOG.error("unable to close domain change publisher", ex);
+            }
+        }
+    }
+
+    private ChangePublisher<DomainChangeMessage> createPublisher(String topicName, boolean asyncPublishing) {
         ChangePublisherFactory<DomainChangeMessage> publisherFactory;
         final String domainChangePublisherClassName = System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_FACTORY_CLASS,
                 ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_DEFAULT);
@@ -756,7 +822,7 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
             return null;
         }
         try {
-            return publisherFactory.create(keyStore, topicName);
+            return publisherFactory.create(keyStore, topicName, asyncPublishing);
         } catch (Exception ex) {
             LOG.error("unable to create a publisher for topic: {}", topicName, ex);
         }
@@ -932,6 +998,30 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
         useMasterCopyForSignedDomains = Boolean.parseBoolean(
                 System.getProperty(ZMSConsts.ZMS_PROP_MASTER_COPY_FOR_SIGNED_DOMAINS, "false"));
 
+        // if configured, keep a cache of the signed domain objects so
+        // the same domain is not serialized and signed for each request
+
+        final int signedDomainCacheSize = Integer.parseInt(
+                System.getProperty(ZMSConsts.ZMS_PROP_SIGNED_DOMAIN_CACHE_SIZE, "0"));
+        signedDomainCache = signedDomainCacheSize > 0 ? new SignedDomainCache(signedDomainCacheSize) : null;
+
+        // if configured, full sync requests from system principals are
+        // streamed one domain at a time with the given number of domains
+        // retrieved in parallel. the same executor is shared by all requests
+        // so it also limits the number of concurrent domain retrievals.
+        // the threads are marked as daemon so they don't block the jvm
+        // shutdown while a full sync request is still being streamed
+
+        signedDomainsStreamPrefetch = Integer.parseInt(
+                System.getProperty(ZMSConsts.ZMS_PROP_SIGNED_DOMAINS_STREAM_PREFETCH, "0"));
+        if (signedDomainsStreamPrefetch > 0) {
+            signedDomainsExecutor = Executors.newFixedThreadPool(signedDomainsStreamPrefetch, r -> {
+                Thread t = new Thread(r, "SignedDomains-Prefetch");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
         // get the maximum length allowed for a top level domain name
 
         domainNameMaxLen = Integer.parseInt(System.getProperty(
@@ -1071,6 +1161,7 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
         try {
             objFactory = (ObjectStoreFactory) Class.forName(objFactoryClass).getDeclaredConstructor().newInstance();
             objectStore = objFactory.create(keyStore);
+            objectStore.setMetric(metric);
 
         } catch (Exception ex) {
             LOG.error("Invalid ObjectStoreFactory class: {}", objFactoryClass, ex);
@@ -3539,6 +3630,16 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
             return AccessStatus.DENIED;
         }
 
+        // if the domain is from our cache then we'll use its compiled
+        // authorization index instead of processing all the assertions
+
+        AccessPolicyIndex accessPolicyIndex = dbService.getAccessPolicyIndex(domain);
+        if (accessPolicyIndex != null) {
+            final String domainName = domain.getName();
+            return accessPolicyIndex.evaluateAccess(action, resource,
+                    roles -> matchIndexedRoles(roles, domainName, identity, authenticatedRoles, trustDomain));
+        }
+
         AccessStatus accessStatus = AccessStatus.DENIED;
 
         List<Policy> policies = domain.getPolicies();
@@ -6783,6 +6884,31 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
         return false;
     }
 
+    boolean matchIndexedRoles(List<Role> roles, String domain, String identity, List<String> authenticatedRoles,
+            String trustDomain) {
+
+        // the roles have already been matched against the assertion role
+        // so we only need to check if the principal is included in them
+
+        if (authenticatedRoles != null) {
+            final int prefixLen = domain.length() + AuthorityConsts.ROLE_SEP.length();
+            for (Role role : roles) {
+                final String name = role.getName();
+                if (authenticatedRoles.contains(name) || authenticatedRoles.contains(name.substring(prefixLen))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        for (Role role : roles) {
+            if (matchPrincipalInRole(role, role.getName(), identity, trustDomain)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     AthenzDomain virtualHomeDomain(Principal principal, String domainName) {
 
         if (LOG.isDebugEnabled()) {
@@ -7736,8 +7862,16 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
         // generate our signed domain object
 
         final String domainName = domain.getName();
-        SignedDomain signedDomain = createSignedDomain(domainName, domain.getModified().millis(),
-                domain.getEnabled());
+        final long modTime = domain.getModified().millis();
+        if (signedDomainCache != null) {
+            SignedDomain signedDomain = signedDomainCache.getSignedDomain(domainName, modTime,
+                    includeConditions, privateKey.getId());
+            if (signedDomain != null) {
+                return signedDomain;
+            }
+        }
+
+        SignedDomain signedDomain = createSignedDomain(domainName, modTime, domain.getEnabled());
 
         // get the policies, roles, and service identities to create the
         // DomainData
@@ -7840,6 +7974,15 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
 
         signature = Crypto.sign(SignUtils.asCanonicalString(domainData), privateKey.getKey());
         signedDomain.setSignature(signature).setKeyId(privateKey.getId());
+
+        // we can only cache the object if the domain data that we retrieved
+        // matches the requested modification timestamp. with read replicas
+        // we might get an older version of the domain
+
+        if (signedDomainCache != null && athenzDomain.getDomain().getModified().millis() == modTime) {
+            signedDomainCache.putSignedDomain(domainName, modTime, includeConditions,
+                    privateKey.getId(), signedDomain);
+        }
         return signedDomain;
     }
 
@@ -7953,6 +8096,13 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
                         .header("ETag", matchingTag).build();
             }
 
+            // for full sync requests, if configured, we're going to stream
+            // the domains instead of keeping all signed domains in memory
+
+            if (!setMetaDataOnly && signedDomainsExecutor != null) {
+                return streamSignedDomains(modlist, masterCopy, includeConditions);
+            }
+
             // now we can iterate through our list and retrieve each domain
 
             for (Domain dmod : modlist) {
@@ -7992,6 +8142,25 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
                 .header("ETag", ENTITY_TAG_HEADER_DELEGATE.toString(eTag)).build();
     }
 
+    Response streamSignedDomains(List<Domain> modlist, boolean masterCopy, boolean includeConditions) {
+
+        long youngestDomMod = -1L;
+        for (Domain dmod : modlist) {
+            long domModMillis = dmod.getModified().millis();
+            if (domModMillis > youngestDomMod) {
+                youngestDomMod = domModMillis;
+            }
+        }
+
+        SignedDomainsStreamingOutput output = new SignedDomainsStreamingOutput(modlist,
+                dmod -> retrieveSignedDomainData(dmod, masterCopy, includeConditions),
+                signedDomainsExecutor, signedDomainsStreamPrefetch, jsonMapper);
+
+        EntityTag eTag = new EntityTag(Timestamp.fromMillis(youngestDomMod).toString());
+        return Response.status(ResourceException.OK).entity(output)
+                .header("ETag", ENTITY_TAG_HEADER_DELEGATE.toString(eTag)).build();
+    }
+
     @Override
     public Response getJWSDomain(ResourceContext ctx, String domainName, Boolean signatureP1363Format, String matchingTag) {
 
@@ -8053,6 +8222,18 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
         final Domain domain = athenzDomain.getDomain();
         final String domainName = domain.getName();
 
+        // check if we have already signed this version of the domain
+
+        final long modTime = domain.getModified().millis();
+        final boolean p1363Format = signatureP1363Format == Boolean.TRUE && Crypto.ES256.equals(privateKey.getAlgorithm());
+        if (signedDomainCache != null) {
+            JWSDomain jwsDomain = signedDomainCache.getJWSDomain(domainName, modTime, p1363Format,
+                    allowedServiceCreds, privateKey.getId());
+            if (jwsDomain != null) {
+                return jwsDomain;
+            }
+        }
+
         DomainData domainData = new DomainData()
                 .setName(domainName)
                 .setModified(domain.getModified())
@@ -8091,7 +8272,12 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
 
         domainData.setPolicies(signedPolicies);
 
-        return signJwsDomain(domainData, signatureP1363Format);
+        JWSDomain jwsDomain = signJwsDomain(domainData, signatureP1363Format);
+        if (signedDomainCache != null && jwsDomain != null) {
+            signedDomainCache.putJWSDomain(domainName, modTime, p1363Format, allowedServiceCreds,
+                    privateKey.getId(), jwsDomain);
+        }
+        return jwsDomain;
     }
 
     JWSDomain signJwsDomain(DomainData domainData, Boolean signatureP1363Format) {
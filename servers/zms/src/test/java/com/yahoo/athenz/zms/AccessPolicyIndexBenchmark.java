@@ -0,0 +1,179 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zms;
+
+import com.yahoo.athenz.auth.AuthorityConsts;
+import com.yahoo.athenz.auth.util.StringUtils;
+import com.yahoo.athenz.common.server.store.AthenzDomain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Compares the original evaluateAccess processing of all the policy
+ * assertions with glob to regex matching against the compiled access
+ * policy index for a domain with 10k assertions. The role token based
+ * check is used so the benchmark does not require a ZMS instance.
+ * The benchmark is not part of the unit test suite - run the main
+ * method with the module test classpath to execute it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessPolicyIndexBenchmark {
+
+    private static final String DOMAIN_NAME = "sys.auth";
+
+    @Param({"10000"})
+    int assertionCount;
+
+    AthenzDomain domain;
+    AccessPolicyIndex index;
+    List<String> authenticatedRoles;
+    String[][] checks;
+
+    @Setup
+    public void setup() {
+
+        domain = new AthenzDomain(DOMAIN_NAME);
+        final int roleCount = assertionCount / 10;
+        for (int i = 0; i < roleCount; i++) {
+            domain.getRoles().add(new Role().setName(DOMAIN_NAME + ":role.tenant" + i));
+        }
+
+        // each policy has 10 assertions with a mix of actions
+        // and exact, prefix and regex resource values
+
+        final String[] actions = { "create", "update", "delete", "read", "*" };
+        for (int i = 0; i < roleCount; i++) {
+            List<Assertion> assertions = new ArrayList<>();
+            for (int j = 0; j < 10; j++) {
+                String resource;
+                switch (j % 3) {
+                    case 0:
+                        resource = DOMAIN_NAME + ":tenant" + i + ".resource" + j;
+                        break;
+                    case 1:
+                        resource = DOMAIN_NAME + ":tenant" + i + ".*";
+                        break;
+                    default:
+                        resource = DOMAIN_NAME + ":tenant" + i + ".*.res?urce" + j;
+                        break;
+                }
+                assertions.add(new Assertion().setRole(DOMAIN_NAME + ":role.tenant" + i)
+                        .setAction(actions[j % actions.length]).setResource(resource)
+                        .setEffect(j == 9 ? AssertionEffect.DENY : AssertionEffect.ALLOW));
+            }
+            domain.getPolicies().add(new Policy().setName(DOMAIN_NAME + ":policy.tenant" + i)
+                    .setAssertions(assertions));
+        }
+
+        index = new AccessPolicyIndex(domain);
+        authenticatedRoles = Collections.singletonList("tenant" + (roleCount / 2));
+        checks = new String[][] {
+                { "update", DOMAIN_NAME + ":tenant" + (roleCount / 2) + ".resource1" },
+                { "read", DOMAIN_NAME + ":tenant" + (roleCount / 2) + ".resource3" },
+                { "delete", DOMAIN_NAME + ":tenant1.resource2" }
+        };
+    }
+
+    @Benchmark
+    public void assertionScan(Blackhole blackhole) {
+        for (String[] check : checks) {
+            blackhole.consume(evaluateAccess(check[0], check[1]));
+        }
+    }
+
+    @Benchmark
+    public void policyIndex(Blackhole blackhole) {
+        Predicate<List<Role>> roleMatch = roles -> {
+            final int prefixLen = DOMAIN_NAME.length() + AuthorityConsts.ROLE_SEP.length();
+            for (Role role : roles) {
+                final String name = role.getName();
+                if (authenticatedRoles.contains(name) || authenticatedRoles.contains(name.substring(prefixLen))) {
+                    return true;
+                }
+            }
+            return false;
+        };
+        for (String[] check : checks) {
+            blackhole.consume(index.evaluateAccess(check[0], check[1], roleMatch));
+        }
+    }
+
+    // same processing as the assertion loop in ZMSImpl.evaluateAccess
+    // with the assertionMatch and matchRole methods
+
+    ZMSImpl.AccessStatus evaluateAccess(final String action, final String resource) {
+
+        ZMSImpl.AccessStatus accessStatus = ZMSImpl.AccessStatus.DENIED;
+        for (Policy policy : domain.getPolicies()) {
+            for (Assertion assertion : policy.getAssertions()) {
+                AssertionEffect effect = assertion.getEffect();
+                if (accessStatus == ZMSImpl.AccessStatus.ALLOWED && effect == AssertionEffect.ALLOW) {
+                    continue;
+                }
+                if (!action.matches(StringUtils.patternFromGlob(assertion.getAction().toLowerCase()))) {
+                    continue;
+                }
+                if (!resource.matches(StringUtils.patternFromGlob(assertion.getResource().toLowerCase()))) {
+                    continue;
+                }
+                if (!matchRole(StringUtils.patternFromGlob(assertion.getRole()))) {
+                    continue;
+                }
+                if (effect == AssertionEffect.DENY) {
+                    return ZMSImpl.AccessStatus.DENIED;
+                }
+                accessStatus = ZMSImpl.AccessStatus.ALLOWED;
+            }
+        }
+        return accessStatus;
+    }
+
+    boolean matchRole(final String rolePattern) {
+        final int prefixLen = DOMAIN_NAME.length() + AuthorityConsts.ROLE_SEP.length();
+        for (Role role : domain.getRoles()) {
+            final String name = role.getName();
+            if (!name.matches(rolePattern)) {
+                continue;
+            }
+            if (authenticatedRoles.contains(name) || authenticatedRoles.contains(name.substring(prefixLen))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AccessPolicyIndexBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zms;
+
+import com.yahoo.athenz.common.server.store.AthenzDomain;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.testng.Assert.*;
+
+public class AccessPolicyIndexTest {
+
+    private Assertion createAssertion(final String role, final String action, final String resource,
+            AssertionEffect effect) {
+        return new Assertion().setRole(role).setAction(action).setResource(resource).setEffect(effect);
+    }
+
+    private AthenzDomain createDomain() {
+
+        AthenzDomain domain = new AthenzDomain("coretech");
+        domain.getRoles().add(new Role().setName("coretech:role.readers"));
+        domain.getRoles().add(new Role().setName("coretech:role.writers"));
+        domain.getRoles().add(new Role().setName("coretech:role.dev-team"));
+        domain.getRoles().add(new Role().setName("coretech:role.dev-ops"));
+
+        List<Assertion> assertions = new ArrayList<>();
+        assertions.add(createAssertion("coretech:role.readers", "READ", "coretech:Table.*", AssertionEffect.ALLOW));
+        assertions.add(createAssertion("coretech:role.writers", "update", "coretech:table.*", null));
+        assertions.add(createAssertion("coretech:role.dev-*", "*", "coretech:dev.*", AssertionEffect.ALLOW));
+        assertions.add(createAssertion("coretech:role.dev-ops", "upd?te", "coretech:prod.*", AssertionEffect.ALLOW));
+        assertions.add(createAssertion("coretech:role.readers", "read", "coretech:table.secret", AssertionEffect.DENY));
+        assertions.add(createAssertion("coretech:role.dev-*", "*", "coretech:dev.secret", AssertionEffect.DENY));
+        assertions.add(createAssertion("coretech:role.unknown", "read", "*", AssertionEffect.ALLOW));
+        domain.getPolicies().add(new Policy().setName("coretech:policy.policy1").setAssertions(assertions));
+
+        // inactive policies and policies without assertions are ignored
+
+        List<Assertion> inactive = new ArrayList<>();
+        inactive.add(createAssertion("coretech:role.readers", "delete", "*", AssertionEffect.ALLOW));
+        domain.getPolicies().add(new Policy().setName("coretech:policy.policy2").setActive(false)
+                .setAssertions(inactive));
+        domain.getPolicies().add(new Policy().setName("coretech:policy.policy3"));
+        return domain;
+    }
+
+    private Predicate<List<Role>> memberOf(final String... roleNames) {
+        return roles -> {
+            for (Role role : roles) {
+                for (String roleName : roleNames) {
+                    if (role.getName().equals(roleName)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        };
+    }
+
+    @Test
+    public void testEvaluateAccess() {
+
+        AccessPolicyIndex index = new AccessPolicyIndex(createDomain());
+
+        // the assertion for the unknown role is not indexed
+
+        assertEquals(index.getAssertionCount(), 6);
+
+        Predicate<List<Role>> readers = memberOf("coretech:role.readers");
+        assertEquals(index.evaluateAccess("read", "coretech:table.users", readers), ZMSImpl.AccessStatus.ALLOWED);
+        assertEquals(index.evaluateAccess("read", "coretech:table.secret", readers), ZMSImpl.AccessStatus.DENIED);
+        assertEquals(index.evaluateAccess("update", "coretech:table.users", readers), ZMSImpl.AccessStatus.DENIED);
+        assertEquals(index.evaluateAccess("delete", "coretech:table.users", readers), ZMSImpl.AccessStatus.DENIED);
+        assertEquals(index.evaluateAccess("read", "coretech:other", readers), ZMSImpl.AccessStatus.DENIED);
+
+        Predicate<List<Role>> writers = memberOf("coretech:role.writers");
+        assertEquals(index.evaluateAccess("update", "coretech:table.users", writers), ZMSImpl.AccessStatus.ALLOWED);
+        assertEquals(index.evaluateAccess("read", "coretech:table.users", writers), ZMSImpl.AccessStatus.DENIED);
+
+        Predicate<List<Role>> devTeam = memberOf("coretech:role.dev-team");
+        assertEquals(index.evaluateAccess("deploy", "coretech:dev.app", devTeam), ZMSImpl.AccessStatus.ALLOWED);
+        assertEquals(index.evaluateAccess("deploy", "coretech:dev.secret", devTeam), ZMSImpl.AccessStatus.DENIED);
+        assertEquals(index.evaluateAccess("update", "coretech:prod.app", devTeam), ZMSImpl.AccessStatus.DENIED);
+
+        Predicate<List<Role>> devOps = memberOf("coretech:role.dev-ops");
+        assertEquals(index.evaluateAccess("update", "coretech:prod.app", devOps), ZMSImpl.AccessStatus.ALLOWED);
+        assertEquals(index.evaluateAccess("updxte", "coretech:prod.app", devOps), ZMSImpl.AccessStatus.ALLOWED);
+        assertEquals(index.evaluateAccess("updates", "coretech:prod.app", devOps), ZMSImpl.AccessStatus.DENIED);
+
+        // deny assertion takes precedence for members of multiple roles
+
+        Predicate<List<Role>> multiple = memberOf("coretech:role.readers", "coretech:role.dev-team");
+        assertEquals(index.evaluateAccess("read", "coretech:table.secret", multiple), ZMSImpl.AccessStatus.DENIED);
+        assertEquals(index.evaluateAccess("read", "coretech:table.users", multiple), ZMSImpl.AccessStatus.ALLOWED);
+
+        assertEquals(index.evaluateAccess("read", "coretech:table.users", memberOf()), ZMSImpl.AccessStatus.DENIED);
+    }
+
+    @Test
+    public void testEmptyDomain() {
+        AccessPolicyIndex index = new AccessPolicyIndex(new AthenzDomain("coretech"));
+        assertEquals(index.getAssertionCount(), 0);
+        assertEquals(index.evaluateAccess("read", "coretech:table", roles -> true), ZMSImpl.AccessStatus.DENIED);
+    }
+
+    @Test
+    public void testGetMatchedRoles() {
+
+        AthenzDomain domain = createDomain();
+        List<Role> roles = domain.getRoles();
+        Map<String, Role> roleMap = new HashMap<>();
+        for (Role role : roles) {
+            roleMap.put(role.getName(), role);
+        }
+
+        assertEquals(AccessPolicyIndex.getMatchedRoles("coretech:role.readers", roles, roleMap).size(), 1);
+        assertEquals(AccessPolicyIndex.getMatchedRoles("coretech:role.dev*", roles, roleMap).size(), 2);
+        assertEquals(AccessPolicyIndex.getMatchedRoles("coretech:role.*", roles, roleMap).size(), 4);
+        assertEquals(AccessPolicyIndex.getMatchedRoles("*", roles, roleMap).size(), 4);
+        assertEquals(AccessPolicyIndex.getMatchedRoles("coretech:role.?eaders", roles, roleMap).size(), 1);
+        assertEquals(AccessPolicyIndex.getMatchedRoles("coretech:role.unknown", roles, roleMap),
+                Collections.emptyList());
+    }
+
+    @Test
+    public void testGlobMatch() {
+
+        assertTrue(AccessPolicyIndex.GlobMatch.getMatchObject("*").matches("anything"));
+        assertTrue(AccessPolicyIndex.GlobMatch.getMatchObject("coretech:table").matches("coretech:table"));
+        assertFalse(AccessPolicyIndex.GlobMatch.getMatchObject("coretech:table").matches("coretech:tables"));
+        assertTrue(AccessPolicyIndex.GlobMatch.getMatchObject("coretech:table*").matches("coretech:tables"));
+        assertFalse(AccessPolicyIndex.GlobMatch.getMatchObject("coretech:table*").matches("coretech:tabl"));
+        assertTrue(AccessPolicyIndex.GlobMatch.getMatchObject("coretech:*.users").matches("coretech:db.users"));
+        assertFalse(AccessPolicyIndex.GlobMatch.getMatchObject("coretech:*.users").matches("coretech:db.user"));
+        assertTrue(AccessPolicyIndex.GlobMatch.getMatchObject("coretech:t?ble").matches("coretech:table"));
+
+        // regex characters in the glob are matched literally
+
+        assertFalse(AccessPolicyIndex.GlobMatch.getMatchObject("coretech:t.ble*").matches("coretech:table"));
+    }
+}
@@ -25,6 +25,8 @@ import com.yahoo.athenz.auth.Principal;
 import com.yahoo.athenz.auth.impl.FilePrivateKeyStore;
 import com.yahoo.athenz.auth.impl.SimplePrincipal;
 import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.common.messaging.DomainChangeMessage;
+import com.yahoo.athenz.common.messaging.impl.InMemoryChangeSubscriberFactory;
 import com.yahoo.athenz.common.server.audit.AuditReferenceValidator;
 import com.yahoo.athenz.common.server.notification.NotificationManager;
 import com.yahoo.athenz.common.server.rest.ServerResourceContext;
@@ -6453,6 +6455,126 @@ public class DBServiceTest {
         assertFalse(result);
     }
 
+    @Test
+    public void testProcessRoleBatchMembers() throws ServerResourceException {
+
+        ObjectStoreConnection conn = Mockito.mock(ObjectStoreConnection.class);
+        int savedThreshold = zms.dbService.memberBatchThreshold;
+        zms.dbService.memberBatchThreshold = 2;
+
+        Mockito.when(conn.insertRole(anyString(), any(Role.class))).thenReturn(true);
+        Mockito.when(conn.updateRole(anyString(), any(Role.class))).thenReturn(true);
+        Mockito.when(conn.insertRoleMembers(anyString(), anyString(), anyList(), anyString(), anyString()))
+                .thenReturn(true);
+        Mockito.when(conn.deleteRoleMembers(anyString(), anyString(), anyList(), anyString(), anyString()))
+                .thenReturn(true);
+
+        // new role with more members than the threshold
+
+        Role role = createRoleObject("batchDomain", "role1", null, "user.joe", "user.jane");
+        role.getRoleMembers().add(new RoleMember().setMemberName("user.john"));
+        StringBuilder auditDetails = new StringBuilder("testAudit");
+        assertTrue(zms.dbService.processRole(conn, null, "batchDomain", "role1",
+                role, adminUser, null, auditRef, false, auditDetails));
+        Mockito.verify(conn, times(1)).insertRoleMembers(eq("batchDomain"), eq("role1"),
+                eq(role.getRoleMembers()), eq(adminUser), eq(auditRef));
+        Mockito.verify(conn, never()).insertRoleMember(anyString(), anyString(), any(RoleMember.class),
+                anyString(), anyString());
+
+        // update the role replacing all members
+
+        Role updatedRole = createRoleObject("batchDomain", "role1", null, "user.bob", "user.ann");
+        updatedRole.getRoleMembers().add(new RoleMember().setMemberName("user.tom"));
+        auditDetails = new StringBuilder("testAudit");
+        assertTrue(zms.dbService.processRole(conn, role, "batchDomain", "role1",
+                updatedRole, adminUser, null, auditRef, false, auditDetails));
+        Mockito.verify(conn, times(1)).deleteRoleMembers("batchDomain", "role1",
+                Arrays.asList("user.joe", "user.jane", "user.john"), adminUser, auditRef);
+        Mockito.verify(conn, never()).deleteRoleMember(anyString(), anyString(), anyString(),
+                anyString(), anyString());
+
+        // failures from the batch operations
+
+        Mockito.when(conn.insertRoleMembers(anyString(), anyString(), anyList(), anyString(), anyString()))
+                .thenReturn(false);
+        assertFalse(zms.dbService.processRole(conn, null, "batchDomain", "role1",
+                role, adminUser, null, auditRef, false, new StringBuilder()));
+
+        Mockito.when(conn.deleteRoleMembers(anyString(), anyString(), anyList(), anyString(), anyString()))
+                .thenReturn(false);
+        assertFalse(zms.dbService.processRole(conn, role, "batchDomain", "role1",
+                updatedRole, adminUser, null, auditRef, false, new StringBuilder()));
+
+        // below the threshold we process each member separately
+
+        zms.dbService.memberBatchThreshold = 3;
+        Mockito.when(conn.insertRoleMember(anyString(), anyString(), any(RoleMember.class),
+                anyString(), anyString())).thenReturn(true);
+        assertTrue(zms.dbService.processRole(conn, null, "batchDomain", "role1",
+                role, adminUser, null, auditRef, false, new StringBuilder()));
+        Mockito.verify(conn, times(3)).insertRoleMember(eq("batchDomain"), eq("role1"), any(RoleMember.class),
+                eq(adminUser), eq(auditRef));
+
+        zms.dbService.memberBatchThreshold = savedThreshold;
+    }
+
+    @Test
+    public void testProcessGroupBatchMembers() throws ServerResourceException {
+
+        ObjectStoreConnection conn = Mockito.mock(ObjectStoreConnection.class);
+        int savedThreshold = zms.dbService.memberBatchThreshold;
+        zms.dbService.memberBatchThreshold = 1;
+
+        Mockito.when(conn.insertGroup(anyString(), any(Group.class))).thenReturn(true);
+        Mockito.when(conn.updateGroup(anyString(), any(Group.class))).thenReturn(true);
+        Mockito.when(conn.insertGroupMembers(anyString(), anyString(), anyList(), anyString(), anyString()))
+                .thenReturn(true);
+        Mockito.when(conn.deleteGroupMembers(anyString(), anyString(), anyList(), anyString(), anyString()))
+                .thenReturn(true);
+
+        Group group = createGroupObject("batchDomain", "group1", "user.joe", "user.jane");
+        assertTrue(zms.dbService.processGroup(conn, null, "batchDomain", "group1",
+                group, adminUser, null, auditRef, false, new StringBuilder()));
+        Mockito.verify(conn, times(1)).insertGroupMembers(eq("batchDomain"), eq("group1"),
+                eq(group.getGroupMembers()), eq(adminUser), eq(auditRef));
+
+        // with delete protection and review enabled the deleted
+        // members are inserted as pending delete requests
+
+        Group updatedGroup = createGroupObject("batchDomain", "group1", "user.bob", "user.ann");
+        updatedGroup.setReviewEnabled(true).setDeleteProtection(true);
+        Set<String> notifyMembers = new HashSet<>();
+        assertTrue(zms.dbService.processGroup(conn, group, "batchDomain", "group1",
+                updatedGroup, adminUser, notifyMembers, auditRef, false, new StringBuilder()));
+        Mockito.verify(conn, times(3)).insertGroupMembers(eq("batchDomain"), eq("group1"),
+                anyList(), eq(adminUser), eq(auditRef));
+        Mockito.verify(conn, never()).deleteGroupMembers(anyString(), anyString(), anyList(),
+                anyString(), anyString());
+        assertEquals(notifyMembers.size(), 4);
+        assertEquals(group.getGroupMembers().get(0).getPendingState(), ZMSConsts.PENDING_REQUEST_DELETE_STATE);
+
+        // without delete protection the members are deleted
+
+        updatedGroup.setDeleteProtection(false);
+        group.getGroupMembers().forEach(member -> member.setApproved(null).setPendingState(null));
+        assertTrue(zms.dbService.processGroup(conn, group, "batchDomain", "group1",
+                updatedGroup, adminUser, null, auditRef, false, new StringBuilder()));
+        Mockito.verify(conn, times(1)).deleteGroupMembers("batchDomain", "group1",
+                Arrays.asList("user.joe", "user.jane"), adminUser, auditRef);
+
+        Mockito.when(conn.deleteGroupMembers(anyString(), anyString(), anyList(), anyString(), anyString()))
+                .thenReturn(false);
+        assertFalse(zms.dbService.processGroup(conn, group, "batchDomain", "group1",
+                updatedGroup, adminUser, null, auditRef, false, new StringBuilder()));
+
+        Mockito.when(conn.insertGroupMembers(anyString(), anyString(), anyList(), anyString(), anyString()))
+                .thenReturn(false);
+        assertFalse(zms.dbService.processGroup(conn, null, "batchDomain", "group1",
+                group, adminUser, null, auditRef, false, new StringBuilder()));
+
+        zms.dbService.memberBatchThreshold = savedThreshold;
+    }
+
     @Test
     public void testUpdateRoleMetaFields() throws ServerResourceException {
         final String caller = "testUpdateRoleMetaFields";
@@ -14000,6 +14122,278 @@ public class DBServiceTest {
         zms.deleteTopLevelDomain(mockDomRsrcCtx, domainName, auditRef, null);
     }
 
+    @Test
+    public void testGetAthenzDomainFromCachePushMode() throws ServerResourceException {
+
+        ZMSConfig zmsConfig = new ZMSConfig();
+        zmsConfig.setUserDomain("user");
+        DBService dbService = new DBService(mockObjStore, null, zmsConfig, null, null);
+        dbService.domainCachePushMode = true;
+
+        final String domainName = "push-cache-domain";
+        AthenzDomain athenzDomain = new AthenzDomain(domainName);
+        athenzDomain.setDomain(new Domain().setName(domainName).setModified(Timestamp.fromMillis(100)));
+
+        ObjectStoreConnection con = Mockito.mock(ObjectStoreConnection.class);
+        when(con.getAthenzDomain(domainName)).thenReturn(athenzDomain);
+        when(con.getDomainModTimestamp(domainName)).thenReturn(100L);
+
+        // the entry is validated when loaded so no timestamp
+        // query is required for the following requests
+
+        assertEquals(dbService.getAthenzDomain(con, domainName), athenzDomain);
+        assertEquals(dbService.getAthenzDomain(con, domainName), athenzDomain);
+        assertEquals(dbService.getAthenzDomain(con, domainName), athenzDomain);
+        verify(con, times(1)).getAthenzDomain(domainName);
+        verify(con, never()).getDomainModTimestamp(domainName);
+
+        // once the staleness interval expires, the entry is validated again
+
+        dbService.cacheStore.getIfPresent(domainName).setValidatedTime(System.currentTimeMillis() - 120000);
+        assertEquals(dbService.getAthenzDomain(con, domainName), athenzDomain);
+        assertEquals(dbService.getAthenzDomain(con, domainName), athenzDomain);
+        verify(con, times(1)).getDomainModTimestamp(domainName);
+
+        // a change message invalidates the entry and during the replica
+        // lag interval the reloaded domain is validated for every request
+
+        dbService.processDomainCacheChangeMessage(new DomainChangeMessage().setDomainName(domainName)
+                .setObjectType(DomainChangeMessage.ObjectType.ROLE).setObjectName("role1"));
+        assertNull(dbService.cacheStore.getIfPresent(domainName));
+
+        assertEquals(dbService.getAthenzDomain(con, domainName), athenzDomain);
+        verify(con, times(2)).getAthenzDomain(domainName);
+        assertEquals(dbService.getAthenzDomain(con, domainName), athenzDomain);
+        assertEquals(dbService.getAthenzDomain(con, domainName), athenzDomain);
+        verify(con, times(3)).getDomainModTimestamp(domainName);
+
+        // after the replica lag interval the entry is trusted again
+
+        dbService.domainCacheInvalidations.put(domainName, System.currentTimeMillis() - 10000);
+        assertEquals(dbService.getAthenzDomain(con, domainName), athenzDomain);
+        verify(con, times(4)).getDomainModTimestamp(domainName);
+        assertNotNull(dbService.domainCacheInvalidations.get(domainName));
+
+        assertEquals(dbService.getAthenzDomain(con, domainName), athenzDomain);
+        verify(con, times(4)).getDomainModTimestamp(domainName);
+
+        // messages without domain names are ignored
+
+        dbService.processDomainCacheChangeMessage(new DomainChangeMessage());
+        assertNotNull(dbService.cacheStore.getIfPresent(domainName));
+    }
+
+    @Test
+    public void testGetAthenzDomainPushModeInvalidatedDuringLoad() throws ServerResourceException {
+
+        ZMSConfig zmsConfig = new ZMSConfig();
+        zmsConfig.setUserDomain("user");
+        DBService dbService = Mockito.spy(new DBService(mockObjStore, null, zmsConfig, null, null));
+        dbService.domainCachePushMode = true;
+
+        final String domainName = "push-cache-race-domain";
+        AthenzDomain athenzDomain = new AthenzDomain(domainName);
+        athenzDomain.setDomain(new Domain().setName(domainName).setModified(Timestamp.fromMillis(100)));
+
+        ObjectStoreConnection con = Mockito.mock(ObjectStoreConnection.class);
+        when(con.getAthenzDomain(domainName)).thenReturn(athenzDomain);
+
+        // the change message is processed after our entry is marked
+        // as validated but before it's added to the cache
+
+        Mockito.doAnswer(invocation -> {
+            invocation.callRealMethod();
+            dbService.processDomainCacheChangeMessage(new DomainChangeMessage().setDomainName(domainName));
+            return null;
+        }).when(dbService).setDomainCacheValidated(eq(domainName), any(), anyLong());
+
+        assertEquals(dbService.getAthenzDomain(con, domainName), athenzDomain);
+        assertNull(dbService.cacheStore.getIfPresent(domainName));
+
+        // without any changes during the load the entry is kept
+
+        Mockito.doCallRealMethod().when(dbService).setDomainCacheValidated(eq(domainName), any(), anyLong());
+        dbService.domainCacheInvalidations.put(domainName, System.currentTimeMillis() - 10000);
+        assertEquals(dbService.getAthenzDomain(con, domainName), athenzDomain);
+        assertNotNull(dbService.cacheStore.getIfPresent(domainName));
+    }
+
+    @Test
+    public void testPruneDomainCacheInvalidations() {
+
+        ZMSConfig zmsConfig = new ZMSConfig();
+        zmsConfig.setUserDomain("user");
+        DBService dbService = new DBService(mockObjStore, null, zmsConfig, null, null);
+
+        final long now = System.currentTimeMillis();
+        dbService.domainCacheInvalidations.put("domain1", now - 120000);
+        dbService.domainCacheInvalidations.put("domain2", now - 1000);
+
+        // expired invalidations are removed when processing messages
+
+        dbService.processDomainCacheChangeMessage(new DomainChangeMessage().setDomainName("domain3"));
+        assertNull(dbService.domainCacheInvalidations.get("domain1"));
+        assertNotNull(dbService.domainCacheInvalidations.get("domain2"));
+        assertNotNull(dbService.domainCacheInvalidations.get("domain3"));
+
+        // the pruning is only carried out once per staleness interval
+
+        dbService.domainCacheInvalidations.put("domain1", now - 120000);
+        dbService.pruneDomainCacheInvalidations(now + 1000);
+        assertNotNull(dbService.domainCacheInvalidations.get("domain1"));
+
+        dbService.pruneDomainCacheInvalidations(now + 120000);
+        assertTrue(dbService.domainCacheInvalidations.isEmpty());
+    }
+
+    @Test
+    public void testGetAthenzDomainFromCachePushModeFailure() throws ServerResourceException {
+
+        ZMSConfig zmsConfig = new ZMSConfig();
+        zmsConfig.setUserDomain("user");
+        DBService dbService = new DBService(mockObjStore, null, zmsConfig, null, null);
+        dbService.domainCachePushMode = true;
+
+        final String domainName = "push-cache-domain";
+        AthenzDomain athenzDomain = new AthenzDomain(domainName);
+        DataCache dataCache = new DataCache(athenzDomain, 100);
+        dbService.cacheStore.put(domainName, dataCache);
+
+        // if we're not able to validate the entry then we return
+        // the cached data but the entry is not marked as validated
+
+        ObjectStoreConnection con = Mockito.mock(ObjectStoreConnection.class);
+        when(con.getDomainModTimestamp(domainName))
+                .thenThrow(new ServerResourceException(ServerResourceException.SERVICE_UNAVAILABLE));
+
+        assertEquals(dbService.getAthenzDomainFromCache(con, domainName), athenzDomain);
+        assertEquals(dataCache.getValidatedTime(), 0);
+    }
+
+    @Test
+    public void testDomainCacheMaxWeight() {
+
+        System.setProperty(ZMS_PROP_DOMAIN_CACHE_MAX_WEIGHT, "10");
+        ZMSConfig zmsConfig = new ZMSConfig();
+        zmsConfig.setUserDomain("user");
+        DBService dbService = new DBService(mockObjStore, null, zmsConfig, null, null);
+        System.clearProperty(ZMS_PROP_DOMAIN_CACHE_MAX_WEIGHT);
+
+        final String domainName = "weight-domain";
+        AthenzDomain athenzDomain = new AthenzDomain(domainName);
+        athenzDomain.getRoles().add(new Role().setName(domainName + ":role.role1")
+                .setRoleMembers(Arrays.asList(new RoleMember().setMemberName("user.joe"),
+                        new RoleMember().setMemberName("user.jane"))));
+        athenzDomain.getGroups().add(new Group().setName(domainName + ":group.group1"));
+        athenzDomain.getPolicies().add(new Policy().setName(domainName + ":policy.policy1")
+                .setAssertions(Collections.singletonList(new Assertion())));
+        athenzDomain.getServices().add(new ServiceIdentity().setName(domainName + ".api")
+                .setPublicKeys(Collections.singletonList(new PublicKeyEntry()))
+                .setHosts(Arrays.asList("host1", "host2")));
+        athenzDomain.getEntities().add(new Entity().setName(domainName + ":entity.entity1"));
+
+        DataCache dataCache = new DataCache(athenzDomain, 100);
+        assertEquals(dataCache.getObjectCount(), 12);
+        assertEquals(new DataCache(null, 100).getObjectCount(), 1);
+
+        athenzDomain.setRoles(null);
+        athenzDomain.setServices(null);
+        assertEquals(DataCache.getObjectCount(athenzDomain), 5);
+
+        // an entry heavier than the max weight is not retained
+
+        dbService.cacheStore.put(domainName, dataCache);
+        assertNull(dbService.cacheStore.getIfPresent(domainName));
+
+        for (int i = 0; i < 5; i++) {
+            dbService.cacheStore.put("domain" + i, new DataCache(null, 100));
+        }
+        assertEquals(dbService.cacheStore.size(), 5);
+
+        // a domain heavier than the max weight divided by the number
+        // of cache segments but within the max weight is retained
+
+        System.setProperty(ZMS_PROP_DOMAIN_CACHE_MAX_WEIGHT, "100");
+        dbService = new DBService(mockObjStore, null, zmsConfig, null, null);
+        System.clearProperty(ZMS_PROP_DOMAIN_CACHE_MAX_WEIGHT);
+
+        athenzDomain = new AthenzDomain(domainName);
+        for (int i = 0; i < 50; i++) {
+            athenzDomain.getRoles().add(new Role().setName(domainName + ":role.role" + i));
+        }
+        dataCache = new DataCache(athenzDomain, 100);
+        assertEquals(dataCache.getObjectCount(), 51);
+
+        dbService.cacheStore.put(domainName, dataCache);
+        assertSame(dbService.cacheStore.getIfPresent(domainName), dataCache);
+    }
+
+    @Test
+    public void testInitDomainCacheSubscribers() throws InterruptedException {
+
+        System.clearProperty(ZMS_PROP_DOMAIN_CACHE_TOPIC_NAMES);
+        System.clearProperty(ZMS_PROP_DOMAIN_CHANGE_TOPIC_NAMES);
+
+        ZMSConfig zmsConfig = new ZMSConfig();
+        zmsConfig.setUserDomain("user");
+        DBService dbService = new DBService(mockObjStore, null, zmsConfig, null, null);
+
+        // without the factory class the cache is validated for each request
+
+        dbService.initDomainCacheSubscribers(null, "localhost");
+        assertFalse(dbService.domainCachePushMode);
+
+        // no topics configured
+
+        System.setProperty(ZMS_PROP_DOMAIN_CACHE_SUBSCRIBER_FACTORY_CLASS,
+                "com.yahoo.athenz.common.messaging.impl.InMemoryChangeSubscriberFactory");
+        dbService.initDomainCacheSubscribers(null, "localhost");
+        assertFalse(dbService.domainCachePushMode);
+
+        // invalid factory class
+
+        System.setProperty(ZMS_PROP_DOMAIN_CHANGE_TOPIC_NAMES, "topic1, ,topic2");
+        System.setProperty(ZMS_PROP_DOMAIN_CACHE_SUBSCRIBER_FACTORY_CLASS, "invalid-class");
+        dbService.initDomainCacheSubscribers(null, "localhost");
+        assertFalse(dbService.domainCachePushMode);
+
+        // valid factory class with the publisher topics
+
+        System.setProperty(ZMS_PROP_DOMAIN_CACHE_SUBSCRIBER_FACTORY_CLASS,
+                "com.yahoo.athenz.common.messaging.impl.InMemoryChangeSubscriberFactory");
+        dbService.initDomainCacheSubscribers(null, "localhost");
+        assertTrue(dbService.domainCachePushMode);
+        assertEquals(dbService.domainCacheSubscribers.size(), 2);
+
+        final String domainName = "subscriber-domain";
+        dbService.cacheStore.put(domainName, new DataCache(null, 100));
+        assertEquals(InMemoryChangeSubscriberFactory.publish("topic2",
+                new DomainChangeMessage().setDomainName(domainName)), 1);
+
+        for (int i = 0; i < 50 && dbService.cacheStore.getIfPresent(domainName) != null; i++) {
+            Thread.sleep(100);
+        }
+        assertNull(dbService.cacheStore.getIfPresent(domainName));
+        assertNotNull(dbService.domainCacheInvalidations.get(domainName));
+
+        dbService.closeDomainCacheSubscribers();
+        assertFalse(dbService.domainCachePushMode);
+        assertTrue(dbService.domainCacheSubscribers.isEmpty());
+
+        // subscriber for one of the topics cannot be created
+
+        System.setProperty(ZMS_PROP_DOMAIN_CHANGE_TOPIC_NAMES, "topic1,invalid-topic");
+        System.setProperty(ZMS_PROP_DOMAIN_CACHE_SUBSCRIBER_FACTORY_CLASS,
+                "com.yahoo.athenz.zms.FaultyDomainChangeSubscriberFactory");
+        dbService.initDomainCacheSubscribers(null, "localhost");
+        assertFalse(dbService.domainCachePushMode);
+        assertTrue(dbService.domainCacheSubscribers.isEmpty());
+
+        System.clearProperty(ZMS_PROP_DOMAIN_CACHE_SUBSCRIBER_FACTORY_CLASS);
+        System.clearProperty(ZMS_PROP_DOMAIN_CHANGE_TOPIC_NAMES);
+        InMemoryChangeSubscriberFactory.reset();
+    }
+
     @Test
     public void testGetDelegatedMemberRole() throws ServerResourceException {
 
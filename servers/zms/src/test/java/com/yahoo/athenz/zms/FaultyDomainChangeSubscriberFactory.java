@@ -0,0 +1,17 @@
+package com.yahoo.athenz.zms;
+
+import com.yahoo.athenz.auth.PrivateKeyStore;
+import com.yahoo.athenz.common.messaging.ChangeSubscriber;
+import com.yahoo.athenz.common.messaging.DomainChangeMessage;
+import com.yahoo.athenz.common.messaging.impl.InMemoryChangeSubscriberFactory;
+
+public class FaultyDomainChangeSubscriberFactory extends InMemoryChangeSubscriberFactory<DomainChangeMessage> {
+    @Override
+    public ChangeSubscriber<DomainChangeMessage> create(PrivateKeyStore keyStore, String topicName,
+            String subscriptionName, String subscriptionType) {
+        if (topicName.startsWith("invalid")) {
+            throw new IllegalStateException("invalid subscriber");
+        }
+        return super.create(keyStore, topicName, subscriptionName, subscriptionType);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zms;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class SignedDomainCacheTest {
+
+    @Test
+    public void testJWSDomainCache() {
+
+        SignedDomainCache cache = new SignedDomainCache(10);
+        JWSDomain jwsDomain = new JWSDomain().setPayload("payload");
+        cache.putJWSDomain("coretech", 100, true, false, "0", jwsDomain);
+
+        assertSame(cache.getJWSDomain("coretech", 100, true, false, "0"), jwsDomain);
+
+        // any difference in the key attributes is a cache miss
+
+        assertNull(cache.getJWSDomain("coretech", 101, true, false, "0"));
+        assertNull(cache.getJWSDomain("coretech", 100, false, false, "0"));
+        assertNull(cache.getJWSDomain("coretech", 100, true, true, "0"));
+        assertNull(cache.getJWSDomain("coretech", 100, true, false, "1"));
+        assertNull(cache.getJWSDomain("weather", 100, true, false, "0"));
+
+        // signed domain objects are kept separately
+
+        assertNull(cache.getSignedDomain("coretech", 100, false, "0"));
+    }
+
+    @Test
+    public void testSignedDomainCache() {
+
+        SignedDomainCache cache = new SignedDomainCache(10);
+        SignedDomain signedDomain = new SignedDomain().setKeyId("0");
+        cache.putSignedDomain("coretech", 100, true, "0", signedDomain);
+
+        assertSame(cache.getSignedDomain("coretech", 100, true, "0"), signedDomain);
+        assertNull(cache.getSignedDomain("coretech", 100, false, "0"));
+        assertNull(cache.getSignedDomain("coretech", 99, true, "0"));
+        assertNull(cache.getSignedDomain("coretech", 100, true, null));
+        assertNull(cache.getJWSDomain("coretech", 100, false, true, "0"));
+
+        cache.putSignedDomain("coretech", 100, false, null, signedDomain);
+        assertSame(cache.getSignedDomain("coretech", 100, false, null), signedDomain);
+        assertEquals(cache.size(), 2);
+    }
+
+    @Test
+    public void testCacheMaxEntries() {
+
+        SignedDomainCache cache = new SignedDomainCache(5);
+        for (int i = 0; i < 20; i++) {
+            cache.putSignedDomain("domain" + i, 100, false, "0", new SignedDomain());
+        }
+        assertTrue(cache.size() <= 5);
+    }
+
+    @Test
+    public void testCacheKeyEquals() {
+
+        SignedDomainCache.CacheKey key = new SignedDomainCache.CacheKey(
+                SignedDomainCache.SignedDomainType.JWS_DOMAIN, "coretech", 100, false, false, "0");
+        assertEquals(key, key);
+        assertNotEquals(key, null);
+        assertNotEquals(key, "coretech");
+        assertEquals(key, new SignedDomainCache.CacheKey(
+                SignedDomainCache.SignedDomainType.JWS_DOMAIN, "coretech", 100, false, false, "0"));
+        assertNotEquals(key, new SignedDomainCache.CacheKey(
+                SignedDomainCache.SignedDomainType.SIGNED_DOMAIN, "coretech", 100, false, false, "0"));
+    }
+}
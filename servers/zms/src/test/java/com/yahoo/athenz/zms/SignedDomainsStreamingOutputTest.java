@@ -0,0 +1,133 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zms;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class SignedDomainsStreamingOutputTest {
+
+    private ExecutorService executor;
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+
+    @BeforeClass
+    public void setup() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<Domain> createDomains(int count) {
+        List<Domain> domains = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            domains.add(new Domain().setName("domain" + i));
+        }
+        return domains;
+    }
+
+    private SignedDomain createSignedDomain(Domain domain) {
+        return new SignedDomain().setDomain(new DomainData().setName(domain.getName()))
+                .setSignature("signature").setKeyId("0");
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+
+        // keep track of the number of domains being retrieved
+        // at the same time to verify our prefetch limit
+
+        AtomicInteger activeCount = new AtomicInteger();
+        AtomicInteger maxActiveCount = new AtomicInteger();
+
+        SignedDomainsStreamingOutput streamingOutput = new SignedDomainsStreamingOutput(createDomains(20),
+                domain -> {
+                    maxActiveCount.accumulateAndGet(activeCount.incrementAndGet(), Math::max);
+                    activeCount.decrementAndGet();
+
+                    // deleted domains are skipped
+
+                    if (domain.getName().equals("domain5")) {
+                        return null;
+                    }
+                    return createSignedDomain(domain);
+                }, executor, 2, jsonMapper);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        streamingOutput.write(output);
+
+        SignedDomains signedDomains = jsonMapper.readValue(output.toByteArray(), SignedDomains.class);
+        List<SignedDomain> domains = signedDomains.getDomains();
+        assertEquals(domains.size(), 19);
+
+        // the order of the domains must be preserved
+
+        assertEquals(domains.get(0).getDomain().getName(), "domain0");
+        assertEquals(domains.get(5).getDomain().getName(), "domain6");
+        assertEquals(domains.get(18).getDomain().getName(), "domain19");
+        assertEquals(domains.get(18).getSignature(), "signature");
+        assertTrue(maxActiveCount.get() <= 2);
+    }
+
+    @Test
+    public void testWriteEmptyList() throws IOException {
+
+        SignedDomainsStreamingOutput streamingOutput = new SignedDomainsStreamingOutput(Collections.emptyList(),
+                this::createSignedDomain, executor, 0, jsonMapper);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        streamingOutput.write(output);
+
+        SignedDomains signedDomains = jsonMapper.readValue(output.toByteArray(), SignedDomains.class);
+        assertTrue(signedDomains.getDomains().isEmpty());
+    }
+
+    @Test
+    public void testWriteFailure() {
+
+        SignedDomainsStreamingOutput streamingOutput = new SignedDomainsStreamingOutput(createDomains(10),
+                domain -> {
+                    if (domain.getName().equals("domain3")) {
+                        throw new ResourceException(ResourceException.INTERNAL_SERVER_ERROR, "db failure");
+                    }
+                    return createSignedDomain(domain);
+                }, executor, 3, jsonMapper);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IOException ex = expectThrows(IOException.class, () -> streamingOutput.write(output));
+        assertTrue(ex.getCause() instanceof ResourceException);
+
+        // the domains written before the failure must not be
+        // returned to the client as a valid response
+
+        expectThrows(IOException.class, () -> jsonMapper.readValue(output.toByteArray(), SignedDomains.class));
+    }
+}
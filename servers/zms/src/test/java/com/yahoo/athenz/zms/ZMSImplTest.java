@@ -32,8 +32,12 @@ import com.yahoo.athenz.auth.token.PrincipalToken;
 import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.common.config.AuthzDetailsEntity;
 import com.yahoo.athenz.common.config.AuthzDetailsField;
+import com.yahoo.athenz.common.messaging.ChangePublisher;
+import com.yahoo.athenz.common.messaging.ChangeSubscriber;
 import com.yahoo.athenz.common.messaging.DomainChangeMessage;
 import com.yahoo.athenz.common.messaging.MockDomainChangePublisher;
+import com.yahoo.athenz.common.messaging.impl.AsyncChangePublisher;
+import com.yahoo.athenz.common.messaging.impl.InMemoryChangeSubscriberFactory;
 import com.yahoo.athenz.common.metrics.Metric;
 import com.yahoo.athenz.common.server.log.AuditLogMsgBuilder;
 import com.yahoo.athenz.common.server.log.AuditLogger;
@@ -81,6 +85,8 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -7400,6 +7406,69 @@ public class ZMSImplTest {
         zmsImpl.deleteTopLevelDomain(ctx, "SignedDom2", auditRef, null);
     }
 
+    @Test
+    public void testGetSignedDomainsStreaming() throws IOException {
+
+        ZMSImpl zmsImpl = zmsTestInitializer.getZms();
+        RsrcCtxWrapper ctx = zmsTestInitializer.getMockDomRsrcCtx();
+        final String auditRef = zmsTestInitializer.getAuditRef();
+
+        zmsTestInitializer.loadServerPublicKeys(zmsImpl);
+
+        TopLevelDomain dom1 = zmsTestInitializer.createTopLevelDomainObject("StreamDom1",
+                "Test Domain1", "testOrg", zmsTestInitializer.getAdminUser());
+        zmsImpl.postTopLevelDomain(ctx, auditRef, null, dom1);
+        TopLevelDomain dom2 = zmsTestInitializer.createTopLevelDomainObject("StreamDom2",
+                "Test Domain2", "testOrg", zmsTestInitializer.getAdminUser());
+        zmsImpl.postTopLevelDomain(ctx, auditRef, null, dom2);
+
+        DomainList domList = zmsImpl.getDomainList(ctx, null, null, null, null,
+                null, null, null, null, null, null, null, null, null, null, null);
+        int numDoms = domList.getNames().size();
+
+        Authority principalAuthority = new com.yahoo.athenz.common.server.debug.DebugPrincipalAuthority();
+        Principal sysPrincipal = principalAuthority.authenticate("v=U1;d=sys;n=zts;s=signature",
+                "10.11.12.13", "GET", null);
+        ResourceContext rsrcCtx = zmsTestInitializer.createResourceContext(sysPrincipal);
+
+        zmsImpl.signedDomainsStreamPrefetch = 2;
+        zmsImpl.signedDomainsExecutor = Executors.newFixedThreadPool(2);
+
+        // full sync request is streamed
+
+        Response response = zmsImpl.getSignedDomains(rsrcCtx, null, null, null, Boolean.TRUE, false, null);
+        assertEquals(response.getStatus(), 200);
+        assertNotNull(response.getHeaderString("ETag"));
+        assertTrue(response.getEntity() instanceof SignedDomainsStreamingOutput);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((SignedDomainsStreamingOutput) response.getEntity()).write(output);
+
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        SignedDomains sdoms = mapper.readValue(output.toByteArray(), SignedDomains.class);
+        assertEquals(sdoms.getDomains().size(), numDoms);
+
+        for (SignedDomain sDomain : sdoms.getDomains()) {
+            String publicKey = zmsImpl.getPublicKey("sys.auth", "zms", sDomain.getKeyId());
+            assertTrue(Crypto.verify(SignUtils.asCanonicalString(sDomain.getDomain()),
+                    Crypto.loadPublicKey(publicKey), sDomain.getSignature()));
+        }
+
+        // meta only requests are not streamed
+
+        response = zmsImpl.getSignedDomains(rsrcCtx, null, "true", null, Boolean.TRUE, false, null);
+        sdoms = (SignedDomains) response.getEntity();
+        assertEquals(sdoms.getDomains().size(), numDoms);
+
+        zmsImpl.signedDomainsExecutor.shutdownNow();
+        zmsImpl.signedDomainsExecutor = null;
+        zmsImpl.signedDomainsStreamPrefetch = 0;
+
+        zmsImpl.deleteTopLevelDomain(ctx, "StreamDom1", auditRef, null);
+        zmsImpl.deleteTopLevelDomain(ctx, "StreamDom2", auditRef, null);
+    }
+
     private void addEntryToConditionMap(Map<String, AssertionConditionData> map, String key, String value) {
         AssertionConditionData cd = new AssertionConditionData().setOperator(AssertionConditionOperator.EQUALS).setValue(value);
         map.put(key, cd);
@@ -12061,6 +12130,74 @@ public class ZMSImplTest {
                 zmsTestInitializer.getMockDomRestRsrcCtx().principal()), AccessStatus.ALLOWED);
     }
 
+    @Test
+    public void testEvaluateAccessCachedDomainIndex() {
+
+        ZMSImpl zmsImpl = zmsTestInitializer.getZms();
+
+        AthenzDomain domain = new AthenzDomain("coretech-index");
+        domain.getRoles().add(zmsTestInitializer.createRoleObject("coretech-index", "role1", null, "user.user1", null));
+        domain.getRoles().add(zmsTestInitializer.createRoleObject("coretech-index", "role2", null, "user.user2", null));
+
+        Policy policy = new Policy().setName("coretech-index:policy.policy1");
+        policy.setAssertions(new ArrayList<>());
+        policy.getAssertions().add(new Assertion().setAction("ReaD").setEffect(AssertionEffect.ALLOW)
+                .setResource("coretech-index:*").setRole("coretech-index:role.role*"));
+        policy.getAssertions().add(new Assertion().setAction("read").setEffect(AssertionEffect.DENY)
+                .setResource("coretech-index:secret").setRole("coretech-index:role.role2"));
+        domain.getPolicies().add(policy);
+
+        // without the domain in the cache there is no index available
+
+        assertNull(zmsImpl.dbService.getAccessPolicyIndex(domain));
+        assertNull(zmsImpl.dbService.getAccessPolicyIndex(null));
+
+        Principal principal = zmsTestInitializer.getMockDomRestRsrcCtx().principal();
+        AccessStatus[] expected = new AccessStatus[] {
+                zmsImpl.evaluateAccess(domain, "user.user1", "read", "coretech-index:secret", null, null, principal),
+                zmsImpl.evaluateAccess(domain, "user.user2", "read", "coretech-index:secret", null, null, principal),
+                zmsImpl.evaluateAccess(domain, "user.user2", "read", "coretech-index:public", null, null, principal),
+                zmsImpl.evaluateAccess(domain, "user.user3", "read", "coretech-index:public", null, null, principal),
+                zmsImpl.evaluateAccess(domain, "user.user1", "update", "coretech-index:public", null, null, principal),
+                zmsImpl.evaluateAccess(domain, null, "read", "coretech-index:public",
+                        Collections.singletonList("role1"), null, principal),
+                zmsImpl.evaluateAccess(domain, null, "read", "coretech-index:secret",
+                        Collections.singletonList("coretech-index:role.role2"), null, principal)
+        };
+        assertEquals(expected, new AccessStatus[] { AccessStatus.ALLOWED, AccessStatus.DENIED, AccessStatus.ALLOWED,
+                AccessStatus.DENIED, AccessStatus.DENIED, AccessStatus.ALLOWED, AccessStatus.DENIED });
+
+        // once the domain is in the cache the index is used and
+        // must return the same results
+
+        zmsImpl.dbService.cacheStore.put("coretech-index", new DBService.DataCache(domain, 100));
+        AccessPolicyIndex index = zmsImpl.dbService.getAccessPolicyIndex(domain);
+        assertNotNull(index);
+        assertSame(zmsImpl.dbService.getAccessPolicyIndex(domain), index);
+        assertNull(zmsImpl.dbService.getAccessPolicyIndex(new AthenzDomain("coretech-index")));
+
+        AccessStatus[] results = new AccessStatus[] {
+                zmsImpl.evaluateAccess(domain, "user.user1", "read", "coretech-index:secret", null, null, principal),
+                zmsImpl.evaluateAccess(domain, "user.user2", "read", "coretech-index:secret", null, null, principal),
+                zmsImpl.evaluateAccess(domain, "user.user2", "read", "coretech-index:public", null, null, principal),
+                zmsImpl.evaluateAccess(domain, "user.user3", "read", "coretech-index:public", null, null, principal),
+                zmsImpl.evaluateAccess(domain, "user.user1", "update", "coretech-index:public", null, null, principal),
+                zmsImpl.evaluateAccess(domain, null, "read", "coretech-index:public",
+                        Collections.singletonList("role1"), null, principal),
+                zmsImpl.evaluateAccess(domain, null, "read", "coretech-index:secret",
+                        Collections.singletonList("coretech-index:role.role2"), null, principal)
+        };
+        assertEquals(results, expected);
+
+        // with the index disabled we'll use the assertions directly
+
+        zmsImpl.dbService.accessPolicyIndexEnabled = false;
+        assertNull(zmsImpl.dbService.getAccessPolicyIndex(domain));
+        zmsImpl.dbService.accessPolicyIndexEnabled = true;
+
+        zmsImpl.dbService.cacheStore.invalidate("coretech-index");
+    }
+
     @Test
     public void testHasExceededDepthLimitNullLimit() {
         ZMSImpl zmsImpl = zmsTestInitializer.getZms();
@@ -19263,6 +19400,26 @@ public class ZMSImplTest {
         zmsImpl.deleteTopLevelDomain(ctx, "SignedDom1", auditRef, null);
     }
 
+    @Test
+    public void testShutdown() {
+
+        ZMSImpl zmsImpl = zmsTestInitializer.zmsInit();
+
+        DBService dbService = Mockito.mock(DBService.class);
+        zmsImpl.dbService = dbService;
+        @SuppressWarnings("unchecked")
+        ChangePublisher<DomainChangeMessage> publisher = Mockito.mock(ChangePublisher.class);
+        zmsImpl.domainChangePublishers = new ArrayList<>(List.of(publisher));
+        zmsImpl.shutdown();
+        Mockito.verify(dbService, Mockito.times(1)).closeDomainCacheSubscribers();
+        Mockito.verify(publisher, Mockito.times(1)).close();
+
+        // without a db service shutdown is a no-op
+
+        zmsImpl.dbService = null;
+        zmsImpl.shutdown();
+    }
+
     @Test
     public void testGetSignedDomainsException503() {
 
@@ -23118,6 +23275,46 @@ public class ZMSImplTest {
         zmsImpl.deleteTopLevelDomain(ctx, domainName, auditRef, null);
     }
 
+    @Test
+    public void testGetJWSDomainCache() throws JsonProcessingException, ParseException, JOSEException {
+
+        final String domainName = "jws-domain-cache";
+
+        ZMSImpl zmsImpl = zmsTestInitializer.getZms();
+        RsrcCtxWrapper ctx = zmsTestInitializer.getMockDomRsrcCtx();
+        final String auditRef = zmsTestInitializer.getAuditRef();
+
+        TopLevelDomain dom1 = zmsTestInitializer.createTopLevelDomainObject(domainName,
+                "Test Domain1", "testOrg", zmsTestInitializer.getAdminUser());
+        zmsImpl.postTopLevelDomain(ctx, auditRef, null, dom1);
+
+        SignedDomainCache savedCache = zmsImpl.signedDomainCache;
+        zmsImpl.signedDomainCache = new SignedDomainCache(10);
+
+        // the same version of the domain is only signed once
+
+        JWSDomain jwsDomain1 = (JWSDomain) zmsImpl.getJWSDomain(ctx, domainName, null, null).getEntity();
+        JWSDomain jwsDomain2 = (JWSDomain) zmsImpl.getJWSDomain(ctx, domainName, Boolean.FALSE, null).getEntity();
+        assertSame(jwsDomain2, jwsDomain1);
+        assertEquals(zmsTestInitializer.getDomainData(jwsDomain1).getName(), domainName);
+
+        // a different signature format is signed separately
+
+        JWSDomain jwsDomain3 = (JWSDomain) zmsImpl.getJWSDomain(ctx, domainName, Boolean.TRUE, null).getEntity();
+        assertEquals(zmsTestInitializer.getDomainData(jwsDomain3).getName(), domainName);
+
+        // signed domain objects are cached as well
+
+        Domain domain = zmsImpl.dbService.getDomain(domainName, false);
+        SignedDomain signedDomain = zmsImpl.retrieveSignedDomainData(domain, false, false);
+        assertNotNull(signedDomain);
+        assertSame(zmsImpl.retrieveSignedDomainData(domain, false, false), signedDomain);
+        assertNotSame(zmsImpl.retrieveSignedDomainData(domain, false, true), signedDomain);
+
+        zmsImpl.signedDomainCache = savedCache;
+        zmsImpl.deleteTopLevelDomain(ctx, domainName, auditRef, null);
+    }
+
     @Test
     public void testGetJWSDomainError() {
 
@@ -29832,6 +30029,51 @@ public class ZMSImplTest {
         System.clearProperty(ZMS_PROP_DOMAIN_CHANGE_TOPIC_NAMES);
     }
 
+    @Test
+    public void testPublishEventAsync() throws InterruptedException {
+        System.setProperty(ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_FACTORY_CLASS, "com.yahoo.athenz.common.messaging.impl.InMemoryChangePublisherFactory");
+        System.setProperty(ZMS_PROP_DOMAIN_CHANGE_TOPIC_NAMES, "asyncTopic");
+        System.setProperty(ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_QUEUE_SIZE, "100");
+
+        ChangeSubscriber<DomainChangeMessage> subscriber = new InMemoryChangeSubscriberFactory<DomainChangeMessage>()
+                .create(null, "asyncTopic", "sub1", "Exclusive");
+        List<String> received = new CopyOnWriteArrayList<>();
+        subscriber.init(msg -> received.add(msg.getDomainName()), DomainChangeMessage.class);
+        Thread thread = new Thread(subscriber);
+        thread.start();
+
+        ZMSImpl zmsImpl = zmsTestInitializer.zmsInit();
+        assertEquals(zmsImpl.domainChangePublishers.size(), 1);
+        assertTrue(zmsImpl.domainChangePublishers.get(0) instanceof AsyncChangePublisher);
+
+        ResourceContext mockContext = Mockito.mock(ResourceContext.class);
+        when(mockContext.getDomainChangeMessages()).thenReturn(List.of(
+                new DomainChangeMessage().setDomainName("domain1").setObjectType(DOMAIN),
+                new DomainChangeMessage().setDomainName("domain2").setObjectType(DOMAIN)));
+        zmsImpl.publishChangeMessage(mockContext, 200);
+
+        // closing the publishers must publish all queued messages
+
+        zmsImpl.closeDomainChangePublishers();
+        AsyncChangePublisher<DomainChangeMessage> publisher =
+                (AsyncChangePublisher<DomainChangeMessage>) zmsImpl.domainChangePublishers.get(0);
+        assertEquals(publisher.getPublishedCount(), 2);
+        assertEquals(publisher.getDroppedCount(), 0);
+
+        for (int i = 0; i < 50 && received.size() < 2; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(received, List.of("domain1", "domain2"));
+
+        subscriber.close();
+        thread.join(1000);
+        InMemoryChangeSubscriberFactory.reset();
+
+        System.clearProperty(ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_FACTORY_CLASS);
+        System.clearProperty(ZMS_PROP_DOMAIN_CHANGE_TOPIC_NAMES);
+        System.clearProperty(ZMS_PROP_DOMAIN_CHANGE_PUBLISHER_QUEUE_SIZE);
+    }
+
     private MockDomainChangePublisher.Recorder getEventRecorder(ZMSImpl zmsImpl) {
         return ((MockDomainChangePublisher) zmsImpl.domainChangePublishers.get(0)).getRecorder();
     }
@@ -25,5 +25,6 @@ public class ZMSTest {
     public void testZMS() {
         ZMS zms = new ZMS();
         assertNotNull(zms);
+        assertTrue(zms.isRegistered(ZMS.ZMSLifecycleListener.class));
     }
 }
@@ -378,6 +378,10 @@ public class ZTSImpl implements ZTSHandler {
 
             dataStore.init();
 
+            // subscribe to domain change messages from ZMS if configured
+
+            dataStore.initDomainChangeSubscribers(privateKeyStore, serverHostName);
+
         } else {
             dataStore = implDataStore;
         }
@@ -0,0 +1,202 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cache;
+
+import java.util.*;
+
+/**
+ * Read-only compact representation of the member to role map for a
+ * domain. Each unique role name and expiration pair is stored once
+ * in a table and identified by its index in that table. The member
+ * names are kept in a sorted array and for each member we store a
+ * sorted array of role ids, so the map requires a fraction of the
+ * memory used by a HashMap of HashSet objects. Member names are
+ * interned in the process-wide symbol table.
+ */
+public class CompactMemberRoleIndex {
+
+    // estimated sizes in bytes for a 64-bit jvm with compressed oops
+
+    static final int OBJECT_HEADER_SIZE = 12;
+    static final int ARRAY_HEADER_SIZE  = 16;
+    static final int REFERENCE_SIZE     = 4;
+    static final int MEMBER_ROLE_SIZE   = 32;
+    static final int HASH_NODE_SIZE     = 32;
+    static final int HASH_MAP_SIZE      = 48;
+    static final int HASH_SET_SIZE      = 16;
+    static final int STRING_SIZE        = 24;
+
+    private final MemberRole[] memberRoles;
+    private final String[] members;
+    private final int[][] memberRoleIds;
+    private final long estimatedHeapSize;
+
+    public CompactMemberRoleIndex(Map<String, Set<MemberRole>> memberRoleMap) {
+
+        // first assign ids to all unique member role objects. the
+        // first instance is shared by all members with the same role
+        // and expiration so any compiled role match object is reused
+
+        Map<MemberRole, Integer> memberRoleIdMap = new HashMap<>();
+        List<MemberRole> memberRoleList = new ArrayList<>();
+        for (Set<MemberRole> roles : memberRoleMap.values()) {
+            for (MemberRole memberRole : roles) {
+                if (!memberRoleIdMap.containsKey(memberRole)) {
+                    memberRoleIdMap.put(memberRole, memberRoleList.size());
+                    memberRoleList.add(memberRole);
+                }
+            }
+        }
+        memberRoles = memberRoleList.toArray(new MemberRole[0]);
+
+        // then generate our sorted member list with their role ids
+
+        members = new String[memberRoleMap.size()];
+        int index = 0;
+        for (String member : memberRoleMap.keySet()) {
+            members[index++] = SymbolTable.intern(member);
+        }
+        Arrays.sort(members);
+
+        memberRoleIds = new int[members.length][];
+        for (int i = 0; i < members.length; i++) {
+            Set<MemberRole> roles = memberRoleMap.get(members[i]);
+            int[] roleIds = new int[roles.size()];
+            int roleIndex = 0;
+            for (MemberRole memberRole : roles) {
+                roleIds[roleIndex++] = memberRoleIdMap.get(memberRole);
+            }
+            Arrays.sort(roleIds);
+            memberRoleIds[i] = roleIds;
+        }
+
+        // the index is read-only so we only need to estimate
+        // its size once when it's generated
+
+        estimatedHeapSize = calculateEstimatedHeapSize();
+    }
+
+    /**
+     * Return roles belonging to a member
+     * @param member whose roles we want
+     * @return read-only set of roles or null if the member is not present
+     */
+    public Set<MemberRole> getMemberRoleSet(final String member) {
+        final int index = Arrays.binarySearch(members, member);
+        if (index < 0) {
+            return null;
+        }
+        return new MemberRoleSet(memberRoleIds[index]);
+    }
+
+    public int getMemberCount() {
+        return members.length;
+    }
+
+    public int getMemberRoleCount() {
+        return memberRoles.length;
+    }
+
+    /**
+     * Estimate the heap usage of the index excluding the member and
+     * role name strings which are shared through the symbol table
+     * @return estimated size in bytes
+     */
+    public long getEstimatedHeapSize() {
+        return estimatedHeapSize;
+    }
+
+    long calculateEstimatedHeapSize() {
+        long size = OBJECT_HEADER_SIZE + 3 * REFERENCE_SIZE + Long.BYTES;
+        size += arraySize(memberRoles.length, REFERENCE_SIZE) + (long) memberRoles.length * MEMBER_ROLE_SIZE;
+        size += arraySize(members.length, REFERENCE_SIZE);
+        size += arraySize(memberRoleIds.length, REFERENCE_SIZE);
+        for (int[] roleIds : memberRoleIds) {
+            size += arraySize(roleIds.length, Integer.BYTES);
+        }
+        return size;
+    }
+
+    /**
+     * Estimate the heap usage of the standard member to role map
+     * including the member name strings
+     * @param memberRoleMap member to role map
+     * @return estimated size in bytes
+     */
+    public static long getEstimatedHeapSize(Map<String, Set<MemberRole>> memberRoleMap) {
+        long size = HASH_MAP_SIZE + hashTableSize(memberRoleMap.size());
+        for (Map.Entry<String, Set<MemberRole>> entry : memberRoleMap.entrySet()) {
+            size += HASH_NODE_SIZE + STRING_SIZE + arraySize(entry.getKey().length(), Byte.BYTES);
+            final int roleCount = entry.getValue().size();
+            size += HASH_SET_SIZE + HASH_MAP_SIZE + hashTableSize(roleCount);
+            size += (long) roleCount * (HASH_NODE_SIZE + MEMBER_ROLE_SIZE);
+        }
+        return size;
+    }
+
+    static long arraySize(int length, int elementSize) {
+        return align(ARRAY_HEADER_SIZE + (long) length * elementSize);
+    }
+
+    static long hashTableSize(int entries) {
+        if (entries == 0) {
+            return 0;
+        }
+        int capacity = Integer.highestOneBit(Math.max(1, (int) (entries / 0.75f)) * 2 - 1);
+        return arraySize(Math.max(16, capacity), REFERENCE_SIZE);
+    }
+
+    static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * Read-only set view of the roles for a single member
+     */
+    class MemberRoleSet extends AbstractSet<MemberRole> {
+
+        private final int[] roleIds;
+
+        MemberRoleSet(int[] roleIds) {
+            this.roleIds = roleIds;
+        }
+
+        @Override
+        public Iterator<MemberRole> iterator() {
+            return new Iterator<MemberRole>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < roleIds.length;
+                }
+
+                @Override
+                public MemberRole next() {
+                    if (index >= roleIds.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return memberRoles[roleIds[index++]];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return roleIds.length;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import com.yahoo.athenz.common.server.ServerResourceException;
 import com.yahoo.athenz.common.server.util.AuthzHelper;
 import com.yahoo.athenz.common.server.util.ResourceUtils;
 import com.yahoo.athenz.zms.*;
+import com.yahoo.athenz.zts.store.MemberRolePrefixTrie;
 import com.yahoo.athenz.zts.transportrules.TransportRulesProcessor;
 import org.eclipse.jetty.util.StringUtil;
 import org.slf4j.Logger;
@@ -42,8 +43,10 @@ public class DataCache {
     DomainData domainData = null;
 
     // member ==> [ role1, role2, ...] complete map
-    private final Map<String, Set<MemberRole>> memberRoleCache;
+    private Map<String, Set<MemberRole>> memberRoleCache;
+    private CompactMemberRoleIndex compactMemberRoleCache;
     private final Map<String, Set<MemberRole>> memberPrefixRoleCache;
+    private MemberRolePrefixTrie memberPrefixRoleTrie;
     private final Set<MemberRole> memberAllRoleCache;
     private final Map<String, Set<String>> trustCache;
     private final Map<String, Set<String>> hostCache;
@@ -59,6 +62,12 @@ public class DataCache {
     private final Map<String, Map<String, List<String>>> transportRulesCache;
     private final Set<String> workloadStoreExcludeProvidersCache;
 
+    // during incremental updates the member role sets are shared with
+    // the original cache object so we keep track of the members whose
+    // sets have been copied and can be updated by this object
+
+    private Set<String> ownedMemberRoleSets = null;
+
     public static final String ACTION_ASSUME_ROLE = "assume_role";
     public static final String ACTION_ASSUME_AWS_ROLE = "assume_aws_role";
     public static final String ACTION_LAUNCH = "launch";
@@ -72,6 +81,7 @@ public class DataCache {
     public DataCache() {
         memberRoleCache = new HashMap<>();
         memberPrefixRoleCache = new HashMap<>();
+        memberPrefixRoleTrie = new MemberRolePrefixTrie();
         memberAllRoleCache = new HashSet<>();
         trustCache = new HashMap<>();
         hostCache = new HashMap<>();
@@ -90,6 +100,11 @@ public class DataCache {
     
     public void setDomainData(DomainData domainData) {
         this.domainData = domainData;
+
+        // the domain data is set once the cache is fully processed
+        // so we no longer need to track our updated member role sets
+
+        ownedMemberRoleSets = null;
     }
     
     public DomainData getDomainData() {
@@ -142,17 +157,56 @@ public class DataCache {
                     memberPrefixRoleCache.put(keyName, new HashSet<>());
                 }
                 final Set<MemberRole> rolesForMember = memberPrefixRoleCache.get(keyName);
-                rolesForMember.add(new MemberRole(roleName, expiration));
+                final MemberRole memberRole = new MemberRole(roleName, expiration);
+                rolesForMember.add(memberRole);
+                memberPrefixRoleTrie.insert(keyName, memberRole);
             } else {
-                if (!memberRoleCache.containsKey(memberName)) {
-                    memberRoleCache.put(memberName, new HashSet<>());
-                }
-                final Set<MemberRole> rolesForMember = memberRoleCache.get(memberName);
+                final Set<MemberRole> rolesForMember = getMemberRoleSetForUpdate(memberName);
                 rolesForMember.add(new MemberRole(roleName, expiration));
             }
         }
     }
 
+    /**
+     * Remove the given role from the role sets of its members
+     * @param roleName the updated/deleted role
+     * @param members the list of members of that role
+     */
+    void removeRoleMembers(final String roleName, List<RoleMember> members) {
+
+        if (members == null) {
+            return;
+        }
+
+        for (RoleMember member : members) {
+            final String memberName = member.getMemberName();
+            if (!memberRoleCache.containsKey(memberName)) {
+                continue;
+            }
+            final Set<MemberRole> rolesForMember = getMemberRoleSetForUpdate(memberName);
+            rolesForMember.removeIf(memberRole -> roleName.equals(memberRole.getRole()));
+            if (rolesForMember.isEmpty()) {
+                memberRoleCache.remove(memberName);
+            }
+        }
+    }
+
+    Set<MemberRole> getMemberRoleSetForUpdate(final String memberName) {
+
+        Set<MemberRole> rolesForMember = memberRoleCache.get(memberName);
+        if (rolesForMember == null) {
+            rolesForMember = new HashSet<>();
+            memberRoleCache.put(memberName, rolesForMember);
+            if (ownedMemberRoleSets != null) {
+                ownedMemberRoleSets.add(memberName);
+            }
+        } else if (ownedMemberRoleSets != null && ownedMemberRoleSets.add(memberName)) {
+            rolesForMember = new HashSet<>(rolesForMember);
+            memberRoleCache.put(memberName, rolesForMember);
+        }
+        return rolesForMember;
+    }
+
     void processRoleMeta(Role role) {
 
         RoleMeta rm = new RoleMeta()
@@ -184,6 +238,36 @@ public class DataCache {
         rolesForTrustDomain.add(roleName);
     }
     
+    /**
+     * Process an updated role during an incremental update. The members
+     * of the original role are removed from the member role cache before
+     * the members of the updated role are added.
+     * @param originalRole the role object from the original cache
+     * @param role the updated role object, null if the role was deleted
+     */
+    public void processRoleUpdate(Role originalRole, Role role) {
+
+        if (originalRole != null) {
+            removeRoleMembers(originalRole.getName(), originalRole.getRoleMembers());
+        }
+        if (role != null) {
+            processRole(role);
+        }
+    }
+
+    /**
+     * Process the role attributes except for its members. Used for
+     * unchanged roles during an incremental update since their members
+     * are already included in the copied member role cache.
+     * @param role the unchanged role
+     */
+    public void processRoleAttributes(Role role) {
+
+        setRoleMemberGroupType(role.getRoleMembers());
+        processRoleTrustDomain(role.getName(), role.getTrust());
+        processRoleMeta(role);
+    }
+
     public void processRole(Role role) {
         
         if (LOGGER.isDebugEnabled()) {
@@ -320,6 +404,20 @@ public class DataCache {
     }
 
     public void processPolicy(String domainName, Policy policy, Map<String, Role> roles) {
+        processPolicy(domainName, policy, roles, true);
+    }
+
+    /**
+     * Process the assertions in the given policy. The assume_role
+     * assertions can be skipped when the member role cache is copied
+     * from the cache object of the current version of the domain.
+     * @param domainName name of the domain
+     * @param policy policy to process
+     * @param roles map of the roles in the domain
+     * @param processAssumeRole process the assume_role assertions
+     */
+    public void processPolicy(String domainName, Policy policy, Map<String, Role> roles,
+            boolean processAssumeRole) {
         
         final String policyName = policy.getName();
         if (LOGGER.isDebugEnabled()) {
@@ -344,7 +442,9 @@ public class DataCache {
                     processAWSAssumeRoleAssertion(assertion);
                     break;
                 case ACTION_ASSUME_ROLE:
-                    processAssumeRoleAssertion(assertion, roles);
+                    if (processAssumeRole) {
+                        processAssumeRoleAssertion(assertion, roles);
+                    }
                     break;
                 case ACTION_LAUNCH:
                     processLaunchAssertion(domainName, assertion, roles);
@@ -521,9 +621,54 @@ public class DataCache {
      * @return the set of roles
      */
     public Set<MemberRole> getMemberRoleSet(final String member) {
+        if (compactMemberRoleCache != null) {
+            return compactMemberRoleCache.getMemberRoleSet(member);
+        }
         return memberRoleCache.get(member);
     }
 
+    /**
+     * Copy the member role caches from the original cache object as the
+     * starting point for an incremental update. The member role sets are
+     * shared and only copied when a member's set is updated.
+     * @param original cache object for the current version of the domain
+     */
+    public void copyRoleMembers(DataCache original) {
+
+        memberRoleCache.putAll(original.memberRoleCache);
+        memberPrefixRoleCache.putAll(original.memberPrefixRoleCache);
+        memberPrefixRoleTrie = original.memberPrefixRoleTrie;
+        memberAllRoleCache.addAll(original.memberAllRoleCache);
+        ownedMemberRoleSets = new HashSet<>();
+    }
+
+    /**
+     * Copy the caches generated from the policy assertions from the
+     * original cache object when the policies are not modified
+     * @param original cache object for the current version of the domain
+     */
+    public void copyPolicies(DataCache original) {
+
+        awsRoleCache.putAll(original.awsRoleCache);
+        providerDnsSuffixCache.putAll(original.providerDnsSuffixCache);
+        providerHostnameAllowedSuffixCache.putAll(original.providerHostnameAllowedSuffixCache);
+        providerHostnameDeniedSuffixCache.putAll(original.providerHostnameDeniedSuffixCache);
+        transportRulesCache.putAll(original.transportRulesCache);
+    }
+
+    /**
+     * Copy the caches generated from the service identities from the
+     * original cache object when the services are not modified
+     * @param original cache object for the current version of the domain
+     */
+    public void copyServiceIdentities(DataCache original) {
+
+        hostCache.putAll(original.hostCache);
+        publicKeyCache.putAll(original.publicKeyCache);
+        svcCredsCache.putAll(original.svcCredsCache);
+        svcClientIdCache.putAll(original.svcClientIdCache);
+    }
+
     /**
      * Returns dns suffix list authorized for a provider
      * @param provider name of the provider for the lookup
@@ -567,13 +712,89 @@ public class DataCache {
         return memberPrefixRoleCache;
     }
     
+    /**
+     * Return roles configured for wildcard access where the
+     * wildcard prefix matches the given member name
+     * @param member whose roles we want
+     * @return the set of roles
+     */
+    public Set<MemberRole> getPrefixMemberRoleSet(final String member) {
+        if (memberPrefixRoleTrie.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return memberPrefixRoleTrie.findMatchingValues(member);
+    }
+
     /**
      * Return the number of members in the cache
      * @return member count
      */
     public int getMemberCount() {
+        if (compactMemberRoleCache != null) {
+            return compactMemberRoleCache.getMemberCount();
+        }
         return memberRoleCache.size();
     }
+
+    /**
+     * Return the estimated heap usage of the member role cache
+     * @return size in bytes
+     */
+    public long getMemberRoleCacheSize() {
+        if (compactMemberRoleCache != null) {
+            return compactMemberRoleCache.getEstimatedHeapSize();
+        }
+        return CompactMemberRoleIndex.getEstimatedHeapSize(memberRoleCache);
+    }
+
+    public boolean isCompact() {
+        return compactMemberRoleCache != null;
+    }
+
+    /**
+     * Convert the member role cache into its compact read-only
+     * representation and intern the role and member names in the
+     * domain data object. Must be called once the cache has been
+     * fully processed since no further role updates are possible.
+     */
+    public void compact() {
+
+        if (compactMemberRoleCache != null) {
+            return;
+        }
+
+        compactMemberRoleCache = new CompactMemberRoleIndex(memberRoleCache);
+        memberRoleCache = Collections.emptyMap();
+        ownedMemberRoleSets = null;
+
+        if (domainData == null) {
+            return;
+        }
+
+        // the role and group objects are still required by the
+        // authorizer so we keep them but share the member names
+
+        if (domainData.getRoles() != null) {
+            for (Role role : domainData.getRoles()) {
+                role.setName(SymbolTable.intern(role.getName()));
+                if (role.getRoleMembers() != null) {
+                    for (RoleMember roleMember : role.getRoleMembers()) {
+                        roleMember.setMemberName(SymbolTable.intern(roleMember.getMemberName()));
+                    }
+                }
+            }
+        }
+        if (domainData.getGroups() != null) {
+            for (Group group : domainData.getGroups()) {
+                group.setName(SymbolTable.intern(group.getName()));
+                if (group.getGroupMembers() != null) {
+                    for (GroupMember groupMember : group.getGroupMembers()) {
+                        groupMember.setMemberName(SymbolTable.intern(groupMember.getMemberName()));
+                    }
+                }
+            }
+        }
+    }
     
     public Set<String> getAWSResourceRoleSet(String role) {
         return awsRoleCache.get(role);
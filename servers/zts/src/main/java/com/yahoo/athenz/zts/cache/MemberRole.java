@@ -15,14 +15,23 @@
  */
 package com.yahoo.athenz.zts.cache;
 
+import com.yahoo.athenz.auth.util.StringUtils;
+
 public class MemberRole {
     
     final String role;
     final long expiration;
+
+    // only generated for role names that include glob characters
+    // since all other roles are processed with a simple compare
+
+    final RoleMatch roleMatch;
     
     public MemberRole(String role, long expiration) {
         this.role = role;
         this.expiration = expiration;
+        this.roleMatch = (role != null && StringUtils.containsMatchCharacter(role)) ?
+                RoleMatch.getMatchObject(role) : null;
     }
 
     public String getRole() {
@@ -32,6 +41,19 @@ public class MemberRole {
     public long getExpiration() {
         return expiration;
     }
+
+    /**
+     * Check if the given role name matches the role in this entry
+     * taking into account any glob characters in our role name
+     * @param roleName role name to check
+     * @return true if the role matches, false otherwise
+     */
+    public boolean roleMatches(final String roleName) {
+        if (roleMatch != null) {
+            return roleMatch.matches(roleName);
+        }
+        return roleName.equals(role);
+    }
     
     @Override
     public int hashCode() {
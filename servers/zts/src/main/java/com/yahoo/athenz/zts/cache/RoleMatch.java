@@ -0,0 +1,65 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cache;
+
+import com.yahoo.athenz.auth.util.StringUtils;
+
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled matcher for role names that might include glob
+ * wildcard characters (e.g. trusted role assertions where the
+ * resource is specified as sports:role.*). The matcher is
+ * generated once when the member role entry is created so
+ * the regex is not recompiled on every authorization check.
+ */
+public interface RoleMatch {
+
+    /**
+     * @param value role name to check
+     * @return true if the given role name matches
+     */
+    boolean matches(String value);
+
+    /**
+     * Generate the most efficient matcher for the given role name
+     * @param roleName role name possibly including glob characters
+     * @return matcher object
+     */
+    static RoleMatch getMatchObject(final String roleName) {
+
+        if (roleName == null) {
+            return value -> false;
+        }
+
+        if ("*".equals(roleName)) {
+            return value -> true;
+        }
+
+        int anyCharMatch = roleName.indexOf('*');
+        int singleCharMatch = roleName.indexOf('?');
+
+        if (anyCharMatch == -1 && singleCharMatch == -1) {
+            return roleName::equals;
+        } else if (anyCharMatch == roleName.length() - 1 && singleCharMatch == -1) {
+            final String prefix = roleName.substring(0, roleName.length() - 1);
+            return value -> value.startsWith(prefix);
+        } else {
+            final Pattern pattern = Pattern.compile(StringUtils.patternFromGlob(roleName));
+            return value -> pattern.matcher(value).matches();
+        }
+    }
+}
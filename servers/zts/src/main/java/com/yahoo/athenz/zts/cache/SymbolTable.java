@@ -0,0 +1,43 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cache;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Process-wide symbol table for strings that are repeated across
+ * domains (e.g. member and role names). Each unique value is kept
+ * as a single instance that is shared by all domain caches. The
+ * table only holds weak references so entries are released once
+ * no domain cache is referencing them any longer.
+ */
+public final class SymbolTable {
+
+    private static final Interner<String> INTERNER = Interners.newWeakInterner();
+
+    private SymbolTable() {
+    }
+
+    /**
+     * Return the canonical instance for the given value
+     * @param value string value
+     * @return canonical instance or null if the value is null
+     */
+    public static String intern(final String value) {
+        return value == null ? null : INTERNER.intern(value);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ *
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.zts.store;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Index that is updated by the domain processing threads and read by
+ * the request threads without any locking. The entries are kept in a
+ * concurrent map that is read directly, so this is not a snapshot of
+ * the index: the updates only provide per-key atomicity. The updates
+ * should be grouped into batches (e.g. all the changes for a single
+ * domain or all the domains processed during a refresh cycle). The
+ * changes carried out by a thread within a batch are buffered by that
+ * thread and applied once the thread completes its outermost batch.
+ * All the changes for the same key are applied together, so for each
+ * key the readers see either the value before or the value after the
+ * batch but never an intermediate value (e.g. host entries removed
+ * without the matching adds). The keys of a batch are applied one at
+ * a time, so a reader looking up multiple keys while a batch is being
+ * applied might see the new value for some keys and the old value for
+ * others. Batches are scoped to the thread so the changes carried out
+ * by other threads never include another thread's incomplete batch.
+ * Applying a batch only updates the keys that were changed. Applying
+ * the changes can also be suspended for all threads (e.g. while the
+ * domains are loaded in parallel during the server startup). The
+ * values stored in the index must not be modified once they're added
+ * to the index.
+ */
+public class BatchedUpdateIndex<V> {
+
+    private final Map<String, V> entries = new ConcurrentHashMap<>();
+    private final Runnable publishListener;
+    private final ThreadLocal<Batch<V>> batches = ThreadLocal.withInitial(Batch::new);
+    private final Map<String, List<BiFunction<String, V, V>>> suspendedChanges = new LinkedHashMap<>();
+    private int suspendDepth = 0;
+
+    // changes carried out by a thread within its batches. the
+    // changes are kept per key in the order they were requested
+
+    static class Batch<V> {
+        int depth = 0;
+        final Map<String, List<BiFunction<String, V, V>>> changes = new LinkedHashMap<>();
+    }
+
+    public BatchedUpdateIndex() {
+        this(null);
+    }
+
+    /**
+     * Create a new index with a listener that is notified after
+     * each set of changes is applied to the index
+     * @param publishListener listener for published changes
+     */
+    public BatchedUpdateIndex(Runnable publishListener) {
+        this.publishListener = publishListener;
+    }
+
+    public V get(final String key) {
+        return entries.get(key);
+    }
+
+    public boolean containsKey(final String key) {
+        return entries.containsKey(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void put(final String key, V value) {
+        update(key, (k, v) -> value);
+    }
+
+    public void remove(final String key) {
+        update(key, (k, v) -> null);
+    }
+
+    /**
+     * Update the value for the given key. The function must return a
+     * new value object instead of modifying the current value since
+     * the current value might be referenced by the readers. Within a
+     * batch the function is called when the batch is applied with the
+     * value of the key at that time.
+     * @param key entry key
+     * @param remappingFunction function to compute the new value
+     */
+    public void compute(final String key, BiFunction<String, V, V> remappingFunction) {
+        update(key, remappingFunction);
+    }
+
+    /**
+     * Start a batch for the current thread. The changes carried out
+     * by the thread are applied once its outermost batch is completed.
+     */
+    public void beginBatch() {
+        batches.get().depth += 1;
+    }
+
+    /**
+     * Complete a batch for the current thread and apply the changes
+     * if this is the outermost batch for the thread
+     */
+    public void endBatch() {
+        Batch<V> batch = batches.get();
+        if (batch.depth > 0) {
+            batch.depth -= 1;
+        }
+        if (batch.depth == 0 && !batch.changes.isEmpty()) {
+            apply(batch.changes);
+            batch.changes.clear();
+        }
+    }
+
+    /**
+     * Suspend applying the changes carried out by all threads
+     * until resumePublishing is called. This must only be used when
+     * no other thread requires its changes to be visible right away.
+     */
+    public synchronized void suspendPublishing() {
+        suspendDepth += 1;
+    }
+
+    public synchronized void resumePublishing() {
+        if (suspendDepth > 0) {
+            suspendDepth -= 1;
+        }
+        if (suspendDepth == 0 && !suspendedChanges.isEmpty()) {
+            apply(suspendedChanges);
+            suspendedChanges.clear();
+        }
+    }
+
+    private void update(final String key, BiFunction<String, V, V> remappingFunction) {
+        Batch<V> batch = batches.get();
+        if (batch.depth > 0) {
+            addChange(batch.changes, key, remappingFunction);
+        } else {
+            apply(Collections.singletonMap(key, Collections.singletonList(remappingFunction)));
+        }
+    }
+
+    private static <V> void addChange(Map<String, List<BiFunction<String, V, V>>> changes, final String key,
+            BiFunction<String, V, V> remappingFunction) {
+        changes.computeIfAbsent(key, k -> new ArrayList<>()).add(remappingFunction);
+    }
+
+    private synchronized void apply(Map<String, List<BiFunction<String, V, V>>> changes) {
+
+        if (suspendDepth > 0) {
+            for (Map.Entry<String, List<BiFunction<String, V, V>>> change : changes.entrySet()) {
+                suspendedChanges.computeIfAbsent(change.getKey(), k -> new ArrayList<>()).addAll(change.getValue());
+            }
+            return;
+        }
+
+        // all the changes for a key are applied to the current value
+        // and only the final value is stored in the map. all updates
+        // are carried out while holding the index lock so the current
+        // value cannot be modified by another thread
+
+        boolean modified = false;
+        for (Map.Entry<String, List<BiFunction<String, V, V>>> change : changes.entrySet()) {
+            final String key = change.getKey();
+            final V value = entries.get(key);
+            V newValue = value;
+            for (BiFunction<String, V, V> remappingFunction : change.getValue()) {
+                newValue = remappingFunction.apply(key, newValue);
+            }
+            if (newValue == value) {
+                continue;
+            }
+            if (newValue == null) {
+                entries.remove(key);
+            } else {
+                entries.put(key, newValue);
+            }
+            modified = true;
+        }
+
+        if (modified && publishListener != null) {
+            publishListener.run();
+        }
+    }
+}
@@ -21,7 +21,10 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.yahoo.athenz.auth.AuthorityConsts;
 import com.yahoo.athenz.auth.KeyStore;
-import com.yahoo.athenz.auth.util.StringUtils;
+import com.yahoo.athenz.auth.PrivateKeyStore;
+import com.yahoo.athenz.common.messaging.ChangeSubscriber;
+import com.yahoo.athenz.common.messaging.ChangeSubscriberFactory;
+import com.yahoo.athenz.common.messaging.DomainChangeMessage;
 import com.yahoo.athenz.common.metrics.Metric;
 import com.yahoo.athenz.common.server.db.RolesProvider;
 import com.yahoo.athenz.common.server.key.PubKeysProvider;
@@ -51,11 +54,17 @@ import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.ECPoint;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -80,12 +89,19 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
     private final Cache<String, DataCache> cacheStore;
     final Cache<String, PublicKey> zmsPublicKeyCache;
     final Cache<String, PublicKey> svcPublicKeyCache;
+    final Cache<String, PublicKey> pemPublicKeyCache;
     final Cache<String, String> svcCredsCache;
     final Cache<String, List<GroupMember>> groupMemberCache;
     final Cache<String, List<GroupMember>> principalGroupCache;
+    final Cache<String, PrincipalRoles> principalRolesCache;
+    final Map<String, Long> principalGroupVersions = new ConcurrentHashMap<>();
+    final AtomicLong principalGroupVersionSequence = new AtomicLong();
+    final AtomicLong principalGroupBaseVersion = new AtomicLong();
+    final int principalGroupVersionsMaxSize;
     final RequireRoleCertCache requireRoleCertCache;
-    final Map<String, List<String>> hostCache;
-    final Map<String, String> publicKeyCache;
+    final BatchedUpdateIndex<List<String>> hostCache;
+    final BatchedUpdateIndex<String> publicKeyCache;
+    final Set<String> invalidatedPublicKeys = ConcurrentHashMap.newKeySet();
     final JWKList zmsJWKList;
     final JWKList zmsJWKListStrictRFC;
     final JWKList ztsJWKList;
@@ -102,17 +118,37 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
     long lastCheckRunTime;
     long domainFetchRefreshTime;
     int domainFetchCount;
+    int localDomainLoadThreads;
     boolean jwsDomainSupport;
+    boolean compactDataCache;
+    boolean incrementalDomainUpdate;
 
     private static final String ROLE_POSTFIX = ":role.";
 
-    private final ReentrantReadWriteLock hostRWLock = new ReentrantReadWriteLock();
-    private final Lock hostRLock = hostRWLock.readLock();
-    private final Lock hostWLock = hostRWLock.writeLock();
+    // lock to serialize updates to the caches that are shared
+    // across domains (e.g. group members, require role certs)
+    // since local domains can be processed in parallel during startup
 
-    private final ReentrantReadWriteLock pkeyRWLock = new ReentrantReadWriteLock();
-    private final Lock pkeyRLock = pkeyRWLock.readLock();
-    private final Lock pkeyWLock = pkeyRWLock.writeLock();
+    private final Lock domainUpdateLock = new ReentrantLock();
+
+    // striped locks to serialize the processing of the same domain
+    // since the domain change message executor and the data updater
+    // thread can both fetch and process the same domain. the
+    // processing includes the version check so an older copy of
+    // the domain never replaces a newer one in our cache or store
+
+    private static final int DOMAIN_PROCESS_LOCK_COUNT = 64;
+    private final Lock[] domainProcessLocks = new Lock[DOMAIN_PROCESS_LOCK_COUNT];
+
+    // optional subscribers for domain change messages published by
+    // ZMS so we can fetch the updated domains without waiting for
+    // the next poll. multiple messages for the same domain received
+    // before the domain is fetched are processed only once
+
+    final List<ChangeSubscriber<DomainChangeMessage>> domainChangeSubscribers = new ArrayList<>();
+    final Set<String> pendingDomainChanges = ConcurrentHashMap.newKeySet();
+    ExecutorService domainChangeExecutor;
+    ExecutorService domainChangeSubscriberExecutor;
 
     private static final String ZTS_PROP_DOMAIN_UPDATE_TIMEOUT = "athenz.zts.zms_domain_update_timeout";
     private static final String ZTS_PROP_DOMAIN_DELETE_TIMEOUT = "athenz.zts.zms_domain_delete_timeout";
@@ -120,6 +156,18 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
     private static final String ZTS_PROP_DOMAIN_JWS_SUPPORT    = "athenz.zts.zms_domain_jws_support";
     private static final String ZTS_PROP_DOMAIN_FETCH_TIMEOUT  = "athenz.zts.zms_domain_fetch_timeout";
     private static final String ZTS_PROP_DOMAIN_FETCH_COUNT    = "athenz.zts.zms_domain_fetch_count";
+    private static final String ZTS_PROP_LOCAL_DOMAIN_THREADS  = "athenz.zts.local_domain_load_threads";
+    private static final String ZTS_PROP_DATA_CACHE_COMPACT    = "athenz.zts.data_cache_compact_mode";
+    private static final String ZTS_PROP_INCREMENTAL_UPDATE    = "athenz.zts.domain_incremental_update";
+    private static final String ZTS_PROP_PEM_KEY_CACHE_SIZE    = "athenz.zts.pem_public_key_cache_size";
+    private static final String ZTS_PROP_PRINCIPAL_ROLES_CACHE = "athenz.zts.principal_roles_cache_size";
+
+    private static final String ZTS_PROP_DOMAIN_CHANGE_TOPIC_NAMES        = "athenz.zts.domain_changes_topic_names";
+    private static final String ZTS_PROP_DOMAIN_CHANGE_SUBSCRIBER_FACTORY = "athenz.zts.domain_change_subscriber_factory_class";
+    private static final String ZTS_PROP_DOMAIN_CHANGE_SUBSCRIPTION_NAME  = "athenz.zts.domain_change_subscription_name";
+    private static final String ZTS_PROP_DOMAIN_CHANGE_SUBSCRIPTION_TYPE  = "athenz.zts.domain_change_subscription_type";
+
+    private static final int LOCAL_DOMAIN_PROGRESS_COUNT = 10000;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DataStore.class);
 
@@ -139,6 +187,14 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         groupMemberCache = CacheBuilder.newBuilder().concurrencyLevel(25).build();
         principalGroupCache = CacheBuilder.newBuilder().concurrencyLevel(25).build();
 
+        // optional cache of the roles each principal has access to in
+        // a given domain. the cache is disabled by default
+
+        final int principalRolesCacheSize = ConfigProperties.retrieveConfigSetting(ZTS_PROP_PRINCIPAL_ROLES_CACHE, 0);
+        principalRolesCache = principalRolesCacheSize <= 0 ? null :
+                CacheBuilder.newBuilder().concurrencyLevel(25).maximumSize(principalRolesCacheSize).build();
+        principalGroupVersionsMaxSize = principalRolesCacheSize;
+
         requireRoleCertCache = new RequireRoleCertCache();
 
         zmsJWKList = new JWKList();
@@ -146,9 +202,21 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         ztsJWKList = new JWKList();
         ztsJWKListStrictRFC = new JWKList();
 
-        hostCache = new HashMap<>();
-        publicKeyCache = new HashMap<>();
         svcPublicKeyCache = CacheBuilder.newBuilder().concurrencyLevel(25).build();
+
+        // parsed public keys based on the sha-256 of their pem value. the
+        // cache is not invalidated by domain updates so unchanged keys
+        // are never parsed again
+
+        pemPublicKeyCache = CacheBuilder.newBuilder().concurrencyLevel(25)
+                .maximumSize(ConfigProperties.retrieveConfigSetting(ZTS_PROP_PEM_KEY_CACHE_SIZE, 100000))
+                .build();
+        hostCache = new BatchedUpdateIndex<>();
+
+        // once the updated public keys are published we need to remove
+        // the corresponding entries from our parsed public key cache
+
+        publicKeyCache = new BatchedUpdateIndex<>(this::invalidateServicePublicKeys);
         svcCredsCache = CacheBuilder.newBuilder().concurrencyLevel(25).build();
 
         // our configured values are going to be in seconds, so we need
@@ -181,6 +249,22 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         domainFetchRefreshTime = ConfigProperties.retrieveConfigSetting(ZTS_PROP_DOMAIN_FETCH_TIMEOUT, 2592000);
         domainFetchCount = ConfigProperties.retrieveConfigSetting(ZTS_PROP_DOMAIN_FETCH_COUNT, 10);
 
+        // configure the number of threads used to load and validate our
+        // local domains during startup. the default value of 1 indicates
+        // that the domains will be processed serially
+
+        localDomainLoadThreads = ConfigProperties.retrieveConfigSetting(ZTS_PROP_LOCAL_DOMAIN_THREADS, 1);
+
+        // check if we should convert the member role cache for each
+        // domain into its compact read-only representation
+
+        compactDataCache = Boolean.parseBoolean(System.getProperty(ZTS_PROP_DATA_CACHE_COMPACT, "false"));
+
+        // check if we should only process the modified roles, policies
+        // and groups when updating a domain that is already in our cache
+
+        incrementalDomainUpdate = Boolean.parseBoolean(System.getProperty(ZTS_PROP_INCREMENTAL_UPDATE, "false"));
+
         /* load the zms public key from configuration files */
 
         if (!loadAthenzPublicKeys()) {
@@ -199,6 +283,10 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
         base64Decoder = Base64.getUrlDecoder();
+
+        for (int i = 0; i < DOMAIN_PROCESS_LOCK_COUNT; i++) {
+            domainProcessLocks[i] = new ReentrantLock();
+        }
     }
 
     boolean processLocalSignedDomain(String domainName) {
@@ -230,6 +318,7 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
             return false;
         }
 
+        Object timerMetric = metric.startTiming("domain_validation_timing", null);
         boolean result = false;
         try {
             result = Crypto.verify(SignUtils.asCanonicalString(domainData), zmsKey, signature);
@@ -237,6 +326,7 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
             LOGGER.error("validateSignedDomain: Domain={} signature validation exception",
                     domainData.getName(), ex);
         }
+        metric.stopTiming(timerMetric);
 
         if (!result) {
             metric.increment("domain_validation_failure", domainData.getName());
@@ -254,7 +344,18 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
 
         LOGGER.info("Processing domain: {}", domainName);
 
+        final Lock domainLock = getDomainProcessLock(domainName);
         try {
+            domainLock.lock();
+
+            // if our cached copy is newer than the domain we're
+            // processing then another thread has already processed
+            // a more recent version of the domain
+
+            if (isDomainDataOlder(domainData)) {
+                return true;
+            }
+
             // before doing anything else let's validate our domain
 
             if (!validateSignedDomain(signedDomain)) {
@@ -286,6 +387,8 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         } catch (Exception ex) {
             LOGGER.error("unable to process signed domain: {}", domainName, ex);
             return false;
+        } finally {
+            domainLock.unlock();
         }
     }
 
@@ -360,41 +463,6 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         return domainRefreshList;
     }
 
-    // Internal
-    boolean processSignedDomains(SignedDomains signedDomains) {
-
-        /* if we have received no data from ZMS server then we're not
-         * going to update our last modification time and instead we'll
-         * just continue using the old one until we get some updates
-         * from ZMS Server */
-
-        if (signedDomains == null) {
-            LOGGER.info("No updates received from ZMS Server");
-            return true;
-        }
-
-        /* now process all of our domains */
-
-        List<SignedDomain> domains = signedDomains.getDomains();
-        if (domains == null || domains.isEmpty()) {
-            LOGGER.info("No updates received from ZMS Server");
-            return true;
-        }
-
-        // we're going to return success as long as one of the
-        // domains was successfully processed, otherwise there is
-        // no point of retrying all domains over and over again
-
-        boolean result = false;
-        for (SignedDomain domain : domains) {
-            if (processSignedDomain(domain, true)) {
-                result = true;
-            }
-        }
-
-        return result;
-    }
-
     /**
      * Poll for new domains and updated domains from the ChangeLogStore (ZMS).
      * Called by {@code DataUpdater.run()} thread. Deletes are handled separately in {@code processDomainDeletes()}
@@ -403,18 +471,37 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
     public boolean processSignedDomainUpdates() {
 
         StringBuilder lastModTimestamp = new StringBuilder(128);
-        SignedDomains signedDomains = changeLogStore.getUpdatedSignedDomains(lastModTimestamp);
 
-        /* if our data back was null and the last mod timestamp
-         * is also empty then we had a failure */
+        /* process each updated domain as soon as it's retrieved from
+         * the store so we don't need to keep all of them in memory */
+
+        AtomicInteger domainCount = new AtomicInteger();
+        AtomicBoolean domainProcessed = new AtomicBoolean(false);
+        boolean status = changeLogStore.getUpdatedSignedDomains(lastModTimestamp, signedDomain -> {
+            domainCount.incrementAndGet();
+            if (processSignedDomain(signedDomain, true)) {
+                domainProcessed.set(true);
+            }
+        });
+
+        /* if we were not able to retrieve the list of modified
+         * domains then we had a failure */
 
-        if (signedDomains == null && lastModTimestamp.length() == 0) {
+        if (!status) {
             return false;
         }
 
-        /* process all of our received updated domains */
+        /* we're going to return success as long as one of the
+         * domains was successfully processed, otherwise there is
+         * no point of retrying all domains over and over again */
+
+        boolean result = true;
+        if (domainCount.get() == 0) {
+            LOGGER.info("No updates received from ZMS Server");
+        } else {
+            result = domainProcessed.get();
+        }
 
-        boolean result = processSignedDomains(signedDomains);
         if (result) {
             changeLogStore.setLastModificationTimestamp(lastModTimestamp.toString());
         }
@@ -440,9 +527,11 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
 
     boolean validateJWSDomain(final String domainName, JWSDomain jwsDomain) {
 
+        Object timerMetric = metric.startTiming("domain_validation_timing", null);
         Function<String, PublicKey> keyGetter = zmsPublicKeyCache::getIfPresent;
         boolean result = Crypto.validateJWSDocument(jwsDomain.getProtectedHeader(), jwsDomain.getPayload(),
                 jwsDomain.getSignature(), keyGetter);
+        metric.stopTiming(timerMetric);
 
         if (!result) {
             metric.increment("domain_validation_failure", domainName);
@@ -454,19 +543,41 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
 
     public boolean processJWSDomain(JWSDomain jwsDomain, boolean saveInStore) {
 
-        DomainData domainData;
+        DomainData domainData = parseJWSDomainData(jwsDomain);
+        if (domainData == null) {
+            return false;
+        }
+        return processJWSDomain(jwsDomain, domainData, saveInStore);
+    }
+
+    DomainData parseJWSDomainData(JWSDomain jwsDomain) {
+
         try {
             byte[] payload = base64Decoder.decode(jwsDomain.getPayload());
-            domainData = jsonMapper.readValue(payload, DomainData.class);
+            return jsonMapper.readValue(payload, DomainData.class);
         } catch (Exception ex) {
             LOGGER.error("Unable to parse jws domain", ex);
-            return false;
+            return null;
         }
+    }
+
+    boolean processJWSDomain(JWSDomain jwsDomain, DomainData domainData, boolean saveInStore) {
 
         final String domainName = domainData.getName();
         LOGGER.info("Processing domain: {}", domainName);
 
+        final Lock domainLock = getDomainProcessLock(domainName);
         try {
+            domainLock.lock();
+
+            // if our cached copy is newer than the domain we're
+            // processing then another thread has already processed
+            // a more recent version of the domain
+
+            if (isDomainDataOlder(domainData)) {
+                return true;
+            }
+
             // before doing anything else let's validate our domain
 
             if (!validateJWSDomain(domainName, jwsDomain)) {
@@ -498,6 +609,8 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         } catch (Exception ex) {
             LOGGER.error("unable to process jws domain: {}", domainName, ex);
             return false;
+        } finally {
+            domainLock.unlock();
         }
     }
 
@@ -822,7 +935,7 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
 
         Set<String> zmsDomainList = changeLogStore.getServerDomainList();
 
-        int badDomains = 0;
+        List<String> activeDomainList = new ArrayList<>();
         for (String domainName : localDomainList) {
 
             /* make sure this domain is still active in ZMS otherwise
@@ -840,6 +953,36 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
                 continue;
             }
 
+            activeDomainList.add(domainName);
+        }
+
+        long startTime = System.currentTimeMillis();
+        int badDomains = (localDomainLoadThreads > 1) ?
+                processLocalDomainsParallel(activeDomainList) : processLocalDomainsSerial(activeDomainList);
+        if (badDomains == -1) {
+            return -1;
+        }
+        reportLocalDomainProgress(activeDomainList.size(), activeDomainList.size(), startTime);
+
+        /* if more than 1/4 of our domains are bad then we have some
+         * issue that needs to be addressed so we're going to return failure */
+
+        if (badDomains > localDomainList.size() / 4) {
+            LOGGER.error("Too many invalid domains: {} out of {}", badDomains, localDomainList.size());
+            return -1;
+        }
+
+        return badDomains;
+    }
+
+    int processLocalDomainsSerial(List<String> domainList) {
+
+        int badDomains = 0;
+        int processedDomains = 0;
+        long startTime = System.currentTimeMillis();
+
+        for (String domainName : domainList) {
+
             /* if we get a failure when processing a local domain then it
              * indicates that we had an invalid domain file (possibly
              * corrupted or hacked). In this case we're going to drop
@@ -854,17 +997,89 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
                     badDomains += 1;
                 }
             }
+
+            processedDomains += 1;
+            if (processedDomains % LOCAL_DOMAIN_PROGRESS_COUNT == 0) {
+                reportLocalDomainProgress(processedDomains, domainList.size(), startTime);
+            }
         }
 
-        /* if more than 1/4 of our domains are bad then we have some
-         * issue that needs to be addressed so we're going to return failure */
+        return badDomains;
+    }
 
-        if (badDomains > localDomainList.size() / 4) {
-            LOGGER.error("Too many invalid domains: {} out of {}", badDomains, localDomainList.size());
+    int processLocalDomainsParallel(List<String> domainList) {
+
+        LOGGER.info("Processing {} local domains with {} threads", domainList.size(), localDomainLoadThreads);
+
+        // we're going to follow the same semantics as the serial
+        // processing: if the change log store supports full refresh,
+        // then a single bad domain requires a full resync so there is
+        // no point to continue processing the rest of the domains
+
+        final boolean supportsFullRefresh = changeLogStore.supportsFullRefresh();
+        final AtomicBoolean fullRefreshRequired = new AtomicBoolean(false);
+        final AtomicInteger badDomains = new AtomicInteger(0);
+        final AtomicInteger processedDomains = new AtomicInteger(0);
+        final long startTime = System.currentTimeMillis();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(localDomainLoadThreads);
+        for (String domainName : domainList) {
+            executorService.execute(() -> {
+
+                if (fullRefreshRequired.get()) {
+                    return;
+                }
+
+                // any unexpected exception is treated the same way
+                // as an invalid domain so the task is not silently
+                // dropped by the executor service
+
+                boolean result;
+                try {
+                    result = processLocalDomain(domainName);
+                } catch (Exception ex) {
+                    LOGGER.error("Unable to process local domain {}", domainName, ex);
+                    result = false;
+                }
+
+                if (!result) {
+                    if (supportsFullRefresh) {
+                        fullRefreshRequired.set(true);
+                    } else {
+                        badDomains.incrementAndGet();
+                    }
+                }
+
+                int count = processedDomains.incrementAndGet();
+                if (count % LOCAL_DOMAIN_PROGRESS_COUNT == 0) {
+                    reportLocalDomainProgress(count, domainList.size(), startTime);
+                }
+            });
+        }
+
+        executorService.shutdown();
+        try {
+            while (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.info("Waiting for local domain processing to complete...");
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.error("Interrupted while processing local domains", ex);
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
             return -1;
         }
 
-        return badDomains;
+        return fullRefreshRequired.get() ? -1 : badDomains.get();
+    }
+
+    void reportLocalDomainProgress(int processedDomains, int totalDomains, long startTime) {
+
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        long domainsPerSec = (elapsedTime == 0) ? processedDomains : processedDomains * 1000L / elapsedTime;
+
+        LOGGER.info("Processed {} out of {} local domains in {} ms ({} domains/sec)",
+                processedDomains, totalDomains, elapsedTime, domainsPerSec);
+        metric.setGauge("local_domain_load_rate", null, null, domainsPerSec);
     }
 
     boolean processLocalDomain(String domainName) {
@@ -873,6 +1088,39 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
 
     public void init() {
 
+        /* the host and public key indexes are published only once
+         * all the local and updated domains have been processed. the
+         * domains might be loaded by multiple threads so we suspend
+         * publishing for all threads instead of using a thread batch */
+
+        try {
+            hostCache.suspendPublishing();
+            publicKeyCache.suspendPublishing();
+            loadDomains();
+        } finally {
+            hostCache.resumePublishing();
+            publicKeyCache.resumePublishing();
+        }
+
+        /* Start our monitoring thread to get changes from ZMS */
+
+        ScheduledExecutorService scheduledThreadPool = Executors.newScheduledThreadPool(1);
+        scheduledThreadPool.scheduleAtFixedRate(new DataUpdater(), updDomainRefreshTime,
+                updDomainRefreshTime, TimeUnit.SECONDS);
+    }
+
+    void beginIndexBatch() {
+        hostCache.beginBatch();
+        publicKeyCache.beginBatch();
+    }
+
+    void endIndexBatch() {
+        hostCache.endBatch();
+        publicKeyCache.endBatch();
+    }
+
+    void loadDomains() {
+
         /* now let's retrieve the list of locally saved domains */
 
         List<String> localDomainList = changeLogStore.getLocalDomainList();
@@ -910,12 +1158,209 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         if (badDomains > 0) {
             processDomainChecks();
         }
+    }
 
-        /* Start our monitoring thread to get changes from ZMS */
+    /**
+     * Subscribe to the configured domain change topics. For each received
+     * message we'll fetch only the affected domain from ZMS. The regular
+     * domain update poll is still running as a fallback in case any
+     * messages are lost or the messaging system is not available.
+     * @param keyStore private key store for the subscriber factory
+     * @param serverHostName server hostname used for the default subscription name
+     */
+    @SuppressWarnings("unchecked")
+    public void initDomainChangeSubscribers(PrivateKeyStore keyStore, final String serverHostName) {
 
-        ScheduledExecutorService scheduledThreadPool = Executors.newScheduledThreadPool(1);
-        scheduledThreadPool.scheduleAtFixedRate(new DataUpdater(), updDomainRefreshTime,
-                updDomainRefreshTime, TimeUnit.SECONDS);
+        final String topicNames = System.getProperty(ZTS_PROP_DOMAIN_CHANGE_TOPIC_NAMES, "");
+        if (topicNames.isEmpty()) {
+            return;
+        }
+
+        final String factoryClassName = System.getProperty(ZTS_PROP_DOMAIN_CHANGE_SUBSCRIBER_FACTORY);
+        if (StringUtil.isEmpty(factoryClassName)) {
+            LOGGER.error("No domain change subscriber factory class configured for topics: {}", topicNames);
+            return;
+        }
+
+        ChangeSubscriberFactory<DomainChangeMessage> subscriberFactory;
+        try {
+            subscriberFactory = (ChangeSubscriberFactory<DomainChangeMessage>) Class.forName(factoryClassName)
+                    .getDeclaredConstructor().newInstance();
+        } catch (Exception ex) {
+            LOGGER.error("unable to initialize subscriber factory for: {}", factoryClassName, ex);
+            return;
+        }
+
+        final String subscriptionName = System.getProperty(ZTS_PROP_DOMAIN_CHANGE_SUBSCRIPTION_NAME,
+                "zts-" + serverHostName);
+        final String subscriptionType = System.getProperty(ZTS_PROP_DOMAIN_CHANGE_SUBSCRIPTION_TYPE, "Exclusive");
+
+        for (String topic : topicNames.split(",")) {
+            topic = topic.trim();
+            if (topic.isEmpty()) {
+                continue;
+            }
+            try {
+                ChangeSubscriber<DomainChangeMessage> subscriber = subscriberFactory.create(keyStore,
+                        topic, subscriptionName, subscriptionType);
+                subscriber.init(this::processDomainChangeMessage, DomainChangeMessage.class);
+                domainChangeSubscribers.add(subscriber);
+            } catch (Exception ex) {
+                LOGGER.error("unable to create a subscriber for topic: {}", topic, ex);
+            }
+        }
+
+        if (domainChangeSubscribers.isEmpty()) {
+            return;
+        }
+
+        // we use a single thread to fetch the domains so the updates
+        // are processed in the order the messages were received
+
+        domainChangeExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "DomainChange-Fetcher");
+            t.setDaemon(true);
+            return t;
+        });
+        domainChangeSubscriberExecutor = Executors.newFixedThreadPool(domainChangeSubscribers.size(), r -> {
+            Thread t = new Thread(r, "DomainChange-Subscriber");
+            t.setDaemon(true);
+            return t;
+        });
+        for (ChangeSubscriber<DomainChangeMessage> subscriber : domainChangeSubscribers) {
+            domainChangeSubscriberExecutor.execute(subscriber);
+        }
+
+        LOGGER.info("Subscribed to {} domain change topic(s)", domainChangeSubscribers.size());
+    }
+
+    public void closeDomainChangeSubscribers() {
+
+        for (ChangeSubscriber<DomainChangeMessage> subscriber : domainChangeSubscribers) {
+            subscriber.close();
+        }
+        domainChangeSubscribers.clear();
+
+        if (domainChangeSubscriberExecutor != null) {
+            domainChangeSubscriberExecutor.shutdownNow();
+        }
+        if (domainChangeExecutor != null) {
+            domainChangeExecutor.shutdownNow();
+        }
+    }
+
+    void processDomainChangeMessage(DomainChangeMessage message) {
+
+        final String domainName = message.getDomainName();
+        if (StringUtil.isEmpty(domainName)) {
+            return;
+        }
+
+        metric.increment("domain_change_message", domainName);
+
+        // if we already have a pending fetch for this domain then
+        // there is no need to fetch it again
+
+        if (pendingDomainChanges.add(domainName)) {
+            domainChangeExecutor.execute(() -> processDomainChange(domainName));
+        }
+    }
+
+    boolean processDomainChange(final String domainName) {
+
+        // remove the domain from the pending set before fetching so
+        // any message received during the fetch triggers a new one
+
+        pendingDomainChanges.remove(domainName);
+
+        // fetch the domain from ZMS without holding the domain lock
+        // so a slow ZMS server does not block processing of any
+        // other domains that share the same lock
+
+        try {
+            if (jwsDomainSupport) {
+                JWSDomain jwsDomain = changeLogStore.getServerJWSDomain(domainName);
+                if (jwsDomain != null) {
+                    DomainData domainData = parseJWSDomainData(jwsDomain);
+                    if (domainData == null) {
+                        return false;
+                    }
+                    return processChangedDomain(domainData, () -> processJWSDomain(jwsDomain, domainData, true));
+                }
+            } else {
+                SignedDomain signedDomain = changeLogStore.getServerSignedDomain(domainName);
+                if (signedDomain != null) {
+                    return processChangedDomain(signedDomain.getDomain(),
+                            () -> processSignedDomain(signedDomain, true));
+                }
+            }
+        } catch (Exception ex) {
+            LOGGER.error("unable to process domain change for {}", domainName, ex);
+            return false;
+        }
+
+        // if the domain was deleted, it will be removed by
+        // our regular domain delete check
+
+        LOGGER.info("unable to fetch changed domain {} from ZMS", domainName);
+        return false;
+    }
+
+    boolean processChangedDomain(DomainData domainData, BooleanSupplier processor) {
+
+        // the version check is carried out while holding the domain
+        // lock so it's not invalidated by the data updater thread
+        // processing the same domain at the same time
+
+        final Lock domainLock = getDomainProcessLock(domainData.getName());
+        try {
+            domainLock.lock();
+            if (isDomainDataCurrent(domainData)) {
+                return true;
+            }
+            return processor.getAsBoolean();
+        } finally {
+            domainLock.unlock();
+        }
+    }
+
+    Lock getDomainProcessLock(final String domainName) {
+        return domainProcessLocks[Math.floorMod(domainName.hashCode(), DOMAIN_PROCESS_LOCK_COUNT)];
+    }
+
+    boolean isDomainDataOlder(DomainData domainData) {
+
+        // we only skip the domain if our cached copy is strictly
+        // newer so the regular refresh of the same version of the
+        // domain still updates its fetch time in our store
+
+        DomainData localDomainData = getDomainData(domainData.getName());
+        if (localDomainData == null || localDomainData.getModified() == null || domainData.getModified() == null) {
+            return false;
+        }
+        if (localDomainData.getModified().millis() > domainData.getModified().millis()) {
+            LOGGER.info("Domain {} has a newer version in our cache, skipping update", domainData.getName());
+            return true;
+        }
+        return false;
+    }
+
+    boolean isDomainDataCurrent(DomainData domainData) {
+
+        // the domain might have already been updated by the regular
+        // domain update poll, or by a previous message, so we skip
+        // the update if our cached copy is not older than the fetched
+        // domain to avoid rebuilding the same domain data
+
+        DomainData localDomainData = getDomainData(domainData.getName());
+        if (localDomainData == null || localDomainData.getModified() == null || domainData.getModified() == null) {
+            return false;
+        }
+        if (localDomainData.getModified().millis() >= domainData.getModified().millis()) {
+            LOGGER.info("Domain {} is already up to date, skipping change", domainData.getName());
+            return true;
+        }
+        return false;
     }
 
     void processDomainChecks() {
@@ -931,11 +1376,27 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
     }
 
     void processDomainRoles(DomainData domainData, DataCache domainCache) {
+        processDomainRoleMembers(domainData, domainCache);
+        processDomainRequireRoleCerts(domainData);
+    }
+
+    void processDomainRoleMembers(DomainData domainData, DataCache domainCache) {
+
+        List<Role> roles = domainData.getRoles();
+        if (roles == null) {
+            return;
+        }
+
+        for (Role role : roles) {
+            domainCache.processRole(role);
+        }
+    }
+
+    void processDomainRequireRoleCerts(DomainData domainData) {
 
         List<Role> roles = domainData.getRoles();
         if (roles != null) {
             for (Role role : roles) {
-                domainCache.processRole(role);
                 if (isRoleCertRequired(role)) {
                     requireRoleCertCache.processRoleCache(role);
                 } else {
@@ -990,6 +1451,17 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
             deletedGroups = dataCache.getDomainData().getGroups();
         }
 
+        // with incremental updates we skip the groups that have
+        // not been modified since they're already in our cache
+
+        Map<String, Timestamp> originalGroups = null;
+        if (incrementalDomainUpdate && deletedGroups != null) {
+            originalGroups = new HashMap<>();
+            for (Group group : deletedGroups) {
+                originalGroups.put(group.getName(), group.getModified());
+            }
+        }
+
         List<Group> groups = domainData.getGroups();
         if (groups != null) {
             for (Group group : groups) {
@@ -1001,8 +1473,11 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
                     deletedGroups.removeIf(item -> item.getName().equalsIgnoreCase(group.getName()));
                 }
 
-                // now process our group
+                // now process our group if it has been modified
 
+                if (originalGroups != null && isSameTimestamp(originalGroups.get(group.getName()), group.getModified())) {
+                    continue;
+                }
                 processGroup(group);
             }
         }
@@ -1060,6 +1535,8 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         long currentTime = System.currentTimeMillis();
         for (GroupMember member : updMembers) {
 
+            updatePrincipalGroupVersion(member.getMemberName());
+
             // it's possible that initially we skipped the entry because it was
             // disabled or expired so we might have no entries in the map
 
@@ -1123,6 +1600,8 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
 
         for (GroupMember member : newMembers) {
 
+            updatePrincipalGroupVersion(member.getMemberName());
+
             // skip any disabled and expired users
 
             if (AuthzHelper.shouldSkipGroupMember(member, currentTime)) {
@@ -1142,6 +1621,39 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         processGroupDeletedMembers(group.getName(), delMembers);
     }
 
+    void updatePrincipalGroupVersion(final String memberName) {
+
+        // the group memberships of the principal might be used by roles
+        // in any domain so the precomputed principal roles are only
+        // valid for the version of the memberships they were built with
+
+        if (principalRolesCache == null) {
+            return;
+        }
+
+        principalGroupVersions.put(memberName, principalGroupVersionSequence.incrementAndGet());
+
+        // we don't want to keep track of every principal we have ever
+        // seen so once we reach our limit we'll reset all the versions.
+        // the base version used for principals without an entry must
+        // be updated before the entries are removed so any roles
+        // computed with the removed versions are no longer valid
+
+        if (principalGroupVersions.size() > principalGroupVersionsMaxSize) {
+            principalGroupBaseVersion.set(principalGroupVersionSequence.incrementAndGet());
+            principalGroupVersions.clear();
+        }
+    }
+
+    Long getPrincipalGroupVersion(final String memberName) {
+
+        // we must look up the principal entry before the base version
+        // since the base version is updated before the entries are removed
+
+        final Long groupVersion = principalGroupVersions.get(memberName);
+        return groupVersion != null ? groupVersion : principalGroupBaseVersion.get();
+    }
+
     void processGroupDeletedMembers(final String groupName, List<GroupMember> deletedMembers) {
 
         // if the group has no members then we have nothing to do
@@ -1151,6 +1663,7 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         }
 
         for (GroupMember member : deletedMembers) {
+            updatePrincipalGroupVersion(member.getMemberName());
             List<GroupMember> groupMembers = principalGroupCache.getIfPresent(member.getMemberName());
             if (groupMembers == null) {
                 continue;
@@ -1171,6 +1684,10 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
     }
 
     void processDomainPolicies(DomainData domainData, DataCache domainCache) {
+        processDomainPolicies(domainData, domainCache, true);
+    }
+
+    void processDomainPolicies(DomainData domainData, DataCache domainCache, boolean processAssumeRole) {
 
         com.yahoo.athenz.zms.SignedPolicies signedPolicies = domainData.getPolicies();
         if (signedPolicies == null) {
@@ -1200,7 +1717,7 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
                 continue;
             }
 
-            domainCache.processPolicy(domainData.getName(), policy, roleMap);
+            domainCache.processPolicy(domainData.getName(), policy, roleMap, processAssumeRole);
         }
     }
 
@@ -1230,25 +1747,66 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
 
     public void processDomainData(DomainData domainData) {
 
-        // generate our cache object */
+        // first generate the cache object for the domain. this only
+        // updates the domain specific data cache object so it can be
+        // carried out in parallel for multiple domains
 
-        DataCache domainCache = new DataCache();
+        DataCache domainCache = generateDomainCache(domainData);
 
-        // process the roles for this domain */
+        // now update all the caches that are shared across domains
+        // and add the entry to the cache store
 
-        processDomainRoles(domainData, domainCache);
+        try {
+            domainUpdateLock.lock();
 
-        // process the groups for this domain */
+            // process the role cert requirements for this domain
 
-        processDomainGroups(domainData);
+            processDomainRequireRoleCerts(domainData);
 
-        // process the policies for this domain */
+            // process the groups for this domain
 
-        processDomainPolicies(domainData, domainCache);
+            processDomainGroups(domainData);
 
-        // next process the service identities
+            // add the entry to the cache and struct store
 
-        processDomainServiceIdentities(domainData, domainCache);
+            addDomainToCache(domainData.getName(), domainCache);
+
+        } finally {
+            domainUpdateLock.unlock();
+        }
+    }
+
+    DataCache generateDomainCache(DomainData domainData) {
+
+        // if the domain is already in our cache then we'll try to
+        // only process the objects that have been modified
+
+        final String domainName = domainData.getName();
+        DataCache domainCache = null;
+        if (incrementalDomainUpdate) {
+            domainCache = generateIncrementalDomainCache(domainData);
+            if (domainCache == null) {
+                metric.increment("domain_full_update", domainName);
+            }
+        }
+        if (domainCache == null) {
+
+            // generate our cache object
+
+            domainCache = new DataCache();
+
+            // process the roles for this domain
+
+            processDomainRoleMembers(domainData, domainCache);
+
+            // process the policies for this domain
+
+            processDomainPolicies(domainData, domainCache);
+
+            // next process the service identities
+
+            processDomainServiceIdentities(domainData, domainCache);
+        }
 
         // process entities
 
@@ -1264,9 +1822,258 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
 
         domainCache.setDomainData(domainData);
 
-        // add the entry to the cache and struct store
+        // with all the data processed we can now compact our cache
+        // and report its estimated size. the size of the standard map
+        // can only be estimated by walking all its entries so we only
+        // report it when the cache is compacted
+
+        metric.setGauge("domain_member_count", domainName, null, domainCache.getMemberCount());
+        if (compactDataCache) {
+            domainCache.compact();
+            metric.setGauge("domain_member_role_cache_bytes", domainName, null, domainCache.getMemberRoleCacheSize());
+        }
 
-        addDomainToCache(domainData.getName(), domainCache);
+        return domainCache;
+    }
+
+    /**
+     * Generate the cache object for a domain that is already in our cache
+     * by only processing the roles that have been modified. The member role
+     * sets of the unmodified roles are copied from the current cache object.
+     * Policy changes are handled incrementally unless they modify the
+     * assume_role assertions since those add members to the member role
+     * cache. The other policy derived caches (aws roles, launch and
+     * transport rules) are generated again from the policies without
+     * processing any role members, and the services are processed as a
+     * single unit. Each update that requires a full rebuild is reported
+     * with the domain_full_update metric.
+     * @param domainData updated domain data
+     * @return cache object or null if the domain requires a full update
+     */
+    DataCache generateIncrementalDomainCache(DomainData domainData) {
+
+        final String domainName = domainData.getName();
+        DataCache originalCache = getCacheStore().getIfPresent(domainName);
+        if (originalCache == null || originalCache.isCompact()) {
+            return null;
+        }
+
+        // assume_role assertions add members to the member role cache
+        // so we can only carry out incremental updates if the modified
+        // policies do not change the set of assume_role assertions
+
+        DomainData originalData = originalCache.getDomainData();
+        List<com.yahoo.athenz.zms.Policy> originalPolicies = getDomainPolicies(originalData);
+        List<com.yahoo.athenz.zms.Policy> policies = getDomainPolicies(domainData);
+        final boolean samePolicies = isSamePolicies(originalPolicies, policies);
+        if (!samePolicies && !getAssumeRoleAssertions(originalPolicies).equals(getAssumeRoleAssertions(policies))) {
+            return null;
+        }
+
+        // determine the list of modified and deleted roles
+
+        Map<String, Role> originalRoles = new HashMap<>();
+        if (originalData.getRoles() != null) {
+            for (Role role : originalData.getRoles()) {
+                originalRoles.put(role.getName(), role);
+            }
+        }
+
+        List<Role> roles = domainData.getRoles() == null ? Collections.emptyList() : domainData.getRoles();
+        Map<String, Role> modifiedRoles = new HashMap<>();
+        for (Role role : roles) {
+            Role originalRole = originalRoles.remove(role.getName());
+            if (originalRole == null || !isSameTimestamp(originalRole.getModified(), role.getModified())) {
+                modifiedRoles.put(role.getName(), originalRole);
+            }
+        }
+        Collection<Role> deletedRoles = originalRoles.values();
+
+        // if most of the roles have been modified then there is no
+        // benefit in carrying out an incremental update
+
+        final int updateCount = modifiedRoles.size() + deletedRoles.size();
+        if (updateCount * 2 > roles.size()) {
+            return null;
+        }
+
+        // wildcard members are kept in the prefix trie which does not
+        // support removals and the assertions referencing the modified
+        // roles must be processed again so those require a full update
+
+        for (Role role : roles) {
+            if (modifiedRoles.containsKey(role.getName()) &&
+                    (hasWildcardMembers(role) || hasWildcardMembers(modifiedRoles.get(role.getName())))) {
+                return null;
+            }
+        }
+        for (Role role : deletedRoles) {
+            if (hasWildcardMembers(role)) {
+                return null;
+            }
+        }
+        if (updateCount != 0 && isRoleReferencedInPolicies(policies, modifiedRoles.keySet(),
+                originalRoles.keySet(), true)) {
+            return null;
+        }
+
+        DataCache domainCache = new DataCache();
+        domainCache.copyRoleMembers(originalCache);
+
+        for (Role role : roles) {
+            if (modifiedRoles.containsKey(role.getName())) {
+                domainCache.processRoleUpdate(modifiedRoles.get(role.getName()), role);
+            } else {
+                domainCache.processRoleAttributes(role);
+            }
+        }
+        for (Role role : deletedRoles) {
+            domainCache.processRoleUpdate(role, null);
+        }
+
+        // the other policy derived caches include the members of the
+        // referenced roles so they must be generated again if either
+        // the policies or any of the referenced roles were modified
+
+        if (samePolicies && (updateCount == 0 || !isRoleReferencedInPolicies(policies, modifiedRoles.keySet(),
+                originalRoles.keySet(), false))) {
+            domainCache.copyPolicies(originalCache);
+        } else {
+            processDomainPolicies(domainData, domainCache, false);
+        }
+
+        // the services are processed as a single unit
+
+        if (isSameServices(originalData.getServices(), domainData.getServices())) {
+            domainCache.copyServiceIdentities(originalCache);
+        } else {
+            processDomainServiceIdentities(domainData, domainCache);
+        }
+
+        metric.increment("domain_incremental_update", domainName);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Incremental update for domain {} with {} modified roles and {} policies", domainName,
+                    updateCount, samePolicies ? "unmodified" : "modified");
+        }
+        return domainCache;
+    }
+
+    boolean isSameTimestamp(Timestamp originalTime, Timestamp updateTime) {
+        return originalTime != null && originalTime.equals(updateTime);
+    }
+
+    List<com.yahoo.athenz.zms.Policy> getDomainPolicies(DomainData domainData) {
+
+        com.yahoo.athenz.zms.SignedPolicies signedPolicies = domainData.getPolicies();
+        if (signedPolicies == null || signedPolicies.getContents() == null) {
+            return null;
+        }
+        return signedPolicies.getContents().getPolicies();
+    }
+
+    boolean isSamePolicies(List<com.yahoo.athenz.zms.Policy> originalPolicies,
+            List<com.yahoo.athenz.zms.Policy> policies) {
+
+        if (originalPolicies == null || policies == null) {
+            return originalPolicies == policies;
+        }
+        if (originalPolicies.size() != policies.size()) {
+            return false;
+        }
+
+        Map<String, com.yahoo.athenz.zms.Policy> policyMap = new HashMap<>();
+        for (com.yahoo.athenz.zms.Policy policy : originalPolicies) {
+            policyMap.put(policy.getName() + ":" + policy.getVersion(), policy);
+        }
+        for (com.yahoo.athenz.zms.Policy policy : policies) {
+            com.yahoo.athenz.zms.Policy originalPolicy = policyMap.get(policy.getName() + ":" + policy.getVersion());
+            if (originalPolicy == null || !isSameTimestamp(originalPolicy.getModified(), policy.getModified())
+                    || !Objects.equals(originalPolicy.getActive(), policy.getActive())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Set<String> getAssumeRoleAssertions(List<com.yahoo.athenz.zms.Policy> policies) {
+
+        // only the active policies and assertions that are not denied
+        // are processed when generating the member role cache
+
+        Set<String> assertions = new HashSet<>();
+        if (policies == null) {
+            return assertions;
+        }
+        for (com.yahoo.athenz.zms.Policy policy : policies) {
+            if (policy.getActive() == Boolean.FALSE || policy.getAssertions() == null) {
+                continue;
+            }
+            for (com.yahoo.athenz.zms.Assertion assertion : policy.getAssertions()) {
+                if (DataCache.ACTION_ASSUME_ROLE.equals(assertion.getAction())
+                        && assertion.getEffect() != com.yahoo.athenz.zms.AssertionEffect.DENY) {
+                    assertions.add(assertion.getRole() + "|" + assertion.getResource());
+                }
+            }
+        }
+        return assertions;
+    }
+
+    boolean isSameServices(List<ServiceIdentity> originalServices, List<ServiceIdentity> services) {
+
+        if (originalServices == null || services == null) {
+            return originalServices == services;
+        }
+        if (originalServices.size() != services.size()) {
+            return false;
+        }
+
+        Map<String, Timestamp> serviceMap = new HashMap<>();
+        for (ServiceIdentity service : originalServices) {
+            serviceMap.put(service.getName(), service.getModified());
+        }
+        for (ServiceIdentity service : services) {
+            if (!isSameTimestamp(serviceMap.get(service.getName()), service.getModified())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean hasWildcardMembers(Role role) {
+
+        if (role == null || role.getRoleMembers() == null) {
+            return false;
+        }
+        for (RoleMember roleMember : role.getRoleMembers()) {
+            if (roleMember.getMemberName().endsWith("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isRoleReferencedInPolicies(List<com.yahoo.athenz.zms.Policy> policies, Set<String> modifiedRoles,
+            Set<String> deletedRoles, boolean assumeRoleOnly) {
+
+        if (policies == null) {
+            return false;
+        }
+        for (com.yahoo.athenz.zms.Policy policy : policies) {
+            if (policy.getAssertions() == null) {
+                continue;
+            }
+            for (com.yahoo.athenz.zms.Assertion assertion : policy.getAssertions()) {
+                if (assumeRoleOnly && !DataCache.ACTION_ASSUME_ROLE.equals(assertion.getAction())) {
+                    continue;
+                }
+                if (modifiedRoles.contains(assertion.getRole()) || deletedRoles.contains(assertion.getRole())
+                        || modifiedRoles.contains(assertion.getResource())
+                        || deletedRoles.contains(assertion.getResource())) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     private void processSystemBehaviorRoles(DomainData domainData, DataCache domainCache) {
@@ -1424,8 +2231,11 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         }
 
         for (Map.Entry<String, Set<String>> entry : hostMap.entrySet()) {
-            List<String> services = hostCache.computeIfAbsent(entry.getKey(), k -> new ArrayList<>());
-            services.addAll(entry.getValue());
+            hostCache.compute(entry.getKey(), (host, services) -> {
+                List<String> newServices = (services == null) ? new ArrayList<>() : new ArrayList<>(services);
+                newServices.addAll(entry.getValue());
+                return newServices;
+            });
         }
     }
 
@@ -1437,10 +2247,14 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         }
 
         for (Map.Entry<String, Set<String>> entry : hostMap.entrySet()) {
-            List<String> services = hostCache.get(entry.getKey());
-            if (services != null) {
-                services.removeAll(entry.getValue());
-            }
+            hostCache.compute(entry.getKey(), (host, services) -> {
+                if (services == null) {
+                    return null;
+                }
+                List<String> newServices = new ArrayList<>(services);
+                newServices.removeAll(entry.getValue());
+                return newServices;
+            });
         }
     }
 
@@ -1451,7 +2265,9 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
             return;
         }
 
-        publicKeyCache.putAll(publicKeyMap);
+        for (Map.Entry<String, String> entry : publicKeyMap.entrySet()) {
+            publicKeyCache.put(entry.getKey(), entry.getValue());
+        }
     }
 
     // Internal
@@ -1461,10 +2277,64 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
             return;
         }
 
+        // the parsed public keys are invalidated only after the removal
+        // is applied otherwise a request could load the key again
+        // from the current index
+
+        for (String publicKeyName : publicKeyMap.keySet()) {
+            invalidatedPublicKeys.add(publicKeyName);
+            publicKeyCache.remove(publicKeyName);
+        }
+    }
+
+    void invalidateServicePublicKeys() {
+        for (String publicKeyName : invalidatedPublicKeys) {
+            invalidatedPublicKeys.remove(publicKeyName);
+            svcPublicKeyCache.invalidate(publicKeyName);
+        }
+    }
+
+    // Internal
+    Map<String, Set<String>> getHostEntriesDelta(Map<String, Set<String>> hostMap,
+            Map<String, Set<String>> excludeHostMap) {
+
+        // return the host entries that are not present in the exclude map
+
+        if (hostMap == null || excludeHostMap == null || excludeHostMap.isEmpty()) {
+            return hostMap;
+        }
+
+        Map<String, Set<String>> deltaMap = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : hostMap.entrySet()) {
+            Set<String> excludeServices = excludeHostMap.get(entry.getKey());
+            if (excludeServices == null) {
+                deltaMap.put(entry.getKey(), entry.getValue());
+            } else if (!excludeServices.containsAll(entry.getValue())) {
+                Set<String> services = new HashSet<>(entry.getValue());
+                services.removeAll(excludeServices);
+                deltaMap.put(entry.getKey(), services);
+            }
+        }
+        return deltaMap;
+    }
+
+    // Internal
+    Map<String, String> getPublicKeysDelta(Map<String, String> publicKeyMap, Map<String, String> excludeKeyMap) {
+
+        // return the public keys that are not present in the
+        // exclude map or have a different value
+
+        if (publicKeyMap == null || excludeKeyMap == null || excludeKeyMap.isEmpty()) {
+            return publicKeyMap;
+        }
+
+        Map<String, String> deltaMap = new HashMap<>();
         for (Map.Entry<String, String> entry : publicKeyMap.entrySet()) {
-            publicKeyCache.remove(entry.getKey());
-            svcPublicKeyCache.invalidate(entry.getKey());
+            if (!entry.getValue().equals(excludeKeyMap.get(entry.getKey()))) {
+                deltaMap.put(entry.getKey(), entry.getValue());
+            }
         }
+        return deltaMap;
     }
 
     // Internal
@@ -1475,24 +2345,34 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
 
         DataCache oldDataCache = getCacheStore().getIfPresent(name);
 
-        try {
-            hostWLock.lock();
-            if (oldDataCache != null) {
-                removeHostEntries(oldDataCache.getHostMap());
+        // we only update the entries that have changed so the public
+        // keys that are not modified stay in our public key cache
+
+        // the removes and adds are published as a single batch so
+        // the readers never see the intermediate state
+
+        Map<String, Set<String>> oldHostMap = oldDataCache == null ? null : oldDataCache.getHostMap();
+        Map<String, Set<String>> newHostMap = dataCache.getHostMap();
+        if (!Objects.equals(oldHostMap, newHostMap)) {
+            try {
+                hostCache.beginBatch();
+                removeHostEntries(getHostEntriesDelta(oldHostMap, newHostMap));
+                addHostEntries(getHostEntriesDelta(newHostMap, oldHostMap));
+            } finally {
+                hostCache.endBatch();
             }
-            addHostEntries(dataCache.getHostMap());
-        } finally {
-            hostWLock.unlock();
         }
 
-        try {
-            pkeyWLock.lock();
-            if (oldDataCache != null) {
-                removePublicKeys(oldDataCache.getPublicKeyMap());
+        Map<String, String> oldPublicKeyMap = oldDataCache == null ? null : oldDataCache.getPublicKeyMap();
+        Map<String, String> newPublicKeyMap = dataCache.getPublicKeyMap();
+        if (!Objects.equals(oldPublicKeyMap, newPublicKeyMap)) {
+            try {
+                publicKeyCache.beginBatch();
+                removePublicKeys(getPublicKeysDelta(oldPublicKeyMap, newPublicKeyMap));
+                addPublicKeys(getPublicKeysDelta(newPublicKeyMap, oldPublicKeyMap));
+            } finally {
+                publicKeyCache.endBatch();
             }
-            addPublicKeys(dataCache.getPublicKeyMap());
-        } finally {
-            pkeyWLock.unlock();
         }
 
         /* now let's see if we have a cloud account defined
@@ -1515,26 +2395,33 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         /* before we delete the domain from our cache, we need to
          * remove the old data host and public key sets */
 
-        DataCache data = getCacheStore().getIfPresent(name);
-        if (data == null) {
-            return;
-        }
-
         try {
-            hostWLock.lock();
-            removeHostEntries(data.getHostMap());
-        } finally {
-            hostWLock.unlock();
-        }
+            domainUpdateLock.lock();
+
+            DataCache data = getCacheStore().getIfPresent(name);
+            if (data == null) {
+                return;
+            }
+
+            try {
+                hostCache.beginBatch();
+                removeHostEntries(data.getHostMap());
+            } finally {
+                hostCache.endBatch();
+            }
+
+            try {
+                publicKeyCache.beginBatch();
+                removePublicKeys(data.getPublicKeyMap());
+            } finally {
+                publicKeyCache.endBatch();
+            }
+
+            getCacheStore().invalidate(name);
 
-        try {
-            pkeyWLock.lock();
-            removePublicKeys(data.getPublicKeyMap());
         } finally {
-            pkeyWLock.unlock();
+            domainUpdateLock.unlock();
         }
-
-        getCacheStore().invalidate(name);
     }
 
     // Internal
@@ -1709,6 +2596,20 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
 
         final String rolePrefix = domainName + ROLE_POSTFIX;
 
+        // if we have the principal roles cache enabled then we'll
+        // process the request based on the precomputed role set
+
+        if (principalRolesCache != null) {
+            PrincipalRoles principalRoles = getPrincipalRoles(data, domainName, identity);
+            for (String role : principalRoles.memberRoles) {
+                addRoleToList(role, rolePrefix, requestedRoleList, fullNameMatch, accessibleRoles, keepFullName);
+            }
+            for (String role : principalRoles.indirectRoles) {
+                addRoleToList(role, rolePrefix, requestedRoleList, false, accessibleRoles, keepFullName);
+            }
+            return;
+        }
+
         /* first look through the members to see if the given identity is
          * included in the list explicitly */
 
@@ -1721,17 +2622,12 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         processStandardMembership(data.getAllMemberRoleSet(),
                 rolePrefix, requestedRoleList, fullNameMatch, accessibleRoles, keepFullName);
 
-        /* then look at the prefix wildcard roles. in this map
-         * we only process those where the key in the map is
-         * a prefix of our identity */
+        /* then look at the prefix wildcard roles. the cache
+         * only returns those where the configured prefix
+         * is a prefix of our identity */
 
-        Map<String, Set<MemberRole>> roleSetMap = data.getPrefixMemberRoleSetMap();
-        for (String identityPrefix : roleSetMap.keySet()) {
-            if (identity.startsWith(identityPrefix)) {
-                processStandardMembership(roleSetMap.get(identityPrefix),
-                        rolePrefix, requestedRoleList, fullNameMatch, accessibleRoles, keepFullName);
-            }
-        }
+        processStandardMembership(data.getPrefixMemberRoleSet(identity),
+                rolePrefix, requestedRoleList, fullNameMatch, accessibleRoles, keepFullName);
 
         // now process our group membership
 
@@ -1743,6 +2639,156 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
                 accessibleRoles, keepFullName);
     }
 
+    PrincipalRoles getPrincipalRoles(DataCache data, final String domainName, final String identity) {
+
+        // we need to obtain the group version before looking up the entry
+        // so any group updates carried out while we're building the roles
+        // will invalidate the entry that we're going to add. the trusted
+        // domains are recorded with the data cache objects we consult
+
+        final Long groupVersion = getPrincipalGroupVersion(identity);
+        final String cacheKey = domainName + ":" + identity;
+
+        PrincipalRoles principalRoles = principalRolesCache.getIfPresent(cacheKey);
+        if (principalRoles != null && principalRoles.isValid(data, groupVersion, getCacheStore()::getIfPresent,
+                System.currentTimeMillis())) {
+            metric.increment("principal_roles_cache_hit", domainName);
+            return principalRoles;
+        }
+        metric.increment("principal_roles_cache_miss", domainName);
+
+        principalRoles = generatePrincipalRoles(data, domainName, identity, groupVersion);
+        principalRolesCache.put(cacheKey, principalRoles);
+        return principalRoles;
+    }
+
+    PrincipalRoles generatePrincipalRoles(DataCache data, final String domainName, final String identity,
+            Long groupVersion) {
+
+        // we follow the same steps as in getAccessibleRoles but without
+        // any requested roles and keep track of the earliest expiration
+        // of all the memberships that granted access to our roles
+
+        final String rolePrefix = domainName + ROLE_POSTFIX;
+        final long currentTime = System.currentTimeMillis();
+        PrincipalRoles principalRoles = new PrincipalRoles(data, groupVersion);
+
+        collectMemberRoles(data.getMemberRoleSet(identity), rolePrefix, principalRoles,
+                principalRoles.memberRoles, currentTime);
+        collectMemberRoles(data.getAllMemberRoleSet(), rolePrefix, principalRoles,
+                principalRoles.memberRoles, currentTime);
+        collectMemberRoles(data.getPrefixMemberRoleSet(identity), rolePrefix, principalRoles,
+                principalRoles.memberRoles, currentTime);
+        collectGroupRoles(data, identity, rolePrefix, null, principalRoles, currentTime);
+
+        for (Map.Entry<String, Set<String>> trustedRole : data.getTrustMap().entrySet()) {
+
+            DataCache trustData = getCacheStore().getIfPresent(trustedRole.getKey());
+            principalRoles.addTrustDomain(trustedRole.getKey(), trustData);
+            final Set<String> trustedResources = trustedRole.getValue();
+            if (trustData == null || trustedResources == null) {
+                continue;
+            }
+
+            collectTrustedRoles(trustData.getMemberRoleSet(identity), rolePrefix, trustedResources,
+                    principalRoles, currentTime);
+            collectTrustedRoles(trustData.getAllMemberRoleSet(), rolePrefix, trustedResources,
+                    principalRoles, currentTime);
+            collectTrustedRoles(trustData.getPrefixMemberRoleSet(identity), rolePrefix, trustedResources,
+                    principalRoles, currentTime);
+            collectGroupRoles(trustData, identity, rolePrefix, trustedResources, principalRoles, currentTime);
+        }
+
+        return principalRoles;
+    }
+
+    void collectMemberRoles(Set<MemberRole> memberRoles, final String rolePrefix, PrincipalRoles principalRoles,
+            Set<String> roles, long currentTime) {
+
+        if (memberRoles == null) {
+            return;
+        }
+
+        for (MemberRole memberRole : memberRoles) {
+
+            long expiration = memberRole.getExpiration();
+            if (expiration != 0 && expiration < currentTime) {
+                continue;
+            }
+
+            final String role = memberRole.getRole();
+            if (role.startsWith(rolePrefix)) {
+                roles.add(role);
+                principalRoles.updateExpiration(expiration);
+            }
+        }
+    }
+
+    void collectTrustedRoles(Set<MemberRole> memberRoles, final String rolePrefix, Set<String> trustedResources,
+            PrincipalRoles principalRoles, long currentTime) {
+
+        if (memberRoles == null || memberRoles.isEmpty()) {
+            return;
+        }
+
+        for (String resource : trustedResources) {
+
+            if (!resource.startsWith(rolePrefix)) {
+                continue;
+            }
+
+            for (MemberRole memberRole : memberRoles) {
+
+                long expiration = memberRole.getExpiration();
+                if (expiration != 0 && expiration < currentTime) {
+                    continue;
+                }
+
+                if (memberRole.roleMatches(resource)) {
+                    principalRoles.indirectRoles.add(resource);
+                    principalRoles.updateExpiration(expiration);
+                    break;
+                }
+            }
+        }
+    }
+
+    void collectGroupRoles(DataCache data, final String identity, final String rolePrefix,
+            Set<String> trustedResources, PrincipalRoles principalRoles, long currentTime) {
+
+        List<GroupMember> groupMembers = principalGroupCache.getIfPresent(identity);
+        if (groupMembers == null || groupMembers.isEmpty()) {
+            return;
+        }
+
+        for (GroupMember member : groupMembers) {
+
+            if (AuthzHelper.isMemberExpired(member.getExpiration(), currentTime)) {
+                continue;
+            }
+
+            final Set<MemberRole> groupMemberRoleSet = data.getMemberRoleSet(member.getGroupName());
+            if (groupMemberRoleSet == null) {
+                continue;
+            }
+
+            // the group membership expiration applies to all the roles
+            // that we obtain through this group so we'll track it
+            // even if the group doesn't grant any roles in our domain
+
+            if (member.getExpiration() != null) {
+                principalRoles.updateExpiration(member.getExpiration().millis());
+            }
+
+            if (trustedResources == null) {
+                collectMemberRoles(groupMemberRoleSet, rolePrefix, principalRoles,
+                        principalRoles.indirectRoles, currentTime);
+            } else {
+                collectTrustedRoles(groupMemberRoleSet, rolePrefix, trustedResources, principalRoles, currentTime);
+            }
+        }
+    }
+
     // Internal
     boolean checkRoleSet(String role, Set<String> checkSet) {
 
@@ -1800,7 +2846,6 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
     // Internal
     boolean roleMatchInSet(String role, Set<MemberRole> memberRoles) {
 
-        String rolePattern;
         long currentTime = System.currentTimeMillis();
         for (MemberRole memberRole : memberRoles) {
 
@@ -1812,19 +2857,12 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
                 continue;
             }
 
-            // if the role does not contain any of our pattern
-            // characters then we can just a regular compare
+            // the member role includes a precompiled matcher if the
+            // role contains any of our pattern characters, otherwise
+            // it will just carry out a regular compare
 
-            final String roleName = memberRole.getRole();
-            if (StringUtils.containsMatchCharacter(roleName)) {
-                rolePattern = StringUtils.patternFromGlob(roleName);
-                if (role.matches(rolePattern)) {
-                    return true;
-                }
-            } else {
-                if (role.equals(roleName)) {
-                    return true;
-                }
+            if (memberRole.roleMatches(role)) {
+                return true;
             }
         }
 
@@ -1892,18 +2930,15 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
          * but we need to first confirm that our identity
          * matches to member before processing it */
 
-        Map<String, Set<MemberRole>> roleSetMap = trustData.getPrefixMemberRoleSetMap();
-        for (String identityPrefix : roleSetMap.keySet()) {
-            if (identity.startsWith(identityPrefix)) {
+        memberRoles = trustData.getPrefixMemberRoleSet(identity);
+        if (!memberRoles.isEmpty()) {
 
-                memberRoles = roleSetMap.get(identityPrefix);
-                for (String resource : trustedResources) {
+            for (String resource : trustedResources) {
 
-                    /* in this case our resource is the role name */
+                /* in this case our resource is the role name */
 
-                    processSingleTrustedDomainRole(resource, rolePrefix, requestedRoleList,
-                            memberRoles, accessibleRoles, keepFullName);
-                }
+                processSingleTrustedDomainRole(resource, rolePrefix, requestedRoleList,
+                        memberRoles, accessibleRoles, keepFullName);
             }
         }
 
@@ -1931,11 +2966,24 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
             return null;
         }
 
+        // check if we have already parsed the same pem key before
+        // the service public key cache entry was invalidated
+
+        final String pemKeyHash = generatePemKeyHash(pemKey);
+        publicKey = pemPublicKeyCache.getIfPresent(pemKeyHash);
+        if (publicKey != null) {
+            metric.increment("pem_public_key_cache_hit", domain);
+            svcPublicKeyCache.put(publicKeyName, publicKey);
+            return publicKey;
+        }
+        metric.increment("pem_public_key_cache_miss", domain);
+
         // convert the pem key to public key object
 
         try {
             publicKey = Crypto.loadPublicKey(pemKey);
             if (publicKey != null) {
+                pemPublicKeyCache.put(pemKeyHash, publicKey);
                 svcPublicKeyCache.put(publicKeyName, publicKey);
             }
             return publicKey;
@@ -1946,6 +2994,10 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         }
     }
 
+    String generatePemKeyHash(final String pemKey) {
+        return Base64.getEncoder().encodeToString(Crypto.sha256(pemKey));
+    }
+
     public String getServiceClientId(final String domainName, final String serviceName) {
 
         // get the domain object from our cache
@@ -1958,16 +3010,7 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
     }
 
     public String getPemPublicKey(final String publicKeyName) {
-
-        String publicKey;
-        try {
-            pkeyRLock.lock();
-            publicKey = publicKeyCache.get(publicKeyName);
-        } finally {
-            pkeyRLock.unlock();
-        }
-
-        return publicKey;
+        return publicKeyCache.get(publicKeyName);
     }
 
     // API
@@ -1988,19 +3031,12 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
 
         HostServices result = new HostServices().setHost(host);
 
-        try {
-            hostRLock.lock();
-
-            /* we need to make a copy of our list as opposed to just returning
-             * a reference since once we release the host read lock that list
-             * can be modified by the updater thread */
+        /* the lists in our host index are never modified once published
+         * but we still return a copy since the caller owns the result */
 
-            List<String> services = hostCache.get(host);
-            if (services != null) {
-                result.setNames(new ArrayList<>(services));
-            }
-        } finally {
-            hostRLock.unlock();
+        List<String> services = hostCache.get(host);
+        if (services != null) {
+            result.setNames(new ArrayList<>(services));
         }
 
         return result;
@@ -2065,7 +3101,7 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
         return cacheStore;
     }
 
-    public Map<String, String> getPublicKeyCache() {
+    public BatchedUpdateIndex<String> getPublicKeyCache() {
         return publicKeyCache;
     }
 
@@ -2146,6 +3182,19 @@ public class DataStore implements DataCacheProvider, RolesProvider, PubKeysProvi
                 LOGGER.debug("DataUpdater: Starting data updater thread...");
             }
 
+            // all host and public key changes during this refresh
+            // cycle are published together at the end of the cycle
+
+            try {
+                beginIndexBatch();
+                runUpdates();
+            } finally {
+                endIndexBatch();
+            }
+        }
+
+        void runUpdates() {
+
             try {
                 processDomainUpdates();
             } catch (Throwable t) {
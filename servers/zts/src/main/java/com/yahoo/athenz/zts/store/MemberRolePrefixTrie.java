@@ -0,0 +1,112 @@
+/*
+ *
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.zts.store;
+
+import com.yahoo.athenz.zts.cache.MemberRole;
+
+import java.util.*;
+
+/**
+ * Character based prefix trie for member roles where the member name
+ * is specified with a trailing wildcard (e.g. user.* or sports.api*).
+ * The prefix is the member name without the trailing * character, and
+ * a lookup returns the member roles for all prefixes of the given
+ * principal name so the cost is O(length of principal) as opposed
+ * to O(number of prefixes) when scanning all configured prefixes.
+ * The trie is populated when the domain data cache is generated,
+ * and it is only read after it's been published, so unlike
+ * RolePrefixTrie it does not require any locking.
+ */
+public class MemberRolePrefixTrie implements PrefixTrie<MemberRole> {
+
+    private final TrieNode root = new TrieNode();
+
+    private static class TrieNode {
+        private final HashMap<Character, TrieNode> children = new HashMap<>();
+        private Set<MemberRole> memberRoles = null;
+    }
+
+    @Override
+    public void insert(String prefix, MemberRole value) {
+        TrieNode current = root;
+        final int length = prefix.length();
+        for (int i = 0; i < length; i++) {
+            current = current.children.computeIfAbsent(prefix.charAt(i), c -> new TrieNode());
+        }
+        if (current.memberRoles == null) {
+            current.memberRoles = new HashSet<>();
+        }
+        current.memberRoles.add(value);
+    }
+
+    @Override
+    public void delete(String prefix, MemberRole value) {
+        delete(root, prefix, value, 0);
+    }
+
+    private boolean delete(TrieNode current, final String prefix, MemberRole value, int index) {
+        if (index == prefix.length()) {
+            if (current.memberRoles != null) {
+                current.memberRoles.remove(value);
+                if (current.memberRoles.isEmpty()) {
+                    current.memberRoles = null;
+                }
+            }
+            return current.memberRoles == null && current.children.isEmpty();
+        }
+        final Character c = prefix.charAt(index);
+        TrieNode node = current.children.get(c);
+        if (node == null) {
+            return false;
+        }
+        if (delete(node, prefix, value, index + 1)) {
+            current.children.remove(c);
+            return current.memberRoles == null && current.children.isEmpty();
+        }
+        return false;
+    }
+
+    @Override
+    public Set<MemberRole> findMatchingValues(String text) {
+        Set<MemberRole> memberRoles = new HashSet<>();
+        TrieNode current = root;
+        final int length = text.length();
+        for (int i = 0; ; i++) {
+            if (current.memberRoles != null) {
+                memberRoles.addAll(current.memberRoles);
+            }
+            if (i == length) {
+                break;
+            }
+            current = current.children.get(text.charAt(i));
+            if (current == null) {
+                break;
+            }
+        }
+        return memberRoles;
+    }
+
+    /**
+     * Check if the trie has no entries
+     * @return true if no prefixes have been registered
+     */
+    public boolean isEmpty() {
+        return root.memberRoles == null && root.children.isEmpty();
+    }
+}
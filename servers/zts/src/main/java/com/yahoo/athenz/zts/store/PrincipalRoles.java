@@ -0,0 +1,81 @@
+/*
+ *
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.zts.store;
+
+import com.yahoo.athenz.zts.cache.DataCache;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Precomputed set of roles that a principal has access to in a given
+ * domain. The roles obtained through direct, wildcard and prefix members
+ * are kept separately from the roles obtained through group membership
+ * and trusted domains since the latter are never matched against the
+ * requested role names using the full name match. The entry is only
+ * valid for the data cache objects of the domain and the trusted domains
+ * that were consulted to build it, for the version of the principal's
+ * group memberships and until the earliest expiration of the memberships
+ * that were used to build it.
+ */
+class PrincipalRoles {
+
+    final DataCache dataCache;
+    final Long groupVersion;
+    final Map<String, DataCache> trustDomains = new HashMap<>();
+    final Set<String> memberRoles = new HashSet<>();
+    final Set<String> indirectRoles = new HashSet<>();
+    long expiration = 0;
+
+    PrincipalRoles(DataCache dataCache, Long groupVersion) {
+        this.dataCache = dataCache;
+        this.groupVersion = groupVersion;
+    }
+
+    void updateExpiration(long memberExpiration) {
+        if (memberExpiration != 0 && (expiration == 0 || memberExpiration < expiration)) {
+            expiration = memberExpiration;
+        }
+    }
+
+    // the trust domain data cache is null if the domain was
+    // not available when the entry was built
+
+    void addTrustDomain(final String domainName, DataCache trustData) {
+        trustDomains.put(domainName, trustData);
+    }
+
+    boolean isValid(DataCache data, Long currentGroupVersion, Function<String, DataCache> dataCacheGetter,
+            long currentTime) {
+
+        if (dataCache != data || !Objects.equals(groupVersion, currentGroupVersion)) {
+            return false;
+        }
+        for (Map.Entry<String, DataCache> trustDomain : trustDomains.entrySet()) {
+            if (dataCacheGetter.apply(trustDomain.getKey()) != trustDomain.getValue()) {
+                return false;
+            }
+        }
+        return expiration == 0 || expiration >= currentTime;
+    }
+}
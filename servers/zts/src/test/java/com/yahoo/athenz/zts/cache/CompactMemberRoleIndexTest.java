@@ -0,0 +1,164 @@
+/*
+ * Copyright The Athenz Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cache;
+
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class CompactMemberRoleIndexTest {
+
+    private Map<String, Set<MemberRole>> generateMemberRoleMap() {
+
+        Map<String, Set<MemberRole>> memberRoleMap = new HashMap<>();
+        memberRoleMap.put("user.joe", new HashSet<>(Arrays.asList(new MemberRole("coretech:role.readers", 0),
+                new MemberRole("coretech:role.writers", 1000))));
+        memberRoleMap.put("user.jane", new HashSet<>(Collections.singletonList(
+                new MemberRole("coretech:role.readers", 0))));
+        memberRoleMap.put("user.john", new HashSet<>(Arrays.asList(new MemberRole("coretech:role.writers", 1000),
+                new MemberRole("coretech:role.writers", 2000), new MemberRole("coretech:role.*", 0))));
+        memberRoleMap.put("user.empty", new HashSet<>());
+        return memberRoleMap;
+    }
+
+    @Test
+    public void testGetMemberRoleSet() {
+
+        Map<String, Set<MemberRole>> memberRoleMap = generateMemberRoleMap();
+        CompactMemberRoleIndex index = new CompactMemberRoleIndex(memberRoleMap);
+
+        assertEquals(index.getMemberCount(), 4);
+        assertEquals(index.getMemberRoleCount(), 4);
+
+        for (Map.Entry<String, Set<MemberRole>> entry : memberRoleMap.entrySet()) {
+            Set<MemberRole> roles = index.getMemberRoleSet(entry.getKey());
+            assertNotNull(roles);
+            assertEquals(roles, entry.getValue());
+            assertEquals(roles.size(), entry.getValue().size());
+        }
+
+        assertNull(index.getMemberRoleSet("user.unknown"));
+        assertTrue(index.getMemberRoleSet("user.empty").isEmpty());
+
+        // glob role names must still be matched
+
+        boolean globMatch = false;
+        for (MemberRole memberRole : index.getMemberRoleSet("user.john")) {
+            if (memberRole.getRole().equals("coretech:role.*")) {
+                assertTrue(memberRole.roleMatches("coretech:role.admin"));
+                globMatch = true;
+            }
+        }
+        assertTrue(globMatch);
+    }
+
+    @Test
+    public void testSharedMemberRoles() {
+
+        CompactMemberRoleIndex index = new CompactMemberRoleIndex(generateMemberRoleMap());
+
+        MemberRole joeReaders = null;
+        for (MemberRole memberRole : index.getMemberRoleSet("user.joe")) {
+            if (memberRole.getExpiration() == 0) {
+                joeReaders = memberRole;
+            }
+        }
+        MemberRole janeReaders = index.getMemberRoleSet("user.jane").iterator().next();
+        assertNotNull(joeReaders);
+        assertSame(joeReaders, janeReaders);
+    }
+
+    @Test
+    public void testIteratorNoSuchElement() {
+
+        CompactMemberRoleIndex index = new CompactMemberRoleIndex(generateMemberRoleMap());
+        Iterator<MemberRole> iterator = index.getMemberRoleSet("user.jane").iterator();
+        assertTrue(iterator.hasNext());
+        assertNotNull(iterator.next());
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail();
+        } catch (NoSuchElementException ignored) {
+        }
+    }
+
+    @Test
+    public void testReadOnlySet() {
+
+        CompactMemberRoleIndex index = new CompactMemberRoleIndex(generateMemberRoleMap());
+        Set<MemberRole> roles = index.getMemberRoleSet("user.joe");
+        try {
+            roles.add(new MemberRole("coretech:role.admins", 0));
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    @Test
+    public void testEmptyIndex() {
+
+        CompactMemberRoleIndex index = new CompactMemberRoleIndex(new HashMap<>());
+        assertEquals(index.getMemberCount(), 0);
+        assertNull(index.getMemberRoleSet("user.joe"));
+        assertTrue(index.getEstimatedHeapSize() > 0);
+        assertEquals(CompactMemberRoleIndex.getEstimatedHeapSize(new HashMap<>()), CompactMemberRoleIndex.HASH_MAP_SIZE);
+    }
+
+    @Test
+    public void testEstimatedHeapSize() {
+
+        // generate a map where members share the same set of roles
+        // which is the typical case for large domains
+
+        Map<String, Set<MemberRole>> memberRoleMap = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            Set<MemberRole> roles = new HashSet<>();
+            for (int j = 0; j < 5; j++) {
+                roles.add(new MemberRole("coretech:role.role" + ((i + j) % 10), 0));
+            }
+            memberRoleMap.put("user.user" + i, roles);
+        }
+
+        CompactMemberRoleIndex index = new CompactMemberRoleIndex(memberRoleMap);
+        assertEquals(index.getMemberRoleCount(), 10);
+        assertTrue(index.getEstimatedHeapSize() * 5 < CompactMemberRoleIndex.getEstimatedHeapSize(memberRoleMap));
+    }
+
+    @Test
+    public void testArraySizes() {
+        assertEquals(CompactMemberRoleIndex.align(17), 24);
+        assertEquals(CompactMemberRoleIndex.align(24), 24);
+        assertEquals(CompactMemberRoleIndex.arraySize(0, 4), 16);
+        assertEquals(CompactMemberRoleIndex.arraySize(3, 4), 32);
+        assertEquals(CompactMemberRoleIndex.hashTableSize(0), 0);
+        assertEquals(CompactMemberRoleIndex.hashTableSize(1), 80);
+        assertEquals(CompactMemberRoleIndex.hashTableSize(100), CompactMemberRoleIndex.arraySize(256, 4));
+    }
+
+    @Test
+    public void testSymbolTable() {
+
+        assertNull(SymbolTable.intern(null));
+
+        final String value1 = new String("user.joe".toCharArray());
+        final String value2 = new String("user.joe".toCharArray());
+        assertNotSame(value1, value2);
+        assertSame(SymbolTable.intern(value1), SymbolTable.intern(value2));
+    }
+}
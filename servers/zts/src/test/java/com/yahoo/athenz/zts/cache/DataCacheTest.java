@@ -26,7 +26,10 @@ import com.yahoo.athenz.zms.Assertion;
 import com.yahoo.athenz.zms.AssertionEffect;
 import com.yahoo.athenz.zms.Domain;
 import com.yahoo.athenz.zms.DomainData;
+import com.yahoo.athenz.zms.Group;
+import com.yahoo.athenz.zms.GroupMember;
 import com.yahoo.athenz.zms.Policy;
+import com.yahoo.athenz.zms.PublicKeyEntry;
 import com.yahoo.athenz.zms.Role;
 import com.yahoo.athenz.zms.RoleMember;
 import com.yahoo.athenz.zms.ServiceIdentity;
@@ -171,6 +174,189 @@ public class DataCacheTest {
         assertEquals(map.size(), 0);
     }
 
+    @Test
+    public void testProcessRoleUpdate() {
+
+        Role role1 = new Role().setName("dom:role.role1").setTrust("weather");
+        role1.setRoleMembers(new ArrayList<>(Arrays.asList(new RoleMember().setMemberName("user_domain.user1"),
+                new RoleMember().setMemberName("user_domain.user2"))));
+        Role role2 = new Role().setName("dom:role.role2");
+        role2.setRoleMembers(new ArrayList<>(Arrays.asList(new RoleMember().setMemberName("user_domain.user1"),
+                new RoleMember().setMemberName("user_domain.user3"))));
+
+        DataCache original = new DataCache();
+        original.processRole(role1);
+        original.processRole(role2);
+        original.setDomainData(new DomainData().setName("dom"));
+
+        // update role2 by replacing user3 with user4
+
+        Role updRole2 = new Role().setName("dom:role.role2");
+        updRole2.setRoleMembers(new ArrayList<>(Arrays.asList(new RoleMember().setMemberName("user_domain.user1"),
+                new RoleMember().setMemberName("user_domain.user4"))));
+
+        DataCache cache = new DataCache();
+        cache.copyRoleMembers(original);
+        cache.processRoleAttributes(role1);
+        cache.processRoleUpdate(role2, updRole2);
+        cache.processRoleUpdate(null, null);
+        cache.setDomainData(new DomainData().setName("dom"));
+
+        assertEquals(cache.getMemberCount(), 3);
+        assertEquals(cache.getMemberRoleSet("user_domain.user1").size(), 2);
+        assertNull(cache.getMemberRoleSet("user_domain.user3"));
+        assertTrue(cache.getMemberRoleSet("user_domain.user4").contains(new MemberRole("dom:role.role2", 0)));
+        assertSame(cache.getMemberRoleSet("user_domain.user2"), original.getMemberRoleSet("user_domain.user2"));
+        assertNotSame(cache.getMemberRoleSet("user_domain.user1"), original.getMemberRoleSet("user_domain.user1"));
+        assertTrue(cache.getTrustMap().get("weather").contains("dom:role.role1"));
+        assertNotNull(cache.getRoleMeta("role1"));
+
+        // the original object is not modified
+
+        assertEquals(original.getMemberCount(), 3);
+        assertNotNull(original.getMemberRoleSet("user_domain.user3"));
+        assertNull(original.getMemberRoleSet("user_domain.user4"));
+
+        // delete role1 which removes user2 completely
+
+        DataCache cache2 = new DataCache();
+        cache2.copyRoleMembers(cache);
+        cache2.processRoleUpdate(role1, null);
+        cache2.removeRoleMembers("dom:role.role1", null);
+        cache2.removeRoleMembers("dom:role.role1", Collections.singletonList(
+                new RoleMember().setMemberName("user_domain.unknown")));
+
+        assertNull(cache2.getMemberRoleSet("user_domain.user2"));
+        assertEquals(cache2.getMemberRoleSet("user_domain.user1").size(), 1);
+        assertEquals(cache.getMemberRoleSet("user_domain.user1").size(), 2);
+    }
+
+    @Test
+    public void testCopyPoliciesAndServices() {
+
+        DataCache original = new DataCache();
+        original.processServiceIdentity(new ServiceIdentity().setName("dom.api")
+                .setHosts(Collections.singletonList("host1")).setClientId("client-id").setCreds("creds")
+                .setPublicKeys(Collections.singletonList(new PublicKeyEntry().setId("0").setKey(ZTS_Y64_CERT0))));
+        Assertion assertion = new Assertion().setRole("dom:role.role1").setResource("aws-role")
+                .setAction("assume_aws_role");
+        original.processPolicy("dom", new Policy().setName("dom:policy.aws")
+                .setAssertions(Collections.singletonList(assertion)), new HashMap<>());
+
+        DataCache cache = new DataCache();
+        cache.copyPolicies(original);
+        cache.copyServiceIdentities(original);
+
+        assertEquals(cache.getHostMap(), original.getHostMap());
+        assertEquals(cache.getPublicKeyMap(), original.getPublicKeyMap());
+        assertEquals(cache.getServiceIdentityClientId("dom.api"), "client-id");
+        assertEquals(cache.getServiceIdentityCreds("dom.api"), "creds");
+        assertEquals(cache.getAWSResourceRoleSet("dom:role.role1"), Collections.singleton("aws-role"));
+    }
+
+    @Test
+    public void testProcessPolicySkipAssumeRole() {
+
+        Role role = new Role().setName("dom:role.role1")
+                .setRoleMembers(Collections.singletonList(new RoleMember().setMemberName("user_domain.user1")));
+        Map<String, Role> roles = new HashMap<>();
+        roles.put(role.getName(), role);
+
+        List<Assertion> assertions = new ArrayList<>();
+        assertions.add(new Assertion().setRole("dom:role.role1").setResource("weather:role.readers")
+                .setAction("assume_role"));
+        assertions.add(new Assertion().setRole("dom:role.role1").setResource("aws-role")
+                .setAction("assume_aws_role"));
+        Policy policy = new Policy().setName("dom:policy.policy1").setAssertions(assertions);
+
+        // the assume_role assertion is skipped but all other
+        // assertions are still processed
+
+        DataCache cache = new DataCache();
+        cache.processPolicy("dom", policy, roles, false);
+        assertNull(cache.getMemberRoleSet("user_domain.user1"));
+        assertEquals(cache.getAWSResourceRoleSet("dom:role.role1"), Collections.singleton("aws-role"));
+
+        cache = new DataCache();
+        cache.processPolicy("dom", policy, roles, true);
+        assertTrue(cache.getMemberRoleSet("user_domain.user1").contains(new MemberRole("weather:role.readers", 0)));
+        assertEquals(cache.getAWSResourceRoleSet("dom:role.role1"), Collections.singleton("aws-role"));
+    }
+
+    @Test
+    public void testCompactMemberRoles() {
+
+        Role role1 = new Role().setName("dom:role.role1");
+        role1.setRoleMembers(new ArrayList<>(Arrays.asList(
+                new RoleMember().setMemberName(new String("user_domain.user1".toCharArray())),
+                new RoleMember().setMemberName("user_domain.user2"))));
+        Role role2 = new Role().setName("dom:role.role2");
+        role2.setRoleMembers(new ArrayList<>(Collections.singletonList(
+                new RoleMember().setMemberName(new String("user_domain.user1".toCharArray())))));
+
+        Group group = new Group().setName("dom:group.group1");
+        group.setGroupMembers(new ArrayList<>(Collections.singletonList(
+                new GroupMember().setMemberName("user_domain.user3"))));
+
+        DataCache cache = new DataCache();
+        cache.processRole(role1);
+        cache.processRole(role2);
+        cache.setDomainData(new DomainData().setName("dom").setRoles(Arrays.asList(role1, role2))
+                .setGroups(Collections.singletonList(group)));
+
+        assertFalse(cache.isCompact());
+        assertEquals(cache.getMemberCount(), 2);
+        final long mapSize = cache.getMemberRoleCacheSize();
+
+        cache.compact();
+        assertTrue(cache.isCompact());
+        assertEquals(cache.getMemberCount(), 2);
+        assertTrue(cache.getMemberRoleCacheSize() < mapSize);
+
+        Set<MemberRole> set1 = cache.getMemberRoleSet("user_domain.user1");
+        assertEquals(set1.size(), 2);
+        assertTrue(set1.contains(new MemberRole("dom:role.role1", 0)));
+        assertTrue(set1.contains(new MemberRole("dom:role.role2", 0)));
+
+        Set<MemberRole> set2 = cache.getMemberRoleSet("user_domain.user2");
+        assertEquals(set2.size(), 1);
+        assertTrue(set2.contains(new MemberRole("dom:role.role1", 0)));
+
+        assertNull(cache.getMemberRoleSet("user_domain.user3"));
+
+        // the member names in the domain data are now shared
+
+        assertSame(role1.getRoleMembers().get(0).getMemberName(), role2.getRoleMembers().get(0).getMemberName());
+        assertSame(group.getGroupMembers().get(0).getMemberName(), SymbolTable.intern("user_domain.user3"));
+
+        // compacting again is a no-op
+
+        cache.compact();
+        assertEquals(cache.getMemberCount(), 2);
+    }
+
+    @Test
+    public void testCompactMemberRolesNoDomainData() {
+
+        Role role = new Role().setName("dom:role.role1");
+        role.setRoleMembers(new ArrayList<>(Collections.singletonList(
+                new RoleMember().setMemberName("user_domain.user1"))));
+
+        DataCache cache = new DataCache();
+        cache.processRole(role);
+        cache.compact();
+        assertEquals(cache.getMemberCount(), 1);
+
+        // domain data without roles and groups
+
+        cache = new DataCache();
+        cache.processRole(new Role().setName("dom:role.role1"));
+        cache.setDomainData(new DomainData().setName("dom").setRoles(Collections.singletonList(
+                new Role().setName("dom:role.role1"))));
+        cache.compact();
+        assertEquals(cache.getMemberCount(), 0);
+    }
+
     @Test
     public void testMultipleRoles() {
 
@@ -281,6 +467,19 @@ public class DataCacheTest {
         assertNotNull(set5);
         assertTrue(set5.contains(new MemberRole("dom.role1", 0)));
         assertEquals(set5.size(), 1);
+
+        // verify the prefix lookups for given members
+
+        Set<MemberRole> set6 = cache.getPrefixMemberRoleSet("user_domain.user1");
+        assertEquals(set6.size(), 1);
+        assertTrue(set6.contains(new MemberRole("dom.role1", 0)));
+
+        Set<MemberRole> set7 = cache.getPrefixMemberRoleSet("user_domain.api");
+        assertEquals(set7.size(), 1);
+        assertTrue(set7.contains(new MemberRole("dom.role1", 0)));
+
+        assertTrue(cache.getPrefixMemberRoleSet("coretech.api").isEmpty());
+        assertTrue(new DataCache().getPrefixMemberRoleSet("user_domain.user1").isEmpty());
     }
 
     @Test
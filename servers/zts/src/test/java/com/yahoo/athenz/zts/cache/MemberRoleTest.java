@@ -55,4 +55,36 @@ public class MemberRoleTest {
         assertTrue(mr4.equals(mr5));
         assertFalse(mr1.equals(mr6));
     }
+
+    @Test
+    public void testMemberRoleMatches() {
+
+        MemberRole mr = new MemberRole("sports:role.readers", 0);
+        assertTrue(mr.roleMatches("sports:role.readers"));
+        assertFalse(mr.roleMatches("sports:role.readers2"));
+
+        mr = new MemberRole("sports:role.*", 0);
+        assertTrue(mr.roleMatches("sports:role.readers"));
+        assertTrue(mr.roleMatches("sports:role."));
+        assertFalse(mr.roleMatches("weather:role.readers"));
+
+        mr = new MemberRole("*", 0);
+        assertTrue(mr.roleMatches("sports:role.readers"));
+        assertTrue(mr.roleMatches(""));
+
+        mr = new MemberRole("sports:role.*.readers", 0);
+        assertTrue(mr.roleMatches("sports:role.api.readers"));
+        assertFalse(mr.roleMatches("sports:role.api.writers"));
+
+        mr = new MemberRole("sports:role.reader?", 0);
+        assertTrue(mr.roleMatches("sports:role.readers"));
+        assertFalse(mr.roleMatches("sports:role.reader"));
+
+        mr = new MemberRole("sports:role.(readers)+", 0);
+        assertTrue(mr.roleMatches("sports:role.(readers)+"));
+        assertFalse(mr.roleMatches("sports:role.readers"));
+
+        mr = new MemberRole(null, 0);
+        assertFalse(mr.roleMatches("sports:role.readers"));
+    }
 }
@@ -0,0 +1,148 @@
+/*
+ *
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.zts.store;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compares public key lookups against a map protected by a read/write
+ * lock (the original implementation) with the lock-free batched update
+ * index while a writer thread is continuously updating entries in
+ * batches as it happens during domain refresh bursts. The benchmark is not part
+ * of the unit test suite - run the main method with the module test
+ * classpath to execute it.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchedUpdateIndexBenchmark {
+
+    @Param({"50000"})
+    int keyCount;
+
+    @Param({"10"})
+    int batchSize;
+
+    Map<String, String> lockedMap;
+    BatchedUpdateIndex<String> batchedIndex;
+    String[] keys;
+
+    final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+    final Lock readLock = rwLock.readLock();
+    final Lock writeLock = rwLock.writeLock();
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        int index = 0;
+    }
+
+    @Setup
+    public void setup() {
+
+        lockedMap = new HashMap<>();
+        batchedIndex = new BatchedUpdateIndex<>();
+        keys = new String[keyCount];
+
+        batchedIndex.beginBatch();
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "domain" + (i / 10) + ".service" + (i % 10) + "_0";
+            lockedMap.put(keys[i], "public-key-" + i);
+            batchedIndex.put(keys[i], "public-key-" + i);
+        }
+        batchedIndex.endBatch();
+    }
+
+    private String nextKey(ThreadState state) {
+        state.index = (state.index + 1) % keyCount;
+        return keys[state.index];
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(7)
+    public void lockedReader(ThreadState state, Blackhole blackhole) {
+        final String key = nextKey(state);
+        try {
+            readLock.lock();
+            blackhole.consume(lockedMap.get(key));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public void lockedWriter(ThreadState state) {
+        try {
+            writeLock.lock();
+            for (int i = 0; i < batchSize; i++) {
+                final String key = nextKey(state);
+                lockedMap.remove(key);
+                lockedMap.put(key, "updated-key");
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Benchmark
+    @Group("batched")
+    @GroupThreads(7)
+    public void batchedReader(ThreadState state, Blackhole blackhole) {
+        blackhole.consume(batchedIndex.get(nextKey(state)));
+    }
+
+    @Benchmark
+    @Group("batched")
+    @GroupThreads(1)
+    public void batchedWriter(ThreadState state) {
+        try {
+            batchedIndex.beginBatch();
+            for (int i = 0; i < batchSize; i++) {
+                final String key = nextKey(state);
+                batchedIndex.remove(key);
+                batchedIndex.put(key, "updated-key");
+            }
+        } finally {
+            batchedIndex.endBatch();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BatchedUpdateIndexBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ *
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.zts.store;
+
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class BatchedUpdateIndexTest {
+
+    @Test
+    public void testPutRemove() {
+
+        BatchedUpdateIndex<String> index = new BatchedUpdateIndex<>();
+        assertNull(index.get("key1"));
+        assertEquals(index.size(), 0);
+
+        index.put("key1", "value1");
+        index.put("key2", "value2");
+        assertEquals(index.get("key1"), "value1");
+        assertTrue(index.containsKey("key2"));
+        assertEquals(index.size(), 2);
+
+        index.remove("key1");
+        index.remove("unknown");
+        assertNull(index.get("key1"));
+        assertFalse(index.containsKey("key1"));
+        assertEquals(index.size(), 1);
+    }
+
+    @Test
+    public void testBatchNotExposedByOtherThreads() throws InterruptedException {
+
+        BatchedUpdateIndex<String> index = new BatchedUpdateIndex<>();
+        index.put("host1", "value1");
+
+        // changes applied by another thread outside any batch do
+        // not include the incomplete batch of our thread
+
+        index.beginBatch();
+        index.remove("host1");
+
+        Thread thread = new Thread(() -> index.put("host2", "value2"));
+        thread.start();
+        thread.join();
+        assertEquals(index.get("host2"), "value2");
+        assertEquals(index.get("host1"), "value1");
+
+        index.put("host1", "value3");
+        assertEquals(index.get("host1"), "value1");
+        index.endBatch();
+        assertEquals(index.get("host1"), "value3");
+    }
+
+    @Test
+    public void testBatchComputeLatestValue() throws InterruptedException {
+
+        BatchedUpdateIndex<List<String>> index = new BatchedUpdateIndex<>();
+        index.put("host1", Collections.singletonList("service1"));
+
+        // the functions within a batch are applied to the value
+        // of the key when the batch is completed
+
+        index.beginBatch();
+        index.compute("host1", (key, value) -> {
+            List<String> services = new ArrayList<>(value);
+            services.add("service2");
+            return services;
+        });
+
+        Thread thread = new Thread(() -> index.compute("host1", (key, value) -> {
+            List<String> services = new ArrayList<>(value);
+            services.add("service3");
+            return services;
+        }));
+        thread.start();
+        thread.join();
+        assertEquals(index.get("host1"), Arrays.asList("service1", "service3"));
+
+        index.endBatch();
+        assertEquals(index.get("host1"), Arrays.asList("service1", "service3", "service2"));
+    }
+
+    @Test
+    public void testCompute() {
+
+        BatchedUpdateIndex<List<String>> index = new BatchedUpdateIndex<>();
+        index.compute("host1", (key, value) -> Collections.singletonList("service1"));
+        assertEquals(index.get("host1"), Collections.singletonList("service1"));
+
+        index.compute("host1", (key, value) -> {
+            List<String> services = new ArrayList<>(value);
+            services.add("service2");
+            return services;
+        });
+        assertEquals(index.get("host1"), Arrays.asList("service1", "service2"));
+
+        index.compute("host1", (key, value) -> null);
+        assertNull(index.get("host1"));
+    }
+
+    @Test
+    public void testBatch() {
+
+        AtomicInteger publishCount = new AtomicInteger();
+        BatchedUpdateIndex<String> index = new BatchedUpdateIndex<>(publishCount::incrementAndGet);
+
+        index.put("key1", "value1");
+        assertEquals(publishCount.get(), 1);
+
+        // nested batches are published once the outer batch completes
+
+        index.beginBatch();
+        index.put("key2", "value2");
+        index.beginBatch();
+        index.remove("key1");
+        index.endBatch();
+
+        assertEquals(index.get("key1"), "value1");
+        assertNull(index.get("key2"));
+        assertEquals(publishCount.get(), 1);
+
+        index.endBatch();
+        assertNull(index.get("key1"));
+        assertEquals(index.get("key2"), "value2");
+        assertEquals(publishCount.get(), 2);
+
+        // batch without any changes does not notify the listener
+
+        index.beginBatch();
+        index.remove("unknown");
+        index.endBatch();
+        assertEquals(publishCount.get(), 2);
+
+        // extra end batch calls are ignored
+
+        index.endBatch();
+        index.put("key3", "value3");
+        assertEquals(index.get("key3"), "value3");
+        assertEquals(publishCount.get(), 3);
+    }
+
+    @Test
+    public void testBatchThreadScope() throws InterruptedException {
+
+        BatchedUpdateIndex<String> index = new BatchedUpdateIndex<>();
+
+        // changes from a thread that is not in a batch are published
+        // right away even if another thread has an open batch
+
+        index.beginBatch();
+        index.put("key1", "value1");
+
+        Thread thread = new Thread(() -> index.put("key2", "value2"));
+        thread.start();
+        thread.join();
+        assertEquals(index.get("key2"), "value2");
+
+        // a batch in another thread does not publish our changes
+        // and does not delay its own changes
+
+        index.put("key3", "value3");
+        thread = new Thread(() -> {
+            index.beginBatch();
+            index.put("key4", "value4");
+            index.endBatch();
+        });
+        thread.start();
+        thread.join();
+        assertEquals(index.get("key4"), "value4");
+
+        index.endBatch();
+        assertEquals(index.get("key1"), "value1");
+        assertEquals(index.get("key3"), "value3");
+        assertEquals(index.size(), 4);
+    }
+
+    @Test
+    public void testSuspendPublishing() throws InterruptedException {
+
+        AtomicInteger publishCount = new AtomicInteger();
+        BatchedUpdateIndex<String> index = new BatchedUpdateIndex<>(publishCount::incrementAndGet);
+
+        // no changes are published by any thread while publishing
+        // is suspended
+
+        index.suspendPublishing();
+        index.put("key1", "value1");
+        Thread thread = new Thread(() -> {
+            index.beginBatch();
+            index.put("key2", "value2");
+            index.endBatch();
+            index.put("key3", "value3");
+        });
+        thread.start();
+        thread.join();
+        assertEquals(index.size(), 0);
+        assertEquals(publishCount.get(), 0);
+
+        index.resumePublishing();
+        assertEquals(index.size(), 3);
+        assertEquals(publishCount.get(), 1);
+
+        // resume without any changes or without suspend does not publish
+
+        index.suspendPublishing();
+        index.resumePublishing();
+        index.resumePublishing();
+        assertEquals(publishCount.get(), 1);
+
+        index.put("key4", "value4");
+        assertEquals(publishCount.get(), 2);
+    }
+}
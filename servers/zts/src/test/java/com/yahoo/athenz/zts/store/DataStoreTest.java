@@ -35,10 +35,17 @@ import java.nio.file.Paths;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.primitives.Bytes;
 import com.yahoo.athenz.auth.Principal;
+import com.yahoo.athenz.auth.PrivateKeyStore;
+import com.yahoo.athenz.common.messaging.ChangeSubscriber;
+import com.yahoo.athenz.common.messaging.ChangeSubscriberFactory;
+import com.yahoo.athenz.common.messaging.DomainChangeMessage;
+import com.yahoo.athenz.common.messaging.impl.InMemoryChangeSubscriberFactory;
 import com.yahoo.athenz.common.metrics.Metric;
 import com.yahoo.athenz.common.server.store.ChangeLogStore;
 import com.yahoo.athenz.common.server.util.ResourceUtils;
@@ -1395,6 +1402,48 @@ public class DataStoreTest {
         assertNull(store.getServicePublicKey("coretech", "storage", "3"));
     }
 
+    @Test
+    public void testGetServicePublicKeyPemCache() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        Metric metric = Mockito.mock(Metric.class);
+        DataStore store = new DataStore(clogStore, null, metric);
+
+        store.publicKeyCache.put("coretech.storage_0", ZTS_PEM_CERT0);
+        store.publicKeyCache.put("sports.api_0", ZTS_PEM_CERT0);
+        store.publicKeyCache.put("sports.api_1", ZTS_PEM_CERT1);
+
+        PublicKey publicKey = store.getServicePublicKey("coretech", "storage", "0");
+        assertNotNull(publicKey);
+        Mockito.verify(metric, Mockito.times(1)).increment("pem_public_key_cache_miss", "coretech");
+
+        // the same pem key in another domain is not parsed again
+
+        assertSame(store.getServicePublicKey("sports", "api", "0"), publicKey);
+        Mockito.verify(metric, Mockito.times(1)).increment("pem_public_key_cache_hit", "sports");
+
+        // removing the key from the service key cache (e.g. domain refresh)
+        // still returns the same object without parsing the key
+
+        store.removePublicKeys(Collections.singletonMap("coretech.storage_0", ZTS_PEM_CERT0));
+        store.publicKeyCache.put("coretech.storage_0", ZTS_PEM_CERT0);
+        assertNull(store.svcPublicKeyCache.getIfPresent("coretech.storage_0"));
+        assertSame(store.getServicePublicKey("coretech", "storage", "0"), publicKey);
+        Mockito.verify(metric, Mockito.times(1)).increment("pem_public_key_cache_hit", "coretech");
+
+        // different key is parsed
+
+        PublicKey publicKey1 = store.getServicePublicKey("sports", "api", "1");
+        assertNotNull(publicKey1);
+        assertNotEquals(publicKey1, publicKey);
+        Mockito.verify(metric, Mockito.times(1)).increment("pem_public_key_cache_miss", "sports");
+        assertEquals(store.pemPublicKeyCache.size(), 2);
+
+        assertEquals(store.generatePemKeyHash(ZTS_PEM_CERT0), store.generatePemKeyHash(ZTS_PEM_CERT0));
+        assertNotEquals(store.generatePemKeyHash(ZTS_PEM_CERT0), store.generatePemKeyHash(ZTS_PEM_CERT1));
+    }
+
     @Test
     public void testAddDomainToCacheUpdatedPublicKeysVersions() {
         ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
@@ -2070,6 +2119,169 @@ public class DataStoreTest {
         assertTrue(roles.contains("writers"));
     }
 
+    @Test
+    public void testGetAccessibleRolesPrincipalRolesCache() {
+
+        System.setProperty("athenz.zts.principal_roles_cache_size", "100");
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        Metric metric = Mockito.mock(Metric.class);
+        DataStore store = new DataStore(clogStore, null, metric);
+        store.loadAthenzPublicKeys();
+        assertNotNull(store.principalRolesCache);
+
+        store.processSignedDomain(createSignedDomain("coretech", "weather"), true);
+        store.processSignedDomain(createTenantSignedDomain("weather", "coretech"), true);
+
+        Set<String> accessibleRoles = new HashSet<>();
+        DataCache data = store.getDataCache("coretech");
+        store.getAccessibleRoles(data, "coretech", "user_domain.user", null, false, accessibleRoles, false);
+        assertEquals(accessibleRoles.size(), 2);
+        assertTrue(accessibleRoles.contains("admin"));
+        assertTrue(accessibleRoles.contains("writers"));
+        Mockito.verify(metric, Mockito.times(1)).increment("principal_roles_cache_miss", "coretech");
+
+        // the requested roles are processed based on the cached entry
+
+        accessibleRoles.clear();
+        String[] requestedRoleList = { "writers" };
+        store.getAccessibleRoles(data, "coretech", "user_domain.user", requestedRoleList, true, accessibleRoles, true);
+        assertEquals(accessibleRoles.size(), 1);
+        assertTrue(accessibleRoles.contains("coretech:role.writers"));
+        Mockito.verify(metric, Mockito.times(1)).increment("principal_roles_cache_hit", "coretech");
+
+        // trusted roles are always matched based on the role suffix
+
+        accessibleRoles.clear();
+        store.getAccessibleRoles(data, "coretech", "user_domain.user100", null, false, accessibleRoles, false);
+        assertEquals(accessibleRoles.size(), 1);
+        assertTrue(accessibleRoles.contains("tenant.readers"));
+
+        accessibleRoles.clear();
+        requestedRoleList = new String[] { "tenant.readers" };
+        store.getAccessibleRoles(data, "coretech", "user_domain.user100", requestedRoleList, true, accessibleRoles, false);
+        assertEquals(accessibleRoles.size(), 1);
+        assertTrue(accessibleRoles.contains("tenant.readers"));
+
+        accessibleRoles.clear();
+        requestedRoleList = new String[] { "readers" };
+        store.getAccessibleRoles(data, "coretech", "user_domain.user", requestedRoleList, true, accessibleRoles, false);
+        assertTrue(accessibleRoles.isEmpty());
+
+        // deleting the trusted domain invalidates our cached entries
+
+        store.deleteDomain("weather");
+        accessibleRoles.clear();
+        store.getAccessibleRoles(data, "coretech", "user_domain.user100", null, false, accessibleRoles, false);
+        assertTrue(accessibleRoles.isEmpty());
+
+        // updated domain data is never processed based on the entry
+        // generated for the previous data cache object
+
+        store.processSignedDomain(createSignedDomainWildCardMembers("coretech", "weather"), true);
+        assertNotSame(store.getDataCache("coretech"), data);
+        Set<String> roles = store.getRolesForPrincipal("coretech", "user_domain.user1");
+        assertEquals(roles.size(), 2);
+        assertTrue(roles.contains("writers"));
+        assertTrue(roles.contains("all"));
+
+        System.clearProperty("athenz.zts.principal_roles_cache_size");
+    }
+
+    @Test
+    public void testGetPrincipalRolesExpiration() {
+
+        System.setProperty("athenz.zts.principal_roles_cache_size", "100");
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        store.loadAthenzPublicKeys();
+
+        store.processSignedDomain(createSignedDomain("coretech", "weather"), true);
+        DataCache data = store.getDataCache("coretech");
+
+        PrincipalRoles principalRoles = store.getPrincipalRoles(data, "coretech", "user_domain.user");
+        assertEquals(principalRoles.expiration, 0);
+        assertSame(store.getPrincipalRoles(data, "coretech", "user_domain.user"), principalRoles);
+
+        // the earliest expiration of the members is used as the ttl
+
+        principalRoles.updateExpiration(System.currentTimeMillis() + 60000);
+        principalRoles.updateExpiration(System.currentTimeMillis() - 1000);
+        principalRoles.updateExpiration(0);
+        assertFalse(principalRoles.isValid(data, store.getPrincipalGroupVersion("user_domain.user"),
+                store.getCacheStore()::getIfPresent, System.currentTimeMillis()));
+        assertNotSame(store.getPrincipalRoles(data, "coretech", "user_domain.user"), principalRoles);
+
+        // group updates without the principal as a member do not
+        // invalidate the entry, but any update to the principal's
+        // group memberships does
+
+        principalRoles = store.getPrincipalRoles(data, "coretech", "user_domain.user");
+        store.processGroup(new Group().setName("coretech:group.dev-team")
+                .setGroupMembers(Collections.singletonList(new GroupMember().setMemberName("user_domain.user1")
+                        .setGroupName("coretech:group.dev-team"))));
+        assertSame(store.getPrincipalRoles(data, "coretech", "user_domain.user"), principalRoles);
+
+        store.processGroup(new Group().setName("coretech:group.dev-team")
+                .setGroupMembers(Collections.singletonList(new GroupMember().setMemberName("user_domain.user")
+                        .setGroupName("coretech:group.dev-team"))));
+        assertNotSame(store.getPrincipalRoles(data, "coretech", "user_domain.user"), principalRoles);
+
+        principalRoles = store.getPrincipalRoles(data, "coretech", "user_domain.user");
+        store.processGroupDelete(new Group().setName("coretech:group.dev-team")
+                .setGroupMembers(Collections.singletonList(new GroupMember().setMemberName("user_domain.user")
+                        .setGroupName("coretech:group.dev-team"))));
+        assertNotSame(store.getPrincipalRoles(data, "coretech", "user_domain.user"), principalRoles);
+
+        // updates to unrelated domains do not invalidate the entry
+
+        principalRoles = store.getPrincipalRoles(data, "coretech", "user_domain.user");
+        store.processSignedDomain(createSignedDomain("sports", "weather"), true);
+        assertSame(store.getPrincipalRoles(data, "coretech", "user_domain.user"), principalRoles);
+
+        // the trusted domain is recorded even when it's not available
+        // so adding the domain invalidates the entry
+
+        assertTrue(principalRoles.trustDomains.containsKey("weather"));
+        assertNull(principalRoles.trustDomains.get("weather"));
+        store.processSignedDomain(createTenantSignedDomain("weather", "coretech"), true);
+        assertNotSame(store.getPrincipalRoles(data, "coretech", "user_domain.user"), principalRoles);
+
+        System.clearProperty("athenz.zts.principal_roles_cache_size");
+    }
+
+    @Test
+    public void testPrincipalGroupVersionsMaxSize() {
+
+        System.setProperty("athenz.zts.principal_roles_cache_size", "2");
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+
+        final Long baseVersion = store.getPrincipalGroupVersion("user_domain.user");
+        store.updatePrincipalGroupVersion("user_domain.user");
+        store.updatePrincipalGroupVersion("user_domain.user1");
+        final Long userVersion = store.getPrincipalGroupVersion("user_domain.user");
+        assertNotEquals(userVersion, baseVersion);
+        assertEquals(store.principalGroupVersions.size(), 2);
+
+        // once we go over our limit all the versions are removed
+        // and none of the previous versions are valid anymore
+
+        store.updatePrincipalGroupVersion("user_domain.user2");
+        assertTrue(store.principalGroupVersions.isEmpty());
+        final Long newVersion = store.getPrincipalGroupVersion("user_domain.user");
+        assertNotEquals(newVersion, baseVersion);
+        assertNotEquals(newVersion, userVersion);
+        assertEquals(store.getPrincipalGroupVersion("user_domain.user3"), newVersion);
+
+        System.clearProperty("athenz.zts.principal_roles_cache_size");
+    }
+
     @Test
     public void testStoreInitNoLastModTimeLocalDomainDelete() {
 
@@ -2328,6 +2540,459 @@ public class DataStoreTest {
                 .contains(new MemberRole("coretech:role.readers", 0)));
     }
 
+    @Test
+    public void testProcessDomainDataCompactMode() {
+
+        System.setProperty("athenz.zts.data_cache_compact_mode", "true");
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        assertTrue(store.compactDataCache);
+
+        store.processDomainData(getDomainData(true));
+
+        DataCache dataCache = store.getDataCache("coretech");
+        assertTrue(dataCache.isCompact());
+        assertEquals(dataCache.getMemberCount(), 1);
+        assertEquals(dataCache.getMemberRoleSet("user_domain.user").size(), 2);
+        assertTrue(dataCache.getMemberRoleSet("user_domain.user")
+                .contains(new MemberRole("coretech:role.admin", 0)));
+
+        Set<String> accessibleRoles = new HashSet<>();
+        store.getAccessibleRoles(dataCache, "coretech", "user_domain.user", null, false, accessibleRoles, false);
+        assertEquals(accessibleRoles.size(), 2);
+
+        System.clearProperty("athenz.zts.data_cache_compact_mode");
+    }
+
+    @Test
+    public void testProcessDomainDataCacheSizeGauge() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        Metric metric = Mockito.mock(Metric.class);
+
+        // without compact mode the cache size is not reported
+
+        DataStore store = new DataStore(clogStore, null, metric);
+        assertFalse(store.compactDataCache);
+        store.processDomainData(getDomainData(true));
+        Mockito.verify(metric, Mockito.never()).setGauge(Mockito.eq("domain_member_role_cache_bytes"),
+                Mockito.anyString(), Mockito.any(), Mockito.anyLong());
+
+        // with compact mode we report the size of the compact index
+
+        store.compactDataCache = true;
+        store.processDomainData(getDomainData(true));
+        final long cacheSize = store.getDataCache("coretech").getMemberRoleCacheSize();
+        assertTrue(cacheSize > 0);
+        Mockito.verify(metric, Mockito.times(1)).setGauge("domain_member_role_cache_bytes",
+                "coretech", null, cacheSize);
+    }
+
+    private DomainData getIncrementalDomainData(long modified) {
+
+        List<Role> roles = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Role role = new Role().setName("coretech:role.role" + i).setModified(Timestamp.fromMillis(modified));
+            List<RoleMember> members = new ArrayList<>();
+            members.add(new RoleMember().setMemberName("user_domain.user" + i));
+            members.add(new RoleMember().setMemberName("user_domain.common"));
+            role.setRoleMembers(members);
+            roles.add(role);
+        }
+        roles.add(new Role().setName("coretech:role.trust").setTrust("weather")
+                .setModified(Timestamp.fromMillis(modified)));
+
+        List<com.yahoo.athenz.zms.Policy> policies = new ArrayList<>();
+        com.yahoo.athenz.zms.Policy policy = new com.yahoo.athenz.zms.Policy().setName("coretech:policy.assume")
+                .setModified(Timestamp.fromMillis(modified));
+        policy.setAssertions(Collections.singletonList(new com.yahoo.athenz.zms.Assertion()
+                .setRole("coretech:role.role0").setResource("weather:role.readers").setAction("assume_role")));
+        policies.add(policy);
+
+        List<ServiceIdentity> services = new ArrayList<>();
+        services.add(new ServiceIdentity().setName("coretech.storage").setModified(Timestamp.fromMillis(modified))
+                .setHosts(Collections.singletonList("host1"))
+                .setPublicKeys(Collections.singletonList(new PublicKeyEntry().setId("0").setKey(ZTS_Y64_CERT0))));
+        services.add(new ServiceIdentity().setName("coretech.backup").setModified(Timestamp.fromMillis(modified))
+                .setHosts(Collections.singletonList("host2"))
+                .setPublicKeys(Collections.singletonList(new PublicKeyEntry().setId("0").setKey(ZTS_Y64_CERT1))));
+
+        List<Group> groups = new ArrayList<>();
+        groups.add(new Group().setName("coretech:group.dev").setModified(Timestamp.fromMillis(modified))
+                .setGroupMembers(new ArrayList<>(Collections.singletonList(new GroupMember()
+                        .setMemberName("user_domain.user1").setGroupName("coretech:group.dev")))));
+
+        return new DomainData().setName("coretech").setRoles(roles).setGroups(groups).setServices(services)
+                .setPolicies(new SignedPolicies().setContents(new DomainPolicies().setDomain("coretech")
+                        .setPolicies(policies)));
+    }
+
+    @Test
+    public void testProcessDomainDataIncremental() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        store.incrementalDomainUpdate = true;
+
+        // the first update is always a full update
+
+        assertNull(store.generateIncrementalDomainCache(getIncrementalDomainData(1000)));
+        store.processDomainData(getIncrementalDomainData(1000));
+
+        DataCache originalCache = store.getDataCache("coretech");
+        assertEquals(originalCache.getMemberRoleSet("user_domain.common").size(), 5);
+        assertNotNull(store.getServicePublicKey("coretech", "storage", "0"));
+        List<GroupMember> groupMembers = store.groupMemberCache.getIfPresent("coretech:group.dev");
+        assertNotNull(groupMembers);
+
+        // update role1 by replacing user1 with user5 and delete role2
+
+        DomainData domainData = getIncrementalDomainData(1000);
+        Role role1 = domainData.getRoles().get(1);
+        role1.setModified(Timestamp.fromMillis(2000));
+        role1.getRoleMembers().set(0, new RoleMember().setMemberName("user_domain.user5"));
+        domainData.getRoles().remove(2);
+
+        store.processDomainData(domainData);
+        DataCache dataCache = store.getDataCache("coretech");
+        assertNotSame(dataCache, originalCache);
+
+        assertNull(dataCache.getMemberRoleSet("user_domain.user1"));
+        assertNull(dataCache.getMemberRoleSet("user_domain.user2"));
+        assertTrue(dataCache.getMemberRoleSet("user_domain.user5").contains(new MemberRole("coretech:role.role1", 0)));
+
+        Set<MemberRole> commonRoles = dataCache.getMemberRoleSet("user_domain.common");
+        assertEquals(commonRoles.size(), 4);
+        assertTrue(commonRoles.contains(new MemberRole("weather:role.readers", 0)));
+        assertFalse(commonRoles.contains(new MemberRole("coretech:role.role2", 0)));
+
+        // the original cache object is not modified and the unmodified
+        // member sets are shared between the two objects
+
+        assertEquals(originalCache.getMemberRoleSet("user_domain.common").size(), 5);
+        assertNotNull(originalCache.getMemberRoleSet("user_domain.user1"));
+        assertSame(dataCache.getMemberRoleSet("user_domain.user3"), originalCache.getMemberRoleSet("user_domain.user3"));
+
+        // the trust and service data is carried over
+
+        assertTrue(dataCache.getTrustMap().get("weather").contains("coretech:role.trust"));
+        assertEquals(dataCache.getHostMap(), originalCache.getHostMap());
+        assertNotNull(dataCache.getRoleMeta("role1"));
+
+        // the group was not modified so it was not processed again
+
+        assertSame(store.groupMemberCache.getIfPresent("coretech:group.dev"), groupMembers);
+    }
+
+    @Test
+    public void testProcessDomainDataIncrementalServices() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        store.incrementalDomainUpdate = true;
+
+        store.processDomainData(getIncrementalDomainData(1000));
+        PublicKey storageKey = store.getServicePublicKey("coretech", "storage", "0");
+        PublicKey backupKey = store.getServicePublicKey("coretech", "backup", "0");
+        assertNotNull(storageKey);
+        assertNotNull(backupKey);
+
+        // update the backup service with a new key and host and modify
+        // our group with a new member
+
+        DomainData domainData = getIncrementalDomainData(1000);
+        ServiceIdentity service = domainData.getServices().get(1);
+        service.setModified(Timestamp.fromMillis(2000));
+        service.setHosts(Collections.singletonList("host3"));
+        service.setPublicKeys(Collections.singletonList(new PublicKeyEntry().setId("0").setKey(ZTS_Y64_CERT2)));
+        Group group = domainData.getGroups().get(0);
+        group.setModified(Timestamp.fromMillis(2000));
+        group.getGroupMembers().add(new GroupMember().setMemberName("user_domain.user2")
+                .setGroupName("coretech:group.dev"));
+
+        store.processDomainData(domainData);
+
+        // the unmodified key object is still in our cache
+
+        assertSame(store.getServicePublicKey("coretech", "storage", "0"), storageKey);
+        assertNotEquals(store.getServicePublicKey("coretech", "backup", "0"), backupKey);
+        assertEquals(store.getPublicKey("coretech", "backup", "0"), ZTS_PEM_CERT2);
+
+        assertEquals(store.getHostServices("host1").getNames(), Collections.singletonList("coretech.storage"));
+        assertTrue(store.getHostServices("host2").getNames().isEmpty());
+        assertEquals(store.getHostServices("host3").getNames(), Collections.singletonList("coretech.backup"));
+
+        assertEquals(store.groupMemberCache.getIfPresent("coretech:group.dev").size(), 2);
+
+        // delete all the services
+
+        domainData = getIncrementalDomainData(1000);
+        domainData.setServices(null);
+        store.processDomainData(domainData);
+
+        assertNull(store.getServicePublicKey("coretech", "storage", "0"));
+        assertTrue(store.getHostServices("host1").getNames().isEmpty());
+        assertTrue(store.getHostServices("host3").getNames().isEmpty());
+    }
+
+    @Test
+    public void testGenerateIncrementalDomainCacheFullUpdate() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        store.incrementalDomainUpdate = true;
+        store.processDomainData(getIncrementalDomainData(1000));
+
+        // no changes
+
+        assertNotNull(store.generateIncrementalDomainCache(getIncrementalDomainData(1000)));
+
+        // modified policy without any assume_role assertion changes
+
+        DomainData domainData = getIncrementalDomainData(1000);
+        domainData.getPolicies().getContents().getPolicies().get(0).setModified(Timestamp.fromMillis(2000));
+        assertNotNull(store.generateIncrementalDomainCache(domainData));
+
+        // modified policy with a new assume_role assertion
+
+        domainData = getIncrementalDomainData(1000);
+        com.yahoo.athenz.zms.Policy policy = domainData.getPolicies().getContents().getPolicies().get(0);
+        policy.setModified(Timestamp.fromMillis(2000));
+        policy.setAssertions(new ArrayList<>(policy.getAssertions()));
+        policy.getAssertions().add(new com.yahoo.athenz.zms.Assertion().setRole("coretech:role.role1")
+                .setResource("weather:role.writers").setAction("assume_role"));
+        assertNull(store.generateIncrementalDomainCache(domainData));
+
+        // modified role referenced in the policy
+
+        domainData = getIncrementalDomainData(1000);
+        domainData.getRoles().get(0).setModified(Timestamp.fromMillis(2000));
+        assertNull(store.generateIncrementalDomainCache(domainData));
+
+        // majority of roles modified
+
+        domainData = getIncrementalDomainData(1000);
+        for (int i = 1; i < 4; i++) {
+            domainData.getRoles().get(i).setModified(Timestamp.fromMillis(2000));
+        }
+        assertNull(store.generateIncrementalDomainCache(domainData));
+
+        // modified role with wildcard members
+
+        domainData = getIncrementalDomainData(1000);
+        domainData.getRoles().get(1).setModified(Timestamp.fromMillis(2000));
+        domainData.getRoles().get(1).getRoleMembers().add(new RoleMember().setMemberName("user_domain.*"));
+        assertNull(store.generateIncrementalDomainCache(domainData));
+
+        // modified role without timestamp
+
+        domainData = getIncrementalDomainData(1000);
+        domainData.getRoles().get(1).setModified(null);
+        assertNotNull(store.generateIncrementalDomainCache(domainData));
+
+        // compact cache objects are not supported
+
+        store.getDataCache("coretech").compact();
+        assertNull(store.generateIncrementalDomainCache(getIncrementalDomainData(1000)));
+    }
+
+    @Test
+    public void testProcessDomainDataIncrementalPolicies() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        Metric metric = Mockito.mock(Metric.class);
+        DataStore store = new DataStore(clogStore, null, metric);
+        store.incrementalDomainUpdate = true;
+
+        store.processDomainData(getIncrementalDomainData(1000));
+        Mockito.verify(metric, Mockito.times(1)).increment("domain_full_update", "coretech");
+        DataCache originalCache = store.getDataCache("coretech");
+        assertNull(originalCache.getAWSResourceRoleSet("coretech:role.role1"));
+
+        // add a new policy with an aws assume role assertion and a
+        // regular assertion that references a modified role
+
+        DomainData domainData = getIncrementalDomainData(1000);
+        List<com.yahoo.athenz.zms.Assertion> assertions = new ArrayList<>();
+        assertions.add(new com.yahoo.athenz.zms.Assertion().setRole("coretech:role.role1")
+                .setResource("arn:aws:iam::123456:role/storage").setAction("assume_aws_role"));
+        assertions.add(new com.yahoo.athenz.zms.Assertion().setRole("coretech:role.role2")
+                .setResource("coretech:data").setAction("read"));
+        domainData.getPolicies().getContents().getPolicies().add(new com.yahoo.athenz.zms.Policy()
+                .setName("coretech:policy.aws").setModified(Timestamp.fromMillis(2000)).setAssertions(assertions));
+        Role role2 = domainData.getRoles().get(2);
+        role2.setModified(Timestamp.fromMillis(2000));
+        role2.getRoleMembers().add(new RoleMember().setMemberName("user_domain.user5"));
+
+        store.processDomainData(domainData);
+        Mockito.verify(metric, Mockito.times(1)).increment("domain_full_update", "coretech");
+        Mockito.verify(metric, Mockito.times(1)).increment("domain_incremental_update", "coretech");
+
+        DataCache dataCache = store.getDataCache("coretech");
+        assertEquals(dataCache.getAWSResourceRoleSet("coretech:role.role1"),
+                Collections.singleton("arn:aws:iam::123456:role/storage"));
+        assertTrue(dataCache.getMemberRoleSet("user_domain.user5").contains(new MemberRole("coretech:role.role2", 0)));
+
+        // the assume_role assertion is not processed again so the
+        // member sets of the unmodified roles are still shared
+
+        assertTrue(dataCache.getMemberRoleSet("user_domain.user0").contains(new MemberRole("weather:role.readers", 0)));
+        assertSame(dataCache.getMemberRoleSet("user_domain.user0"), originalCache.getMemberRoleSet("user_domain.user0"));
+        assertEquals(dataCache.getMemberRoleSet("user_domain.common"),
+                originalCache.getMemberRoleSet("user_domain.common"));
+
+        // removing the policy removes the aws role entry
+
+        store.processDomainData(getIncrementalDomainData(1000));
+        Mockito.verify(metric, Mockito.times(2)).increment("domain_incremental_update", "coretech");
+        assertNull(store.getDataCache("coretech").getAWSResourceRoleSet("coretech:role.role1"));
+    }
+
+    @Test
+    public void testGetAssumeRoleAssertions() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+
+        assertTrue(store.getAssumeRoleAssertions(null).isEmpty());
+
+        List<com.yahoo.athenz.zms.Assertion> assertions = new ArrayList<>();
+        assertions.add(new com.yahoo.athenz.zms.Assertion().setRole("coretech:role.role1")
+                .setResource("weather:role.readers").setAction("assume_role"));
+        assertions.add(new com.yahoo.athenz.zms.Assertion().setRole("coretech:role.role2")
+                .setResource("weather:role.writers").setAction("assume_role")
+                .setEffect(com.yahoo.athenz.zms.AssertionEffect.DENY));
+        assertions.add(new com.yahoo.athenz.zms.Assertion().setRole("coretech:role.role3")
+                .setResource("coretech:data").setAction("read"));
+        List<com.yahoo.athenz.zms.Policy> policies = new ArrayList<>();
+        policies.add(new com.yahoo.athenz.zms.Policy().setName("coretech:policy.policy1")
+                .setAssertions(assertions));
+        policies.add(new com.yahoo.athenz.zms.Policy().setName("coretech:policy.policy2"));
+        policies.add(new com.yahoo.athenz.zms.Policy().setName("coretech:policy.policy3").setActive(false)
+                .setAssertions(Collections.singletonList(new com.yahoo.athenz.zms.Assertion()
+                        .setRole("coretech:role.role4").setResource("weather:role.admin")
+                        .setAction("assume_role"))));
+
+        assertEquals(store.getAssumeRoleAssertions(policies),
+                Collections.singleton("coretech:role.role1|weather:role.readers"));
+    }
+
+    @Test
+    public void testGenerateIncrementalDomainCacheDeletedWildcardRole() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        store.incrementalDomainUpdate = true;
+
+        DomainData domainData = getIncrementalDomainData(1000);
+        domainData.getRoles().get(3).getRoleMembers().add(new RoleMember().setMemberName("*"));
+        store.processDomainData(domainData);
+
+        domainData = getIncrementalDomainData(1000);
+        domainData.getRoles().remove(3);
+        assertNull(store.generateIncrementalDomainCache(domainData));
+
+        // deleted role referenced in a policy
+
+        domainData = getIncrementalDomainData(1000);
+        domainData.getRoles().remove(0);
+        assertNull(store.generateIncrementalDomainCache(domainData));
+    }
+
+    @Test
+    public void testIsSamePolicies() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+
+        List<com.yahoo.athenz.zms.Policy> policies1 = getDomainPoliciesList(1000);
+        assertTrue(store.isSamePolicies(null, null));
+        assertFalse(store.isSamePolicies(policies1, null));
+        assertFalse(store.isSamePolicies(null, policies1));
+        assertTrue(store.isSamePolicies(policies1, getDomainPoliciesList(1000)));
+        assertFalse(store.isSamePolicies(policies1, getDomainPoliciesList(2000)));
+        assertFalse(store.isSamePolicies(policies1, Collections.emptyList()));
+
+        List<com.yahoo.athenz.zms.Policy> policies2 = getDomainPoliciesList(1000);
+        policies2.get(0).setActive(false);
+        assertFalse(store.isSamePolicies(policies1, policies2));
+
+        policies2 = getDomainPoliciesList(1000);
+        policies2.get(0).setVersion("1");
+        assertFalse(store.isSamePolicies(policies1, policies2));
+
+        assertNull(store.getDomainPolicies(new DomainData()));
+        assertNull(store.getDomainPolicies(new DomainData().setPolicies(new SignedPolicies())));
+    }
+
+    private List<com.yahoo.athenz.zms.Policy> getDomainPoliciesList(long modified) {
+        List<com.yahoo.athenz.zms.Policy> policies = new ArrayList<>();
+        policies.add(new com.yahoo.athenz.zms.Policy().setName("coretech:policy.policy1")
+                .setModified(Timestamp.fromMillis(modified)));
+        return policies;
+    }
+
+    @Test
+    public void testIsSameServices() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+
+        List<ServiceIdentity> services = getIncrementalDomainData(1000).getServices();
+        assertTrue(store.isSameServices(null, null));
+        assertFalse(store.isSameServices(services, null));
+        assertFalse(store.isSameServices(null, services));
+        assertTrue(store.isSameServices(services, getIncrementalDomainData(1000).getServices()));
+        assertFalse(store.isSameServices(services, getIncrementalDomainData(2000).getServices()));
+        assertFalse(store.isSameServices(services, services.subList(0, 1)));
+    }
+
+    @Test
+    public void testGetHostEntriesDelta() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+
+        Map<String, Set<String>> hostMap = new HashMap<>();
+        hostMap.put("host1", new HashSet<>(Arrays.asList("coretech.api", "coretech.backend")));
+        hostMap.put("host2", new HashSet<>(Collections.singletonList("coretech.api")));
+
+        assertNull(store.getHostEntriesDelta(null, hostMap));
+        assertSame(store.getHostEntriesDelta(hostMap, null), hostMap);
+        assertSame(store.getHostEntriesDelta(hostMap, new HashMap<>()), hostMap);
+
+        Map<String, Set<String>> excludeMap = new HashMap<>();
+        excludeMap.put("host1", new HashSet<>(Collections.singletonList("coretech.api")));
+        excludeMap.put("host2", new HashSet<>(Collections.singletonList("coretech.api")));
+
+        Map<String, Set<String>> deltaMap = store.getHostEntriesDelta(hostMap, excludeMap);
+        assertEquals(deltaMap.size(), 1);
+        assertEquals(deltaMap.get("host1"), Collections.singleton("coretech.backend"));
+
+        Map<String, String> keyMap = new HashMap<>();
+        keyMap.put("coretech.api_0", "key0");
+        keyMap.put("coretech.api_1", "key1");
+        Map<String, String> excludeKeyMap = new HashMap<>();
+        excludeKeyMap.put("coretech.api_0", "key0");
+        excludeKeyMap.put("coretech.api_1", "key2");
+
+        assertNull(store.getPublicKeysDelta(null, keyMap));
+        assertSame(store.getPublicKeysDelta(keyMap, null), keyMap);
+        assertEquals(store.getPublicKeysDelta(keyMap, excludeKeyMap), Collections.singletonMap("coretech.api_1", "key1"));
+    }
+
     @Test
     public void testProcessDomainRolesDelete() {
 
@@ -3322,93 +3987,425 @@ public class DataStoreTest {
     }
 
     @Test
-    public void testProcessSignedDomains() {
+    public void testProcessLocalDomainsParallel() {
+
         ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
                 pkey, "0");
+        DataStore setupStore = new DataStore(clogStore, null, ztsMetric);
+        setupStore.loadAthenzPublicKeys();
+
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final String domainName = "coretech" + i;
+            setupStore.processSignedDomain(createSignedDomain(domainName, "weather"), true);
+            list.add(domainName);
+        }
+
         DataStore store = new DataStore(clogStore, null, ztsMetric);
-        
-        List<SignedDomain> list = new ArrayList<>();
-        
-        SignedDomain signedDomain = createSignedDomain("coretech", "weather");
-        list.add(signedDomain);
-        
-        signedDomain = createSignedDomain("sports", "weather");
-        list.add(signedDomain);
-        
-        SignedDomains signedDomains = new SignedDomains();
-        signedDomains.setDomains(list);
+        store.localDomainLoadThreads = 4;
+        ((MockZMSFileChangeLogStore) store.changeLogStore).setDomainList(list);
 
-        assertTrue(store.processSignedDomains(signedDomains));
-        assertNotNull(store.getDomainData("coretech"));
-        assertNotNull(store.getDomainData("sports"));
+        int badDomains = store.processLocalDomains(list);
+        assertEquals(badDomains, 0);
+
+        for (String domainName : list) {
+            assertNotNull(store.getDomainData(domainName));
+            assertNotNull(store.getDataCache(domainName));
+        }
+
+        // verify our shared host cache includes all the entries
+
+        HostServices hostServices = store.getHostServices("host1");
+        assertEquals(hostServices.getNames().size(), 20);
     }
-    
+
     @Test
-    public void testProcessSignedDomainsNullList() {
+    public void testProcessLocalDomainsParallelInvalidDomains() {
+
         ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
                 pkey, "0");
+        DataStore setupStore = new DataStore(clogStore, null, ztsMetric);
+        setupStore.loadAthenzPublicKeys();
+
+        setupStore.processSignedDomain(createSignedDomain("coretech", "weather"), true);
+        setupStore.processSignedDomain(createSignedDomain("sports", "weather"), true);
+        setupStore.processSignedDomain(createSignedDomain("mail", "weather"), true);
+        setupStore.processSignedDomain(createSignedDomain("fantasy", "weather"), true);
+        setupStore.processSignedDomain(createSignedDomain("profile", "weather"), true);
+        setupStore.processSignedDomain(createSignedDomain("news", "weather"), true);
+        setupStore.processSignedDomain(createSignedDomain("politics", "weather"), true);
+        setupStore.processSignedDomain(createSignedDomain("finance", "weather"), true);
+
         DataStore store = new DataStore(clogStore, null, ztsMetric);
+        store.localDomainLoadThreads = 3;
+        List<String> zmsList = new ArrayList<>(Arrays.asList("coretech", "sports", "mail", "fantasy", "profile",
+                "news", "politics", "finance", "invalid"));
+        ((MockZMSFileChangeLogStore) store.changeLogStore).setDomainList(zmsList);
+
+        // one invalid domain is below our threshold
+
+        assertEquals(store.processLocalDomains(zmsList), 1);
+
+        // with full refresh support we must get a failure
+
+        ((MockZMSFileChangeLogStore) store.changeLogStore).setRefreshSupport(true);
+        assertEquals(store.processLocalDomains(zmsList), -1);
+
+        // too many invalid domains must be rejected
 
-        assertTrue(store.processSignedDomains(null));
+        ((MockZMSFileChangeLogStore) store.changeLogStore).setRefreshSupport(false);
+        zmsList = new ArrayList<>(Arrays.asList("coretech", "invalid1", "invalid2"));
+        ((MockZMSFileChangeLogStore) store.changeLogStore).setDomainList(zmsList);
+        assertEquals(store.processLocalDomains(zmsList), -1);
     }
-    
+
     @Test
-    public void testProcessSignedDomainsEmptyList() {
+    public void testProcessLocalDomainsParallelException() {
+
         ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
                 pkey, "0");
+        DataStore setupStore = new DataStore(clogStore, null, ztsMetric);
+        setupStore.loadAthenzPublicKeys();
+
+        setupStore.processSignedDomain(createSignedDomain("coretech", "weather"), true);
+        setupStore.processSignedDomain(createSignedDomain("sports", "weather"), true);
+        setupStore.processSignedDomain(createSignedDomain("mail", "weather"), true);
+
+        DataStore store = Mockito.spy(new DataStore(clogStore, null, ztsMetric));
+        store.localDomainLoadThreads = 2;
+        Mockito.doThrow(new IllegalStateException("unable to process domain"))
+                .when(store).processLocalDomain("sports");
+
+        // an exception is treated as an invalid domain
+
+        List<String> zmsList = new ArrayList<>(Arrays.asList("coretech", "sports", "mail"));
+        assertEquals(store.processLocalDomainsParallel(zmsList), 1);
+        assertNotNull(store.getDomainData("coretech"));
+        assertNotNull(store.getDomainData("mail"));
+        assertNull(store.getDomainData("sports"));
+
+        // with full refresh support we must get a failure
+
+        ((MockZMSFileChangeLogStore) store.changeLogStore).setRefreshSupport(true);
+        assertEquals(store.processLocalDomainsParallel(zmsList), -1);
+    }
+
+    public static class FailingSubscriberFactory implements ChangeSubscriberFactory<DomainChangeMessage> {
+        @Override
+        public ChangeSubscriber<DomainChangeMessage> create(PrivateKeyStore keyStore, String topicName,
+                String subscriptionName, String subscriptionType) {
+            throw new IllegalArgumentException("unable to create subscriber");
+        }
+    }
+
+    @Test
+    public void testInitDomainChangeSubscribersNotConfigured() {
+
+        DataStore store = new DataStore(new MockZMSFileChangeLogStore(ZTS_DATA_STORE_PATH, pkey, "0"),
+                null, ztsMetric);
+
+        // no topics configured
+
+        store.initDomainChangeSubscribers(null, "host1");
+        assertTrue(store.domainChangeSubscribers.isEmpty());
+        assertNull(store.domainChangeExecutor);
+
+        // topics without a factory class
+
+        System.setProperty("athenz.zts.domain_changes_topic_names", "domain-changes");
+        store.initDomainChangeSubscribers(null, "host1");
+        assertTrue(store.domainChangeSubscribers.isEmpty());
+
+        // invalid factory class
+
+        System.setProperty("athenz.zts.domain_change_subscriber_factory_class", "invalid.class");
+        store.initDomainChangeSubscribers(null, "host1");
+        assertTrue(store.domainChangeSubscribers.isEmpty());
+
+        // factory failing to create subscribers with empty topic names skipped
+
+        System.setProperty("athenz.zts.domain_changes_topic_names", "domain-changes, ,");
+        System.setProperty("athenz.zts.domain_change_subscriber_factory_class",
+                FailingSubscriberFactory.class.getName());
+        store.initDomainChangeSubscribers(null, "host1");
+        assertTrue(store.domainChangeSubscribers.isEmpty());
+        assertNull(store.domainChangeExecutor);
+
+        // closing without any subscribers is a no-op
+
+        store.closeDomainChangeSubscribers();
+
+        System.clearProperty("athenz.zts.domain_changes_topic_names");
+        System.clearProperty("athenz.zts.domain_change_subscriber_factory_class");
+    }
+
+    @Test
+    public void testDomainChangeSubscriber() throws InterruptedException {
+
+        MockZMSFileChangeLogStore clogStore = new MockZMSFileChangeLogStore(ZTS_DATA_STORE_PATH, pkey, "0");
         DataStore store = new DataStore(clogStore, null, ztsMetric);
-        
-        SignedDomains signedDomains = new SignedDomains();
-        signedDomains.setDomains(null);
+        store.jwsDomainSupport = true;
+
+        SignedDomain signedDomain = createSignedDomain("sports", "weather");
+        clogStore.setJWSDomain("sports", signJwsDomain(signedDomain.getDomain(), "0"));
+
+        System.setProperty("athenz.zts.domain_changes_topic_names", "domain-changes,domain-changes-2");
+        System.setProperty("athenz.zts.domain_change_subscriber_factory_class",
+                InMemoryChangeSubscriberFactory.class.getName());
 
-        assertTrue(store.processSignedDomains(signedDomains));
+        store.initDomainChangeSubscribers(null, "host1");
+        assertEquals(store.domainChangeSubscribers.size(), 2);
+
+        // messages without a domain name are ignored
+
+        InMemoryChangeSubscriberFactory.publish("domain-changes", new DomainChangeMessage());
+        InMemoryChangeSubscriberFactory.publish("domain-changes", new DomainChangeMessage()
+                .setDomainName("sports").setObjectType(DomainChangeMessage.ObjectType.ROLE)
+                .setObjectName("admin").setApiName("putRole"));
+
+        for (int i = 0; i < 50 && store.getDomainData("sports") == null; i++) {
+            Thread.sleep(100);
+        }
+        assertNotNull(store.getDomainData("sports"));
+        assertNotNull(clogStore.getLocalJWSDomain("sports"));
+
+        store.closeDomainChangeSubscribers();
+        assertTrue(store.domainChangeSubscribers.isEmpty());
+        assertTrue(store.domainChangeExecutor.isShutdown());
+
+        InMemoryChangeSubscriberFactory.reset();
+        System.clearProperty("athenz.zts.domain_changes_topic_names");
+        System.clearProperty("athenz.zts.domain_change_subscriber_factory_class");
     }
-    
+
     @Test
-    public void testProcessSignedDomainsInvalidDomainWithSuccess() {
-        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
-                pkey, "0");
+    public void testProcessDomainChangeMessagePending() {
+
+        DataStore store = new DataStore(new MockZMSFileChangeLogStore(ZTS_DATA_STORE_PATH, pkey, "0"),
+                null, ztsMetric);
+
+        // with a pending fetch for the domain we're not going
+        // to submit another one (our executor is not set)
+
+        store.pendingDomainChanges.add("sports");
+        store.processDomainChangeMessage(new DomainChangeMessage().setDomainName("sports"));
+        store.processDomainChangeMessage(new DomainChangeMessage().setDomainName(""));
+        assertEquals(store.pendingDomainChanges, Collections.singleton("sports"));
+    }
+
+    @Test
+    public void testProcessDomainChange() {
+
+        MockZMSFileChangeLogStore clogStore = new MockZMSFileChangeLogStore(ZTS_DATA_STORE_PATH, pkey, "0");
         DataStore store = new DataStore(clogStore, null, ztsMetric);
-        
-        List<SignedDomain> list = new ArrayList<>();
-        
-        // if we have one successful domain and one failure
-        // then our result is going to be success
-        
-        SignedDomain signedDomain = createSignedDomain("coretech", "weather");
-        list.add(signedDomain);
-        
-        signedDomain = createSignedDomain("sports", "weather");
-        signedDomain.setSignature("Invalid0");
-        list.add(signedDomain);
-        
-        SignedDomains signedDomains = new SignedDomains();
-        signedDomains.setDomains(list);
 
-        assertTrue(store.processSignedDomains(signedDomains));
+        // signed domain not available from zms
+
+        store.pendingDomainChanges.add("sports");
+        clogStore.setSignedDomains(null);
+        assertFalse(store.processDomainChange("sports"));
+        assertTrue(store.pendingDomainChanges.isEmpty());
+
+        // valid signed domain
+
+        SignedDomain signedDomain = createSignedDomain("sports", "weather");
+        clogStore.setSignedDomains(new SignedDomains().setDomains(Collections.singletonList(signedDomain)));
+        assertTrue(store.processDomainChange("sports"));
+        assertNotNull(store.getDomainData("sports"));
+
+        // jws domain not available from zms
+
+        store.jwsDomainSupport = true;
+        assertFalse(store.processDomainChange("weather"));
+        assertNull(store.getDomainData("weather"));
+
+        // failure when fetching the domain
+
+        ChangeLogStore mockStore = Mockito.mock(ChangeLogStore.class);
+        when(mockStore.getServerJWSDomain("weather")).thenThrow(new IllegalStateException("failure"));
+        store.changeLogStore = mockStore;
+        assertFalse(store.processDomainChange("weather"));
     }
-    
+
     @Test
-    public void testProcessSignedDomainsAllInvalidDomain() {
-        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
-                pkey, "0");
+    public void testProcessDomainChangeFetchWithoutLock() {
+
+        DataStore store = new DataStore(new MockZMSFileChangeLogStore(ZTS_DATA_STORE_PATH, pkey, "0"),
+                null, ztsMetric);
+
+        // the domain must be fetched from zms without holding
+        // the domain lock
+
+        SignedDomain signedDomain = createSignedDomain("sports", "weather");
+        ChangeLogStore mockStore = Mockito.mock(ChangeLogStore.class);
+        when(mockStore.getServerSignedDomain("sports")).thenAnswer(invocation -> {
+            assertFalse(((ReentrantLock) store.getDomainProcessLock("sports")).isHeldByCurrentThread());
+            return signedDomain;
+        });
+        store.changeLogStore = mockStore;
+        assertTrue(store.processDomainChange("sports"));
+        assertNotNull(store.getDomainData("sports"));
+        assertFalse(((ReentrantLock) store.getDomainProcessLock("sports")).isHeldByCurrentThread());
+    }
+
+    private void mockUpdatedSignedDomains(ChangeLogStore clogStore, boolean status, final String lastModTime,
+            SignedDomain... signedDomains) {
+        Mockito.doAnswer(invocation -> {
+            StringBuilder lastModTimeBuffer = invocation.getArgument(0);
+            lastModTimeBuffer.append(lastModTime);
+            Consumer<SignedDomain> domainConsumer = invocation.getArgument(1);
+            for (SignedDomain signedDomain : signedDomains) {
+                domainConsumer.accept(signedDomain);
+            }
+            return status;
+        }).when(clogStore).getUpdatedSignedDomains(ArgumentMatchers.any(StringBuilder.class), ArgumentMatchers.any());
+    }
+
+    @Test
+    public void testProcessSignedDomainUpdates() {
+
+        ChangeLogStore clogStore = Mockito.mock(ChangeLogStore.class);
         DataStore store = new DataStore(clogStore, null, ztsMetric);
-        
-        List<SignedDomain> list = new ArrayList<>();
-        
-        // if we have only failures, then our result
-        // is going to be failure
-        
+        store.loadAthenzPublicKeys();
+
+        // all domains are processed as they're received from the store
+
+        mockUpdatedSignedDomains(clogStore, true, "1001", createSignedDomain("coretech", "weather"),
+                createSignedDomain("sports", "weather"));
+        assertTrue(store.processSignedDomainUpdates());
+        assertNotNull(store.getDomainData("coretech"));
+        assertNotNull(store.getDomainData("sports"));
+        Mockito.verify(clogStore, Mockito.times(1)).setLastModificationTimestamp("1001");
+
+        // no updates still updates our timestamp
+
+        mockUpdatedSignedDomains(clogStore, true, "1002");
+        assertTrue(store.processSignedDomainUpdates());
+        Mockito.verify(clogStore, Mockito.times(1)).setLastModificationTimestamp("1002");
+    }
+
+    @Test
+    public void testProcessSignedDomainUpdatesPartialFailure() {
+
+        ChangeLogStore clogStore = Mockito.mock(ChangeLogStore.class);
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        store.loadAthenzPublicKeys();
+
+        SignedDomain invalidDomain = createSignedDomain("sports", "weather");
+        invalidDomain.setSignature("ABCD");
+
+        // as long as one domain is processed we update the timestamp
+
+        mockUpdatedSignedDomains(clogStore, true, "1001", invalidDomain,
+                createSignedDomain("coretech", "weather"));
+        assertTrue(store.processSignedDomainUpdates());
+        assertNotNull(store.getDomainData("coretech"));
+        assertNull(store.getDomainData("sports"));
+        Mockito.verify(clogStore, Mockito.times(1)).setLastModificationTimestamp("1001");
+
+        // if none of the domains are processed the timestamp is not updated
+
+        mockUpdatedSignedDomains(clogStore, true, "1002", invalidDomain);
+        assertFalse(store.processSignedDomainUpdates());
+        Mockito.verify(clogStore, Mockito.never()).setLastModificationTimestamp("1002");
+
+        // failure to retrieve the domains does not update the timestamp
+        // even if some of the domains were already processed
+
+        mockUpdatedSignedDomains(clogStore, false, "1003", createSignedDomain("mail", "weather"));
+        assertFalse(store.processSignedDomainUpdates());
+        assertNotNull(store.getDomainData("mail"));
+        Mockito.verify(clogStore, Mockito.never()).setLastModificationTimestamp("1003");
+    }
+
+    @Test
+    public void testProcessDomainChangeUpToDate() {
+
+        MockZMSFileChangeLogStore clogStore = new MockZMSFileChangeLogStore(ZTS_DATA_STORE_PATH, pkey, "0");
+        DataStore store = Mockito.spy(new DataStore(clogStore, null, ztsMetric));
+
         SignedDomain signedDomain = createSignedDomain("sports", "weather");
-        signedDomain.setSignature("Invalid0");
-        list.add(signedDomain);
-        
-        SignedDomains signedDomains = new SignedDomains();
-        signedDomains.setDomains(list);
+        clogStore.setSignedDomains(new SignedDomains().setDomains(Collections.singletonList(signedDomain)));
+        assertTrue(store.processDomainChange("sports"));
+        assertTrue(store.isDomainDataCurrent(signedDomain.getDomain()));
+
+        // the same domain is not processed again
+
+        assertTrue(store.processDomainChange("sports"));
+        Mockito.verify(store, Mockito.times(1)).processSignedDomain(signedDomain, true);
+
+        // a newer domain is processed
+
+        SignedDomain updatedDomain = createSignedDomain("sports", "weather");
+        updatedDomain.getDomain().setModified(Timestamp.fromMillis(
+                signedDomain.getDomain().getModified().millis() + 1000));
+        assertFalse(store.isDomainDataCurrent(updatedDomain.getDomain()));
+        clogStore.setSignedDomains(new SignedDomains().setDomains(Collections.singletonList(updatedDomain)));
+        assertTrue(store.processDomainChange("sports"));
+        Mockito.verify(store, Mockito.times(1)).processSignedDomain(updatedDomain, true);
+
+        // jws domains are checked the same way
 
-        assertFalse(store.processSignedDomains(signedDomains));
+        store.jwsDomainSupport = true;
+        JWSDomain jwsDomain = signJwsDomain(updatedDomain.getDomain(), "0");
+        ChangeLogStore mockStore = Mockito.mock(ChangeLogStore.class);
+        when(mockStore.getServerJWSDomain("sports")).thenReturn(jwsDomain);
+        store.changeLogStore = mockStore;
+        assertTrue(store.processDomainChange("sports"));
+        Mockito.verify(store, Mockito.never()).processJWSDomain(ArgumentMatchers.eq(jwsDomain),
+                ArgumentMatchers.any(DomainData.class), ArgumentMatchers.eq(true));
+
+        // domains that are not in our cache or without a modified
+        // timestamp are always processed
+
+        assertFalse(store.isDomainDataCurrent(new DomainData().setName("unknown")
+                .setModified(Timestamp.fromCurrentTime())));
+        assertFalse(store.isDomainDataCurrent(new DomainData().setName("sports")));
     }
-    
+
+    @Test
+    public void testProcessDomainSkipsOlderDomain() {
+
+        ChangeLogStore clogStore = Mockito.mock(ChangeLogStore.class);
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        store.loadAthenzPublicKeys();
+
+        SignedDomain newDomain = createSignedDomain("sports", "weather");
+        final long modified = newDomain.getDomain().getModified().millis();
+        assertTrue(store.processSignedDomain(newDomain, true));
+
+        // an older copy of the domain processed by another thread
+        // must not replace the newer one in our cache or store
+
+        SignedDomain oldDomain = createSignedDomain("sports", "weather");
+        oldDomain.getDomain().setModified(Timestamp.fromMillis(modified - 1000));
+        oldDomain.setSignature(Crypto.sign(SignUtils.asCanonicalString(oldDomain.getDomain()), pkey));
+        assertTrue(store.isDomainDataOlder(oldDomain.getDomain()));
+
+        assertTrue(store.processSignedDomain(oldDomain, true));
+        assertEquals(store.getDomainData("sports").getModified().millis(), modified);
+        Mockito.verify(clogStore, Mockito.never()).saveLocalDomain("sports", oldDomain);
+
+        JWSDomain oldJwsDomain = signJwsDomain(oldDomain.getDomain(), "0");
+        assertTrue(store.processJWSDomain(oldJwsDomain, true));
+        assertEquals(store.getDomainData("sports").getModified().millis(), modified);
+        Mockito.verify(clogStore, Mockito.never()).saveLocalDomain("sports", oldJwsDomain);
+
+        // the same version of the domain is processed again so
+        // its fetch time is updated in our store
+
+        assertFalse(store.isDomainDataOlder(newDomain.getDomain()));
+        assertTrue(store.processSignedDomain(newDomain, true));
+        Mockito.verify(clogStore, Mockito.times(2)).saveLocalDomain("sports", newDomain);
+
+        // domains that are not in our cache or without a modified
+        // timestamp are always processed
+
+        assertFalse(store.isDomainDataOlder(new DomainData().setName("unknown")
+                .setModified(Timestamp.fromCurrentTime())));
+        assertFalse(store.isDomainDataOlder(new DomainData().setName("sports")));
+    }
+
     private DataCache createDataCache(String domainName) {
         
         DataCache dataCache = new DataCache();
@@ -4840,6 +5837,54 @@ public class DataStoreTest {
         assertTrue(accessibleRoles.contains("role3"));
     }
 
+    @Test
+    public void testGetAccessibleRolesWithGroupsPrincipalRolesCache() {
+
+        System.setProperty("athenz.zts.principal_roles_cache_size", "100");
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root", pkey, "0");
+        DataStore store = new DataStore(clogStore, null, ztsMetric);
+        store.loadAthenzPublicKeys();
+
+        final String domainName = "access-domain";
+        ZTSTestUtils.setupDomainsWithGroups(store, pkey, domainName, Collections.emptyList());
+
+        Set<String> accessibleRoles = new HashSet<>();
+        DataCache data = store.getDataCache("access-domain1");
+        store.getAccessibleRoles(data, "access-domain1", "user.user1", null, false, accessibleRoles, false);
+
+        assertEquals(accessibleRoles.size(), 2);
+        assertTrue(accessibleRoles.contains("role1"));
+        assertTrue(accessibleRoles.contains("role2"));
+
+        // user6 has access to role5 through group5 until the member expires
+
+        data = store.getDataCache("access-domain3");
+        accessibleRoles.clear();
+        store.getAccessibleRoles(data, "access-domain3", "user.user6", null, false, accessibleRoles, false);
+        assertEquals(accessibleRoles.size(), 1);
+        assertTrue(accessibleRoles.contains("role5"));
+
+        ZTSTestUtils.sleep(2000);
+
+        accessibleRoles.clear();
+        store.getAccessibleRoles(data, "access-domain3", "user.user6", null, false, accessibleRoles, false);
+        assertTrue(accessibleRoles.isEmpty());
+
+        // deleting group1 removes the cached roles for user1
+
+        ZTSTestUtils.setupDomainsWithGroups(store, pkey, domainName,
+                Arrays.asList("access-domain1:group.group1", "access-domain3:group.group6", "access-domain2:group.group4"));
+
+        data = store.getDataCache("access-domain1");
+
+        accessibleRoles.clear();
+        store.getAccessibleRoles(data, "access-domain1", "user.user1", null, false, accessibleRoles, false);
+        assertTrue(accessibleRoles.isEmpty());
+
+        System.clearProperty("athenz.zts.principal_roles_cache_size");
+    }
+
     @Test
     public void testDomainDeleteWithGroups() {
 
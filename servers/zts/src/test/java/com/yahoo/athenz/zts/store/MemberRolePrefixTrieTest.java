@@ -0,0 +1,124 @@
+/*
+ *
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.zts.store;
+
+import com.yahoo.athenz.zts.cache.MemberRole;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static org.testng.Assert.*;
+
+public class MemberRolePrefixTrieTest {
+
+    private MemberRolePrefixTrie generateTestTrie() {
+        MemberRolePrefixTrie trie = new MemberRolePrefixTrie();
+        trie.insert("user.", new MemberRole("coretech:role.users", 0));
+        trie.insert("user.j", new MemberRole("coretech:role.j-users", 0));
+        trie.insert("user.j", new MemberRole("coretech:role.j-users2", 100));
+        trie.insert("sports.api", new MemberRole("coretech:role.api", 0));
+        trie.insert("sports.", new MemberRole("coretech:role.sports", 0));
+        return trie;
+    }
+
+    @Test
+    public void testFindMatchingValues() {
+
+        MemberRolePrefixTrie trie = generateTestTrie();
+        assertFalse(trie.isEmpty());
+
+        Set<MemberRole> roles = trie.findMatchingValues("user.joe");
+        assertEquals(roles.size(), 3);
+        assertTrue(roles.contains(new MemberRole("coretech:role.users", 0)));
+        assertTrue(roles.contains(new MemberRole("coretech:role.j-users", 0)));
+        assertTrue(roles.contains(new MemberRole("coretech:role.j-users2", 100)));
+
+        roles = trie.findMatchingValues("user.jane");
+        assertEquals(roles.size(), 3);
+
+        roles = trie.findMatchingValues("user.bob");
+        assertEquals(roles.size(), 1);
+        assertTrue(roles.contains(new MemberRole("coretech:role.users", 0)));
+
+        // exact prefix match
+
+        roles = trie.findMatchingValues("user.");
+        assertEquals(roles.size(), 1);
+
+        roles = trie.findMatchingValues("sports.api-backend");
+        assertEquals(roles.size(), 2);
+        assertTrue(roles.contains(new MemberRole("coretech:role.api", 0)));
+        assertTrue(roles.contains(new MemberRole("coretech:role.sports", 0)));
+
+        roles = trie.findMatchingValues("sports.ap");
+        assertEquals(roles.size(), 1);
+        assertTrue(roles.contains(new MemberRole("coretech:role.sports", 0)));
+
+        assertTrue(trie.findMatchingValues("user").isEmpty());
+        assertTrue(trie.findMatchingValues("weather.api").isEmpty());
+        assertTrue(trie.findMatchingValues("").isEmpty());
+    }
+
+    @Test
+    public void testEmptyPrefix() {
+
+        MemberRolePrefixTrie trie = new MemberRolePrefixTrie();
+        assertTrue(trie.isEmpty());
+
+        trie.insert("", new MemberRole("coretech:role.all", 0));
+        assertFalse(trie.isEmpty());
+
+        assertEquals(trie.findMatchingValues("user.joe").size(), 1);
+        assertEquals(trie.findMatchingValues("").size(), 1);
+
+        trie.delete("", new MemberRole("coretech:role.all", 0));
+        assertTrue(trie.isEmpty());
+    }
+
+    @Test
+    public void testDelete() {
+
+        MemberRolePrefixTrie trie = generateTestTrie();
+
+        // deleting unknown entries is a no-op
+
+        trie.delete("user.k", new MemberRole("coretech:role.j-users", 0));
+        trie.delete("user.j", new MemberRole("coretech:role.unknown", 0));
+        assertEquals(trie.findMatchingValues("user.joe").size(), 3);
+
+        trie.delete("user.j", new MemberRole("coretech:role.j-users", 0));
+        assertEquals(trie.findMatchingValues("user.joe").size(), 2);
+
+        trie.delete("user.j", new MemberRole("coretech:role.j-users2", 100));
+        Set<MemberRole> roles = trie.findMatchingValues("user.joe");
+        assertEquals(roles.size(), 1);
+        assertTrue(roles.contains(new MemberRole("coretech:role.users", 0)));
+
+        // deleting a parent prefix must not remove the children
+
+        trie.delete("sports.", new MemberRole("coretech:role.sports", 0));
+        roles = trie.findMatchingValues("sports.api-backend");
+        assertEquals(roles.size(), 1);
+        assertTrue(roles.contains(new MemberRole("coretech:role.api", 0)));
+
+        trie.delete("sports.api", new MemberRole("coretech:role.api", 0));
+        trie.delete("user.", new MemberRole("coretech:role.users", 0));
+        assertTrue(trie.isEmpty());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *
+ *  Copyright The Athenz Authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package com.yahoo.athenz.zts.store;
+
+import com.yahoo.athenz.zts.cache.MemberRole;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original linear scan of all wildcard member prefixes
+ * against the prefix trie lookup for a domain with 10k prefix entries.
+ * The benchmark is not part of the unit test suite - run the main
+ * method with the module test classpath to execute it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrefixMemberRoleBenchmark {
+
+    @Param({"10000"})
+    int prefixCount;
+
+    Map<String, Set<MemberRole>> prefixMap;
+    MemberRolePrefixTrie prefixTrie;
+    String[] identities;
+
+    @Setup
+    public void setup() {
+
+        prefixMap = new HashMap<>();
+        prefixTrie = new MemberRolePrefixTrie();
+
+        for (int i = 0; i < prefixCount; i++) {
+
+            // generate a mix of domain (sports123.*) and
+            // service (sports123.api*) wildcard members
+
+            final String prefix = (i % 2 == 0) ? "sports" + i + "." : "weather" + i + ".api";
+            final MemberRole memberRole = new MemberRole("coretech:role.role" + i, 0);
+            prefixMap.computeIfAbsent(prefix, k -> new HashSet<>()).add(memberRole);
+            prefixTrie.insert(prefix, memberRole);
+        }
+
+        identities = new String[] { "sports100.backend", "weather101.api-frontend",
+                "user.joe", "sports9998.api" };
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        for (String identity : identities) {
+            for (Map.Entry<String, Set<MemberRole>> entry : prefixMap.entrySet()) {
+                if (identity.startsWith(entry.getKey())) {
+                    blackhole.consume(entry.getValue());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void trieLookup(Blackhole blackhole) {
+        for (String identity : identities) {
+            blackhole.consume(prefixTrie.findMatchingValues(identity));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PrefixMemberRoleBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}